@@ -0,0 +1,114 @@
+package com.bistro_template_backend.services;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Time for {@code checkouts} concurrent checkouts to finish on Tomcat's
+ * default 200 platform request threads versus one virtual thread each.
+ * Divide {@code checkouts} by the score for checkouts per second.
+ * <p>
+ * A checkout is modelled by its blocking calls. It makes four short JDBC
+ * round trips and one Stripe call, then hands off to a shared SMTP transport
+ * pool. The {@code guard} param protects that hand-off with nothing, with
+ * {@code synchronized} (pins the carrier on this JDK), or with a
+ * ReentrantLock. The latencies are fixed sleeps, so this compares the
+ * threading models, not the application.
+ * <p>
+ * Run with {@code ./gradlew jmh -PjmhIncludes=CheckoutConcurrencyBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Djdk.virtualThreadScheduler.parallelism=8")
+public class CheckoutConcurrencyBenchmark {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int SMTP_TRANSPORTS = 4;
+    private static final long JDBC_MILLIS = 2;
+    private static final long STRIPE_MILLIS = 150;
+    private static final long SMTP_HANDOFF_MILLIS = 1;
+
+    @Param({"platform", "virtual"})
+    String threads;
+
+    @Param({"none", "synchronized", "reentrant"})
+    String guard;
+
+    @Param({"2000"})
+    int checkouts;
+
+    private ExecutorService executor;
+    private final Object[] monitors = new Object[SMTP_TRANSPORTS];
+    private final ReentrantLock[] locks = new ReentrantLock[SMTP_TRANSPORTS];
+
+    @Setup
+    public void setUp() {
+        executor = "virtual".equals(threads)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        for (int i = 0; i < SMTP_TRANSPORTS; i++) {
+            monitors[i] = new Object();
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public int checkoutWave() throws Exception {
+        List<Future<?>> futures = new ArrayList<>(checkouts);
+        for (int i = 0; i < checkouts; i++) {
+            int transport = i % SMTP_TRANSPORTS;
+            futures.add(executor.submit(() -> checkout(transport)));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        return futures.size();
+    }
+
+    private void checkout(int transport) {
+        block(JDBC_MILLIS);      // cart validation and customization lookup
+        block(JDBC_MILLIS);      // order and item inserts
+        block(STRIPE_MILLIS);    // PaymentIntent create / confirm
+        block(JDBC_MILLIS);      // payment update
+        block(JDBC_MILLIS);      // outbox insert
+        switch (guard) {
+            case "synchronized" -> {
+                synchronized (monitors[transport]) {
+                    block(SMTP_HANDOFF_MILLIS);
+                }
+            }
+            case "reentrant" -> {
+                locks[transport].lock();
+                try {
+                    block(SMTP_HANDOFF_MILLIS);
+                } finally {
+                    locks[transport].unlock();
+                }
+            }
+            default -> block(SMTP_HANDOFF_MILLIS);
+        }
+    }
+
+    private static void block(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
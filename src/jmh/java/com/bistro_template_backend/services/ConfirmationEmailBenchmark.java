@@ -0,0 +1,499 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.config.RestaurantBranding;
+import com.bistro_template_backend.dto.OrderEmailView;
+import com.bistro_template_backend.models.Customization;
+import com.bistro_template_backend.models.MenuItem;
+import com.bistro_template_backend.models.Order;
+import com.bistro_template_backend.models.OrderItem;
+import com.bistro_template_backend.models.OrderItemCustomization;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the view of an order of {@code items} lines, each with two
+ * customizations, and renders the customer confirmation and the admin alert
+ * from it, as {@link OrderEmailService#sendConfirmationEmails} does once the
+ * rows are loaded. {@code stringConcatenation} is the baseline: the renderer
+ * that predates the templates, kept verbatim apart from the repository lookups.
+ * <p>
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfirmationEmailBenchmark {
+
+    @Param({"3", "20"})
+    int items;
+
+    private Order order;
+    private List<OrderItem> orderItems;
+    private Map<Long, MenuItem> menuItemsById;
+    private Map<Long, List<OrderItemCustomization>> selectionsByItemId;
+    private RestaurantBranding branding;
+    private EmailTemplates emailTemplates;
+
+    @Setup
+    public void setUp() {
+        order = new Order();
+        order.setId(1042L);
+        order.setCustomerName("Jamie Rivera");
+        order.setCustomerEmail("jamie@example.com");
+        order.setOrderDate(LocalDateTime.of(2025, 5, 2, 12, 30));
+        order.setSpecialNotes("Extra napkins, please");
+
+        orderItems = new ArrayList<>();
+        menuItemsById = new HashMap<>();
+        selectionsByItemId = new HashMap<>();
+        BigDecimal subTotal = BigDecimal.ZERO;
+        for (long i = 1; i <= items; i++) {
+            MenuItem menuItem = new MenuItem();
+            menuItem.setId(i);
+            menuItem.setName("Menu item " + i);
+            menuItem.setPrice(new BigDecimal("11.95"));
+            menuItemsById.put(i, menuItem);
+
+            OrderItem item = new OrderItem();
+            item.setId(100 + i);
+            item.setMenuItemId(i);
+            item.setQuantity(2);
+            item.setItemPrice(menuItem.getPrice());
+            orderItems.add(item);
+            subTotal = subTotal.add(menuItem.getPrice().multiply(BigDecimal.valueOf(2)));
+
+            List<OrderItemCustomization> selections = new ArrayList<>();
+            for (int c = 0; c < 2; c++) {
+                Customization customization = new Customization();
+                customization.setId(i * 10 + c);
+                customization.setName(c == 0 ? "Extra cheese" : "No onions");
+                customization.setPrice(c == 0 ? new BigDecimal("1.50") : BigDecimal.ZERO);
+                OrderItemCustomization selection = new OrderItemCustomization();
+                selection.setOrderItem(item);
+                selection.setCustomization(customization);
+                selections.add(selection);
+            }
+            selectionsByItemId.put(item.getId(), selections);
+        }
+        order.setSubTotal(subTotal);
+        order.setTax(subTotal.multiply(new BigDecimal("0.0825")));
+        order.setServiceFee(subTotal.multiply(new BigDecimal("0.029")).add(new BigDecimal("0.30")));
+        order.setTotalAmount(order.getSubTotal().add(order.getTax()).add(order.getServiceFee()));
+
+        branding = new RestaurantBranding("Your Restaurant Name", "14019 Southwest Fwy, Ste 204, Sugar Land, TX 77478",
+                "(281) 242-0190", "#c6632c", "#d9534f");
+        emailTemplates = new EmailTemplates();
+    }
+
+    @Benchmark
+    public void renderConfirmationEmails(Blackhole blackhole) {
+        OrderEmailView view = view();
+        blackhole.consume(emailTemplates.render("order-confirmation-customer.html", view));
+        blackhole.consume(emailTemplates.render("order-alert-admin.html", view));
+    }
+
+    @Benchmark
+    public void stringConcatenation(Blackhole blackhole) {
+        legacy(blackhole);
+    }
+
+    // Same formatting as OrderEmailService.buildView, minus the repository calls
+    private OrderEmailView view() {
+        List<OrderEmailView.Item> viewItems = new ArrayList<>(orderItems.size());
+        int totalItems = 0;
+        int totalCustomizations = 0;
+        for (OrderItem item : orderItems) {
+            MenuItem menuItem = menuItemsById.get(item.getMenuItemId());
+            List<OrderEmailView.Selection> selections = new ArrayList<>();
+            for (OrderItemCustomization selection : selectionsByItemId.getOrDefault(item.getId(), List.of())) {
+                BigDecimal price = selection.getCustomization().getPrice();
+                selections.add(new OrderEmailView.Selection(selection.getCustomization().getName(),
+                        price.signum() > 0 ? OrderEmailService.money(price) : null));
+            }
+            totalItems += item.getQuantity();
+            totalCustomizations += selections.size();
+            viewItems.add(new OrderEmailView.Item(menuItem.getName(), item.getQuantity(),
+                    OrderEmailService.money(menuItem.getPrice()), selections));
+        }
+        return new OrderEmailView(order.getId(), order.getCustomerName(), order.getCustomerEmail(),
+                order.getOrderDate().format(OrderEmailService.ORDER_DATE),
+                OrderEmailService.pickupRange(order.getOrderDate(), totalItems, totalCustomizations),
+                order.getSpecialNotes(), viewItems,
+                OrderEmailService.money(order.getSubTotal()), OrderEmailService.money(order.getTax()),
+                OrderEmailService.money(order.getServiceFee()), OrderEmailService.money(order.getTotalAmount()),
+                branding);
+    }
+
+    private void legacy(Blackhole blackhole) {
+        List<OrderItem> orderItems = this.orderItems;
+        Map<Long, MenuItem> menuItemsById = this.menuItemsById;
+        Map<Long, List<OrderItemCustomization>> selectionsByItemId = this.selectionsByItemId;
+        Order order = this.order;
+
+        // Base time and calculations (unchanged)
+        LocalDateTime orderTime = order.getOrderDate();
+        int baseTime = 15; // 15 minutes base preparation time
+        int extraTime = 0;
+
+        // Count total items and customizations (unchanged)
+        int totalItems = orderItems.stream().mapToInt(OrderItem::getQuantity).sum();
+        int totalCustomizations = orderItems.stream()
+                .mapToInt(item -> selectionsByItemId.getOrDefault(item.getId(), List.of()).size())
+                .sum();
+
+        // Add extra time based on order size (unchanged)
+        if (totalItems > 5) {
+            extraTime += 10;
+        }
+        if (totalItems > 10) {
+            extraTime += 20;
+        }
+
+        // Add extra time for each customization (2 min per customization) (unchanged)
+        extraTime += totalCustomizations * 2;
+
+        // Add extra time for peak hours (12 PM - 2 PM, 6 PM - 8 PM) (unchanged)
+        int orderHour = orderTime.getHour();
+        if ((orderHour >= 12 && orderHour < 14) || (orderHour >= 18 && orderHour < 20)) {
+            extraTime += 20;
+        }
+
+        // Calculate pickup time range (add breathing room of 10 minutes) (unchanged)
+        LocalDateTime estimatedPickupMin = orderTime.plusMinutes(baseTime + extraTime);
+        LocalDateTime estimatedPickupMax = estimatedPickupMin.plusMinutes(10);
+
+        // Format pickup time range (unchanged)
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("hh:mm a");
+        String formattedPickupRange = estimatedPickupMin.format(formatter) + " - " + estimatedPickupMax.format(formatter);
+
+        // Build HTML email content for order details - IMPROVED VERSION
+        String customerEmail = order.getCustomerEmail();
+        String customerSubject = "Order Confirmation: Your Your Restaurant Name Order #" + order.getId();
+        String adminSubject = "New Order #" + order.getId() + " - Ready for Preparation";
+
+        // Customer HTML email - IMPROVED VERSION
+        String customerHtmlBody = "<!DOCTYPE html>\n" +
+                "<html>\n" +
+                "<head>\n" +
+                "    <meta charset='UTF-8'>\n" +
+                "    <meta name='viewport' content='width=device-width, initial-scale=1.0'>\n" +
+                "    <title>Order Confirmation</title>\n" +
+                "</head>\n" +
+                "<body style='font-family: Arial, sans-serif; margin: 0; padding: 0; background-color: #f8f8f8; color: #333333;'>\n" +
+                "    <table role='presentation' cellspacing='0' cellpadding='0' border='0' align='center' width='100%' style='max-width: 600px; margin: 0 auto; background-color: #ffffff; border-radius: 8px; box-shadow: 0 2px 5px rgba(0,0,0,0.1); overflow: hidden;'>\n" +
+                "        <!-- HEADER -->\n" +
+                "        <tr>\n" +
+                "            <td style='background-color: #c6632c; padding: 30px 40px; text-align: center;'>\n" +
+                "                <h1 style='color: #ffffff; margin: 0; font-size: 28px;'>Order Confirmation</h1>\n" +
+                "            </td>\n" +
+                "        </tr>\n" +
+                "        <!-- MAIN CONTENT -->\n" +
+                "        <tr>\n" +
+                "            <td style='padding: 40px 40px 20px 40px;'>\n" +
+                "                <p style='margin-top: 0; font-size: 16px;'>Dear " + order.getCustomerName() + ",</p>\n" +
+                "                <p style='font-size: 16px;'>Thank you for ordering from Your Restaurant Name! Your order has been received and will be ready for pickup soon.</p>\n" +
+                "                \n" +
+                "                <!-- ORDER DETAILS HEADER -->\n" +
+                "                <table role='presentation' width='100%' cellspacing='0' cellpadding='0' border='0' style='margin: 30px 0 10px 0;'>\n" +
+                "                    <tr>\n" +
+                "                        <td style='background-color: #f5f5f5; padding: 12px 15px; border-top-left-radius: 6px; border-top-right-radius: 6px; border-bottom: 2px solid #c6632c;'>\n" +
+                "                            <h2 style='margin: 0; color: #c6632c; font-size: 18px;'>Order Summary</h2>\n" +
+                "                        </td>\n" +
+                "                    </tr>\n" +
+                "                </table>\n" +
+                "                \n" +
+                "                <!-- ORDER INFO -->\n" +
+                "                <table role='presentation' width='100%' cellspacing='0' cellpadding='0' border='0' style='margin-bottom: 25px; border-collapse: separate; border-spacing: 0;'>\n" +
+                "                    <tr>\n" +
+                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold; width: 40%;'>Order Number:</td>\n" +
+                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee;'>#" + order.getId() + "</td>\n" +
+                "                    </tr>\n" +
+                "                    <tr>\n" +
+                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold;'>Order Date:</td>\n" +
+                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee;'>" +
+                order.getOrderDate().format(DateTimeFormatter.ofPattern("MMMM d, yyyy 'at' hh:mm a")) + "</td>\n" +
+                "                    </tr>\n" +
+                "                    <tr>\n" +
+                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold;'>Estimated Pickup:</td>\n" +
+                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold; color: #c6632c;'>" +
+                formattedPickupRange + "</td>\n" +
+                "                    </tr>\n";
+
+        // Add special notes if present
+        if (order.getSpecialNotes() != null && !order.getSpecialNotes().isEmpty()) {
+            customerHtmlBody += "                    <tr>\n" +
+                    "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold;'>Special Notes:</td>\n" +
+                    "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-style: italic;'>" +
+                    order.getSpecialNotes() + "</td>\n" +
+                    "                    </tr>\n";
+        }
+
+        customerHtmlBody += "                </table>\n" +
+                "                \n" +
+                "                <!-- ORDER ITEMS -->\n" +
+                "                <table role='presentation' width='100%' cellspacing='0' cellpadding='0' border='0' style='margin-bottom: 25px; border-collapse: separate; border-spacing: 0;'>\n" +
+                "                    <tr>\n" +
+                "                        <td colspan='3' style='background-color: #f5f5f5; padding: 12px 15px; border-top-left-radius: 6px; border-top-right-radius: 6px; border-bottom: 2px solid #c6632c;'>\n" +
+                "                            <h3 style='margin: 0; color: #333333; font-size: 16px;'>Items</h3>\n" +
+                "                        </td>\n" +
+                "                    </tr>\n";
+
+        // Add item details
+        for (OrderItem item : orderItems) {
+            MenuItem menuItem = menuItemsById.get(item.getMenuItemId());
+
+            customerHtmlBody += "                    <tr>\n" +
+                    "                        <td style='padding: 15px; border-bottom: 1px solid #eeeeee; width: 60%;'>\n" +
+                    "                            <span style='font-weight: bold; font-size: 16px;'>" + menuItem.getName() + "</span>\n" +
+                    "                        </td>\n" +
+                    "                        <td style='padding: 15px; border-bottom: 1px solid #eeeeee; text-align: center;'>\n" +
+                    "                            x" + item.getQuantity() + "\n" +
+                    "                        </td>\n" +
+                    "                        <td style='padding: 15px; border-bottom: 1px solid #eeeeee; text-align: right;'>\n" +
+                    "                            $" + String.format("%.2f", menuItem.getPrice()) + " each\n" +
+                    "                        </td>\n" +
+                    "                    </tr>\n";
+
+            // Fetch and append customizations for this OrderItem
+            List<OrderItemCustomization> selectedCustomizations = selectionsByItemId.getOrDefault(item.getId(), List.of());
+            if (!selectedCustomizations.isEmpty()) {
+                customerHtmlBody += "                    <tr>\n" +
+                        "                        <td colspan='3' style='padding: 0 15px 15px 30px; border-bottom: 1px solid #eeeeee;'>\n";
+
+                for (OrderItemCustomization customization : selectedCustomizations) {
+                    Customization customizationDetails = customization.getCustomization();
+                    customerHtmlBody += "                            <div style='color: #666666; font-size: 14px; margin-bottom: 5px;'>\n" +
+                            "                                • " + customizationDetails.getName();
+
+                    if (customizationDetails.getPrice().compareTo(BigDecimal.ZERO) > 0) {
+                        customerHtmlBody += " <span style='color: #c6632c;'>(+ $" +
+                                String.format("%.2f", customizationDetails.getPrice()) + ")</span>";
+                    }
+
+                    customerHtmlBody += "\n                            </div>\n";
+                }
+
+                customerHtmlBody += "                        </td>\n" +
+                        "                    </tr>\n";
+            }
+        }
+
+        // Add order totals
+        customerHtmlBody += "                </table>\n" +
+                "                \n" +
+                "                <!-- ORDER TOTALS -->\n" +
+                "                <table role='presentation' width='100%' cellspacing='0' cellpadding='0' border='0' style='margin-bottom: 30px; border-collapse: separate; border-spacing: 0;'>\n" +
+                "                    <tr>\n" +
+                "                        <td style='padding: 12px 15px; text-align: right; font-weight: bold;'>Subtotal:</td>\n" +
+                "                        <td style='padding: 12px 15px; text-align: right; width: 100px;'>$" +
+                String.format("%.2f", order.getSubTotal()) + "</td>\n" +
+                "                    </tr>\n" +
+                "                    <tr>\n" +
+                "                        <td style='padding: 12px 15px; text-align: right; font-weight: bold;'>Tax:</td>\n" +
+                "                        <td style='padding: 12px 15px; text-align: right;'>$" +
+                String.format("%.2f", order.getTax()) + "</td>\n" +
+                "                    </tr>\n" +
+                "                    <tr>\n" +
+                "                        <td style='padding: 12px 15px; text-align: right; font-weight: bold;'>Service Fee:</td>\n" +
+                "                        <td style='padding: 12px 15px; text-align: right;'>$" +
+                String.format("%.2f", order.getServiceFee()) + "</td>\n" +
+                "                    </tr>\n" +
+                "                    <tr>\n" +
+                "                        <td style='padding: 15px; text-align: right; font-weight: bold; font-size: 18px; border-top: 2px solid #eeeeee;'>Total:</td>\n" +
+                "                        <td style='padding: 15px; text-align: right; font-weight: bold; font-size: 18px; border-top: 2px solid #eeeeee; color: #c6632c;'>$" +
+                String.format("%.2f", order.getTotalAmount()) + "</td>\n" +
+                "                    </tr>\n" +
+                "                </table>\n" +
+                "                \n" +
+                "                <p style='font-size: 16px;'>We're preparing your order with care and it will be ready for pickup at our restaurant soon.</p>\n" +
+                "                <p style='font-size: 16px;'>If you have any questions, please contact us at <a href='tel:2812420190' style='color: #c6632c; text-decoration: none;'>(281) 242-0190</a>.</p>\n" +
+                "                <p style='font-size: 16px;'>Thank you for choosing Your Restaurant Name!</p>\n" +
+                "            </td>\n" +
+                "        </tr>\n" +
+                "        <!-- FOOTER -->\n" +
+                "        <tr>\n" +
+                "            <td style='padding: 20px; background-color: #f5f5f5; text-align: center; font-size: 14px; color: #666666;'>\n" +
+                "                <p style='margin: 0 0 10px 0;'><strong>Your Restaurant Name</strong><br>14019 Southwest Fwy, Ste 204, Sugar Land, TX 77478</p>\n" +
+                "                <p style='margin: 0; font-size: 12px;'>© 2025 Your Restaurant Name. All rights reserved.</p>\n" +
+                "            </td>\n" +
+                "        </tr>\n" +
+                "    </table>\n" +
+                "</body>\n" +
+                "</html>";
+
+        // Admin HTML email - IMPROVED VERSION
+        String adminHtmlBody = "<!DOCTYPE html>\n" +
+                "<html>\n" +
+                "<head>\n" +
+                "    <meta charset='UTF-8'>\n" +
+                "    <meta name='viewport' content='width=device-width, initial-scale=1.0'>\n" +
+                "    <title>New Order Alert</title>\n" +
+                "</head>\n" +
+                "<body style='font-family: Arial, sans-serif; margin: 0; padding: 0; background-color: #f8f8f8; color: #333333;'>\n" +
+                "    <table role='presentation' cellspacing='0' cellpadding='0' border='0' align='center' width='100%' style='max-width: 600px; margin: 0 auto; background-color: #ffffff; border-radius: 8px; box-shadow: 0 2px 5px rgba(0,0,0,0.1); overflow: hidden;'>\n" +
+                "        <!-- HEADER -->\n" +
+                "        <tr>\n" +
+                "            <td style='background-color: #d9534f; padding: 30px 40px; text-align: center;'>\n" +
+                "                <h1 style='color: #ffffff; margin: 0; font-size: 28px;'>New Order Alert</h1>\n" +
+                "            </td>\n" +
+                "        </tr>\n" +
+                "        <!-- MAIN CONTENT -->\n" +
+                "        <tr>\n" +
+                "            <td style='padding: 40px 40px 20px 40px;'>\n" +
+                "                <div style='background-color: #fff3cd; border-left: 4px solid #ffc107; padding: 15px; margin-bottom: 25px;'>\n" +
+                "                    <h2 style='margin-top: 0; margin-bottom: 10px; color: #856404; font-size: 18px;'>Action Required</h2>\n" +
+                "                    <p style='margin-bottom: 0; font-size: 16px;'>A new order has been received and needs to be prepared.</p>\n" +
+                "                </div>\n" +
+                "                \n" +
+                "                <!-- ORDER DETAILS HEADER -->\n" +
+                "                <table role='presentation' width='100%' cellspacing='0' cellpadding='0' border='0' style='margin: 20px 0 10px 0;'>\n" +
+                "                    <tr>\n" +
+                "                        <td style='background-color: #f5f5f5; padding: 12px 15px; border-top-left-radius: 6px; border-top-right-radius: 6px; border-bottom: 2px solid #d9534f;'>\n" +
+                "                            <h2 style='margin: 0; color: #d9534f; font-size: 18px;'>Order Information</h2>\n" +
+                "                        </td>\n" +
+                "                    </tr>\n" +
+                "                </table>\n" +
+                "                \n" +
+                "                <!-- ORDER INFO -->\n" +
+                "                <table role='presentation' width='100%' cellspacing='0' cellpadding='0' border='0' style='margin-bottom: 25px; border-collapse: separate; border-spacing: 0;'>\n" +
+                "                    <tr>\n" +
+                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold; width: 40%;'>Order Number:</td>\n" +
+                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold;'>#" + order.getId() + "</td>\n" +
+                "                    </tr>\n" +
+                "                    <tr>\n" +
+                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold;'>Customer:</td>\n" +
+                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee;'>" +
+                order.getCustomerName() + " (" + order.getCustomerEmail() + ")</td>\n" +
+                "                    </tr>\n" +
+                "                    <tr>\n" +
+                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold;'>Order Date:</td>\n" +
+                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee;'>" +
+                order.getOrderDate().format(DateTimeFormatter.ofPattern("MMMM d, yyyy 'at' hh:mm a")) + "</td>\n" +
+                "                    </tr>\n" +
+                "                    <tr>\n" +
+                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold;'>Target Pickup Time:</td>\n" +
+                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold; color: #d9534f;'>" +
+                formattedPickupRange + "</td>\n" +
+                "                    </tr>\n";
+
+        // Add special notes if present
+        if (order.getSpecialNotes() != null && !order.getSpecialNotes().isEmpty()) {
+            adminHtmlBody += "                    <tr>\n" +
+                    "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold;'>Special Notes:</td>\n" +
+                    "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; background-color: #f8f9fa; font-weight: bold;'>" +
+                    order.getSpecialNotes() + "</td>\n" +
+                    "                    </tr>\n";
+        }
+
+        adminHtmlBody += "                </table>\n" +
+                "                \n" +
+                "                <!-- ORDER ITEMS -->\n" +
+                "                <table role='presentation' width='100%' cellspacing='0' cellpadding='0' border='0' style='margin-bottom: 25px; border-collapse: separate; border-spacing: 0;'>\n" +
+                "                    <tr>\n" +
+                "                        <td colspan='3' style='background-color: #f5f5f5; padding: 12px 15px; border-top-left-radius: 6px; border-top-right-radius: 6px; border-bottom: 2px solid #d9534f;'>\n" +
+                "                            <h3 style='margin: 0; color: #333333; font-size: 16px;'>Order Items</h3>\n" +
+                "                        </td>\n" +
+                "                    </tr>\n";
+
+        // Add item details
+        for (OrderItem item : orderItems) {
+            MenuItem menuItem = menuItemsById.get(item.getMenuItemId());
+
+            adminHtmlBody += "                    <tr>\n" +
+                    "                        <td style='padding: 15px; border-bottom: 1px solid #eeeeee; width: 60%; font-weight: bold;'>\n" +
+                    "                            <span style='font-size: 16px;'>" + menuItem.getName() + "</span>\n" +
+                    "                        </td>\n" +
+                    "                        <td style='padding: 15px; border-bottom: 1px solid #eeeeee; text-align: center; font-weight: bold;'>\n" +
+                    "                            x" + item.getQuantity() + "\n" +
+                    "                        </td>\n" +
+                    "                        <td style='padding: 15px; border-bottom: 1px solid #eeeeee; text-align: right;'>\n" +
+                    "                            $" + String.format("%.2f", menuItem.getPrice()) + " each\n" +
+                    "                        </td>\n" +
+                    "                    </tr>\n";
+
+            // Fetch and append customizations for this OrderItem
+            List<OrderItemCustomization> selectedCustomizations = selectionsByItemId.getOrDefault(item.getId(), List.of());
+            if (!selectedCustomizations.isEmpty()) {
+                adminHtmlBody += "                    <tr>\n" +
+                        "                        <td colspan='3' style='padding: 0 15px 15px 30px; border-bottom: 1px solid #eeeeee;'>\n";
+
+                for (OrderItemCustomization customization : selectedCustomizations) {
+                    Customization customizationDetails = customization.getCustomization();
+                    adminHtmlBody += "                            <div style='color: #666666; font-size: 14px; margin-bottom: 5px;'>\n" +
+                            "                                • " + customizationDetails.getName();
+
+                    if (customizationDetails.getPrice().compareTo(BigDecimal.ZERO) > 0) {
+                        adminHtmlBody += " <span style='color: #d9534f;'>(+ $" +
+                                String.format("%.2f", customizationDetails.getPrice()) + ")</span>";
+                    }
+
+                    adminHtmlBody += "\n                            </div>\n";
+                }
+
+                adminHtmlBody += "                        </td>\n" +
+                        "                    </tr>\n";
+            }
+        }
+
+        // Add order totals
+        adminHtmlBody += "                </table>\n" +
+                "                \n" +
+                "                <!-- ORDER TOTALS -->\n" +
+                "                <table role='presentation' width='100%' cellspacing='0' cellpadding='0' border='0' style='margin-bottom: 30px; border-collapse: separate; border-spacing: 0;'>\n" +
+                "                    <tr>\n" +
+                "                        <td style='padding: 12px 15px; text-align: right; font-weight: bold;'>Subtotal:</td>\n" +
+                "                        <td style='padding: 12px 15px; text-align: right; width: 100px;'>$" +
+                String.format("%.2f", order.getSubTotal()) + "</td>\n" +
+                "                    </tr>\n" +
+                "                    <tr>\n" +
+                "                        <td style='padding: 12px 15px; text-align: right; font-weight: bold;'>Tax:</td>\n" +
+                "                        <td style='padding: 12px 15px; text-align: right;'>$" +
+                String.format("%.2f", order.getTax()) + "</td>\n" +
+                "                    </tr>\n" +
+                "                    <tr>\n" +
+                "                        <td style='padding: 12px 15px; text-align: right; font-weight: bold;'>Service Fee:</td>\n" +
+                "                        <td style='padding: 12px 15px; text-align: right;'>$" +
+                String.format("%.2f", order.getServiceFee()) + "</td>\n" +
+                "                    </tr>\n" +
+                "                    <tr>\n" +
+                "                        <td style='padding: 15px; text-align: right; font-weight: bold; font-size: 18px; border-top: 2px solid #eeeeee;'>Total:</td>\n" +
+                "                        <td style='padding: 15px; text-align: right; font-weight: bold; font-size: 18px; border-top: 2px solid #eeeeee; color: #d9534f;'>$" +
+                String.format("%.2f", order.getTotalAmount()) + "</td>\n" +
+                "                    </tr>\n" +
+                "                </table>\n" +
+                "                \n" +
+                "                <div style='background-color: #f8d7da; border-left: 4px solid #d9534f; padding: 15px; margin-bottom: 25px;'>\n" +
+                "                    <p style='margin: 0; font-weight: bold; font-size: 16px;'>Please prepare this order promptly to meet the target pickup time.</p>\n" +
+                "                </div>\n" +
+                "            </td>\n" +
+                "        </tr>\n" +
+                "        <!-- FOOTER -->\n" +
+                "        <tr>\n" +
+                "            <td style='padding: 20px; background-color: #f5f5f5; text-align: center; font-size: 14px; color: #666666;'>\n" +
+                "                <p style='margin: 0 0 10px 0;'>This is an automated system notification.</p>\n" +
+                "                <p style='margin: 0; font-size: 12px;'>© 2025 Your Restaurant Name. All rights reserved.</p>\n" +
+                "            </td>\n" +
+                "        </tr>\n" +
+                "    </table>\n" +
+                "</body>\n" +
+                "</html>";
+
+        blackhole.consume(customerEmail);
+        blackhole.consume(customerSubject);
+        blackhole.consume(adminSubject);
+        blackhole.consume(customerHtmlBody);
+        blackhole.consume(adminHtmlBody);
+    }
+}
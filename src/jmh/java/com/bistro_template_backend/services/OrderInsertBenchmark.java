@@ -0,0 +1,226 @@
+package com.bistro_template_backend.services;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays the statements {@link OrderIngestService#createOrder} sends for an
+ * order of {@code items} lines with two customizations each, committed per
+ * order, against scratch temp tables.
+ * <ul>
+ *   <li>{@code identity}: the old mapping, one {@code INSERT ... RETURNING id}
+ *   round trip per row.</li>
+ *   <li>{@code sequence}: the default profile, ids from pooled sequences
+ *   (allocationSize 50) but one {@code INSERT} per row, as Hibernate sends
+ *   them without {@code hibernate.jdbc.batch_size}.</li>
+ *   <li>{@code batched}: the prod profile, ids from pooled sequences and JDBC
+ *   batches rewritten into multi-row inserts.</li>
+ * </ul>
+ * The {@code inserts} counter is rows inserted per second.
+ * <p>
+ * Needs PostgreSQL: {@code BENCH_DB_URL=jdbc:postgresql://localhost:5432/bistro BENCH_DB_USERNAME=postgres
+ * ./gradlew jmh -PjmhIncludes=OrderInsertBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class OrderInsertBenchmark {
+
+    private static final int ALLOCATION_SIZE = 50;
+    private static final int CUSTOMIZATIONS_PER_ITEM = 2;
+
+    @Param({"identity", "sequence", "batched"})
+    String mode;
+
+    @Param({"3", "10"})
+    int items;
+
+    private Connection connection;
+    private PreparedStatement insertOrder;
+    private PreparedStatement insertItem;
+    private PreparedStatement insertCustomization;
+    private final PooledIds orderIds = new PooledIds("bench_orders_seq");
+    private final PooledIds itemIds = new PooledIds("bench_order_items_seq");
+    private final PooledIds customizationIds = new PooledIds("bench_order_item_customizations_seq");
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+        public long inserts;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            inserts = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws SQLException {
+        String url = System.getenv("BENCH_DB_URL");
+        if (url == null || url.isBlank()) {
+            throw new IllegalStateException("Set BENCH_DB_URL to a PostgreSQL JDBC url");
+        }
+        boolean pooled = !"identity".equals(mode);
+        boolean batched = "batched".equals(mode);
+        Properties properties = new Properties();
+        properties.setProperty("user", System.getenv().getOrDefault("BENCH_DB_USERNAME", "postgres"));
+        properties.setProperty("password", System.getenv().getOrDefault("BENCH_DB_PASSWORD", ""));
+        properties.setProperty("reWriteBatchedInserts", String.valueOf(batched));
+        properties.setProperty("prepareThreshold", batched ? "3" : "5");
+        connection = DriverManager.getConnection(url, properties);
+
+        String id = pooled ? "id bigint primary key" : "id bigint generated by default as identity primary key";
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create temp table bench_orders (" + id + ", order_date timestamp, status varchar(255), "
+                    + "payment_status varchar(255), customer_name varchar(255), customer_email varchar(255), "
+                    + "sub_total numeric(38,2), tax numeric(38,2), total_amount numeric(38,2))");
+            statement.execute("create temp table bench_order_items (" + id + ", order_id bigint, menu_item_id bigint, "
+                    + "quantity integer not null, item_price numeric(38,2))");
+            statement.execute("create temp table bench_order_item_customizations (" + id + ", "
+                    + "order_item_id bigint not null, customization_id bigint not null)");
+            for (String sequence : new String[]{"bench_orders_seq", "bench_order_items_seq", "bench_order_item_customizations_seq"}) {
+                statement.execute("create temp sequence " + sequence
+                        + " start with " + ALLOCATION_SIZE + " increment by " + ALLOCATION_SIZE);
+            }
+        }
+        connection.setAutoCommit(false);
+
+        if (pooled) {
+            insertOrder = connection.prepareStatement("insert into bench_orders (order_date, status, payment_status, "
+                    + "customer_name, customer_email, sub_total, tax, total_amount, id) values (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+            insertItem = connection.prepareStatement("insert into bench_order_items (order_id, menu_item_id, quantity, "
+                    + "item_price, id) values (?, ?, ?, ?, ?)");
+            insertCustomization = connection.prepareStatement("insert into bench_order_item_customizations "
+                    + "(order_item_id, customization_id, id) values (?, ?, ?)");
+        } else {
+            insertOrder = connection.prepareStatement("insert into bench_orders (order_date, status, payment_status, "
+                    + "customer_name, customer_email, sub_total, tax, total_amount) values (?, ?, ?, ?, ?, ?, ?, ?) returning id");
+            insertItem = connection.prepareStatement("insert into bench_order_items (order_id, menu_item_id, quantity, "
+                    + "item_price) values (?, ?, ?, ?) returning id");
+            insertCustomization = connection.prepareStatement("insert into bench_order_item_customizations "
+                    + "(order_item_id, customization_id) values (?, ?) returning id");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public long createOrder(Rows rows) throws SQLException {
+        long orderId = "identity".equals(mode) ? createIdentity() : createPooled("batched".equals(mode));
+        connection.commit();
+        rows.inserts += 1 + items + (long) items * CUSTOMIZATIONS_PER_ITEM;
+        return orderId;
+    }
+
+    private long createIdentity() throws SQLException {
+        bindOrder();
+        long orderId = returnedId(insertOrder);
+        for (int i = 0; i < items; i++) {
+            bindItem(orderId, i);
+            long itemId = returnedId(insertItem);
+            for (int c = 0; c < CUSTOMIZATIONS_PER_ITEM; c++) {
+                insertCustomization.setLong(1, itemId);
+                insertCustomization.setLong(2, c + 1);
+                returnedId(insertCustomization);
+            }
+        }
+        return orderId;
+    }
+
+    private long createPooled(boolean batched) throws SQLException {
+        long orderId = orderIds.next();
+        bindOrder();
+        insertOrder.setLong(9, orderId);
+        insertOrder.executeUpdate();
+        for (int i = 0; i < items; i++) {
+            long itemId = itemIds.next();
+            bindItem(orderId, i);
+            insertItem.setLong(5, itemId);
+            send(insertItem, batched);
+            for (int c = 0; c < CUSTOMIZATIONS_PER_ITEM; c++) {
+                insertCustomization.setLong(1, itemId);
+                insertCustomization.setLong(2, c + 1);
+                insertCustomization.setLong(3, customizationIds.next());
+                send(insertCustomization, batched);
+            }
+        }
+        if (batched) {
+            // order_inserts: all item rows, then all customization rows
+            insertItem.executeBatch();
+            insertCustomization.executeBatch();
+        }
+        return orderId;
+    }
+
+    private static void send(PreparedStatement statement, boolean batched) throws SQLException {
+        if (batched) {
+            statement.addBatch();
+        } else {
+            statement.executeUpdate();
+        }
+    }
+
+    private void bindOrder() throws SQLException {
+        insertOrder.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+        insertOrder.setString(2, "PENDING");
+        insertOrder.setString(3, "NOT_PAID");
+        insertOrder.setString(4, "Jamie Rivera");
+        insertOrder.setString(5, "jamie@example.com");
+        insertOrder.setBigDecimal(6, new BigDecimal("42.00"));
+        insertOrder.setBigDecimal(7, new BigDecimal("3.47"));
+        insertOrder.setBigDecimal(8, new BigDecimal("46.99"));
+    }
+
+    private void bindItem(long orderId, int line) throws SQLException {
+        insertItem.setLong(1, orderId);
+        insertItem.setLong(2, line + 1);
+        insertItem.setInt(3, 1);
+        insertItem.setBigDecimal(4, new BigDecimal("12.50"));
+    }
+
+    private static long returnedId(PreparedStatement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // Hibernate's pooled optimizer: one nextval per ALLOCATION_SIZE ids
+    private final class PooledIds {
+        private final String sequence;
+        private long next;
+        private long limit;
+
+        PooledIds(String sequence) {
+            this.sequence = sequence;
+        }
+
+        long next() throws SQLException {
+            if (next >= limit) {
+                try (Statement statement = connection.createStatement();
+                     ResultSet rs = statement.executeQuery("select nextval('" + sequence + "')")) {
+                    rs.next();
+                    limit = rs.getLong(1);
+                    next = limit - ALLOCATION_SIZE;
+                }
+            }
+            return ++next;
+        }
+    }
+}
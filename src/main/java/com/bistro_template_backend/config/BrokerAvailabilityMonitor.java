@@ -0,0 +1,60 @@
+package com.bistro_template_backend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationListener;
+import org.springframework.messaging.simp.broker.BrokerAvailabilityEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tracks whether the STOMP broker accepts messages. With the relay this flips
+ * whenever the connection to the external broker drops and comes back; the
+ * simple broker is available from startup. Reported as
+ * {@code websocket.broker.available} (1 or 0) and
+ * {@code websocket.broker.disconnects}.
+ */
+@Component
+public class BrokerAvailabilityMonitor implements ApplicationListener<BrokerAvailabilityEvent> {
+
+    private static final Logger log = LoggerFactory.getLogger(BrokerAvailabilityMonitor.class);
+
+    private final AtomicBoolean available = new AtomicBoolean();
+    private final Counter disconnects;
+
+    public BrokerAvailabilityMonitor(MeterRegistry meterRegistry,
+                                     @Value("${websocket.broker.mode:simple}") String brokerMode) {
+        Gauge.builder("websocket.broker.available", available, flag -> flag.get() ? 1 : 0)
+                .description("Whether the STOMP broker accepts messages")
+                .tag("mode", brokerMode)
+                .register(meterRegistry);
+        this.disconnects = Counter.builder("websocket.broker.disconnects")
+                .description("Times the STOMP broker became unavailable")
+                .tag("mode", brokerMode)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onApplicationEvent(BrokerAvailabilityEvent event) {
+        boolean nowAvailable = event.isBrokerAvailable();
+        if (available.getAndSet(nowAvailable) == nowAvailable) {
+            return;
+        }
+        if (nowAvailable) {
+            log.info("STOMP broker available ({})", event.getSource().getClass().getSimpleName());
+        } else {
+            disconnects.increment();
+            log.warn("STOMP broker unavailable ({}); sends fail until it reconnects",
+                    event.getSource().getClass().getSimpleName());
+        }
+    }
+
+    public boolean isAvailable() {
+        return available.get();
+    }
+}
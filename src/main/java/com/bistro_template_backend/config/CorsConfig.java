@@ -1,6 +1,7 @@
 // src/main/java/com/bistro_template_backend/config/CorsConfig.java
 package com.bistro_template_backend.config;
 
+import com.bistro_template_backend.controllers.OrderController;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -23,6 +24,7 @@ public class CorsConfig implements WebMvcConfigurer {
                 )
                 .allowedMethods("*")
                 .allowedHeaders("*")
+                .exposedHeaders(OrderController.ORDER_TOKEN_HEADER)
                 .allowCredentials(false); // Changed to false for broader compatibility
     }
 }
\ No newline at end of file
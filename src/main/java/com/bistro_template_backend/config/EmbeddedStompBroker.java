@@ -0,0 +1,45 @@
+package com.bistro_template_backend.config;
+
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * In-JVM ActiveMQ Artemis broker with a STOMP acceptor on
+ * {@code websocket.broker.embedded.port}, started for
+ * {@code websocket.broker.mode=embedded}. The relay talks to it exactly as to an
+ * external broker. Nothing is persisted. Artemis is only on the bootRun and
+ * test classpaths.
+ */
+@Configuration
+@ConditionalOnProperty(name = "websocket.broker.mode", havingValue = "embedded")
+public class EmbeddedStompBroker {
+
+    @Bean(destroyMethod = "stop")
+    public EmbeddedActiveMQ embeddedActiveMQ(@Value("${websocket.broker.embedded.port:61613}") int port)
+            throws Exception {
+        return start(port);
+    }
+
+    /**
+     * Starts a broker that accepts STOMP on 127.0.0.1:{@code port}. Destinations
+     * under {@code /topic/} are broadcast to every subscriber and those under
+     * {@code /queue/} go to one, as with the simple broker.
+     */
+    public static EmbeddedActiveMQ start(int port) throws Exception {
+        ConfigurationImpl configuration = new ConfigurationImpl();
+        configuration.setPersistenceEnabled(false);
+        configuration.setSecurityEnabled(false);
+        configuration.setJMXManagementEnabled(false);
+        configuration.addAcceptorConfiguration("stomp", "tcp://127.0.0.1:" + port
+                + "?protocols=STOMP;multicastPrefix=/topic/;anycastPrefix=/queue/");
+
+        EmbeddedActiveMQ broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(configuration);
+        broker.start();
+        return broker;
+    }
+}
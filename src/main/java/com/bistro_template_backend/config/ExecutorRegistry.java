@@ -0,0 +1,134 @@
+package com.bistro_template_backend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Named, bounded executors for blocking background work, so SMTP, STOMP fan-out,
+ * Server-Sent Event writes and report queries each have their own threads and never borrow the common
+ * ForkJoinPool or each other's.
+ * <p>
+ * Every pool is configured under {@code executors.<name>}: {@code threads},
+ * {@code queue-capacity} and {@code rejection} ({@code abort} throws,
+ * {@code caller-runs} pushes back on the submitter, {@code discard} drops the
+ * task). The {@code email} pool must abort: {@code MailDispatcher} fails a
+ * message it could not queue, while a discarded message would never complete
+ * and a caller-run one would hold up the outbox relay with an SMTP send.
+ * <p>
+ * Pools report {@code executor.active}, {@code executor.queued},
+ * {@code executor.completed} and friends tagged with their name, plus
+ * {@code executor.rejected}. Threads are virtual when
+ * {@code spring.threads.virtual.enabled} is set; the pool size still bounds
+ * concurrency.
+ */
+@Component
+public class ExecutorRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutorRegistry.class);
+
+    public static final String EMAIL = "email";
+    public static final String NOTIFICATIONS = "notifications";
+    public static final String ANALYTICS = "analytics";
+    public static final String SSE = "sse";
+
+    private static final long SHUTDOWN_GRACE_SECONDS = 30;
+
+    private record Defaults(int threads, int queueCapacity, String rejection) {
+    }
+
+    private static final Map<String, Defaults> POOLS = Map.of(
+            EMAIL, new Defaults(4, 1000, "abort"),
+            NOTIFICATIONS, new Defaults(4, 500, "caller-runs"),
+            ANALYTICS, new Defaults(1, 2, "discard"),
+            SSE, new Defaults(8, 20000, "abort")
+    );
+
+    private final Map<String, ThreadPoolExecutor> executors = new LinkedHashMap<>();
+
+    public ExecutorRegistry(Environment environment,
+                            MeterRegistry meterRegistry,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        POOLS.forEach((name, defaults) -> {
+            String prefix = "executors." + name + ".";
+            int threads = environment.getProperty(prefix + "threads", Integer.class, defaults.threads());
+            int queueCapacity = environment.getProperty(prefix + "queue-capacity", Integer.class, defaults.queueCapacity());
+            String rejection = environment.getProperty(prefix + "rejection", defaults.rejection());
+            if (EMAIL.equals(name) && !"abort".equalsIgnoreCase(rejection)) {
+                throw new IllegalArgumentException("executors.email.rejection must be abort, not " + rejection);
+            }
+
+            ThreadFactory threadFactory = virtualThreads
+                    ? Thread.ofVirtual().name(name + "-", 0).factory()
+                    : Thread.ofPlatform().name(name + "-", 0).daemon(true).factory();
+            BlockingQueue<Runnable> queue = queueCapacity > 0
+                    ? new ArrayBlockingQueue<>(queueCapacity)
+                    : new SynchronousQueue<>();
+            Counter rejected = Counter.builder("executor.rejected")
+                    .description("Tasks the executor refused because its queue was full")
+                    .tag("name", name)
+                    .register(meterRegistry);
+
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, queue,
+                    threadFactory, counting(rejectionHandler(name, rejection), rejected));
+            new ExecutorServiceMetrics(executor, name, Tags.empty()).bindTo(meterRegistry);
+            executors.put(name, executor);
+            log.info("Executor {}: {} {} threads, queue {}, on full: {}", name, threads,
+                    virtualThreads ? "virtual" : "platform", queueCapacity, rejection);
+        });
+    }
+
+    public ThreadPoolExecutor get(String name) {
+        ThreadPoolExecutor executor = executors.get(name);
+        if (executor == null) {
+            throw new IllegalArgumentException("Unknown executor: " + name);
+        }
+        return executor;
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        executors.values().forEach(ThreadPoolExecutor::shutdown);
+        for (Map.Entry<String, ThreadPoolExecutor> entry : executors.entrySet()) {
+            if (!entry.getValue().awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Executor {} stopped with {} queued tasks", entry.getKey(), entry.getValue().getQueue().size());
+                entry.getValue().shutdownNow();
+            }
+        }
+    }
+
+    private static RejectedExecutionHandler rejectionHandler(String name, String rejection) {
+        return switch (rejection.toLowerCase(Locale.ROOT)) {
+            case "abort" -> new ThreadPoolExecutor.AbortPolicy();
+            case "caller-runs" -> new ThreadPoolExecutor.CallerRunsPolicy();
+            case "discard" -> new ThreadPoolExecutor.DiscardPolicy();
+            default -> throw new IllegalArgumentException("executors." + name + ".rejection must be abort, "
+                    + "caller-runs or discard, not " + rejection);
+        };
+    }
+
+    private static RejectedExecutionHandler counting(RejectedExecutionHandler handler, Counter rejected) {
+        return (task, executor) -> {
+            rejected.increment();
+            handler.rejectedExecution(task, executor);
+        };
+    }
+}
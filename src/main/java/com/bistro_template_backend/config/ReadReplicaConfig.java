@@ -0,0 +1,75 @@
+package com.bistro_template_backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Primary/replica data sources, active only when
+ * {@code spring.datasource.replica.url} is set. Without it Spring Boot's single
+ * auto-configured pool is used as before.
+ * <p>
+ * {@code spring.datasource.hikari.*} tunes the primary pool and
+ * {@code spring.datasource.replica.hikari.*} the replica pool.
+ */
+@Configuration
+@ConditionalOnExpression("!'${spring.datasource.replica.url:}'.isEmpty()")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(@Value("${spring.datasource.replica.url}") String url,
+                                              @Value("${spring.datasource.replica.username:${spring.datasource.username:}}") String username,
+                                              @Value("${spring.datasource.replica.password:${spring.datasource.password:}}") String password) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .url(url)
+                .username(username)
+                .password(password)
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    public ReplicaLagGuard replicaLagGuard(@Qualifier("replicaDataSource") DataSource replica,
+                                           MeterRegistry meterRegistry,
+                                           @Value("${datasource.replica.pin-after-write-ms:5000}") long pinAfterWriteMillis,
+                                           @Value("${datasource.replica.max-lag-ms:1000}") long maxLagMillis) {
+        return new ReplicaLagGuard(replica, meterRegistry, pinAfterWriteMillis, maxLagMillis);
+    }
+
+    // What JPA, Flyway and JdbcTemplate get; lazy so routing sees the transaction's read-only flag
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 ReplicaLagGuard replicaLagGuard,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${datasource.replica.packages:com.bistro_template_backend.services}") List<String> replicaPackages) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica, replicaLagGuard,
+                replicaPackages, meterRegistry);
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
@@ -0,0 +1,116 @@
+package com.bistro_template_backend.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides whether a read may go to the replica.
+ * <ul>
+ *   <li>A session that just wrote is pinned to the primary for
+ *   {@code datasource.replica.pin-after-write-ms}, so it reads its own writes.
+ *   The session is the JWT subject, or the client address for anonymous
+ *   callers such as checkout.</li>
+ *   <li>The replica's replay lag is probed on a schedule; while it exceeds
+ *   {@code datasource.replica.max-lag-ms}, or the probe fails, every read
+ *   stays on the primary.</li>
+ * </ul>
+ */
+public class ReplicaLagGuard {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagGuard.class);
+
+    // 0 when the replica has replayed everything it received, so an idle primary does not look like lag
+    private static final String LAG_QUERY = "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 "
+            + "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    private final DataSource replica;
+    private final Duration pinAfterWrite;
+    private final long maxLagMillis;
+    private final Map<String, Instant> pinnedUntil = new ConcurrentHashMap<>();
+
+    private volatile long lagMillis;
+    private volatile boolean replicaHealthy = true;
+
+    public ReplicaLagGuard(DataSource replica, MeterRegistry meterRegistry, long pinAfterWriteMillis, long maxLagMillis) {
+        this.replica = replica;
+        this.pinAfterWrite = Duration.ofMillis(pinAfterWriteMillis);
+        this.maxLagMillis = maxLagMillis;
+        Gauge.builder("datasource.replica.lag", this, guard -> guard.replicaHealthy ? guard.lagMillis : Double.NaN)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("datasource.replica.pinned.sessions", pinnedUntil, Map::size).register(meterRegistry);
+    }
+
+    public boolean allowsReplica(String sessionKey) {
+        if (!replicaHealthy || lagMillis > maxLagMillis) {
+            return false;
+        }
+        if (sessionKey == null) {
+            return true;
+        }
+        Instant until = pinnedUntil.get(sessionKey);
+        return until == null || until.isBefore(Instant.now());
+    }
+
+    public void recordWrite(String sessionKey) {
+        if (sessionKey != null && !pinAfterWrite.isZero()) {
+            pinnedUntil.put(sessionKey, Instant.now().plus(pinAfterWrite));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replica.lag-check-interval-ms:5000}")
+    public void checkLag() {
+        Instant now = Instant.now();
+        pinnedUntil.values().removeIf(until -> until.isBefore(now));
+
+        try (Connection connection = replica.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery(LAG_QUERY)) {
+            rs.next();
+            // null outside recovery, e.g. a second standalone instance in tests
+            lagMillis = (long) rs.getDouble(1);
+            if (!replicaHealthy) {
+                log.info("Replica reachable again, lag {} ms", lagMillis);
+            }
+            replicaHealthy = true;
+        } catch (Exception e) {
+            if (replicaHealthy) {
+                log.warn("Replica lag probe failed, reading from the primary: {}", e.getMessage());
+            }
+            replicaHealthy = false;
+        }
+    }
+
+    /**
+     * The caller a write should be attributed to: the authenticated user, else
+     * the client address of the current request, else null (scheduled work).
+     */
+    public static String currentSessionKey() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return "user:" + authentication.getName();
+        }
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            return "addr:" + attributes.getRequest().getRemoteAddr();
+        }
+        return null;
+    }
+}
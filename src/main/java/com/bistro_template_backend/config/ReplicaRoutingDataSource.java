@@ -0,0 +1,85 @@
+package com.bistro_template_backend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sends read-only transactions declared in {@code datasource.replica.packages}
+ * to the replica and everything else to the primary.
+ * <p>
+ * The package filter keeps Spring Data's implicit read-only transaction
+ * around a single repository call on the primary, so a controller that reads
+ * right after a write still sees it. Must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}:
+ * the transaction's read-only flag is only set after the transaction manager
+ * asks for a connection.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target { PRIMARY, REPLICA }
+
+    private final ReplicaLagGuard lagGuard;
+    private final List<String> replicaPackages;
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagGuard lagGuard,
+                                    List<String> replicaPackages, MeterRegistry meterRegistry) {
+        this.lagGuard = lagGuard;
+        this.replicaPackages = replicaPackages;
+        this.primaryRoutes = Counter.builder("datasource.routing").tag("target", "primary").register(meterRegistry);
+        this.replicaRoutes = Counter.builder("datasource.routing").tag("target", "replica").register(meterRegistry);
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return route();
+    }
+
+    Target route() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            primaryRoutes.increment();
+            return Target.PRIMARY;
+        }
+        String sessionKey = ReplicaLagGuard.currentSessionKey();
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (isReplicaEligible(TransactionSynchronizationManager.getCurrentTransactionName())
+                    && lagGuard.allowsReplica(sessionKey)) {
+                replicaRoutes.increment();
+                return Target.REPLICA;
+            }
+        } else if (sessionKey != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+            // The pin starts once the write is visible on the primary
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    lagGuard.recordWrite(sessionKey);
+                }
+            });
+        }
+        primaryRoutes.increment();
+        return Target.PRIMARY;
+    }
+
+    private boolean isReplicaEligible(String transactionName) {
+        if (transactionName == null) {
+            return false;
+        }
+        for (String replicaPackage : replicaPackages) {
+            if (transactionName.startsWith(replicaPackage + ".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
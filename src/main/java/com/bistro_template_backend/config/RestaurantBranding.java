@@ -0,0 +1,43 @@
+package com.bistro_template_backend.config;
+
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Year;
+
+/**
+ * Restaurant details shown in customer-facing emails, set per deployment in
+ * application.properties.
+ */
+@Component
+@Getter
+public class RestaurantBranding {
+
+    private final String name;
+    private final String address;
+    private final String phone;
+    private final String primaryColor;
+    private final String alertColor;
+
+    public RestaurantBranding(@Value("${restaurant.name:Your Restaurant Name}") String name,
+                              @Value("${restaurant.address:}") String address,
+                              @Value("${restaurant.phone:}") String phone,
+                              @Value("${restaurant.primary-color:#c6632c}") String primaryColor,
+                              @Value("${restaurant.alert-color:#d9534f}") String alertColor) {
+        this.name = name;
+        this.address = address;
+        this.phone = phone;
+        this.primaryColor = primaryColor;
+        this.alertColor = alertColor;
+    }
+
+    // tel: link target, digits only
+    public String getPhoneHref() {
+        return phone.replaceAll("[^0-9+]", "");
+    }
+
+    public int getCopyrightYear() {
+        return Year.now().getValue();
+    }
+}
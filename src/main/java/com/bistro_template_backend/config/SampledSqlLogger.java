@@ -0,0 +1,49 @@
+package com.bistro_template_backend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Replaces {@code spring.jpa.show-sql}: logs a random sample of the SQL
+ * Hibernate prepares through SLF4J instead of printing every statement to
+ * stdout. {@code persistence.sql-log.sample-rate} is the logged fraction,
+ * 1.0 for everything and 0 for nothing; statements are counted either way.
+ */
+@Component
+public class SampledSqlLogger implements StatementInspector, HibernatePropertiesCustomizer {
+
+    private static final Logger log = LoggerFactory.getLogger("sql.sampled");
+
+    private final double sampleRate;
+    private final Counter statements;
+
+    public SampledSqlLogger(MeterRegistry meterRegistry,
+                            @Value("${persistence.sql-log.sample-rate:0}") double sampleRate) {
+        this.sampleRate = sampleRate;
+        this.statements = Counter.builder("hibernate.sql.statements").register(meterRegistry);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        statements.increment();
+        if (sampleRate > 0 && log.isInfoEnabled()
+                && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            log.info(sql);
+        }
+        return sql;
+    }
+
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        hibernateProperties.put("hibernate.session_factory.statement_inspector", this);
+    }
+}
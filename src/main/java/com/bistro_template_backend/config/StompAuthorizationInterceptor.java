@@ -0,0 +1,147 @@
+package com.bistro_template_backend.config;
+
+import com.bistro_template_backend.services.OrderTrackingTokens;
+import com.bistro_template_backend.services.WebSocketOrderService;
+import com.bistro_template_backend.utils.JwtAuthenticationToken;
+import com.bistro_template_backend.utils.JwtUtil;
+import com.bistro_template_backend.utils.OrderTrackingPrincipal;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Component;
+
+import java.security.Principal;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Authenticates STOMP connections and authorizes their subscriptions.
+ * <p>
+ * On CONNECT, staff send the JWT from {@code /api/auth/login} in an
+ * {@code Authorization: Bearer} header and customers send the tracking token
+ * of their order in an {@code order-token} header; anything else connects
+ * anonymously. A SUBSCRIBE is then only accepted for the destinations the
+ * user's audience is meant to see:
+ * <ul>
+ *   <li>{@code /topic/orders}: admins</li>
+ *   <li>{@code /topic/locations/{location}/kitchen}: admins and kitchen staff</li>
+ *   <li>{@code /topic/locations/{location}/front-of-house}: admins and
+ *   front-of-house staff</li>
+ *   <li>{@code /user/queue/orders}: any authenticated user, who only receives
+ *   the messages addressed to them</li>
+ * </ul>
+ * Staff tied to a location may only subscribe to that location's topics.
+ * Clients never publish to broker destinations. A rejected frame closes the
+ * session with a STOMP ERROR.
+ */
+@Component
+public class StompAuthorizationInterceptor implements ChannelInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(StompAuthorizationInterceptor.class);
+
+    static final String ORDER_TOKEN_HEADER = "order-token";
+
+    private static final Pattern LOCATION_TOPIC = Pattern.compile("^/topic/locations/([^/]+)/(kitchen|front-of-house)$");
+    private static final Set<String> KITCHEN_ROLES = Set.of("ROLE_ADMIN", "ROLE_KITCHEN");
+    private static final Set<String> FRONT_OF_HOUSE_ROLES = Set.of("ROLE_ADMIN", "ROLE_FRONT_OF_HOUSE");
+
+    private final JwtUtil jwtUtil;
+    private final OrderTrackingTokens orderTrackingTokens;
+
+    public StompAuthorizationInterceptor(JwtUtil jwtUtil, OrderTrackingTokens orderTrackingTokens) {
+        this.jwtUtil = jwtUtil;
+        this.orderTrackingTokens = orderTrackingTokens;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+        switch (accessor.getCommand()) {
+            case CONNECT, STOMP -> authenticate(accessor);
+            case SUBSCRIBE -> authorizeSubscription(accessor.getUser(), accessor.getDestination());
+            case SEND -> authorizeSend(accessor.getDestination());
+            default -> {
+            }
+        }
+        return message;
+    }
+
+    // The user set here becomes the session's user for every later frame
+    private void authenticate(StompHeaderAccessor accessor) {
+        String authorization = accessor.getFirstNativeHeader("Authorization");
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            JwtAuthenticationToken authentication;
+            try {
+                authentication = jwtUtil.authenticate(authorization.substring(7));
+            } catch (RuntimeException e) {
+                authentication = null;
+            }
+            if (authentication == null) {
+                throw new AccessDeniedException("Invalid or expired token");
+            }
+            accessor.setUser(authentication);
+            return;
+        }
+
+        String orderToken = accessor.getFirstNativeHeader(ORDER_TOKEN_HEADER);
+        if (orderToken != null) {
+            Long orderId = orderTrackingTokens.verify(orderToken)
+                    .orElseThrow(() -> new AccessDeniedException("Invalid or expired order token"));
+            accessor.setUser(new OrderTrackingPrincipal(orderId));
+        }
+    }
+
+    /**
+     * Throws {@link AccessDeniedException} unless {@code user} may receive the
+     * messages of {@code destination}; also guards replays of missed messages.
+     */
+    public void authorizeSubscription(Principal user, String destination) {
+        if (destination == null) {
+            throw new AccessDeniedException("SUBSCRIBE without a destination");
+        }
+        if (destination.equals("/user" + WebSocketOrderService.CUSTOMER_QUEUE)) {
+            if (user == null) {
+                throw denied(user, destination);
+            }
+            return;
+        }
+        if (!(user instanceof JwtAuthenticationToken staff)) {
+            throw denied(user, destination);
+        }
+        if (destination.equals(WebSocketOrderService.ADMIN_TOPIC)) {
+            if (!"ROLE_ADMIN".equals(staff.getRole())) {
+                throw denied(user, destination);
+            }
+            return;
+        }
+        Matcher matcher = LOCATION_TOPIC.matcher(destination);
+        if (!matcher.matches()) {
+            throw denied(user, destination);
+        }
+        Set<String> roles = matcher.group(2).equals("kitchen") ? KITCHEN_ROLES : FRONT_OF_HOUSE_ROLES;
+        boolean locationAllowed = staff.getLocation() == null || staff.getLocation().equals(matcher.group(1));
+        if (!roles.contains(staff.getRole()) || !locationAllowed) {
+            throw denied(user, destination);
+        }
+    }
+
+    private static void authorizeSend(String destination) {
+        if (destination == null || !destination.startsWith("/app/")) {
+            throw new AccessDeniedException("Clients may not send to " + destination);
+        }
+    }
+
+    private static AccessDeniedException denied(Principal user, String destination) {
+        log.debug("Subscription to {} denied for {}", destination, user != null ? user.getName() : "anonymous");
+        return new AccessDeniedException("Not allowed to subscribe to " + destination);
+    }
+}
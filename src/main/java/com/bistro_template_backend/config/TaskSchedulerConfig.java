@@ -1,16 +1,34 @@
 
 package com.bistro_template_backend.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.SimpleAsyncTaskScheduler;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 
 @Configuration
+@EnableScheduling
 public class TaskSchedulerConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(TaskSchedulerConfig.class);
+
+    // Runs @Scheduled jobs and WebSocket heartbeats; spring.threads.virtual.enabled gives each run its own virtual thread
     @Bean
-    public TaskScheduler taskScheduler() {
+    public TaskScheduler taskScheduler(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            SimpleAsyncTaskScheduler scheduler = new SimpleAsyncTaskScheduler();
+            scheduler.setVirtualThreads(true);
+            scheduler.setThreadNamePrefix("scheduler-");
+            scheduler.setTaskTerminationTimeout(60_000);
+            log.info("TaskScheduler runs on virtual threads");
+            return scheduler;
+        }
+
         ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
         scheduler.setPoolSize(10);
         scheduler.setThreadNamePrefix("websocket-");
@@ -18,7 +36,7 @@ public class TaskSchedulerConfig {
         scheduler.setAwaitTerminationSeconds(60);
         scheduler.initialize();
 
-        System.out.println("✅ TaskScheduler configured for WebSocket heartbeats");
+        log.info("TaskScheduler runs on {} platform threads", scheduler.getPoolSize());
         return scheduler;
     }
 }
\ No newline at end of file
@@ -1,29 +1,134 @@
 package com.bistro_template_backend.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
 
+import java.util.Locale;
+
+/**
+ * STOMP over WebSocket for the admin dashboard and kitchen tablets.
+ * <p>
+ * {@code websocket.broker.mode} picks the broker behind {@code /topic} and
+ * {@code /queue}:
+ * <ul>
+ *   <li>{@code simple}: Spring's in-process broker. Only clients connected to
+ *   this instance see its messages, so it only fits a single instance.</li>
+ *   <li>{@code relay}: every subscription and send is relayed to the external
+ *   STOMP broker at {@code websocket.broker.relay.*} (RabbitMQ, ActiveMQ), so a
+ *   notification published on one instance reaches the clients of all of them.
+ *   The relay reconnects its system session every 5 seconds while the broker is
+ *   down; sends fail in the meantime, and the outbox delivers them again.</li>
+ *   <li>{@code embedded}: the relay against an in-JVM Artemis broker
+ *   ({@link EmbeddedStompBroker}), for running the relay path locally and in
+ *   tests.</li>
+ * </ul>
+ * Connections and subscriptions are checked by {@link StompAuthorizationInterceptor}.
+ */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
+    private static final Logger log = LoggerFactory.getLogger(WebSocketConfig.class);
+
+    private static final String[] BROKER_DESTINATIONS = {"/topic", "/queue"};
+
+    @Autowired
+    private StompAuthorizationInterceptor stompAuthorizationInterceptor;
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
+    @Value("${websocket.broker.relay.host:localhost}")
+    private String relayHost;
+
+    @Value("${websocket.broker.relay.port:61613}")
+    private int relayPort;
+
+    @Value("${websocket.broker.relay.login:guest}")
+    private String relayLogin;
+
+    @Value("${websocket.broker.relay.passcode:guest}")
+    private String relayPasscode;
+
+    @Value("${websocket.broker.relay.virtual-host:}")
+    private String relayVirtualHost;
+
+    @Value("${websocket.broker.relay.heartbeat-ms:10000}")
+    private long relayHeartbeatMillis;
+
+    @Value("${websocket.broker.embedded.port:61613}")
+    private int embeddedPort;
+
+    @Value("${websocket.channel.inbound.threads:8}")
+    private int inboundThreads;
+
+    @Value("${websocket.channel.outbound.threads:8}")
+    private int outboundThreads;
+
+    @Value("${websocket.transport.send-time-limit-ms:10000}")
+    private int sendTimeLimitMillis;
+
+    @Value("${websocket.transport.send-buffer-size-kb:512}")
+    private int sendBufferSizeKb;
+
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        System.out.println("🔧 Configuring WebSocket Message Broker...");
-
-        config.enableSimpleBroker("/topic", "/queue");
         config.setApplicationDestinationPrefixes("/app");
 
-        System.out.println("✅ Message Broker configured");
+        switch (brokerMode.toLowerCase(Locale.ROOT)) {
+            case "simple" -> {
+                config.enableSimpleBroker(BROKER_DESTINATIONS);
+                log.info("Simple STOMP broker enabled for /topic and /queue");
+            }
+            case "relay" -> enableRelay(config, relayHost, relayPort);
+            case "embedded" -> {
+                if (!ClassUtils.isPresent("org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ",
+                        getClass().getClassLoader())) {
+                    throw new IllegalStateException("websocket.broker.mode=embedded needs artemis-server and "
+                            + "artemis-stomp-protocol on the classpath; it is meant for bootRun and tests");
+                }
+                enableRelay(config, "127.0.0.1", embeddedPort);
+            }
+            default -> throw new IllegalArgumentException(
+                    "websocket.broker.mode must be simple, relay or embedded, not " + brokerMode);
+        }
+    }
+
+    private void enableRelay(MessageBrokerRegistry config, String host, int port) {
+        var relay = config.enableStompBrokerRelay(BROKER_DESTINATIONS)
+                .setRelayHost(host)
+                .setRelayPort(port)
+                .setClientLogin(relayLogin)
+                .setClientPasscode(relayPasscode)
+                .setSystemLogin(relayLogin)
+                .setSystemPasscode(relayPasscode)
+                .setSystemHeartbeatSendInterval(relayHeartbeatMillis)
+                .setSystemHeartbeatReceiveInterval(relayHeartbeatMillis);
+        if (!relayVirtualHost.isBlank()) {
+            relay.setVirtualHost(relayVirtualHost);
+        }
+        // A customer's /user/queue/orders session may live on another instance; share where users are connected
+        relay.setUserDestinationBroadcast("/topic/unresolved-user-destination")
+                .setUserRegistryBroadcast("/topic/user-registry");
+        log.info("STOMP broker relay enabled for /topic and /queue via {}:{}", host, port);
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
-        System.out.println("🔧 Registering STOMP Endpoints...");
-
         // **SockJS endpoint with proper CORS configuration**
         registry.addEndpoint("/ws-orders")
                 .setAllowedOriginPatterns(
@@ -44,6 +149,33 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                         "http://127.0.0.1:*"
                 );
 
-        System.out.println("✅ STOMP Endpoints registered with CORS support");
+        log.info("STOMP endpoint /ws-orders registered (SockJS and native WebSocket)");
+    }
+
+    // A slow client is disconnected once a send takes too long or its buffer is full, instead of holding a thread
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(sendTimeLimitMillis)
+                .setSendBufferSizeLimit(sendBufferSizeKb * 1024);
+    }
+
+    // In virtual-thread mode inbound frames and outbound sends run one virtual thread per message
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        registration.interceptors(stompAuthorizationInterceptor);
+        if (virtualThreads) {
+            registration.executor(new VirtualThreadTaskExecutor("ws-inbound-"));
+        } else {
+            registration.taskExecutor().corePoolSize(inboundThreads).maxPoolSize(inboundThreads);
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (virtualThreads) {
+            registration.executor(new VirtualThreadTaskExecutor("ws-outbound-"));
+        } else {
+            registration.taskExecutor().corePoolSize(outboundThreads).maxPoolSize(outboundThreads);
+        }
     }
-}
\ No newline at end of file
+}
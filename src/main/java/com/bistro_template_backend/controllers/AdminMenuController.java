@@ -2,6 +2,7 @@ package com.bistro_template_backend.controllers;
 
 import com.bistro_template_backend.models.MenuItem;
 import com.bistro_template_backend.repositories.MenuItemRepository;
+import com.bistro_template_backend.services.MenuCatalog;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,9 +17,14 @@ public class AdminMenuController {
     @Autowired
     private MenuItemRepository menuItemRepository;
 
+    @Autowired
+    private MenuCatalog menuCatalog;
+
     @PostMapping
     public ResponseEntity<MenuItem> createMenuItem(@RequestBody MenuItem item) {
-        return ResponseEntity.ok(menuItemRepository.save(item));
+        MenuItem saved = menuItemRepository.save(item);
+        menuCatalog.menuChanged("menu item " + saved.getId() + " created");
+        return ResponseEntity.ok(saved);
     }
 
     @GetMapping
@@ -36,12 +42,15 @@ public class AdminMenuController {
         existingItem.setPrice(item.getPrice());
         existingItem.setStockQuantity(item.getStockQuantity());
         existingItem.setIsFeatured(item.getIsFeatured());
-        return ResponseEntity.ok(menuItemRepository.save(existingItem));
+        MenuItem saved = menuItemRepository.save(existingItem);
+        menuCatalog.menuChanged("menu item " + id + " updated");
+        return ResponseEntity.ok(saved);
     }
 
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteMenuItem(@PathVariable Long id) {
         menuItemRepository.deleteById(id);
+        menuCatalog.menuChanged("menu item " + id + " deleted");
         return ResponseEntity.noContent().build();
     }
 }
@@ -1,21 +1,25 @@
 package com.bistro_template_backend.controllers;
 
+import com.bistro_template_backend.dto.KeysetPage;
+import com.bistro_template_backend.dto.OrderDetailsDTO;
+import com.bistro_template_backend.dto.OrderSearchCriteria;
 import com.bistro_template_backend.models.*;
-import com.bistro_template_backend.repositories.MenuItemRepository;
-import com.bistro_template_backend.repositories.OrderItemCustomizationRepository;
-import com.bistro_template_backend.repositories.OrderItemRepository;
-import com.bistro_template_backend.repositories.OrderRepository;
-import com.bistro_template_backend.services.EmailService;
-import com.bistro_template_backend.services.WebSocketOrderService;
+import com.bistro_template_backend.services.OrderDetailsAssembler;
+import com.bistro_template_backend.services.OrderExportService;
+import com.bistro_template_backend.services.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,316 +30,129 @@ import java.util.Map;
 public class AdminOrderController {
 
     @Autowired
-    private OrderRepository orderRepository;
+    private OrderDetailsAssembler orderDetailsAssembler;
 
     @Autowired
-    private OrderItemRepository orderItemRepository;
+    private OrderService orderService;
 
     @Autowired
-    private MenuItemRepository menuItemRepository;
-
-    @Autowired
-    private OrderItemCustomizationRepository orderItemCustomizationRepository;
-
-    @Autowired
-    private EmailService emailService;
-
-    @Autowired
-    WebSocketOrderService webSocketOrderService;
+    private OrderExportService orderExportService;
 
     @GetMapping
-    public ResponseEntity<List<Map<String, Object>>> getAllOrdersWithDetails() {
+    public ResponseEntity<List<OrderDetailsDTO>> getAllOrdersWithDetails() {
         // Get all orders with paid payment status, ordered by most recent first
-        List<Order> allOrders = orderRepository.findByPaymentStatusOrderByIdDesc(PaymentStatus.PAID);
+        List<Order> allOrders = orderService.findPaidOrders(null);
 
-        List<Map<String, Object>> orderDetailsList = allOrders.stream().map(order -> {
-            Map<String, Object> orderDetails = new HashMap<>();
-            orderDetails.put("id", order.getId());
-            orderDetails.put("orderDate", order.getOrderDate());
-            orderDetails.put("customerName", order.getCustomerName());
-            orderDetails.put("customerEmail", order.getCustomerEmail());
-            orderDetails.put("customerPhone", order.getCustomerPhone());
-            orderDetails.put("status", order.getStatus());
-            orderDetails.put("paymentStatus", order.getPaymentStatus());
-            orderDetails.put("subTotal", order.getSubTotal());
-            orderDetails.put("serviceFee", order.getServiceFee());
-            orderDetails.put("totalAmount", order.getTotalAmount());
-            orderDetails.put("specialNotes", order.getSpecialNotes());
-            orderDetails.put("tax", order.getTax());
-
-            // Fetch Order Items
-            List<OrderItem> orderItems = orderItemRepository.findByOrderId(order.getId());
-            List<Map<String, Object>> itemsList = orderItems.stream().map(item -> {
-                Map<String, Object> itemDetails = new HashMap<>();
-                MenuItem menuItem = menuItemRepository.findById(item.getMenuItemId())
-                        .orElseThrow(() -> new RuntimeException("Menu item not found"));
-
-                itemDetails.put("name", menuItem.getName());
-                itemDetails.put("quantity", item.getQuantity());
-                itemDetails.put("price", menuItem.getPrice());
-
-                // Fetch Customizations
-                List<OrderItemCustomization> customizations = orderItemCustomizationRepository.findByOrderItemId(item.getId());
-                List<Map<String, Object>> customizationsList = customizations.stream().map(customization -> {
-                    Map<String, Object> customizationDetails = new HashMap<>();
-                    customizationDetails.put("name", customization.getCustomization().getName());
-                    customizationDetails.put("price", customization.getCustomization().getPrice());
-                    return customizationDetails;
-                }).toList();
-
-                itemDetails.put("customizations", customizationsList);
-                return itemDetails;
-            }).toList();
-
-            orderDetails.put("items", itemsList);
-            return orderDetails;
-        }).toList();
+        List<OrderDetailsDTO> orderDetailsList = orderDetailsAssembler.assemble(allOrders);
 
         return ResponseEntity.ok(orderDetailsList);
     }
 
     @GetMapping("/pending")
-    public ResponseEntity<List<Map<String, Object>>> getPendingOrdersWithDetails() {
-        List<Order> pendingOrders = orderRepository.findByStatusAndPaymentStatusOrderByIdDesc(OrderStatus.PENDING, PaymentStatus.PAID);
-
-        List<Map<String, Object>> orderDetailsList = pendingOrders.stream().map(order -> {
-            Map<String, Object> orderDetails = new HashMap<>();
-            orderDetails.put("id", order.getId());
-            orderDetails.put("orderDate", order.getOrderDate());
-            orderDetails.put("customerName", order.getCustomerName());
-            orderDetails.put("customerEmail", order.getCustomerEmail());
-            orderDetails.put("status", order.getStatus());
-            orderDetails.put("paymentStatus", order.getPaymentStatus());
-            orderDetails.put("subTotal", order.getSubTotal());
-            orderDetails.put("serviceFee", order.getServiceFee());
-            orderDetails.put("totalAmount", order.getTotalAmount());
-            orderDetails.put("specialNotes", order.getSpecialNotes());
-            orderDetails.put("tax", order.getTax());
+    public ResponseEntity<List<OrderDetailsDTO>> getPendingOrdersWithDetails() {
+        List<Order> pendingOrders = orderService.findPaidOrders(OrderStatus.PENDING);
 
-            // Fetch Order Items
-            List<OrderItem> orderItems = orderItemRepository.findByOrderId(order.getId());
-            List<Map<String, Object>> itemsList = orderItems.stream().map(item -> {
-                Map<String, Object> itemDetails = new HashMap<>();
-                MenuItem menuItem = menuItemRepository.findById(item.getMenuItemId())
-                        .orElseThrow(() -> new RuntimeException("Menu item not found"));
-
-                itemDetails.put("name", menuItem.getName());
-                itemDetails.put("quantity", item.getQuantity());
-                itemDetails.put("price", menuItem.getPrice());
-
-                // Fetch Customizations
-                List<OrderItemCustomization> customizations = orderItemCustomizationRepository.findByOrderItemId(item.getId());
-                List<Map<String, Object>> customizationsList = customizations.stream().map(customization -> {
-                    Map<String, Object> customizationDetails = new HashMap<>();
-                    customizationDetails.put("name", customization.getCustomization().getName());
-                    customizationDetails.put("price", customization.getCustomization().getPrice());
-                    return customizationDetails;
-                }).toList();
-
-                itemDetails.put("customizations", customizationsList);
-                return itemDetails;
-            }).toList();
-
-            orderDetails.put("items", itemsList);
-            return orderDetails;
-        }).toList();
+        List<OrderDetailsDTO> orderDetailsList = orderDetailsAssembler.assemble(pendingOrders);
 
         return ResponseEntity.ok(orderDetailsList);
     }
 
     @PutMapping("/{orderId}/ready")
     public ResponseEntity<?> markOrderAsReady(@PathVariable Long orderId) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-
-        // Update the order status to READY
-        order.setStatus(OrderStatus.READY_FOR_PICKUP);
-        orderRepository.save(order);
-
-        // **NEW: Send WebSocket notification for status update**
-        webSocketOrderService.notifyOrderStatusUpdate(order, "READY_FOR_PICKUP");
+        // Update the order status to READY; notification and email go out through the outbox
+        orderService.updateStatus(orderId, OrderStatus.READY_FOR_PICKUP);
 
-        // Send email notification to the customer
-        String customerEmail = order.getCustomerEmail();
-        String subject = "Your Order is Ready for Pickup!";
-        String body = "Dear " + order.getCustomerName() + ",\n\n"
-                + "Your order #" + order.getId() + " is now ready for pickup.\n\n"
-                + "Please visit us to collect your order. Thank you for choosing Your Restaurant Name!\n\n"
-                + "Best Regards,\nYour Restaurant Name Team";
-
-        emailService.sendEmail(customerEmail, subject, body);
-
-        return ResponseEntity.ok("Order marked as ready and email sent to customer.");
+        return ResponseEntity.ok("Order marked as ready and email queued for customer.");
     }
 
     @PutMapping("/{orderId}/completed")
     public ResponseEntity<?> markOrderAsCompleted(@PathVariable Long orderId) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-
-        // Update the order status to COMPLETED
-        order.setStatus(OrderStatus.COMPLETED);
-        orderRepository.save(order);
-
-        // **NEW: Send WebSocket notification for status update**
-        webSocketOrderService.notifyOrderStatusUpdate(order, "COMPLETED");
-
-        // Send email notification to the customer
-        String customerEmail = order.getCustomerEmail();
-        String subject = "Your Order has been picked up!";
-        String body = "Dear " + order.getCustomerName() + ",\n\n"
-                + "Your order #" + order.getId() + " has been picked up.\n\n"
-                + "Please come again, thank you for choosing Your Restaurant Name!\n\n"
-                + "Best Regards,\nYour Restaurant Name Team";
+        // Update the order status to COMPLETED; notification and email go out through the outbox
+        orderService.updateStatus(orderId, OrderStatus.COMPLETED);
 
-        emailService.sendEmail(customerEmail, subject, body);
-
-        return ResponseEntity.ok("Order marked as completed and email sent to customer.");
+        return ResponseEntity.ok("Order marked as completed and email queued for customer.");
     }
 
     @GetMapping("/readyForPickup")
-    public ResponseEntity<List<Map<String, Object>>> getReadyForPickupOrdersWithDetails() {
-        List<Order> pendingOrders = orderRepository.findByStatusAndPaymentStatusOrderByIdDesc(OrderStatus.READY_FOR_PICKUP, PaymentStatus.PAID);
-
-        List<Map<String, Object>> orderDetailsList = pendingOrders.stream().map(order -> {
-            Map<String, Object> orderDetails = new HashMap<>();
-            orderDetails.put("id", order.getId());
-            orderDetails.put("orderDate", order.getOrderDate());
-            orderDetails.put("customerName", order.getCustomerName());
-            orderDetails.put("customerEmail", order.getCustomerEmail());
-            orderDetails.put("status", order.getStatus());
-            orderDetails.put("paymentStatus", order.getPaymentStatus());
-            orderDetails.put("subTotal", order.getSubTotal());
-            orderDetails.put("serviceFee", order.getServiceFee());
-            orderDetails.put("totalAmount", order.getTotalAmount());
-            orderDetails.put("specialNotes", order.getSpecialNotes());
-            orderDetails.put("tax", order.getTax());
-
-            // Fetch Order Items
-            List<OrderItem> orderItems = orderItemRepository.findByOrderId(order.getId());
-            List<Map<String, Object>> itemsList = orderItems.stream().map(item -> {
-                Map<String, Object> itemDetails = new HashMap<>();
-                MenuItem menuItem = menuItemRepository.findById(item.getMenuItemId())
-                        .orElseThrow(() -> new RuntimeException("Menu item not found"));
-
-                itemDetails.put("name", menuItem.getName());
-                itemDetails.put("quantity", item.getQuantity());
-                itemDetails.put("price", menuItem.getPrice());
-
-                // Fetch Customizations
-                List<OrderItemCustomization> customizations = orderItemCustomizationRepository.findByOrderItemId(item.getId());
-                List<Map<String, Object>> customizationsList = customizations.stream().map(customization -> {
-                    Map<String, Object> customizationDetails = new HashMap<>();
-                    customizationDetails.put("name", customization.getCustomization().getName());
-                    customizationDetails.put("price", customization.getCustomization().getPrice());
-                    return customizationDetails;
-                }).toList();
-
-                itemDetails.put("customizations", customizationsList);
-                return itemDetails;
-            }).toList();
+    public ResponseEntity<List<OrderDetailsDTO>> getReadyForPickupOrdersWithDetails() {
+        List<Order> pendingOrders = orderService.findPaidOrders(OrderStatus.READY_FOR_PICKUP);
 
-            orderDetails.put("items", itemsList);
-            return orderDetails;
-        }).toList();
+        List<OrderDetailsDTO> orderDetailsList = orderDetailsAssembler.assemble(pendingOrders);
 
         return ResponseEntity.ok(orderDetailsList);
     }
 
     // NEW: Past Orders endpoint for completed orders with pagination and search
+    // Filters run in SQL. Pass the returned nextCursor as cursor for keyset paging; page/size still work.
     @GetMapping("/past")
     public ResponseEntity<Map<String, Object>> getPastOrdersWithDetails(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(required = false) String customerName,
             @RequestParam(required = false) Long orderId,
-            @RequestParam(required = false) String startDate,
-            @RequestParam(required = false) String endDate) {
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Long cursor) {
 
-        // Create pageable object with sorting by ID descending (most recent first)
-        Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "id"));
+        OrderSearchCriteria criteria = new OrderSearchCriteria(OrderStatus.COMPLETED, PaymentStatus.PAID,
+                customerName, orderId, startDate, endDate);
+        size = Math.max(1, Math.min(size, 100));
 
-        Page<Order> completedOrdersPage;
-
-        // If filtering parameters are provided, use custom query
-        if (customerName != null || orderId != null || startDate != null || endDate != null) {
-            // For simplicity, we'll filter completed orders by customer name and order ID
-            // You would implement more complex filtering in the repository layer
-            List<Order> allCompleted = orderRepository.findByStatusAndPaymentStatusOrderByIdDesc(OrderStatus.COMPLETED, PaymentStatus.PAID);
-
-            // Basic filtering (you can enhance this with proper SQL queries)
-            List<Order> filteredOrders = allCompleted.stream()
-                    .filter(order -> customerName == null ||
-                            order.getCustomerName().toLowerCase().contains(customerName.toLowerCase()))
-                    .filter(order -> orderId == null || order.getId().equals(orderId))
-                    .toList();
-
-            // Manual pagination for filtered results
-            int start = page * size;
-            int end = Math.min(start + size, filteredOrders.size());
-            List<Order> pageContent = start >= filteredOrders.size() ?
-                    List.of() : filteredOrders.subList(start, end);
-
-            completedOrdersPage = new PageImpl<>(pageContent, pageable, filteredOrders.size());
+        Map<String, Object> response = new HashMap<>();
+        List<Order> orders;
+        if (cursor != null) {
+            // Keyset page: seeks past the cursor on the id index, no count query
+            KeysetPage<Order> keysetPage = orderService.searchOrders(criteria, cursor, size);
+            orders = keysetPage.content();
+            response.put("hasNext", keysetPage.hasNext());
+            response.put("nextCursor", keysetPage.nextCursor());
+            response.put("pageSize", size);
         } else {
-            // Use repository method for pagination without filtering
-            completedOrdersPage = orderRepository.findByStatusAndPaymentStatus(
-                    OrderStatus.COMPLETED, PaymentStatus.PAID, pageable);
+            // Create pageable object with sorting by ID descending (most recent first)
+            Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "id"));
+            Page<Order> completedOrdersPage = orderService.findOrders(criteria, pageable);
+            orders = completedOrdersPage.getContent();
+
+            response.put("currentPage", completedOrdersPage.getNumber());
+            response.put("totalPages", completedOrdersPage.getTotalPages());
+            response.put("totalElements", completedOrdersPage.getTotalElements());
+            response.put("pageSize", completedOrdersPage.getSize());
+            response.put("hasNext", completedOrdersPage.hasNext());
+            response.put("hasPrevious", completedOrdersPage.hasPrevious());
+            response.put("nextCursor", completedOrdersPage.hasNext() ? orders.get(orders.size() - 1).getId() : null);
         }
 
-        List<Map<String, Object>> orderDetailsList = completedOrdersPage.getContent().stream().map(order -> {
-            Map<String, Object> orderDetails = new HashMap<>();
-            orderDetails.put("id", order.getId());
-            orderDetails.put("orderDate", order.getOrderDate());
-            orderDetails.put("customerName", order.getCustomerName());
-            orderDetails.put("customerEmail", order.getCustomerEmail());
-            orderDetails.put("customerPhone", order.getCustomerPhone());
-            orderDetails.put("status", order.getStatus());
-            orderDetails.put("paymentStatus", order.getPaymentStatus());
-            orderDetails.put("subTotal", order.getSubTotal());
-            orderDetails.put("serviceFee", order.getServiceFee());
-            orderDetails.put("totalAmount", order.getTotalAmount());
-            orderDetails.put("specialNotes", order.getSpecialNotes());
-            orderDetails.put("tax", order.getTax());
-
-            // Fetch Order Items
-            List<OrderItem> orderItems = orderItemRepository.findByOrderId(order.getId());
-            List<Map<String, Object>> itemsList = orderItems.stream().map(item -> {
-                Map<String, Object> itemDetails = new HashMap<>();
-                MenuItem menuItem = menuItemRepository.findById(item.getMenuItemId())
-                        .orElseThrow(() -> new RuntimeException("Menu item not found"));
-
-                itemDetails.put("name", menuItem.getName());
-                itemDetails.put("quantity", item.getQuantity());
-                itemDetails.put("price", menuItem.getPrice());
-
-                // Fetch Customizations
-                List<OrderItemCustomization> customizations = orderItemCustomizationRepository.findByOrderItemId(item.getId());
-                List<Map<String, Object>> customizationsList = customizations.stream().map(customization -> {
-                    Map<String, Object> customizationDetails = new HashMap<>();
-                    customizationDetails.put("name", customization.getCustomization().getName());
-                    customizationDetails.put("price", customization.getCustomization().getPrice());
-                    return customizationDetails;
-                }).toList();
-
-                itemDetails.put("customizations", customizationsList);
-                return itemDetails;
-            }).toList();
-
-            orderDetails.put("items", itemsList);
-            return orderDetails;
-        }).toList();
+        response.put("orders", orderDetailsAssembler.assemble(orders));
+        return ResponseEntity.ok(response);
+    }
 
-        // Return paginated response
-        Map<String, Object> response = new HashMap<>();
-        response.put("orders", orderDetailsList);
-        response.put("currentPage", completedOrdersPage.getNumber());
-        response.put("totalPages", completedOrdersPage.getTotalPages());
-        response.put("totalElements", completedOrdersPage.getTotalElements());
-        response.put("pageSize", completedOrdersPage.getSize());
-        response.put("hasNext", completedOrdersPage.hasNext());
-        response.put("hasPrevious", completedOrdersPage.hasPrevious());
+    /**
+     * Streams the orders placed between {@code from} and {@code to} (both days
+     * included) with their items and customizations, for reconciliation with
+     * accounting. {@code format} is {@code csv} or {@code ndjson}.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportOrders(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "PAID") PaymentStatus paymentStatus) {
+        OrderExportService.Format exportFormat;
+        try {
+            exportFormat = OrderExportService.Format.valueOf(format.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Unknown export format: " + format);
+        }
+        if (to.isBefore(from)) {
+            return ResponseEntity.badRequest().body("'to' must not be before 'from'");
+        }
 
-        return ResponseEntity.ok(response);
+        StreamingResponseBody body = out -> orderExportService.export(
+                from.atStartOfDay(), to.plusDays(1).atStartOfDay(), paymentStatus, exportFormat, out);
+        String filename = "orders-" + from + "-to-" + to + "." + exportFormat.extension();
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.contentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
     }
 }
\ No newline at end of file
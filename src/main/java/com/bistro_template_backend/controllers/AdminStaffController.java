@@ -0,0 +1,66 @@
+package com.bistro_template_backend.controllers;
+
+import com.bistro_template_backend.dto.StaffRequest;
+import com.bistro_template_backend.models.User;
+import com.bistro_template_backend.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Staff accounts for kitchen tablets and front-of-house screens. Their role and
+ * location decide which order notifications they may subscribe to.
+ */
+@RestController
+@RequestMapping("/api/admin/staff")
+public class AdminStaffController {
+
+    private static final Set<String> ROLES = Set.of("ROLE_ADMIN", "ROLE_KITCHEN", "ROLE_FRONT_OF_HOUSE");
+
+    private final UserRepository userRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final List<String> locations;
+
+    public AdminStaffController(UserRepository userRepository,
+                                PasswordEncoder passwordEncoder,
+                                @Value("${restaurant.locations:main}") List<String> locations) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.locations = locations;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> createStaff(@RequestBody StaffRequest request) {
+        String role = request.role() == null ? "" : "ROLE_" + request.role().toUpperCase(Locale.ROOT);
+        if (!ROLES.contains(role)) {
+            return ResponseEntity.badRequest().body("Role must be KITCHEN, FRONT_OF_HOUSE or ADMIN");
+        }
+        if (request.location() != null && !locations.contains(request.location())) {
+            return ResponseEntity.badRequest().body("Unknown location: " + request.location());
+        }
+        if (request.email() == null || request.password() == null || request.password().isBlank()) {
+            return ResponseEntity.badRequest().body("Email and password are required");
+        }
+        if (userRepository.findByEmail(request.email()).isPresent()) {
+            return ResponseEntity.badRequest().body("A user with this email already exists");
+        }
+
+        User user = new User();
+        user.setEmail(request.email());
+        user.setPassword(passwordEncoder.encode(request.password()));
+        user.setRole(role);
+        user.setLocation(request.location());
+        userRepository.save(user);
+        return ResponseEntity.ok(Map.of("email", user.getEmail(), "role", role,
+                "location", request.location() != null ? request.location() : "all"));
+    }
+}
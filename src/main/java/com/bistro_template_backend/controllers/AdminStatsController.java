@@ -1,16 +1,20 @@
 package com.bistro_template_backend.controllers;
 
+import com.bistro_template_backend.models.CategoryPerformanceSummary;
+import com.bistro_template_backend.models.HourlyOrderStats;
 import com.bistro_template_backend.models.MenuItem;
+import com.bistro_template_backend.models.MonthlyRevenueSummary;
 import com.bistro_template_backend.repositories.OrderRepository;
 import com.bistro_template_backend.repositories.MenuItemRepository;
-import com.bistro_template_backend.repositories.OrderItemRepository;
+import com.bistro_template_backend.services.AggregateRefreshService;
+import com.bistro_template_backend.services.DashboardRollupService;
+import com.bistro_template_backend.services.DashboardStatsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.*;
 
 @RestController
@@ -24,42 +28,60 @@ public class AdminStatsController {
     private MenuItemRepository menuItemRepository;
 
     @Autowired
-    private OrderItemRepository orderItemRepository;
+    private DashboardStatsService dashboardStatsService;
 
-    @GetMapping("/dashboard")
-    public ResponseEntity<Map<String, Object>> getDashboardStats() {
-        Map<String, Object> stats = new HashMap<>();
-
-        // Get today's date for filtering
-        LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
-
-        // Count today's orders
-        Long todayOrdersCount = orderRepository.countByOrderDateAfter(startOfDay);
-        stats.put("todayOrders", todayOrdersCount);
-
-        // Calculate total revenue (all time or you could filter by month/year)
-        BigDecimal totalRevenue = orderRepository.sumTotalAmount();
-        stats.put("totalRevenue", totalRevenue);
-
-        // Get total customers (unique by email)
-        Long totalCustomers = orderRepository.countDistinctCustomerEmail();
-        stats.put("totalCustomers", totalCustomers);
+    @Autowired
+    private DashboardRollupService dashboardRollupService;
 
-        // Find popular items (top 3 ordered items)
-        List<Map<String, Object>> popularItems = orderItemRepository.findTopOrderedItems(3);
-        stats.put("popularItems", popularItems);
+    @Autowired
+    private AggregateRefreshService aggregateRefreshService;
 
-        return ResponseEntity.ok(stats);
+    // Today's orders, revenue, customers and popular items, all from the rollups
+    @GetMapping("/dashboard")
+    public ResponseEntity<Map<String, Object>> getDashboardStats() {
+        return ResponseEntity.ok(dashboardStatsService.dashboard());
     }
 
     @GetMapping("/revenue/monthly")
-    public ResponseEntity<List<Map<String, Object>>> getMonthlyRevenue() {
+    public ResponseEntity<List<MonthlyRevenueSummary>> getMonthlyRevenue() {
         // Return revenue grouped by month for the last year
         // This could be used to create charts
-        List<Map<String, Object>> monthlyStats = orderRepository.getMonthlyRevenue();
+        List<MonthlyRevenueSummary> monthlyStats = dashboardStatsService.monthlyRevenue();
         return ResponseEntity.ok(monthlyStats);
     }
 
+    // Revenue, orders, items and customers per hour of one day (default today)
+    @GetMapping("/hourly")
+    public ResponseEntity<List<HourlyOrderStats>> getHourlyStats(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return ResponseEntity.ok(dashboardStatsService.hourly(date != null ? date : LocalDate.now()));
+    }
+
+    // Backfill: recompute every rollup from the orders table, then the report tables built on them
+    @PostMapping("/rollups/rebuild")
+    public ResponseEntity<Map<String, Integer>> rebuildRollups() {
+        Map<String, Integer> rows = dashboardRollupService.rebuild();
+        aggregateRefreshService.refreshAll();
+        return ResponseEntity.ok(rows);
+    }
+
+    // When each precomputed aggregate was last refreshed
+    @GetMapping("/freshness")
+    public ResponseEntity<List<Map<String, Object>>> getFreshness() {
+        return ResponseEntity.ok(aggregateRefreshService.freshness());
+    }
+
+    // Refresh one aggregate now, e.g. monthly_revenue_summary
+    @PostMapping("/aggregates/{aggregate}/refresh")
+    public ResponseEntity<?> refreshAggregate(@PathVariable String aggregate) {
+        try {
+            boolean refreshed = aggregateRefreshService.refresh(aggregate);
+            return ResponseEntity.ok(Map.of("aggregate", aggregate, "refreshed", refreshed));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
     @GetMapping("/inventory/low-stock")
     public ResponseEntity<List<MenuItem>> getLowStockItems() {
         // Find items with stock below threshold (e.g., 10)
@@ -72,15 +94,14 @@ public class AdminStatsController {
         Map<String, Object> stats = new HashMap<>();
 
         // Average order value
-        BigDecimal avgOrderValue = orderRepository.getAverageOrderValue();
-        stats.put("averageOrderValue", avgOrderValue);
+        stats.put("averageOrderValue", dashboardStatsService.averageOrderValue());
 
         // Orders by status counts
         Map<String, Long> ordersByStatus = orderRepository.countOrdersByStatus();
         stats.put("ordersByStatus", ordersByStatus);
 
         // Category performance
-        List<Map<String, Object>> categoryPerformance = menuItemRepository.getCategoryPerformance();
+        List<CategoryPerformanceSummary> categoryPerformance = dashboardStatsService.categoryPerformance();
         stats.put("categoryPerformance", categoryPerformance);
 
         return ResponseEntity.ok(stats);
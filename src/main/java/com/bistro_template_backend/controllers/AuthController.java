@@ -37,11 +37,12 @@ public class AuthController {
         }
 
         // Generate JWT token
-        String token = jwtUtil.generateToken(user.getEmail(), user.getRole());
+        String token = jwtUtil.generateToken(user.getEmail(), user.getRole(), user.getLocation());
 
         Map<String, Object> response = new HashMap<>();
         response.put("email", user.getEmail());
         response.put("role", user.getRole());
+        response.put("location", user.getLocation());
         response.put("token", token);
 
         return ResponseEntity.ok(response);
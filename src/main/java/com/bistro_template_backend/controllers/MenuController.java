@@ -2,12 +2,12 @@ package com.bistro_template_backend.controllers;
 
 import com.bistro_template_backend.models.MenuItem;
 import com.bistro_template_backend.services.MenuItemService;
+import com.bistro_template_backend.services.MenuResponseCache;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/menu")
 public class MenuController {
@@ -15,9 +15,14 @@ public class MenuController {
     @Autowired
     private MenuItemService menuItemService;
 
+    @Autowired
+    private MenuResponseCache menuResponseCache;
+
     @GetMapping
-    public ResponseEntity<List<MenuItem>> getMenuItems() {
-        return ResponseEntity.ok(menuItemService.getAllMenuItems());
+    public ResponseEntity<byte[]> getMenuItems(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return menuResponseCache.respond(MenuResponseCache.View.MENU, ifNoneMatch, acceptEncoding);
     }
 
     @PostMapping
@@ -26,8 +31,9 @@ public class MenuController {
     }
 
     @GetMapping("/featured")
-    public ResponseEntity<List<MenuItem>> getFeaturedItems() {
-        List<MenuItem> featuredItems = menuItemService.getFeaturedItems();
-        return ResponseEntity.ok(featuredItems);
+    public ResponseEntity<byte[]> getFeaturedItems(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return menuResponseCache.respond(MenuResponseCache.View.FEATURED, ifNoneMatch, acceptEncoding);
     }
 }
@@ -3,59 +3,65 @@ package com.bistro_template_backend.controllers;
 import com.bistro_template_backend.dto.CreateOrderRequest;
 import com.bistro_template_backend.dto.PaymentRequest;
 import com.bistro_template_backend.models.*;
-import com.bistro_template_backend.repositories.CustomizationRepository;
-import com.bistro_template_backend.repositories.OrderItemCustomizationRepository;
 import com.bistro_template_backend.repositories.OrderItemRepository;
 import com.bistro_template_backend.repositories.OrderRepository;
 import com.bistro_template_backend.repositories.PaymentRepository;
+import com.bistro_template_backend.services.CheckoutMetrics;
 import com.bistro_template_backend.services.MobilePaymentService;
+import com.bistro_template_backend.services.OrderIngestService;
+import com.bistro_template_backend.services.OrderTrackingTokens;
 import com.bistro_template_backend.services.PaymentService;
+import com.bistro_template_backend.services.StripeGateway;
 import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-import com.stripe.Stripe;
+import java.util.Optional;
 import com.stripe.model.PaymentIntent;
 import com.stripe.param.PaymentIntentCreateParams;
-import org.springframework.beans.factory.annotation.Value;
 
 @RestController
 @RequestMapping("/api/orders")
 public class OrderController {
-    @Value("${stripe.secretKey}")
-    private String stripeSecretKey;
+    private static final Logger log = LoggerFactory.getLogger(OrderController.class);
 
-    private static final BigDecimal TAX_RATE = new BigDecimal("0.0825");
+    public static final String ORDER_TOKEN_HEADER = "X-Order-Token";
 
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
-    private final CustomizationRepository customizationRepository;
-    private final OrderItemCustomizationRepository orderItemCustomizationRepository;
     private final PaymentRepository paymentRepository;
     private final PaymentService paymentService;
     private final MobilePaymentService mobilePaymentService;
+    private final OrderIngestService orderIngestService;
+    private final StripeGateway stripeGateway;
+    private final CheckoutMetrics checkoutMetrics;
+    private final OrderTrackingTokens orderTrackingTokens;
 
     // Constructor injection to avoid circular dependencies
     public OrderController(OrderRepository orderRepository,
                            OrderItemRepository orderItemRepository,
-                           CustomizationRepository customizationRepository,
-                           OrderItemCustomizationRepository orderItemCustomizationRepository,
                            PaymentRepository paymentRepository,
                            PaymentService paymentService,
-                           MobilePaymentService mobilePaymentService) {
+                           MobilePaymentService mobilePaymentService,
+                           OrderIngestService orderIngestService,
+                           StripeGateway stripeGateway,
+                           CheckoutMetrics checkoutMetrics,
+                           OrderTrackingTokens orderTrackingTokens) {
         this.orderRepository = orderRepository;
         this.orderItemRepository = orderItemRepository;
-        this.customizationRepository = customizationRepository;
-        this.orderItemCustomizationRepository = orderItemCustomizationRepository;
         this.paymentRepository = paymentRepository;
         this.paymentService = paymentService;
         this.mobilePaymentService = mobilePaymentService;
+        this.orderIngestService = orderIngestService;
+        this.stripeGateway = stripeGateway;
+        this.checkoutMetrics = checkoutMetrics;
+        this.orderTrackingTokens = orderTrackingTokens;
     }
 
     /**
@@ -107,77 +113,19 @@ public class OrderController {
 
     // ========== ORDER MANAGEMENT ENDPOINTS ==========
 
+    // The X-Order-Token header lets the customer subscribe to /user/queue/orders for this order
     @PostMapping
-    public Order createOrder(@RequestBody CreateOrderRequest request) {
-        // 1. Create a new Order
-        Order newOrder = new Order();
-        newOrder.setOrderDate(LocalDateTime.now());
-        newOrder.setStatus(OrderStatus.PENDING);
-        newOrder.setPaymentStatus(PaymentStatus.NOT_PAID);
-        newOrder.setCustomerId(request.getCustomerId());
-        newOrder.setCustomerName(request.getCustomerName());
-        newOrder.setCustomerEmail(request.getCustomerEmail());
-        newOrder.setCustomerPhone(request.getCustomerPhone());
-        newOrder.setSpecialNotes(request.getSpecialNotes());
-
-        // Save the order first to get an ID
-        newOrder = orderRepository.save(newOrder);
-
-        // 2. Calculate the subtotal
-        BigDecimal subtotal = BigDecimal.ZERO;
-
-        if (request.getItems() != null) {
-            for (var cartItem : request.getItems()) {
-                OrderItem orderItem = new OrderItem();
-                orderItem.setOrderId(newOrder.getId());
-                orderItem.setMenuItemId(cartItem.getMenuItemId());
-                orderItem.setQuantity(cartItem.getQuantity());
-
-                // Use price from the cart or look up in your MenuItem table
-                BigDecimal itemPrice = cartItem.getPriceAtOrderTime();
-                orderItem.setItemPrice(itemPrice);
-
-                // Accumulate subtotal
-                BigDecimal itemTotal = itemPrice.multiply(BigDecimal.valueOf(cartItem.getQuantity()));
-                subtotal = subtotal.add(itemTotal);
-
-                // Save each OrderItem
-                orderItemRepository.save(orderItem);
-
-                // Handle Customizations for this OrderItem
-                if (cartItem.getCustomizations() != null) {
-                    for (var customization : cartItem.getCustomizations()) {
-                        OrderItemCustomization orderItemCustomization = new OrderItemCustomization();
-                        orderItemCustomization.setOrderItem(orderItem);
-
-                        Customization customizationEntity = customizationRepository.findById(customization.getId())
-                                .orElseThrow(() -> new RuntimeException("Customization not found"));
-
-                        orderItemCustomization.setCustomization(customizationEntity);
-
-                        orderItemCustomizationRepository.save(orderItemCustomization);
-                    }
-                }
-            }
+    public ResponseEntity<?> createOrder(@RequestBody CreateOrderRequest request) {
+        Order order;
+        try {
+            order = checkoutMetrics.time(CheckoutMetrics.CREATE_ORDER, CheckoutMetrics.NO_PAYMENT_METHOD,
+                    () -> orderIngestService.createOrder(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         }
-
-        // Calculate tax
-        BigDecimal taxAmount = subtotal.multiply(TAX_RATE);
-
-        // 3. Calculate service fee and total amount
-        BigDecimal serviceFee = subtotal.multiply(BigDecimal.valueOf(0.029)).add(BigDecimal.valueOf(0.30));
-        BigDecimal totalAmount = subtotal.add(taxAmount).add(serviceFee);
-
-        // Set calculated values
-        newOrder.setSubTotal(subtotal);
-        newOrder.setTax(taxAmount);
-        newOrder.setServiceFee(serviceFee);
-        newOrder.setTotalAmount(totalAmount);
-
-        // Save the final order with calculated amounts
-        newOrder = orderRepository.save(newOrder);
-
-        return newOrder;
+        return ResponseEntity.ok()
+                .header(ORDER_TOKEN_HEADER, orderTrackingTokens.issue(order.getId()))
+                .body(order);
     }
 
     @GetMapping("/{orderId}")
@@ -241,34 +189,21 @@ public class OrderController {
                 );
             }
 
-            // Check if payment intent already exists for this order
-            List<Payment> existingPayments = paymentRepository.findByOrderIdOrderByCreatedAtDesc(orderId);
-            if (!existingPayments.isEmpty()) {
-                Payment existingPayment = existingPayments.get(0);
-
-                if (existingPayment.getStatus() == PaymentStatus.INITIATED) {
-                    try {
-                        Stripe.apiKey = stripeSecretKey;
-                        PaymentIntent paymentIntent = PaymentIntent.retrieve(existingPayment.getTransactionId());
-
-                        Map<String, Object> result = new HashMap<>();
-                        result.put("clientSecret", paymentIntent.getClientSecret());
-                        result.put("paymentIntentId", existingPayment.getTransactionId());
-                        result.put("message", "Using existing payment intent");
-                        return ResponseEntity.ok(result);
-                    } catch (Exception e) {
-                        System.err.println("❌ Error retrieving existing PaymentIntent: " + e.getMessage());
-                        // Fall through to create new payment intent
-                    }
-                }
+            // Reuse the client secret of an unpaid intent for this order
+            Optional<Map<String, Object>> existing = paymentService.findReusablePaymentIntent(orderId);
+            if (existing.isPresent()) {
+                checkoutMetrics.count("intent_reused", request.getPaymentMethod());
+                return ResponseEntity.ok(existing.get());
             }
 
             // Create new payment intent with enhanced configuration for ExpressCheckout
-            Map<String, Object> result = createEnhancedPaymentIntent(order, request);
+            Map<String, Object> result = checkoutMetrics.time(CheckoutMetrics.PAYMENT_INTENT,
+                    request.getPaymentMethod(), () -> createEnhancedPaymentIntent(order, request));
+            checkoutMetrics.count("intent_created", request.getPaymentMethod());
             return ResponseEntity.ok(result);
 
         } catch (Exception e) {
-            System.err.println("❌ Error initiating Stripe payment: " + e.getMessage());
+            log.warn("Could not initiate Stripe payment for order {}: {}", orderId, e.getMessage());
             return ResponseEntity.badRequest().body("Error initiating payment: " + e.getMessage());
         }
     }
@@ -285,7 +220,9 @@ public class OrderController {
                     .orElseThrow(() -> new RuntimeException("Order not found"));
 
             request.setPaymentMethod("APPLE_PAY");
-            Map<String, Object> result = mobilePaymentService.createApplePayIntent(order, request);
+            Map<String, Object> result = checkoutMetrics.time(CheckoutMetrics.PAYMENT_INTENT, "apple_pay",
+                    () -> mobilePaymentService.createApplePayIntent(order, request));
+            checkoutMetrics.count("intent_created", "apple_pay");
 
             // Add Apple Pay specific configuration
             Map<String, Object> applePayConfig = mobilePaymentService
@@ -294,6 +231,7 @@ public class OrderController {
 
             return ResponseEntity.ok(result);
         } catch (Exception e) {
+            log.warn("Could not initiate Apple Pay for order {}: {}", orderId, e.getMessage());
             return ResponseEntity.badRequest().body("Error initiating Apple Pay: " + e.getMessage());
         }
     }
@@ -315,51 +253,38 @@ public class OrderController {
                 );
             }
 
-            // Check if payment intent already exists for this order
-            List<Payment> existingPayments = paymentRepository.findByOrderIdOrderByCreatedAtDesc(orderId);
-            if (!existingPayments.isEmpty()) {
-                Payment existingPayment = existingPayments.get(0);
-
-                if (existingPayment.getStatus() == PaymentStatus.INITIATED) {
-                    try {
-                        Stripe.apiKey = stripeSecretKey;
-                        PaymentIntent paymentIntent = PaymentIntent.retrieve(existingPayment.getTransactionId());
-
-                        Map<String, Object> result = new HashMap<>();
-                        result.put("clientSecret", paymentIntent.getClientSecret());
-                        result.put("paymentIntentId", existingPayment.getTransactionId());
-                        result.put("message", "Using existing payment intent");
-
-                        // Add Google Pay specific configuration
-                        Map<String, Object> googlePayConfig = mobilePaymentService
-                                .getMobilePaymentConfig(orderId.toString(), "google_pay");
-                        result.put("config", googlePayConfig);
-
-                        return ResponseEntity.ok(result);
-                    } catch (Exception e) {
-                        System.err.println("❌ Error retrieving existing PaymentIntent: " + e.getMessage());
-                        // Fall through to create new payment intent
-                    }
-                }
+            // Reuse the client secret of an unpaid intent for this order
+            Optional<Map<String, Object>> existing = paymentService.findReusablePaymentIntent(orderId);
+            if (existing.isPresent()) {
+                checkoutMetrics.count("intent_reused", "google_pay");
+                Map<String, Object> result = existing.get();
+
+                // Add Google Pay specific configuration
+                Map<String, Object> googlePayConfig = mobilePaymentService
+                        .getMobilePaymentConfig(orderId.toString(), "google_pay");
+                result.put("config", googlePayConfig);
+
+                return ResponseEntity.ok(result);
             }
 
             // Create new payment intent
             request.setPaymentMethod("GOOGLE_PAY");
             request.setAmount(order.getTotalAmount());
 
-            Map<String, Object> result = mobilePaymentService.createGooglePayIntent(order, request);
+            Map<String, Object> result = checkoutMetrics.time(CheckoutMetrics.PAYMENT_INTENT, "google_pay",
+                    () -> mobilePaymentService.createGooglePayIntent(order, request));
+            checkoutMetrics.count("intent_created", "google_pay");
 
             // Add Google Pay specific configuration
             Map<String, Object> googlePayConfig = mobilePaymentService
                     .getMobilePaymentConfig(orderId.toString(), "google_pay");
             result.put("config", googlePayConfig);
 
-            System.out.println("✅ Created new Google Pay PaymentIntent for order: " + orderId +
-                    " with amount: $" + order.getTotalAmount());
+            log.info("Created Google Pay PaymentIntent for order {} ({})", orderId, order.getTotalAmount());
 
             return ResponseEntity.ok(result);
         } catch (Exception e) {
-            System.err.println("❌ Error initiating Google Pay for order " + orderId + ": " + e.getMessage());
+            log.warn("Could not initiate Google Pay for order {}: {}", orderId, e.getMessage());
             return ResponseEntity.badRequest().body("Error initiating Google Pay: " + e.getMessage());
         }
     }
@@ -369,18 +294,15 @@ public class OrderController {
     // OrderController.java - Optimized createEnhancedPaymentIntent method
     private Map<String, Object> createEnhancedPaymentIntent(Order order, PaymentRequest request) {
         try {
-            Stripe.apiKey = stripeSecretKey;
-
-            long amountInCents = order.getTotalAmount()
-                    .multiply(new BigDecimal("100")).longValue();
+            long amountInCents = PaymentService.amountInCents(order.getTotalAmount());
 
             String paymentMethod = request.getPaymentMethod();
-            System.out.println("🔧 Creating PaymentIntent for method: " + paymentMethod +
-                    " with amount: $" + order.getTotalAmount());
+            log.debug("Creating {} PaymentIntent for order {} ({})", paymentMethod, order.getId(),
+                    order.getTotalAmount());
 
             PaymentIntentCreateParams.Builder paramsBuilder = PaymentIntentCreateParams.builder()
                     .setAmount(amountInCents)
-                    .setCurrency(request.getCurrency().toLowerCase())
+                    .setCurrency(PaymentService.CURRENCY)
                     .setDescription(request.getDescription())
                     .putMetadata("orderId", order.getId().toString())
                     .putMetadata("paymentMethod", paymentMethod)
@@ -399,8 +321,6 @@ public class OrderController {
 
             // OPTIMIZED: Enhanced configuration for ExpressCheckout
             if ("express_checkout".equals(paymentMethod)) {
-                System.out.println("🚀 Configuring ExpressCheckout PaymentIntent");
-
                 // Add customer information if available
                 if (order.getCustomerEmail() != null) {
                     paramsBuilder.setReceiptEmail(order.getCustomerEmail());
@@ -430,16 +350,13 @@ public class OrderController {
                 }
             }
 
-            PaymentIntent paymentIntent = PaymentIntent.create(paramsBuilder.build());
+            PaymentIntentCreateParams params = paramsBuilder.build();
+            PaymentIntent paymentIntent = stripeGateway.createPaymentIntent(params,
+                    paymentService.idempotencyKey(order, params));
 
             // Create payment record
-            Payment payment = new Payment();
-            payment.setOrderId(order.getId());
-            payment.setAmount(order.getTotalAmount());
-            payment.setPaymentMethod(paymentMethod.toUpperCase());
-            payment.setTransactionId(paymentIntent.getId());
-            payment.setStatus(PaymentStatus.INITIATED);
-            paymentRepository.save(payment);
+            paymentService.recordInitiatedPayment(order.getId(), order.getTotalAmount(),
+                    paymentMethod.toUpperCase(), paymentIntent);
 
             Map<String, Object> response = new HashMap<>();
             response.put("clientSecret", paymentIntent.getClientSecret());
@@ -457,12 +374,11 @@ public class OrderController {
                 ));
             }
 
-            System.out.println("✅ Created PaymentIntent: " + paymentIntent.getId() +
-                    " for order: " + order.getId());
+            log.info("Created {} PaymentIntent {} for order {}", paymentMethod, paymentIntent.getId(), order.getId());
 
             return response;
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Could not create PaymentIntent for order {}", order.getId(), e);
             throw new RuntimeException("Error creating enhanced PaymentIntent: " + e.getMessage(), e);
         }
     }
@@ -471,9 +387,9 @@ public class OrderController {
     @PostMapping("/{orderId}/confirmPayment/stripe")
     public ResponseEntity<?> confirmStripePayment(@PathVariable Long orderId,
                                                   @RequestBody(required = false) Map<String, String> customerData) {
+        long start = System.nanoTime();
+        String paymentMethod = null;
         try {
-            System.out.println("🔔 Confirming payment for order: " + orderId);
-
             // Find the most recent payment for this order
             List<Payment> payments = paymentRepository.findByOrderIdOrderByCreatedAtDesc(orderId);
 
@@ -482,6 +398,14 @@ public class OrderController {
             }
 
             Payment payment = payments.get(0);
+            paymentMethod = payment.getPaymentMethod();
+
+            // The browser's word is not enough; Stripe has to report the intent as paid
+            String intentStatus = checkoutMetrics.time(CheckoutMetrics.VERIFY_PAYMENT, paymentMethod,
+                    () -> paymentService.verifyPaymentIntent(payment.getTransactionId(), orderId));
+            if (!"succeeded".equals(intentStatus)) {
+                return unconfirmedPayment(orderId, paymentMethod, intentStatus);
+            }
 
             // OPTIMIZED: Enhanced customer data handling
             if (customerData != null) {
@@ -489,24 +413,15 @@ public class OrderController {
                 String email = customerData.get("email");
                 String phone = customerData.get("phone");
 
-                System.out.println("💾 Saving customer data - Name: " + name + ", Email: " + email);
                 paymentService.saveCustomerData(name, email, phone);
             }
 
-            // Update payment status immediately
-            paymentService.updatePaymentStatus(payment.getTransactionId(), orderId);
-
-            // OPTIMIZED: Enhanced async email sending with better error handling
-            CompletableFuture.runAsync(() -> {
-                try {
-                    System.out.println("📧 Sending confirmation emails for order: " + orderId);
-                    paymentService.sendConfirmationEmails(payment.getTransactionId(), orderId);
-                    System.out.println("✅ Confirmation emails sent successfully");
-                } catch (Exception e) {
-                    System.err.println("❌ Error sending confirmation emails for order " + orderId + ": " + e.getMessage());
-                    // Could implement retry logic here
-                }
+            // Update payment status; confirmation emails and the admin notification go out through the outbox
+            checkoutMetrics.time(CheckoutMetrics.MARK_PAID, paymentMethod, () -> {
+                paymentService.updatePaymentStatus(payment.getTransactionId(), orderId);
+                return null;
             });
+            checkoutMetrics.count("confirmed", paymentMethod);
 
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -516,11 +431,13 @@ public class OrderController {
             response.put("transactionId", payment.getTransactionId());
             response.put("amount", payment.getAmount());
 
-            System.out.println("✅ Payment confirmation complete for order: " + orderId);
+            log.info("Confirmed {} payment {} for order {}", paymentMethod, payment.getTransactionId(), orderId);
+            checkoutMetrics.record(CheckoutMetrics.CONFIRM, paymentMethod, "success", System.nanoTime() - start);
             return ResponseEntity.ok(response);
 
         } catch (Exception e) {
-            System.err.println("❌ Error confirming payment for order " + orderId + ": " + e.getMessage());
+            log.warn("Could not confirm payment for order {}: {}", orderId, e.getMessage());
+            checkoutMetrics.record(CheckoutMetrics.CONFIRM, paymentMethod, "error", System.nanoTime() - start);
             return ResponseEntity.badRequest().body("Error confirming payment: " + e.getMessage());
         }
     }
@@ -531,14 +448,25 @@ public class OrderController {
     @PostMapping("/{orderId}/confirmPayment/mobile")
     public ResponseEntity<?> confirmMobilePayment(@PathVariable Long orderId,
                                                   @RequestBody Map<String, Object> paymentData) {
+        long start = System.nanoTime();
+        String paymentMethod = (String) paymentData.get("paymentMethod");
         try {
             String transactionId = (String) paymentData.get("transactionId");
-            String paymentMethod = (String) paymentData.get("paymentMethod");
             @SuppressWarnings("unchecked")
             Map<String, String> billingDetails = (Map<String, String>) paymentData.get("billingDetails");
 
+            String intentStatus = checkoutMetrics.time(CheckoutMetrics.VERIFY_PAYMENT, paymentMethod,
+                    () -> paymentService.verifyPaymentIntent(transactionId, orderId));
+            if (!"succeeded".equals(intentStatus)) {
+                return unconfirmedPayment(orderId, paymentMethod, intentStatus);
+            }
+
             // Confirm mobile payment
-            mobilePaymentService.confirmMobilePayment(transactionId, orderId, paymentMethod, billingDetails);
+            checkoutMetrics.time(CheckoutMetrics.MARK_PAID, paymentMethod, () -> {
+                mobilePaymentService.confirmMobilePayment(transactionId, orderId, paymentMethod, billingDetails);
+                return null;
+            });
+            checkoutMetrics.count("confirmed", paymentMethod);
 
             // Save customer data if provided
             if (billingDetails != null) {
@@ -549,29 +477,41 @@ public class OrderController {
                 );
             }
 
-            // Send confirmation emails async
-            CompletableFuture.runAsync(() -> {
-                try {
-                    paymentService.sendConfirmationEmails(transactionId, orderId);
-                } catch (Exception e) {
-                    System.err.println("Error sending confirmation emails: " + e.getMessage());
-                }
-            });
-
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "Mobile payment confirmed successfully");
             response.put("orderId", orderId);
             response.put("paymentMethod", paymentMethod);
 
+            checkoutMetrics.record(CheckoutMetrics.CONFIRM, paymentMethod, "success", System.nanoTime() - start);
             return ResponseEntity.ok(response);
         } catch (Exception e) {
+            log.warn("Could not confirm mobile payment for order {}: {}", orderId, e.getMessage());
+            checkoutMetrics.record(CheckoutMetrics.CONFIRM, paymentMethod, "error", System.nanoTime() - start);
             return ResponseEntity.badRequest().body("Error confirming mobile payment: " + e.getMessage());
         }
     }
 
     // ========== HELPER METHODS ==========
 
+    /**
+     * Response for a confirmation call whose intent Stripe does not report as
+     * succeeded. A processing payment is finished by the Stripe webhook.
+     */
+    private ResponseEntity<?> unconfirmedPayment(Long orderId, String paymentMethod, String intentStatus) {
+        if ("processing".equals(intentStatus)) {
+            checkoutMetrics.count("pending", paymentMethod);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("pending", true);
+            response.put("message", "Payment is processing; the order is confirmed once Stripe reports the result");
+            response.put("orderId", orderId);
+            return ResponseEntity.accepted().body(response);
+        }
+        checkoutMetrics.count("not_completed", paymentMethod);
+        return ResponseEntity.badRequest().body("Payment not completed (status: " + intentStatus + ")");
+    }
+
     /**
      * Helper method to build available payment methods list
      */
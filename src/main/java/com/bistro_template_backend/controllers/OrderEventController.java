@@ -0,0 +1,98 @@
+package com.bistro_template_backend.controllers;
+
+import com.bistro_template_backend.config.StompAuthorizationInterceptor;
+import com.bistro_template_backend.dto.OrderEventReplay;
+import com.bistro_template_backend.models.Order;
+import com.bistro_template_backend.models.OrderStatus;
+import com.bistro_template_backend.services.OrderDetailsAssembler;
+import com.bistro_template_backend.services.OrderEventLog;
+import com.bistro_template_backend.services.OrderService;
+import com.bistro_template_backend.services.WebSocketOrderService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Lets a dashboard or tablet that lost its STOMP session catch up. After
+ * resubscribing it sends the {@code stream-id} and {@code seq} headers of the
+ * last frame it received, and gets the notifications it missed on that topic.
+ * When those were already evicted from {@link OrderEventLog}, or other
+ * instances publish to the topic through a relayed broker, it gets the open
+ * orders of the topic instead, in the format the topic publishes:
+ * order details on the admin topic, kitchen and front-of-house notifications
+ * on the location topics.
+ */
+@RestController
+@RequestMapping("/api/order-events")
+public class OrderEventController {
+
+    private static final String SNAPSHOT_TYPE = "ORDER_SNAPSHOT";
+
+    private final OrderEventLog orderEventLog;
+    private final OrderService orderService;
+    private final OrderDetailsAssembler orderDetailsAssembler;
+    private final StompAuthorizationInterceptor stompAuthorizationInterceptor;
+    private final TransactionTemplate primaryRead;
+
+    public OrderEventController(OrderEventLog orderEventLog,
+                                OrderService orderService,
+                                OrderDetailsAssembler orderDetailsAssembler,
+                                StompAuthorizationInterceptor stompAuthorizationInterceptor,
+                                PlatformTransactionManager transactionManager) {
+        this.orderEventLog = orderEventLog;
+        this.orderService = orderService;
+        this.orderDetailsAssembler = orderDetailsAssembler;
+        this.stompAuthorizationInterceptor = stompAuthorizationInterceptor;
+        // Named outside datasource.replica.packages, so the snapshot and the
+        // read-only service calls joining it are read from the primary
+        this.primaryRead = new TransactionTemplate(transactionManager);
+        this.primaryRead.setReadOnly(true);
+        this.primaryRead.setName(OrderEventController.class.getName() + ".snapshot");
+    }
+
+    @GetMapping("/replay")
+    public ResponseEntity<OrderEventReplay> replay(@RequestParam String destination,
+                                                   @RequestParam(required = false) String streamId,
+                                                   @RequestParam(defaultValue = "0") long after,
+                                                   Principal principal) {
+        if (!destination.startsWith("/topic/")) {
+            return ResponseEntity.badRequest().build();
+        }
+        stompAuthorizationInterceptor.authorizeSubscription(principal, destination);
+
+        OrderEventReplay replay = orderEventLog.replay(destination, streamId, after);
+        if (replay.events() != null) {
+            return ResponseEntity.ok(replay);
+        }
+        // Read after lastSeq and from the primary: a lagging replica could miss an
+        // order whose notification the client will not get again after lastSeq
+        List<?> snapshot = primaryRead.execute(status -> snapshot(destination));
+        return ResponseEntity.ok(new OrderEventReplay(replay.streamId(), replay.lastSeq(), null, snapshot));
+    }
+
+    private List<?> snapshot(String destination) {
+        List<Order> openOrders = new ArrayList<>(orderService.findPaidOrders(OrderStatus.PENDING));
+        openOrders.addAll(orderService.findPaidOrders(OrderStatus.READY_FOR_PICKUP));
+        if (destination.equals(WebSocketOrderService.ADMIN_TOPIC)) {
+            return orderDetailsAssembler.assemble(openOrders);
+        }
+        List<Object> notifications = new ArrayList<>();
+        for (Order order : openOrders) {
+            String status = order.getStatus().name();
+            if (destination.equals(WebSocketOrderService.kitchenTopic(order.getLocation()))) {
+                notifications.add(WebSocketOrderService.kitchenNotification(order, SNAPSHOT_TYPE, status));
+            } else if (destination.equals(WebSocketOrderService.frontOfHouseTopic(order.getLocation()))) {
+                notifications.add(WebSocketOrderService.frontOfHouseNotification(order, SNAPSHOT_TYPE, status));
+            }
+        }
+        return notifications;
+    }
+}
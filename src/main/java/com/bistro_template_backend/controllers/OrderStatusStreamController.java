@@ -0,0 +1,59 @@
+package com.bistro_template_backend.controllers;
+
+import com.bistro_template_backend.models.OrderStatus;
+import com.bistro_template_backend.repositories.OrderRepository;
+import com.bistro_template_backend.services.OrderStatusStreams;
+import com.bistro_template_backend.services.OrderTrackingTokens;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Optional;
+
+/**
+ * Lets a customer follow their order's status with Server-Sent Events instead
+ * of polling {@code GET /api/orders/{orderId}}. The stream needs the tracking
+ * token returned in {@code X-Order-Token} when the order was created, either in
+ * that header or, since EventSource cannot set headers, as {@code ?token=}.
+ */
+@RestController
+@RequestMapping("/api/orders")
+public class OrderStatusStreamController {
+
+    private final OrderRepository orderRepository;
+    private final OrderTrackingTokens orderTrackingTokens;
+    private final OrderStatusStreams orderStatusStreams;
+
+    public OrderStatusStreamController(OrderRepository orderRepository,
+                                       OrderTrackingTokens orderTrackingTokens,
+                                       OrderStatusStreams orderStatusStreams) {
+        this.orderRepository = orderRepository;
+        this.orderTrackingTokens = orderTrackingTokens;
+        this.orderStatusStreams = orderStatusStreams;
+    }
+
+    @GetMapping(path = "/{orderId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamStatus(
+            @PathVariable Long orderId,
+            @RequestHeader(name = OrderController.ORDER_TOKEN_HEADER, required = false) String tokenHeader,
+            @RequestParam(name = "token", required = false) String tokenParam) {
+        String token = tokenHeader != null ? tokenHeader : tokenParam;
+        if (!orderTrackingTokens.verify(token).equals(Optional.of(orderId))) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        Optional<OrderStatus> status = orderRepository.findStatusById(orderId);
+        if (status.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return orderStatusStreams.open(orderId, status.get())
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+}
@@ -0,0 +1,46 @@
+package com.bistro_template_backend.controllers;
+
+import com.bistro_template_backend.services.StripeWebhookService;
+import com.stripe.exception.SignatureVerificationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Endpoint registered with Stripe for payment intent events. Answers as soon
+ * as the event is verified and stored; Stripe retries anything but a 2xx.
+ */
+@RestController
+@RequestMapping("/api/webhooks")
+public class StripeWebhookController {
+
+    private static final Logger log = LoggerFactory.getLogger(StripeWebhookController.class);
+
+    private final StripeWebhookService stripeWebhookService;
+
+    public StripeWebhookController(StripeWebhookService stripeWebhookService) {
+        this.stripeWebhookService = stripeWebhookService;
+    }
+
+    @PostMapping("/stripe")
+    public ResponseEntity<?> receiveStripeEvent(@RequestBody String payload,
+                                                @RequestHeader(value = "Stripe-Signature", required = false) String signature) {
+        try {
+            StripeWebhookService.Outcome outcome = stripeWebhookService.receive(payload, signature);
+            return ResponseEntity.ok(Map.of("received", true, "outcome", outcome.name()));
+        } catch (SignatureVerificationException e) {
+            log.warn("Rejected Stripe webhook: {}", e.getMessage());
+            return ResponseEntity.badRequest().body("Invalid signature");
+        } catch (IllegalArgumentException e) {
+            log.warn("Rejected Stripe webhook: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IllegalStateException e) {
+            log.error("Cannot accept Stripe webhook: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(e.getMessage());
+        }
+    }
+}
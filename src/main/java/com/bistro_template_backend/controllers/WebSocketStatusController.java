@@ -1,6 +1,8 @@
 package com.bistro_template_backend.controllers;
 
+import com.bistro_template_backend.config.BrokerAvailabilityMonitor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.web.bind.annotation.*;
 
@@ -16,16 +18,23 @@ public class WebSocketStatusController {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private BrokerAvailabilityMonitor brokerAvailabilityMonitor;
+
+    @Value("${websocket.broker.mode:simple}")
+    private String brokerMode;
+
     @GetMapping("/status")
     public Map<String, Object> getWebSocketStatus() {
         Map<String, Object> status = new HashMap<>();
         status.put("websocketEnabled", true);
+        status.put("brokerMode", brokerMode);
+        status.put("brokerAvailable", brokerAvailabilityMonitor.isAvailable());
         status.put("timestamp", LocalDateTime.now());
         status.put("endpoints", new String[]{
                 "/ws-orders (SockJS)",
                 "/ws-orders (Native WebSocket)"
         });
-        System.out.println("✅ WebSocket status check - WebSocket is enabled and running");
         return status;
     }
 
@@ -15,12 +15,13 @@ public class CreateOrderRequest {
     private String customerEmail;
     private String customerPhone;
     private String specialNotes;
+    private String location; // optional, defaults to the first of restaurant.locations
 
     @Data
     public static class CartItemDTO {
         private Long menuItemId;
         private int quantity;
-        private BigDecimal priceAtOrderTime;
+        private BigDecimal priceAtOrderTime; // shown to the customer; the order is priced from the menu
         private List<CustomizationDTO> customizations;
 
         // Getters and Setters
@@ -0,0 +1,11 @@
+package com.bistro_template_backend.dto;
+
+/**
+ * An update sent to the customer tracking their own order.
+ */
+public record CustomerOrderNotification(
+        Long orderId,
+        String notificationType,
+        String status,
+        String message) {
+}
@@ -0,0 +1,19 @@
+package com.bistro_template_backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * What the front-of-house screen shows for handing an order over: who picks it
+ * up, how to reach them and what was paid. The customer's email is left out.
+ */
+public record FrontOfHouseOrderNotification(
+        Long orderId,
+        String location,
+        String notificationType,
+        String status,
+        String customerName,
+        String customerPhone,
+        BigDecimal totalAmount,
+        LocalDateTime orderDate) {
+}
@@ -0,0 +1,10 @@
+package com.bistro_template_backend.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset (seek) paginated result. {@code nextCursor} is passed
+ * back to fetch the following page and is null on the last page.
+ */
+public record KeysetPage<T>(List<T> content, Long nextCursor, boolean hasNext) {
+}
@@ -0,0 +1,17 @@
+package com.bistro_template_backend.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * What a kitchen tablet needs to start and track an order: no contact details
+ * or amounts.
+ */
+public record KitchenOrderNotification(
+        Long orderId,
+        String location,
+        String notificationType,
+        String status,
+        String customerName,
+        String specialNotes,
+        LocalDateTime orderDate) {
+}
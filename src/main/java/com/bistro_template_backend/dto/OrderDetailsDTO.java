@@ -0,0 +1,47 @@
+package com.bistro_template_backend.dto;
+
+import com.bistro_template_backend.models.OrderStatus;
+import com.bistro_template_backend.models.PaymentStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class OrderDetailsDTO {
+    private Long id;
+    private LocalDateTime orderDate;
+    private String customerName;
+    private String customerEmail;
+    private String customerPhone;
+    private OrderStatus status;
+    private PaymentStatus paymentStatus;
+    private BigDecimal subTotal;
+    private BigDecimal serviceFee;
+    private BigDecimal totalAmount;
+    private String specialNotes;
+    private BigDecimal tax;
+    private List<ItemDetailsDTO> items;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ItemDetailsDTO {
+        private String name;
+        private int quantity;
+        private BigDecimal price; // current menu price, as shown on the kitchen screen
+        private List<CustomizationDetailsDTO> customizations;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class CustomizationDetailsDTO {
+        private String name;
+        private BigDecimal price;
+    }
+}
@@ -0,0 +1,35 @@
+package com.bistro_template_backend.dto;
+
+import com.bistro_template_backend.config.RestaurantBranding;
+
+import java.util.List;
+
+/**
+ * Everything the order email templates show, already formatted for display.
+ * Money values are plain strings with two decimals; {@code specialNotes} and a
+ * free customization's {@code price} are {@code null} when there is nothing to show.
+ */
+public record OrderEmailView(
+        Long orderId,
+        String customerName,
+        String customerEmail,
+        String orderDate,
+        String pickupRange,
+        String specialNotes,
+        List<Item> items,
+        String subTotal,
+        String tax,
+        String serviceFee,
+        String total,
+        RestaurantBranding restaurant) {
+
+    public record Item(String name, int quantity, String unitPrice, List<Selection> customizations) {
+
+        public boolean hasCustomizations() {
+            return !customizations.isEmpty();
+        }
+    }
+
+    public record Selection(String name, String price) {
+    }
+}
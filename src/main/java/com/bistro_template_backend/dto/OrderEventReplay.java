@@ -0,0 +1,17 @@
+package com.bistro_template_backend.dto;
+
+import java.util.List;
+
+/**
+ * What a reconnecting client missed on a destination. {@code events} holds the
+ * missed notifications; when they can no longer be replayed it is null and
+ * {@code snapshot} holds the current open orders instead, in the format the
+ * destination publishes them in. Either way the client continues from
+ * {@code lastSeq} of {@code streamId}.
+ */
+public record OrderEventReplay(
+        String streamId,
+        long lastSeq,
+        List<SequencedOrderEvent> events,
+        List<?> snapshot) {
+}
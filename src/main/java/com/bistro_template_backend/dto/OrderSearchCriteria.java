@@ -0,0 +1,18 @@
+package com.bistro_template_backend.dto;
+
+import com.bistro_template_backend.models.OrderStatus;
+import com.bistro_template_backend.models.PaymentStatus;
+
+import java.time.LocalDate;
+
+/**
+ * Filters for the admin order search. Null fields do not filter; the date
+ * range covers whole days, both ends included.
+ */
+public record OrderSearchCriteria(OrderStatus status,
+                                  PaymentStatus paymentStatus,
+                                  String customerName,
+                                  Long orderId,
+                                  LocalDate startDate,
+                                  LocalDate endDate) {
+}
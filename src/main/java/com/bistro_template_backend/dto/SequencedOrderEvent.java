@@ -0,0 +1,7 @@
+package com.bistro_template_backend.dto;
+
+/**
+ * A notification replayed to a client that missed it, with its sequence number.
+ */
+public record SequencedOrderEvent(long seq, Object payload) {
+}
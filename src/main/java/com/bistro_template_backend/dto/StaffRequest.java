@@ -0,0 +1,9 @@
+package com.bistro_template_backend.dto;
+
+/**
+ * A kitchen or front-of-house account. {@code role} is KITCHEN,
+ * FRONT_OF_HOUSE or ADMIN; {@code location} limits the account to one
+ * restaurant location and may be null for all of them.
+ */
+public record StaffRequest(String email, String password, String role, String location) {
+}
@@ -0,0 +1,34 @@
+package com.bistro_template_backend.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of the latest refresh of one precomputed aggregate.
+ */
+@Entity
+@Table(name = "aggregate_refresh_log")
+@Data
+@NoArgsConstructor
+public class AggregateRefresh {
+
+    // e.g. monthly_revenue_summary
+    @Id
+    private String aggregateName;
+
+    // Last successful refresh
+    private LocalDateTime refreshedAt;
+
+    private Long durationMs;
+
+    private Integer rowCount;
+
+    private LocalDateTime lastAttemptAt;
+
+    // Error of the last attempt, cleared by a successful refresh
+    @Column(length = 1000)
+    private String lastError;
+}
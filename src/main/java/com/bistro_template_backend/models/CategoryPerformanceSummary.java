@@ -0,0 +1,35 @@
+package com.bistro_template_backend.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * All-time revenue per category and its share of total revenue, recomputed
+ * from {@code item_stats_total} by {@code AggregateRefreshService}.
+ */
+@Entity
+@Table(name = "category_performance_summary")
+@Data
+@NoArgsConstructor
+public class CategoryPerformanceSummary {
+
+    @Id
+    private Long categoryId;
+
+    private String name;
+
+    @Column(precision = 14, scale = 2, nullable = false)
+    private BigDecimal revenue;
+
+    private long quantity;
+
+    // Share of all revenue, 0-100
+    @Column(precision = 7, scale = 2)
+    private BigDecimal percentage;
+
+    private LocalDateTime refreshedAt;
+}
@@ -0,0 +1,40 @@
+package com.bistro_template_backend.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Quantity and revenue of one menu item in paid orders of one day.
+ */
+@Entity
+@Table(name = "item_stats_daily")
+@IdClass(DailyItemStats.Key.class)
+@Data
+@NoArgsConstructor
+public class DailyItemStats {
+
+    @Id
+    private LocalDate day;
+
+    @Id
+    private Long menuItemId;
+
+    private long quantity;
+
+    @Column(precision = 14, scale = 2, nullable = false)
+    private BigDecimal revenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate day;
+        private Long menuItemId;
+    }
+}
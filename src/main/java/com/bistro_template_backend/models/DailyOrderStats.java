@@ -0,0 +1,39 @@
+package com.bistro_template_backend.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Paid orders rolled up per day of the order date. Maintained by
+ * {@code DashboardRollupService}; never written through JPA.
+ */
+@Entity
+@Table(name = "order_stats_daily")
+@Data
+@NoArgsConstructor
+public class DailyOrderStats {
+
+    @Id
+    private LocalDate day;
+
+    @Column(precision = 14, scale = 2, nullable = false)
+    private BigDecimal revenue;
+
+    private long orderCount;
+
+    // Sum of item quantities
+    private long itemCount;
+
+    // Customers (by email) with at least one paid order that day
+    private long distinctCustomers;
+
+    // Customers whose first paid order was that day; summed for the all-time count
+    private long newCustomers;
+
+    private LocalDateTime updatedAt;
+}
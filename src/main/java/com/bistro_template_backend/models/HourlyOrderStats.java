@@ -0,0 +1,34 @@
+package com.bistro_template_backend.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Paid orders rolled up per hour of the order date. Maintained by
+ * {@code DashboardRollupService}; never written through JPA.
+ */
+@Entity
+@Table(name = "order_stats_hourly")
+@Data
+@NoArgsConstructor
+public class HourlyOrderStats {
+
+    // Start of the hour
+    @Id
+    private LocalDateTime hour;
+
+    @Column(precision = 14, scale = 2, nullable = false)
+    private BigDecimal revenue;
+
+    private long orderCount;
+
+    private long itemCount;
+
+    private long distinctCustomers;
+
+    private LocalDateTime updatedAt;
+}
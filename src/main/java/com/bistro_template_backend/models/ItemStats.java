@@ -0,0 +1,26 @@
+package com.bistro_template_backend.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * All-time quantity and revenue of one menu item in paid orders, so rankings
+ * only read one row per menu item.
+ */
+@Entity
+@Table(name = "item_stats_total")
+@Data
+@NoArgsConstructor
+public class ItemStats {
+
+    @Id
+    private Long menuItemId;
+
+    private long quantity;
+
+    @Column(precision = 14, scale = 2, nullable = false)
+    private BigDecimal revenue;
+}
@@ -0,0 +1,31 @@
+package com.bistro_template_backend.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Revenue of paid orders per month, recomputed from {@code order_stats_daily}
+ * by {@code AggregateRefreshService}.
+ */
+@Entity
+@Table(name = "monthly_revenue_summary")
+@Data
+@NoArgsConstructor
+public class MonthlyRevenueSummary {
+
+    // YYYY-MM
+    @Id
+    @Column(length = 7)
+    private String month;
+
+    @Column(precision = 14, scale = 2, nullable = false)
+    private BigDecimal revenue;
+
+    private long orderCount;
+
+    private LocalDateTime refreshedAt;
+}
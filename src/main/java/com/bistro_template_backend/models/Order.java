@@ -13,8 +13,10 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 public class Order {
 
+    // Sequence ids let Hibernate batch the inserts; IDENTITY forces one round trip per row
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     private LocalDateTime orderDate;
@@ -37,6 +39,9 @@ public class Order {
     private String customerPhone;
     private String specialNotes;
 
+    // One of restaurant.locations; kitchen and front-of-house notifications are routed by it
+    private String location;
+
     // No @OneToMany to OrderItem. We'll store orderId in OrderItem separately.
 
 }
@@ -9,7 +9,8 @@ import lombok.Data;
 public class OrderItemCustomization {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_item_customizations_seq")
+    @SequenceGenerator(name = "order_item_customizations_seq", sequenceName = "order_item_customizations_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
@@ -0,0 +1,56 @@
+package com.bistro_template_backend.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "outbox_events")
+@Data
+@NoArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_events_seq")
+    @SequenceGenerator(name = "outbox_events_seq", sequenceName = "outbox_events_seq", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxEventType eventType;
+
+    // The order this event is about
+    @Column(nullable = false)
+    private Long orderId;
+
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxStatus status;
+
+    private int attempts;
+
+    // Not picked up before this time: set on creation, when leased by the relay and on retry backoff
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime deliveredAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    @PrePersist
+    public void onCreate() {
+        if (this.createdAt == null) {
+            this.createdAt = LocalDateTime.now();
+        }
+        if (this.availableAt == null) {
+            this.availableAt = this.createdAt;
+        }
+    }
+}
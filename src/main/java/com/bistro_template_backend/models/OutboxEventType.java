@@ -0,0 +1,12 @@
+package com.bistro_template_backend.models;
+
+/**
+ * One side effect to run after an order or payment change has committed.
+ */
+public enum OutboxEventType {
+    NEW_ORDER_NOTIFICATION,     // STOMP message to the admin dashboard
+    ORDER_STATUS_NOTIFICATION,  // STOMP message, payload is the new status
+    ORDER_CONFIRMATION_EMAIL,   // customer and admin confirmation, payload is the transaction id
+    ORDER_READY_EMAIL,
+    ORDER_COMPLETED_EMAIL
+}
@@ -0,0 +1,7 @@
+package com.bistro_template_backend.models;
+
+public enum OutboxStatus {
+    PENDING,
+    DELIVERED,
+    FAILED
+}
@@ -0,0 +1,41 @@
+package com.bistro_template_backend.models;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Customers already counted in a rollup bucket. A row inserted for the first
+ * time means the distinct customer count of that bucket goes up by one.
+ * Scope is {@code all} (bucket at the epoch), {@code day} or {@code hour}.
+ */
+@Entity
+@Table(name = "stats_customer_buckets")
+@IdClass(StatsCustomerBucket.Key.class)
+@Data
+@NoArgsConstructor
+public class StatsCustomerBucket {
+
+    @Id
+    @Column(length = 8)
+    private String scope;
+
+    @Id
+    private LocalDateTime bucket;
+
+    @Id
+    private String customerEmail;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String scope;
+        private LocalDateTime bucket;
+        private String customerEmail;
+    }
+}
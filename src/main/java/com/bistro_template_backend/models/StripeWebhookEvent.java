@@ -0,0 +1,49 @@
+package com.bistro_template_backend.models;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A verified Stripe webhook event waiting to be applied. The Stripe event id
+ * is the primary key, so a redelivered event is stored only once.
+ */
+@Entity
+@Table(name = "stripe_webhook_events")
+@Data
+@NoArgsConstructor
+public class StripeWebhookEvent {
+
+    // Stripe's event id, e.g. evt_1Abc...
+    @Id
+    private String id;
+
+    @Column(nullable = false)
+    private String eventType;
+
+    @Column(nullable = false)
+    private String paymentIntentId;
+
+    // amount_received of the intent in the smallest currency unit, e.g. cents
+    private Long amountReceived;
+
+    private String currency;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private WebhookEventStatus status;
+
+    private int attempts;
+
+    @Column(name = "available_at", nullable = false)
+    private LocalDateTime availableAt;
+
+    private LocalDateTime receivedAt;
+
+    private LocalDateTime processedAt;
+
+    @Column(length = 1000)
+    private String lastError;
+}
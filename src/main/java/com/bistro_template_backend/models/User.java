@@ -13,7 +13,8 @@ public class User {
 
     private String email;
     private String password;
-    private String role;  // ADMIN or USER
+    private String role;  // ROLE_ADMIN, ROLE_KITCHEN or ROLE_FRONT_OF_HOUSE
+    private String location;  // the only location this user sees; null for all of them
 
     // Getters and Setters
 }
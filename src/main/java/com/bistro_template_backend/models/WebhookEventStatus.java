@@ -0,0 +1,7 @@
+package com.bistro_template_backend.models;
+
+public enum WebhookEventStatus {
+    PENDING,
+    PROCESSED,
+    FAILED
+}
@@ -0,0 +1,9 @@
+package com.bistro_template_backend.repositories;
+
+import com.bistro_template_backend.models.AggregateRefresh;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AggregateRefreshRepository extends JpaRepository<AggregateRefresh, String> {
+}
@@ -0,0 +1,37 @@
+package com.bistro_template_backend.repositories;
+
+import com.bistro_template_backend.models.CategoryPerformanceSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface CategoryPerformanceSummaryRepository extends JpaRepository<CategoryPerformanceSummary, Long> {
+
+    List<CategoryPerformanceSummary> findAllByOrderByRevenueDesc();
+
+    @Modifying
+    @Query(value = "DELETE FROM category_performance_summary", nativeQuery = true)
+    int clear();
+
+    // The total is computed once in the CTE instead of per category
+    @Modifying
+    @Query(value = "INSERT INTO category_performance_summary " +
+            "(category_id, name, revenue, quantity, percentage, refreshed_at) " +
+            "WITH per_category AS (" +
+            "SELECT c.id AS category_id, c.name AS name, SUM(s.revenue) AS revenue, SUM(s.quantity) AS quantity " +
+            "FROM item_stats_total s " +
+            "JOIN menu_items mi ON mi.id = s.menu_item_id " +
+            "JOIN categories c ON c.id = mi.category_id " +
+            "GROUP BY c.id, c.name), " +
+            "total AS (SELECT SUM(revenue) AS revenue FROM per_category) " +
+            "SELECT p.category_id, p.name, p.revenue, p.quantity, " +
+            "ROUND(100.0 * p.revenue / NULLIF(t.revenue, 0), 2), :now " +
+            "FROM per_category p CROSS JOIN total t", nativeQuery = true)
+    int refreshFromRollups(@Param("now") LocalDateTime now);
+}
@@ -2,11 +2,21 @@ package com.bistro_template_backend.repositories;
 
 import com.bistro_template_backend.models.Customization;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface CustomizationRepository extends JpaRepository<Customization, Long> {
     List<Customization> findByMenuItemId(Long menuItemId);
-}
\ No newline at end of file
+
+    @Query("SELECT c FROM Customization c JOIN FETCH c.menuItem ORDER BY c.id")
+    List<Customization> findAllWithMenuItem();
+
+    // findAllById variant that also fetches the (eager) menu item in the same query
+    @Query("SELECT c FROM Customization c JOIN FETCH c.menuItem WHERE c.id IN :ids")
+    List<Customization> findAllWithMenuItemById(@Param("ids") Collection<Long> ids);
+}
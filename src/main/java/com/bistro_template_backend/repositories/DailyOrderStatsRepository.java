@@ -0,0 +1,68 @@
+package com.bistro_template_backend.repositories;
+
+import com.bistro_template_backend.models.DailyOrderStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+@Repository
+public interface DailyOrderStatsRepository extends JpaRepository<DailyOrderStats, LocalDate> {
+
+    @Modifying
+    @Query(value = "INSERT INTO order_stats_daily " +
+            "(day, revenue, order_count, item_count, distinct_customers, new_customers, updated_at) " +
+            "VALUES (:day, :revenue, :orders, :items, :distinctCustomers, :newCustomers, :now) " +
+            "ON CONFLICT (day) DO UPDATE SET " +
+            "revenue = order_stats_daily.revenue + EXCLUDED.revenue, " +
+            "order_count = order_stats_daily.order_count + EXCLUDED.order_count, " +
+            "item_count = order_stats_daily.item_count + EXCLUDED.item_count, " +
+            "distinct_customers = order_stats_daily.distinct_customers + EXCLUDED.distinct_customers, " +
+            "new_customers = order_stats_daily.new_customers + EXCLUDED.new_customers, " +
+            "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    void add(@Param("day") LocalDate day,
+             @Param("revenue") BigDecimal revenue,
+             @Param("orders") long orders,
+             @Param("items") long items,
+             @Param("distinctCustomers") long distinctCustomers,
+             @Param("newCustomers") long newCustomers,
+             @Param("now") LocalDateTime now);
+
+    // One row per day of history, never per order
+    @Query(value = "SELECT COALESCE(SUM(revenue), 0) AS revenue, " +
+            "COALESCE(SUM(order_count), 0) AS orders, " +
+            "COALESCE(SUM(new_customers), 0) AS customers " +
+            "FROM order_stats_daily", nativeQuery = true)
+    Map<String, Object> totals();
+
+    @Query("SELECT MAX(d.updatedAt) FROM DailyOrderStats d")
+    LocalDateTime lastUpdatedAt();
+
+    @Modifying
+    @Query(value = "INSERT INTO order_stats_daily " +
+            "(day, revenue, order_count, item_count, distinct_customers, new_customers, updated_at) " +
+            "SELECT CAST(o.order_date AS date), SUM(o.total_amount), COUNT(*), COALESCE(SUM(i.quantity), 0), " +
+            "COUNT(DISTINCT NULLIF(LOWER(TRIM(o.customer_email)), '')), 0, :now " +
+            "FROM orders o " +
+            "LEFT JOIN (SELECT order_id, SUM(quantity) AS quantity FROM order_items GROUP BY order_id) i " +
+            "ON i.order_id = o.id " +
+            "WHERE o.payment_status = 'PAID' AND o.order_date IS NOT NULL " +
+            "GROUP BY CAST(o.order_date AS date)", nativeQuery = true)
+    int rebuildFromOrders(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query(value = "UPDATE order_stats_daily d SET new_customers = f.customers " +
+            "FROM (SELECT first_day, COUNT(*) AS customers FROM (" +
+            "SELECT MIN(CAST(order_date AS date)) AS first_day FROM orders " +
+            "WHERE payment_status = 'PAID' AND order_date IS NOT NULL " +
+            "AND NULLIF(LOWER(TRIM(customer_email)), '') IS NOT NULL " +
+            "GROUP BY LOWER(TRIM(customer_email))) firsts GROUP BY first_day) f " +
+            "WHERE d.day = f.first_day", nativeQuery = true)
+    int rebuildNewCustomers();
+}
@@ -0,0 +1,47 @@
+package com.bistro_template_backend.repositories;
+
+import com.bistro_template_backend.models.HourlyOrderStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface HourlyOrderStatsRepository extends JpaRepository<HourlyOrderStats, LocalDateTime> {
+
+    @Modifying
+    @Query(value = "INSERT INTO order_stats_hourly " +
+            "(hour, revenue, order_count, item_count, distinct_customers, updated_at) " +
+            "VALUES (:hour, :revenue, :orders, :items, :distinctCustomers, :now) " +
+            "ON CONFLICT (hour) DO UPDATE SET " +
+            "revenue = order_stats_hourly.revenue + EXCLUDED.revenue, " +
+            "order_count = order_stats_hourly.order_count + EXCLUDED.order_count, " +
+            "item_count = order_stats_hourly.item_count + EXCLUDED.item_count, " +
+            "distinct_customers = order_stats_hourly.distinct_customers + EXCLUDED.distinct_customers, " +
+            "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    void add(@Param("hour") LocalDateTime hour,
+             @Param("revenue") BigDecimal revenue,
+             @Param("orders") long orders,
+             @Param("items") long items,
+             @Param("distinctCustomers") long distinctCustomers,
+             @Param("now") LocalDateTime now);
+
+    List<HourlyOrderStats> findByHourGreaterThanEqualAndHourLessThanOrderByHour(LocalDateTime from, LocalDateTime to);
+
+    @Modifying
+    @Query(value = "INSERT INTO order_stats_hourly " +
+            "(hour, revenue, order_count, item_count, distinct_customers, updated_at) " +
+            "SELECT DATE_TRUNC('hour', o.order_date), SUM(o.total_amount), COUNT(*), COALESCE(SUM(i.quantity), 0), " +
+            "COUNT(DISTINCT NULLIF(LOWER(TRIM(o.customer_email)), '')), :now " +
+            "FROM orders o " +
+            "LEFT JOIN (SELECT order_id, SUM(quantity) AS quantity FROM order_items GROUP BY order_id) i " +
+            "ON i.order_id = o.id " +
+            "WHERE o.payment_status = 'PAID' AND o.order_date IS NOT NULL " +
+            "GROUP BY DATE_TRUNC('hour', o.order_date)", nativeQuery = true)
+    int rebuildFromOrders(@Param("now") LocalDateTime now);
+}
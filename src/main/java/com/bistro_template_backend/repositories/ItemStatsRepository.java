@@ -0,0 +1,65 @@
+package com.bistro_template_backend.repositories;
+
+import com.bistro_template_backend.models.ItemStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per menu item rollups: {@code item_stats_total} and, for day-level
+ * reporting, {@code item_stats_daily}.
+ */
+@Repository
+public interface ItemStatsRepository extends JpaRepository<ItemStats, Long> {
+
+    @Modifying
+    @Query(value = "INSERT INTO item_stats_total (menu_item_id, quantity, revenue) " +
+            "VALUES (:menuItemId, :quantity, :revenue) " +
+            "ON CONFLICT (menu_item_id) DO UPDATE SET " +
+            "quantity = item_stats_total.quantity + EXCLUDED.quantity, " +
+            "revenue = item_stats_total.revenue + EXCLUDED.revenue", nativeQuery = true)
+    void addTotal(@Param("menuItemId") Long menuItemId,
+                  @Param("quantity") long quantity,
+                  @Param("revenue") BigDecimal revenue);
+
+    @Modifying
+    @Query(value = "INSERT INTO item_stats_daily (day, menu_item_id, quantity, revenue) " +
+            "VALUES (:day, :menuItemId, :quantity, :revenue) " +
+            "ON CONFLICT (day, menu_item_id) DO UPDATE SET " +
+            "quantity = item_stats_daily.quantity + EXCLUDED.quantity, " +
+            "revenue = item_stats_daily.revenue + EXCLUDED.revenue", nativeQuery = true)
+    void addDaily(@Param("day") LocalDate day,
+                  @Param("menuItemId") Long menuItemId,
+                  @Param("quantity") long quantity,
+                  @Param("revenue") BigDecimal revenue);
+
+    @Query(value = "SELECT mi.name AS name, s.quantity AS count " +
+            "FROM item_stats_total s " +
+            "JOIN menu_items mi ON mi.id = s.menu_item_id " +
+            "ORDER BY s.quantity DESC " +
+            "LIMIT :limit", nativeQuery = true)
+    List<Map<String, Object>> findTopItems(@Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "INSERT INTO item_stats_total (menu_item_id, quantity, revenue) " +
+            "SELECT oi.menu_item_id, SUM(oi.quantity), SUM(oi.item_price * oi.quantity) " +
+            "FROM order_items oi JOIN orders o ON o.id = oi.order_id " +
+            "WHERE o.payment_status = 'PAID' AND oi.menu_item_id IS NOT NULL " +
+            "GROUP BY oi.menu_item_id", nativeQuery = true)
+    int rebuildTotalsFromOrders();
+
+    @Modifying
+    @Query(value = "INSERT INTO item_stats_daily (day, menu_item_id, quantity, revenue) " +
+            "SELECT CAST(o.order_date AS date), oi.menu_item_id, SUM(oi.quantity), SUM(oi.item_price * oi.quantity) " +
+            "FROM order_items oi JOIN orders o ON o.id = oi.order_id " +
+            "WHERE o.payment_status = 'PAID' AND o.order_date IS NOT NULL AND oi.menu_item_id IS NOT NULL " +
+            "GROUP BY CAST(o.order_date AS date), oi.menu_item_id", nativeQuery = true)
+    int rebuildDailyFromOrders();
+}
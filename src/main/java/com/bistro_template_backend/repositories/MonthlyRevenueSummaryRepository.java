@@ -0,0 +1,28 @@
+package com.bistro_template_backend.repositories;
+
+import com.bistro_template_backend.models.MonthlyRevenueSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MonthlyRevenueSummaryRepository extends JpaRepository<MonthlyRevenueSummary, String> {
+
+    List<MonthlyRevenueSummary> findByMonthGreaterThanEqualOrderByMonthAsc(String month);
+
+    @Modifying
+    @Query(value = "DELETE FROM monthly_revenue_summary", nativeQuery = true)
+    int clear();
+
+    @Modifying
+    @Query(value = "INSERT INTO monthly_revenue_summary (month, revenue, order_count, refreshed_at) " +
+            "SELECT TO_CHAR(day, 'YYYY-MM'), SUM(revenue), SUM(order_count), :now " +
+            "FROM order_stats_daily " +
+            "GROUP BY TO_CHAR(day, 'YYYY-MM')", nativeQuery = true)
+    int refreshFromRollups(@Param("now") LocalDateTime now);
+}
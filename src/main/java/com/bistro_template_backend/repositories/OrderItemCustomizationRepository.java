@@ -2,11 +2,22 @@ package com.bistro_template_backend.repositories;
 
 import com.bistro_template_backend.models.OrderItemCustomization;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface OrderItemCustomizationRepository extends JpaRepository<OrderItemCustomization, Long> {
     List<OrderItemCustomization> findByOrderItemId(Long orderItemId);
-}
\ No newline at end of file
+
+    // Loads the selections of many order items in one round trip, eager associations included
+    @Query("SELECT oic FROM OrderItemCustomization oic " +
+            "JOIN FETCH oic.orderItem " +
+            "JOIN FETCH oic.customization c " +
+            "JOIN FETCH c.menuItem " +
+            "WHERE oic.orderItem.id IN :orderItemIds")
+    List<OrderItemCustomization> findByOrderItemIdIn(@Param("orderItemIds") Collection<Long> orderItemIds);
+}
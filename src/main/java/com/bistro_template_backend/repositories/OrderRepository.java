@@ -3,21 +3,26 @@ package com.bistro_template_backend.repositories;
 import com.bistro_template_backend.models.Order;
 import com.bistro_template_backend.models.OrderStatus;
 import com.bistro_template_backend.models.PaymentStatus;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order> {
     List<Order> findByStatusAndPaymentStatusOrderByIdDesc(OrderStatus status, PaymentStatus paymentStatus);
 
     // NEW: Find all paid orders (regardless of status) ordered by ID descending
@@ -29,32 +34,21 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     // NEW: Find all orders ordered by ID descending
     List<Order> findAllByOrderByIdDesc();
 
-    // Count orders after a given datetime
-    @Query("SELECT COUNT(o) FROM Order o WHERE o.orderDate >= :date")
-    Long countByOrderDateAfter(@Param("date") LocalDateTime date);
+    // Just the status, for opening a customer's status stream without loading the order
+    @Query("SELECT o.status FROM Order o WHERE o.id = :orderId")
+    Optional<OrderStatus> findStatusById(@Param("orderId") Long orderId);
 
-    // Sum total amount of all orders (or could be filtered)
-    @Query("SELECT SUM(o.totalAmount) FROM Order o")
-    BigDecimal sumTotalAmount();
-
-    // Count distinct customers
-    @Query("SELECT COUNT(DISTINCT o.customerEmail) FROM Order o")
-    Long countDistinctCustomerEmail();
-
-    // For monthly revenue chart
-    @Query(value =
-            "SELECT TO_CHAR(o.order_date, 'YYYY-MM') as month, " +
-                    "SUM(o.total_amount) as revenue " +
-                    "FROM orders o " +
-                    "WHERE o.order_date >= CURRENT_DATE - INTERVAL '12 months' " +
-                    "GROUP BY TO_CHAR(o.order_date, 'YYYY-MM') " +
-                    "ORDER BY month ASC",
-            nativeQuery = true)
-    List<Map<String, Object>> getMonthlyRevenue();
-
-    // For average order value
-    @Query("SELECT AVG(o.totalAmount) FROM Order o WHERE o.status != 'CANCELED'")
-    BigDecimal getAverageOrderValue();
+    // Server-side cursor for exports; must be consumed inside a (read-only) transaction and closed
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM Order o " +
+            "WHERE o.orderDate >= :from AND o.orderDate < :to AND o.paymentStatus = :paymentStatus " +
+            "ORDER BY o.orderDate, o.id")
+    Stream<Order> streamByOrderDateRange(@Param("from") LocalDateTime from,
+                                         @Param("to") LocalDateTime to,
+                                         @Param("paymentStatus") PaymentStatus paymentStatus);
 
     // For orders by status count
     @Query("SELECT o.status as status, COUNT(o) as count FROM Order o GROUP BY o.status")
@@ -0,0 +1,59 @@
+package com.bistro_template_backend.repositories;
+
+import com.bistro_template_backend.dto.OrderSearchCriteria;
+import com.bistro_template_backend.models.Order;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+
+/**
+ * Query predicates for {@link Order}, combined into one SQL WHERE clause.
+ */
+public final class OrderSpecifications {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private OrderSpecifications() {
+    }
+
+    public static Specification<Order> matching(OrderSearchCriteria criteria) {
+        Specification<Order> spec = Specification.where(null);
+        if (criteria.status() != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("status"), criteria.status()));
+        }
+        if (criteria.paymentStatus() != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("paymentStatus"), criteria.paymentStatus()));
+        }
+        if (criteria.orderId() != null) {
+            spec = spec.and((root, query, cb) -> cb.equal(root.get("id"), criteria.orderId()));
+        }
+        if (StringUtils.hasText(criteria.customerName())) {
+            spec = spec.and(customerNameContains(criteria.customerName()));
+        }
+        if (criteria.startDate() != null) {
+            LocalDateTime from = criteria.startDate().atStartOfDay();
+            spec = spec.and((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("orderDate"), from));
+        }
+        if (criteria.endDate() != null) {
+            LocalDateTime to = criteria.endDate().plusDays(1).atStartOfDay();
+            spec = spec.and((root, query, cb) -> cb.lessThan(root.get("orderDate"), to));
+        }
+        return spec;
+    }
+
+    // lower(customer_name) LIKE '%name%', served by the trigram index on lower(customer_name)
+    public static Specification<Order> customerNameContains(String name) {
+        String pattern = "%" + escapeLike(name.trim().toLowerCase()) + "%";
+        return (root, query, cb) -> cb.like(cb.lower(root.get("customerName")), pattern, LIKE_ESCAPE);
+    }
+
+    // Keyset condition for results ordered by id descending
+    public static Specification<Order> idBefore(Long cursor) {
+        return (root, query, cb) -> cb.lessThan(root.get("id"), cursor);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
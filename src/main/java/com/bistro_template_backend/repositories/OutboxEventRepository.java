@@ -0,0 +1,38 @@
+package com.bistro_template_backend.repositories;
+
+import com.bistro_template_backend.models.OutboxEvent;
+import com.bistro_template_backend.models.OutboxStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // Rows locked by another relay instance are skipped instead of waited on
+    @Query(value = "SELECT * FROM outbox_events " +
+            "WHERE status = 'PENDING' AND available_at <= :now " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Modifying
+    @Query("UPDATE OutboxEvent e " +
+            "SET e.status = com.bistro_template_backend.models.OutboxStatus.DELIVERED, e.deliveredAt = :deliveredAt " +
+            "WHERE e.id IN :ids")
+    int markDelivered(@Param("ids") Collection<Long> ids, @Param("deliveredAt") LocalDateTime deliveredAt);
+
+    // Deletes up to limit delivered or failed events last leased before the cutoff; uses idx_outbox_events_pending
+    @Modifying
+    @Query(value = "DELETE FROM outbox_events WHERE id IN (" +
+            "SELECT id FROM outbox_events WHERE status IN ('DELIVERED', 'FAILED') AND available_at < :before " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    int deleteSettledBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    long countByStatus(OutboxStatus status);
+}
@@ -1,12 +1,25 @@
 package com.bistro_template_backend.repositories;
 
 import com.bistro_template_backend.models.Payment;
+import com.bistro_template_backend.models.PaymentStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
     List<Payment> findByOrderIdOrderByCreatedAtDesc(Long orderId);
 
     Payment findByTransactionId(String transactionId);
-}
\ No newline at end of file
+
+    long countByOrderIdAndStatus(Long orderId, PaymentStatus status);
+
+    // Serializes the client confirmation and webhook paths; ordered by id so batches cannot deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Payment p WHERE p.transactionId IN :transactionIds ORDER BY p.id")
+    List<Payment> lockByTransactionIdIn(@Param("transactionIds") Collection<String> transactionIds);
+}
@@ -0,0 +1,38 @@
+package com.bistro_template_backend.repositories;
+
+import com.bistro_template_backend.models.StatsCustomerBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface StatsCustomerBucketRepository extends JpaRepository<StatsCustomerBucket, StatsCustomerBucket.Key> {
+
+    // 1 if the customer is new to the bucket, 0 if already counted
+    @Modifying
+    @Query(value = "INSERT INTO stats_customer_buckets (scope, bucket, customer_email) " +
+            "VALUES (:scope, :bucket, :email) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("scope") String scope,
+                       @Param("bucket") LocalDateTime bucket,
+                       @Param("email") String email);
+
+    @Modifying
+    @Query(value = "DELETE FROM stats_customer_buckets WHERE scope = :scope AND bucket < :before", nativeQuery = true)
+    int deleteOlderThan(@Param("scope") String scope, @Param("before") LocalDateTime before);
+
+    @Modifying
+    @Query(value = "INSERT INTO stats_customer_buckets (scope, bucket, customer_email) " +
+            "SELECT DISTINCT CAST(:scope AS varchar), " +
+            "CASE CAST(:scope AS varchar) WHEN 'all' THEN TIMESTAMP '1970-01-01 00:00:00' " +
+            "ELSE DATE_TRUNC(CAST(:scope AS varchar), o.order_date) END, " +
+            "LOWER(TRIM(o.customer_email)) " +
+            "FROM orders o " +
+            "WHERE o.payment_status = 'PAID' AND o.order_date IS NOT NULL " +
+            "AND NULLIF(LOWER(TRIM(o.customer_email)), '') IS NOT NULL " +
+            "AND o.order_date >= :since", nativeQuery = true)
+    int rebuildFromOrders(@Param("scope") String scope, @Param("since") LocalDateTime since);
+}
@@ -0,0 +1,48 @@
+package com.bistro_template_backend.repositories;
+
+import com.bistro_template_backend.models.StripeWebhookEvent;
+import com.bistro_template_backend.models.WebhookEventStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StripeWebhookEventRepository extends JpaRepository<StripeWebhookEvent, String> {
+
+    // Returns 0 when Stripe redelivered an event that is already stored
+    @Modifying
+    @Query(value = "INSERT INTO stripe_webhook_events " +
+            "(id, event_type, payment_intent_id, amount_received, currency, status, attempts, available_at, received_at) " +
+            "VALUES (:id, :eventType, :paymentIntentId, :amountReceived, :currency, 'PENDING', 0, :receivedAt, :receivedAt) " +
+            "ON CONFLICT (id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("id") String id,
+                       @Param("eventType") String eventType,
+                       @Param("paymentIntentId") String paymentIntentId,
+                       @Param("amountReceived") Long amountReceived,
+                       @Param("currency") String currency,
+                       @Param("receivedAt") LocalDateTime receivedAt);
+
+    @Query(value = "SELECT * FROM stripe_webhook_events " +
+            "WHERE status = 'PENDING' AND available_at <= :now " +
+            "ORDER BY received_at LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<StripeWebhookEvent> lockNextBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    @Query(value = "SELECT * FROM stripe_webhook_events " +
+            "WHERE id = :id AND status = 'PENDING' FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    Optional<StripeWebhookEvent> lockPendingById(@Param("id") String id);
+
+    // Deletes up to limit processed events last attempted before the cutoff; FAILED ones are kept for investigation
+    @Modifying
+    @Query(value = "DELETE FROM stripe_webhook_events WHERE id IN (" +
+            "SELECT id FROM stripe_webhook_events WHERE status = 'PROCESSED' AND available_at < :before " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    int deleteProcessedBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    long countByStatus(WebhookEventStatus status);
+}
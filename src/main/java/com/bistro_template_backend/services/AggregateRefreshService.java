@@ -0,0 +1,227 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.config.ExecutorRegistry;
+import com.bistro_template_backend.models.AggregateRefresh;
+import com.bistro_template_backend.repositories.AggregateRefreshRepository;
+import com.bistro_template_backend.repositories.CategoryPerformanceSummaryRepository;
+import com.bistro_template_backend.repositories.DailyOrderStatsRepository;
+import com.bistro_template_backend.repositories.MonthlyRevenueSummaryRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Refreshes the precomputed report tables {@code monthly_revenue_summary} and
+ * {@code category_performance_summary} every
+ * {@code stats.aggregates.refresh-interval-ms}.
+ * <p>
+ * Each table is rebuilt from the dashboard rollups in its own transaction.
+ * Readers keep seeing the previous rows until it commits. A transaction-scoped
+ * advisory lock lets only one instance refresh a table at a time. The outcome
+ * of every refresh is recorded in {@code aggregate_refresh_log}.
+ */
+@Service
+public class AggregateRefreshService {
+
+    private static final Logger log = LoggerFactory.getLogger(AggregateRefreshService.class);
+
+    public static final String MONTHLY_REVENUE = "monthly_revenue_summary";
+    public static final String CATEGORY_PERFORMANCE = "category_performance_summary";
+
+    private final AggregateRefreshRepository aggregateRefreshRepository;
+    private final DailyOrderStatsRepository dailyOrderStatsRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transaction;
+    private final MeterRegistry meterRegistry;
+    private final long refreshIntervalMillis;
+    private final Executor analytics;
+
+    // aggregate -> refresh returning the row count, run inside the refresh transaction
+    private final Map<String, Function<LocalDateTime, Integer>> aggregates = new LinkedHashMap<>();
+    private final Map<String, LocalDateTime> lastRefreshed = new ConcurrentHashMap<>();
+
+    public AggregateRefreshService(AggregateRefreshRepository aggregateRefreshRepository,
+                                   MonthlyRevenueSummaryRepository monthlyRevenueSummaryRepository,
+                                   CategoryPerformanceSummaryRepository categoryPerformanceSummaryRepository,
+                                   DailyOrderStatsRepository dailyOrderStatsRepository,
+                                   EntityManager entityManager,
+                                   PlatformTransactionManager transactionManager,
+                                   MeterRegistry meterRegistry,
+                                   ExecutorRegistry executorRegistry,
+                                   @Value("${stats.aggregates.refresh-interval-ms:300000}") long refreshIntervalMillis) {
+        this.aggregateRefreshRepository = aggregateRefreshRepository;
+        this.dailyOrderStatsRepository = dailyOrderStatsRepository;
+        this.entityManager = entityManager;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.refreshIntervalMillis = refreshIntervalMillis;
+        this.analytics = executorRegistry.get(ExecutorRegistry.ANALYTICS);
+
+        aggregates.put(MONTHLY_REVENUE, now -> {
+            monthlyRevenueSummaryRepository.clear();
+            return monthlyRevenueSummaryRepository.refreshFromRollups(now);
+        });
+        aggregates.put(CATEGORY_PERFORMANCE, now -> {
+            categoryPerformanceSummaryRepository.clear();
+            return categoryPerformanceSummaryRepository.refreshFromRollups(now);
+        });
+
+        for (String aggregate : aggregates.keySet()) {
+            Gauge.builder("stats.aggregate.age", lastRefreshed, refreshed -> ageSeconds(refreshed.get(aggregate)))
+                    .description("Seconds since the aggregate was last refreshed")
+                    .tag("aggregate", aggregate)
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    // Hands the refresh to the analytics executor so long report queries never occupy the scheduler.
+    // A tick that comes while a refresh runs queues another one behind it; once
+    // executors.analytics.queue-capacity are waiting, further ticks are dropped
+    @Scheduled(initialDelayString = "${stats.aggregates.initial-delay-ms:60000}",
+            fixedDelayString = "${stats.aggregates.refresh-interval-ms:300000}")
+    public void scheduleRefresh() {
+        analytics.execute(this::refreshAll);
+    }
+
+    public void refreshAll() {
+        aggregates.keySet().forEach(this::refresh);
+    }
+
+    /**
+     * Rebuilds one aggregate now. Returns false if it failed or another
+     * instance is refreshing it.
+     */
+    public boolean refresh(String aggregate) {
+        Function<LocalDateTime, Integer> refresher = aggregates.get(aggregate);
+        if (refresher == null) {
+            throw new IllegalArgumentException("Unknown aggregate: " + aggregate);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        long start = System.nanoTime();
+        try {
+            Boolean refreshed = transaction.execute(status -> {
+                Object locked = entityManager.createNativeQuery("SELECT pg_try_advisory_xact_lock(:key)")
+                        .setParameter("key", (long) aggregate.hashCode())
+                        .getSingleResult();
+                if (!Boolean.TRUE.equals(locked)) {
+                    return false;
+                }
+                int rows = refresher.apply(now);
+                long durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+                AggregateRefresh entry = entry(aggregate);
+                entry.setRefreshedAt(now);
+                entry.setLastAttemptAt(now);
+                entry.setDurationMs(durationMs);
+                entry.setRowCount(rows);
+                entry.setLastError(null);
+                aggregateRefreshRepository.save(entry);
+                return true;
+            });
+            if (Boolean.TRUE.equals(refreshed)) {
+                lastRefreshed.put(aggregate, now);
+                timer(aggregate, "success").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return true;
+            }
+            return false;
+        } catch (RuntimeException e) {
+            timer(aggregate, "failure").record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            log.error("Refreshing {} failed: {}", aggregate, e.getMessage());
+            recordFailure(aggregate, now, e);
+            return false;
+        }
+    }
+
+    /**
+     * When each aggregate was last refreshed, for the admin stats freshness endpoint.
+     * The dashboard rollups are maintained per order and report their last update.
+     */
+    public List<Map<String, Object>> freshness() {
+        List<Map<String, Object>> report = new ArrayList<>();
+
+        LocalDateTime rollupsUpdated = dailyOrderStatsRepository.lastUpdatedAt();
+        Map<String, Object> rollups = new LinkedHashMap<>();
+        rollups.put("aggregate", "dashboard_rollups");
+        rollups.put("mode", "incremental");
+        rollups.put("refreshedAt", rollupsUpdated);
+        rollups.put("ageSeconds", ageSeconds(rollupsUpdated));
+        report.add(rollups);
+
+        Map<String, AggregateRefresh> entries = new LinkedHashMap<>();
+        aggregateRefreshRepository.findAllById(aggregates.keySet())
+                .forEach(entry -> entries.put(entry.getAggregateName(), entry));
+        for (String aggregate : aggregates.keySet()) {
+            AggregateRefresh entry = entries.get(aggregate);
+            LocalDateTime refreshedAt = entry != null ? entry.getRefreshedAt() : null;
+            double age = ageSeconds(refreshedAt);
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("aggregate", aggregate);
+            row.put("mode", "scheduled");
+            row.put("refreshedAt", refreshedAt);
+            row.put("ageSeconds", Double.isNaN(age) ? null : (long) age);
+            row.put("refreshIntervalMs", refreshIntervalMillis);
+            row.put("stale", refreshedAt == null || age * 1000 > 2 * refreshIntervalMillis);
+            row.put("durationMs", entry != null ? entry.getDurationMs() : null);
+            row.put("rows", entry != null ? entry.getRowCount() : null);
+            row.put("lastAttemptAt", entry != null ? entry.getLastAttemptAt() : null);
+            row.put("lastError", entry != null ? entry.getLastError() : null);
+            report.add(row);
+        }
+        return report;
+    }
+
+    private void recordFailure(String aggregate, LocalDateTime now, RuntimeException error) {
+        try {
+            transaction.executeWithoutResult(status -> {
+                AggregateRefresh entry = entry(aggregate);
+                entry.setLastAttemptAt(now);
+                String message = String.valueOf(error.getMessage());
+                entry.setLastError(message.length() <= 1000 ? message : message.substring(0, 1000));
+                aggregateRefreshRepository.save(entry);
+            });
+        } catch (RuntimeException e) {
+            log.warn("Could not record refresh failure of {}: {}", aggregate, e.getMessage());
+        }
+    }
+
+    private AggregateRefresh entry(String aggregate) {
+        return aggregateRefreshRepository.findById(aggregate).orElseGet(() -> {
+            AggregateRefresh entry = new AggregateRefresh();
+            entry.setAggregateName(aggregate);
+            return entry;
+        });
+    }
+
+    private Timer timer(String aggregate, String outcome) {
+        return Timer.builder("stats.aggregate.refresh")
+                .tag("aggregate", aggregate)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static double ageSeconds(LocalDateTime since) {
+        return since == null ? Double.NaN : Duration.between(since, LocalDateTime.now()).toMillis() / 1000.0;
+    }
+}
@@ -1,7 +1,6 @@
 package com.bistro_template_backend.services;
 
 import com.bistro_template_backend.models.Category;
-import com.bistro_template_backend.repositories.CategoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -11,9 +10,9 @@ import java.util.List;
 public class CategoryService {
 
     @Autowired
-    private CategoryRepository categoryRepository;
+    private MenuCatalog menuCatalog;
 
     public List<Category> getAllCategories() {
-        return categoryRepository.findAll();
+        return menuCatalog.categories();
     }
 }
\ No newline at end of file
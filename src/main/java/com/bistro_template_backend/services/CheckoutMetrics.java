@@ -0,0 +1,101 @@
+package com.bistro_template_backend.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers and counters for the stages of an order's checkout, from the cart
+ * being turned into an order to the confirmation email leaving the server.
+ * <p>
+ * Every stage is timed in {@code checkout.stage}, tagged with the {@code stage},
+ * the {@code payment_method} and whether it ended in {@code success} or
+ * {@code error}, with a percentile histogram. Payment outcomes are counted in
+ * {@code checkout.payments}. Payment methods come from the client, so they are
+ * reduced to the known set before they become tag values.
+ */
+@Component
+public class CheckoutMetrics {
+
+    public static final String CREATE_ORDER = "create_order";
+    public static final String PAYMENT_INTENT = "payment_intent";
+    public static final String RECORD_PAYMENT = "record_payment";
+    public static final String VERIFY_PAYMENT = "verify_payment";
+    public static final String MARK_PAID = "mark_paid";
+    public static final String CONFIRM = "confirm";
+    public static final String EMAIL_ENQUEUE = "email_enqueue";
+    public static final String EMAIL_SEND = "email_send";
+    public static final String WEBSOCKET_PUBLISH = "websocket_publish";
+
+    /** Tag value for stages that run before a payment method is chosen. */
+    public static final String NO_PAYMENT_METHOD = "none";
+
+    private static final Set<String> PAYMENT_METHODS =
+            Set.of("card", "stripe", "express_checkout", "apple_pay", "google_pay");
+
+    private final MeterRegistry meterRegistry;
+
+    public CheckoutMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @FunctionalInterface
+    public interface Stage<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /**
+     * Runs {@code stage} and records how long it took; a stage that throws is
+     * recorded with outcome {@code error} and the exception is rethrown.
+     */
+    public <T, E extends Exception> T time(String stage, String paymentMethod, Stage<T, E> call) throws E {
+        long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            return call.run();
+        } catch (Exception e) {
+            outcome = "error";
+            throw e;
+        } finally {
+            record(stage, paymentMethod, outcome, System.nanoTime() - start);
+        }
+    }
+
+    /** Records a stage timed by the caller, e.g. one that completes asynchronously. */
+    public void record(String stage, String paymentMethod, String outcome, long nanos) {
+        Timer.builder("checkout.stage")
+                .description("Latency of the stages of an order checkout")
+                .tag("stage", stage)
+                .tag("payment_method", paymentMethodTag(paymentMethod))
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts a payment outcome: {@code intent_created}, {@code intent_reused},
+     * {@code confirmed}, {@code pending} or {@code not_completed}.
+     */
+    public void count(String result, String paymentMethod) {
+        Counter.builder("checkout.payments")
+                .description("Payment intents handed out and payments confirmed")
+                .tag("result", result)
+                .tag("payment_method", paymentMethodTag(paymentMethod))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    public static String paymentMethodTag(String paymentMethod) {
+        if (paymentMethod == null || paymentMethod.isBlank()) {
+            return NO_PAYMENT_METHOD;
+        }
+        String normalized = paymentMethod.trim().toLowerCase(Locale.ROOT);
+        return PAYMENT_METHODS.contains(normalized) ? normalized : "other";
+    }
+}
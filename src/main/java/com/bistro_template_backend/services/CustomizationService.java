@@ -2,8 +2,6 @@ package com.bistro_template_backend.services;
 
 import com.bistro_template_backend.models.Customization;
 import com.bistro_template_backend.models.MenuItem;
-import com.bistro_template_backend.repositories.CustomizationRepository;
-import com.bistro_template_backend.repositories.MenuItemRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -13,17 +11,14 @@ import java.util.List;
 public class CustomizationService {
 
     @Autowired
-    private MenuItemRepository menuItemRepository;
-
-    @Autowired
-    private CustomizationRepository customizationRepository;
+    private MenuCatalog menuCatalog;
 
     public List<Customization> getCustomizationsForItem(Long menuItemId) {
-        return customizationRepository.findByMenuItemId(menuItemId);
+        return menuCatalog.customizationsFor(menuItemId);
     }
 
     public MenuItem getMenuItem(Long menuItemId) {
-        return menuItemRepository.findById(menuItemId)
+        return menuCatalog.findMenuItem(menuItemId)
                 .orElseThrow(() -> new RuntimeException("Menu item not found"));
     }
 }
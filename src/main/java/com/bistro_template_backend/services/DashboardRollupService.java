@@ -0,0 +1,198 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.config.ExecutorRegistry;
+import com.bistro_template_backend.models.Order;
+import com.bistro_template_backend.models.OrderItem;
+import com.bistro_template_backend.repositories.DailyOrderStatsRepository;
+import com.bistro_template_backend.repositories.HourlyOrderStatsRepository;
+import com.bistro_template_backend.repositories.ItemStatsRepository;
+import com.bistro_template_backend.repositories.OrderItemRepository;
+import com.bistro_template_backend.repositories.StatsCustomerBucketRepository;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Maintains the dashboard rollups: {@code order_stats_daily},
+ * {@code order_stats_hourly}, {@code item_stats_daily} and
+ * {@code item_stats_total}.
+ * <p>
+ * Each order adds its revenue, item quantities and customer to the rollups in
+ * the transaction that marks it PAID, using additive upserts. Distinct customers
+ * are counted through {@code stats_customer_buckets}: the first insert of a
+ * customer into a bucket bumps that bucket's count. Day and hour buckets older
+ * than {@code stats.rollups.customer-bucket-retention-days} are pruned, so an
+ * order paid after that long may count its customer twice for its day.
+ * <p>
+ * {@link #rebuild()} recomputes everything from {@code orders}; it runs on
+ * startup while the rollups are empty and from the admin stats endpoint.
+ */
+@Service
+public class DashboardRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardRollupService.class);
+
+    static final String ALL = "all";
+    static final String DAY = "day";
+    static final String HOUR = "hour";
+    private static final LocalDateTime ALL_BUCKET = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private static final List<String> ROLLUP_TABLES = List.of(
+            "order_stats_daily", "order_stats_hourly", "item_stats_daily", "item_stats_total", "stats_customer_buckets");
+
+    private final DailyOrderStatsRepository dailyOrderStatsRepository;
+    private final HourlyOrderStatsRepository hourlyOrderStatsRepository;
+    private final ItemStatsRepository itemStatsRepository;
+    private final StatsCustomerBucketRepository statsCustomerBucketRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transaction;
+    private final Duration bucketRetention;
+    private final boolean backfillOnStartup;
+    private final Executor analytics;
+
+    public DashboardRollupService(DailyOrderStatsRepository dailyOrderStatsRepository,
+                                  HourlyOrderStatsRepository hourlyOrderStatsRepository,
+                                  ItemStatsRepository itemStatsRepository,
+                                  StatsCustomerBucketRepository statsCustomerBucketRepository,
+                                  OrderItemRepository orderItemRepository,
+                                  EntityManager entityManager,
+                                  PlatformTransactionManager transactionManager,
+                                  ExecutorRegistry executorRegistry,
+                                  @Value("${stats.rollups.customer-bucket-retention-days:7}") long bucketRetentionDays,
+                                  @Value("${stats.rollups.backfill-on-startup:true}") boolean backfillOnStartup) {
+        this.dailyOrderStatsRepository = dailyOrderStatsRepository;
+        this.hourlyOrderStatsRepository = hourlyOrderStatsRepository;
+        this.itemStatsRepository = itemStatsRepository;
+        this.statsCustomerBucketRepository = statsCustomerBucketRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.entityManager = entityManager;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.bucketRetention = Duration.ofDays(bucketRetentionDays);
+        this.backfillOnStartup = backfillOnStartup;
+        this.analytics = executorRegistry.get(ExecutorRegistry.ANALYTICS);
+    }
+
+    /**
+     * Adds a newly paid order to every rollup. Must run in the transaction that
+     * marks the order PAID, so the rollups and the order commit together.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordPaidOrder(Order order) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime placed = order.getOrderDate() != null ? order.getOrderDate() : now;
+        LocalDate day = placed.toLocalDate();
+        LocalDateTime hour = placed.truncatedTo(ChronoUnit.HOURS);
+        BigDecimal revenue = order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO;
+
+        // Sorted by menu item so concurrent orders lock the item rows in the same order
+        Map<Long, long[]> quantities = new TreeMap<>();
+        Map<Long, BigDecimal> itemRevenue = new TreeMap<>();
+        long itemCount = 0;
+        for (OrderItem item : orderItemRepository.findByOrderId(order.getId())) {
+            itemCount += item.getQuantity();
+            if (item.getMenuItemId() == null) {
+                continue;
+            }
+            quantities.computeIfAbsent(item.getMenuItemId(), id -> new long[1])[0] += item.getQuantity();
+            BigDecimal price = item.getItemPrice() != null ? item.getItemPrice() : BigDecimal.ZERO;
+            itemRevenue.merge(item.getMenuItemId(), price.multiply(BigDecimal.valueOf(item.getQuantity())), BigDecimal::add);
+        }
+
+        long newCustomer = 0;
+        long newForDay = 0;
+        long newForHour = 0;
+        if (StringUtils.hasText(order.getCustomerEmail())) {
+            String email = order.getCustomerEmail().trim().toLowerCase();
+            newCustomer = statsCustomerBucketRepository.insertIfAbsent(ALL, ALL_BUCKET, email);
+            newForDay = statsCustomerBucketRepository.insertIfAbsent(DAY, day.atStartOfDay(), email);
+            newForHour = statsCustomerBucketRepository.insertIfAbsent(HOUR, hour, email);
+        }
+
+        dailyOrderStatsRepository.add(day, revenue, 1, itemCount, newForDay, newCustomer, now);
+        hourlyOrderStatsRepository.add(hour, revenue, 1, itemCount, newForHour, now);
+        quantities.forEach((menuItemId, quantity) -> {
+            itemStatsRepository.addDaily(day, menuItemId, quantity[0], itemRevenue.get(menuItemId));
+            itemStatsRepository.addTotal(menuItemId, quantity[0], itemRevenue.get(menuItemId));
+        });
+    }
+
+    /**
+     * Recomputes all rollups from the paid orders. The rollup tables are locked
+     * for the duration, so orders paid meanwhile wait and are then added on top.
+     *
+     * @return row counts per rollup
+     */
+    public Map<String, Integer> rebuild() {
+        long start = System.nanoTime();
+        Map<String, Integer> rows = transaction.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime bucketsSince = now.minus(bucketRetention);
+            entityManager.createNativeQuery("LOCK TABLE " + String.join(", ", ROLLUP_TABLES) + " IN EXCLUSIVE MODE")
+                    .executeUpdate();
+            for (String table : ROLLUP_TABLES) {
+                entityManager.createNativeQuery("DELETE FROM " + table).executeUpdate();
+            }
+
+            Map<String, Integer> counts = new TreeMap<>();
+            counts.put("days", dailyOrderStatsRepository.rebuildFromOrders(now));
+            dailyOrderStatsRepository.rebuildNewCustomers();
+            counts.put("hours", hourlyOrderStatsRepository.rebuildFromOrders(now));
+            counts.put("itemDays", itemStatsRepository.rebuildDailyFromOrders());
+            counts.put("items", itemStatsRepository.rebuildTotalsFromOrders());
+            counts.put("customers", statsCustomerBucketRepository.rebuildFromOrders(ALL, ALL_BUCKET));
+            statsCustomerBucketRepository.rebuildFromOrders(DAY, bucketsSince.truncatedTo(ChronoUnit.DAYS));
+            statsCustomerBucketRepository.rebuildFromOrders(HOUR, bucketsSince.truncatedTo(ChronoUnit.HOURS));
+            return counts;
+        });
+        log.info("Dashboard rollups rebuilt in {} ms: {}", (System.nanoTime() - start) / 1_000_000, rows);
+        return rows;
+    }
+
+    // On the analytics executor, so a large backfill does not hold up startup
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        if (!backfillOnStartup) {
+            return;
+        }
+        analytics.execute(() -> {
+            try {
+                if (dailyOrderStatsRepository.count() == 0) {
+                    rebuild();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not backfill dashboard rollups: {}", e.getMessage());
+            }
+        });
+    }
+
+    // Day and hour buckets only matter while orders can still land in them
+    @Scheduled(cron = "${stats.rollups.prune-cron:0 15 4 * * *}")
+    public void pruneCustomerBuckets() {
+        LocalDateTime before = LocalDateTime.now().minus(bucketRetention);
+        Integer pruned = transaction.execute(status ->
+                statsCustomerBucketRepository.deleteOlderThan(DAY, before)
+                        + statsCustomerBucketRepository.deleteOlderThan(HOUR, before));
+        log.info("Pruned {} customer buckets older than {}", pruned, before);
+    }
+}
@@ -0,0 +1,92 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.models.CategoryPerformanceSummary;
+import com.bistro_template_backend.models.DailyOrderStats;
+import com.bistro_template_backend.models.HourlyOrderStats;
+import com.bistro_template_backend.models.MonthlyRevenueSummary;
+import com.bistro_template_backend.repositories.CategoryPerformanceSummaryRepository;
+import com.bistro_template_backend.repositories.DailyOrderStatsRepository;
+import com.bistro_template_backend.repositories.HourlyOrderStatsRepository;
+import com.bistro_template_backend.repositories.ItemStatsRepository;
+import com.bistro_template_backend.repositories.MonthlyRevenueSummaryRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dashboard figures read from the rollups kept by {@link DashboardRollupService}
+ * and the report tables refreshed by {@link AggregateRefreshService}. Every
+ * query touches at most one row per day of history, per menu item or per
+ * category, independent of the number of orders. Figures cover paid orders.
+ */
+@Service
+@Transactional(readOnly = true)
+public class DashboardStatsService {
+
+    private final DailyOrderStatsRepository dailyOrderStatsRepository;
+    private final HourlyOrderStatsRepository hourlyOrderStatsRepository;
+    private final ItemStatsRepository itemStatsRepository;
+    private final MonthlyRevenueSummaryRepository monthlyRevenueSummaryRepository;
+    private final CategoryPerformanceSummaryRepository categoryPerformanceSummaryRepository;
+
+    public DashboardStatsService(DailyOrderStatsRepository dailyOrderStatsRepository,
+                                 HourlyOrderStatsRepository hourlyOrderStatsRepository,
+                                 ItemStatsRepository itemStatsRepository,
+                                 MonthlyRevenueSummaryRepository monthlyRevenueSummaryRepository,
+                                 CategoryPerformanceSummaryRepository categoryPerformanceSummaryRepository) {
+        this.dailyOrderStatsRepository = dailyOrderStatsRepository;
+        this.hourlyOrderStatsRepository = hourlyOrderStatsRepository;
+        this.itemStatsRepository = itemStatsRepository;
+        this.monthlyRevenueSummaryRepository = monthlyRevenueSummaryRepository;
+        this.categoryPerformanceSummaryRepository = categoryPerformanceSummaryRepository;
+    }
+
+    public Map<String, Object> dashboard() {
+        Map<String, Object> totals = dailyOrderStatsRepository.totals();
+
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("todayOrders", dailyOrderStatsRepository.findById(LocalDate.now())
+                .map(DailyOrderStats::getOrderCount)
+                .orElse(0L));
+        stats.put("totalRevenue", decimal(totals.get("revenue")));
+        stats.put("totalCustomers", ((Number) totals.get("customers")).longValue());
+        stats.put("popularItems", itemStatsRepository.findTopItems(3));
+        return stats;
+    }
+
+    public BigDecimal averageOrderValue() {
+        Map<String, Object> totals = dailyOrderStatsRepository.totals();
+        long orders = ((Number) totals.get("orders")).longValue();
+        if (orders == 0) {
+            return null;
+        }
+        return decimal(totals.get("revenue")).divide(BigDecimal.valueOf(orders), 2, RoundingMode.HALF_UP);
+    }
+
+    // Precomputed by AggregateRefreshService
+    public List<CategoryPerformanceSummary> categoryPerformance() {
+        return categoryPerformanceSummaryRepository.findAllByOrderByRevenueDesc();
+    }
+
+    // The last twelve months, precomputed by AggregateRefreshService
+    public List<MonthlyRevenueSummary> monthlyRevenue() {
+        String firstMonth = YearMonth.now().minusMonths(12).toString();
+        return monthlyRevenueSummaryRepository.findByMonthGreaterThanEqualOrderByMonthAsc(firstMonth);
+    }
+
+    public List<HourlyOrderStats> hourly(LocalDate day) {
+        return hourlyOrderStatsRepository.findByHourGreaterThanEqualAndHourLessThanOrderByHour(
+                day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+    }
+
+    private static BigDecimal decimal(Object value) {
+        return value instanceof BigDecimal decimal ? decimal : new BigDecimal(value.toString());
+    }
+}
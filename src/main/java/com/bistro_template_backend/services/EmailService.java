@@ -1,40 +1,25 @@
 package com.bistro_template_backend.services;
 
-import jakarta.mail.MessagingException;
-import jakarta.mail.internet.MimeMessage;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Entry point for outgoing email. Messages are only queued here and sent in
+ * the background by the {@link MailDispatcher}, so callers never wait on SMTP.
+ */
 @Service
 public class EmailService {
 
     @Autowired
-    private JavaMailSender mailSender;
-
-    @Value("${spring.mail.username}")
-    private String senderEmail;
+    private MailDispatcher mailDispatcher;
 
-    public void sendEmail(String to, String subject, String body) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(to);
-        message.setSubject(subject);
-        message.setText(body);
-        message.setFrom(senderEmail); // Must match the username in application.properties
-
-        mailSender.send(message);
+    public CompletableFuture<Void> sendEmail(String to, String subject, String body) {
+        return mailDispatcher.enqueue(OutboundMail.text(to, subject, body));
     }
 
-    public void sendHtmlEmail(String to, String subject, String htmlBody) throws MessagingException {
-        MimeMessage message = mailSender.createMimeMessage();
-        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
-
-        helper.setTo(to);
-        helper.setSubject(subject);
-        helper.setText(htmlBody, true); // true indicates the body is HTML
-        mailSender.send(message);
+    public CompletableFuture<Void> sendHtmlEmail(String to, String subject, String htmlBody) {
+        return mailDispatcher.enqueue(OutboundMail.html(to, subject, htmlBody));
     }
-}
\ No newline at end of file
+}
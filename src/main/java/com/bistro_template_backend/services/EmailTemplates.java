@@ -0,0 +1,65 @@
+package com.bistro_template_backend.services;
+
+import com.samskivert.mustache.Mustache;
+import com.samskivert.mustache.Template;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The Mustache email templates under {@code classpath:templates/email}, compiled
+ * once at startup. {@code .html} templates escape their variables, {@code .txt}
+ * ones do not. Null values and empty strings render nothing and skip their
+ * sections.
+ */
+@Component
+public class EmailTemplates {
+
+    private static final Logger log = LoggerFactory.getLogger(EmailTemplates.class);
+
+    private static final String LOCATION = "classpath:templates/email/*.*";
+
+    private final Map<String, Template> templates;
+
+    public EmailTemplates() {
+        Mustache.Compiler html = Mustache.compiler()
+                .escapeHTML(true)
+                .nullValue("")
+                .emptyStringIsFalse(true);
+        Mustache.Compiler text = html.escapeHTML(false);
+
+        Map<String, Template> compiled = new HashMap<>();
+        try {
+            for (Resource resource : new PathMatchingResourcePatternResolver().getResources(LOCATION)) {
+                String filename = resource.getFilename();
+                String source = resource.getContentAsString(StandardCharsets.UTF_8);
+                compiled.put(filename, (filename.endsWith(".html") ? html : text).compile(source));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load email templates from " + LOCATION, e);
+        }
+        this.templates = Map.copyOf(compiled);
+        log.info("Compiled {} email templates", templates.size());
+    }
+
+    /**
+     * Renders the template with the given file name, e.g. {@code order-ready.txt}.
+     *
+     * @throws IllegalArgumentException if there is no such template
+     */
+    public String render(String name, Object model) {
+        Template template = templates.get(name);
+        if (template == null) {
+            throw new IllegalArgumentException("Unknown email template: " + name);
+        }
+        return template.execute(model);
+    }
+}
@@ -0,0 +1,197 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.config.ExecutorRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.AddressException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbound mail worker pool.
+ * <p>
+ * Messages wait in the bounded queue of the {@code email} executor and are
+ * sent by its threads over pooled SMTP connections. Failed sends are retried
+ * with exponential backoff up to {@code mail.dispatch.max-attempts} times: the
+ * retry is handed to the {@link TaskScheduler} and queued again when it is due,
+ * so a worker never sleeps through a backoff while other mail waits. When the
+ * queue is full new messages and due retries are rejected instead of blocking
+ * the caller.
+ */
+@Component
+public class MailDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(MailDispatcher.class);
+
+    private static final long SHUTDOWN_GRACE_SECONDS = 30;
+
+    private final JavaMailSenderImpl mailSender;
+    private final String senderEmail;
+    private final ThreadPoolExecutor executor;
+    private final TaskScheduler taskScheduler;
+    private final SmtpTransportPool transportPool;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+
+    private final Timer sendSuccess;
+    private final Timer sendFailure;
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter rejected;
+    private final Counter retried;
+
+    private volatile boolean running;
+
+    public MailDispatcher(JavaMailSenderImpl mailSender,
+                          MeterRegistry meterRegistry,
+                          ExecutorRegistry executorRegistry,
+                          @Qualifier("taskScheduler") TaskScheduler taskScheduler,
+                          @Value("${spring.mail.username}") String senderEmail,
+                          @Value("${mail.dispatch.max-attempts:4}") int maxAttempts,
+                          @Value("${mail.dispatch.initial-backoff-ms:1000}") long initialBackoffMillis) {
+        this.mailSender = mailSender;
+        this.senderEmail = senderEmail;
+        this.executor = executorRegistry.get(ExecutorRegistry.EMAIL);
+        this.taskScheduler = taskScheduler;
+        // One idle connection per email thread
+        this.transportPool = new SmtpTransportPool(mailSender, executor.getMaximumPoolSize());
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+
+        Gauge.builder("mail.queue.depth", executor, pool -> pool.getQueue().size())
+                .description("Emails waiting to be sent").register(meterRegistry);
+        this.sendSuccess = Timer.builder("mail.send").tag("result", "success")
+                .description("Time spent on a single SMTP send attempt").register(meterRegistry);
+        this.sendFailure = Timer.builder("mail.send").tag("result", "failure")
+                .description("Time spent on a single SMTP send attempt").register(meterRegistry);
+        this.sent = Counter.builder("mail.messages").tag("result", "sent").register(meterRegistry);
+        this.failed = Counter.builder("mail.messages").tag("result", "failed").register(meterRegistry);
+        this.rejected = Counter.builder("mail.messages").tag("result", "rejected").register(meterRegistry);
+        this.retried = Counter.builder("mail.messages").tag("result", "retried").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        running = true;
+        log.info("Mail dispatcher started with {} workers", executor.getMaximumPoolSize());
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        // Queued messages still go out during the grace period
+        executor.shutdown();
+        if (!executor.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS)) {
+            log.warn("Mail dispatcher stopped with {} unsent emails", executor.getQueue().size());
+            executor.shutdownNow();
+        }
+        transportPool.closeAll();
+    }
+
+    /**
+     * Queues a message without blocking. The returned future is already failed
+     * when the queue is full or the dispatcher is shutting down.
+     */
+    CompletableFuture<Void> enqueue(OutboundMail mail) {
+        submit(mail, 1);
+        return mail.completion();
+    }
+
+    private void submit(OutboundMail mail, int attempt) {
+        try {
+            if (!running) {
+                throw new RejectedExecutionException("Mail dispatcher is shutting down");
+            }
+            executor.execute(() -> deliver(mail, attempt));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            log.warn("Mail queue full, dropping email to {} ({})", mail.maskedTo(), mail.subject());
+            mail.completion().completeExceptionally(new RejectedExecutionException("Mail queue is full", e));
+        }
+    }
+
+    private void deliver(OutboundMail mail, int attempt) {
+        long start = System.nanoTime();
+        try {
+            sendOnce(mail);
+            sendSuccess.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            sent.increment();
+            mail.completion().complete(null);
+        } catch (MessagingException | RuntimeException e) {
+            sendFailure.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (attempt >= maxAttempts || isPermanent(e) || !running) {
+                failed.increment();
+                log.error("Giving up on email to {} ({}) after {} attempt(s): {}",
+                        mail.maskedTo(), mail.subject(), attempt, mail.masked(e.getMessage()));
+                mail.completion().completeExceptionally(e);
+                return;
+            }
+            long backoff = initialBackoffMillis << (attempt - 1);
+            retried.increment();
+            log.warn("Email to {} failed (attempt {}/{}), retrying in {} ms: {}",
+                    mail.maskedTo(), attempt, maxAttempts, backoff, mail.masked(e.getMessage()));
+            try {
+                taskScheduler.schedule(() -> submit(mail, attempt + 1), Instant.now().plusMillis(backoff));
+            } catch (RejectedExecutionException rejectedRetry) {
+                mail.completion().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void sendOnce(OutboundMail mail) throws MessagingException {
+        MimeMessage message = toMimeMessage(mail);
+        Transport transport = transportPool.borrow();
+        try {
+            transport.sendMessage(message, message.getAllRecipients());
+        } catch (SendFailedException e) {
+            // The server rejected the envelope but the connection is still usable
+            transportPool.release(transport);
+            throw e;
+        } catch (MessagingException | RuntimeException e) {
+            transportPool.invalidate(transport);
+            throw e;
+        }
+        transportPool.release(transport);
+    }
+
+    private MimeMessage toMimeMessage(OutboundMail mail) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, mail.html(), "UTF-8");
+        helper.setFrom(senderEmail); // Must match the SMTP username
+        helper.setTo(mail.to());
+        helper.setSubject(mail.subject());
+        helper.setText(mail.body(), mail.html());
+        helper.setSentDate(new Date());
+        message.saveChanges();
+        return message;
+    }
+
+    private static boolean isPermanent(Exception e) {
+        if (e instanceof AddressException) {
+            return true;
+        }
+        return e instanceof SendFailedException sfe
+                && sfe.getInvalidAddresses() != null && sfe.getInvalidAddresses().length > 0;
+    }
+}
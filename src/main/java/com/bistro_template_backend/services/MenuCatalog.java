@@ -0,0 +1,217 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.models.Category;
+import com.bistro_template_backend.models.Customization;
+import com.bistro_template_backend.models.MenuItem;
+import com.bistro_template_backend.repositories.CategoryRepository;
+import com.bistro_template_backend.repositories.CustomizationRepository;
+import com.bistro_template_backend.repositories.MenuItemRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Read-mostly, in-memory copy of the public menu.
+ * <p>
+ * All storefront reads are answered from an immutable {@link MenuCatalogSnapshot}.
+ * A new snapshot is built when a {@link MenuChangedEvent} is published (after the
+ * writing transaction commits) or when the current one is older than
+ * {@code menu.catalog.max-age-seconds}, which bounds staleness for writes made by
+ * other instances. While a rebuild runs, readers keep using the previous snapshot.
+ */
+@Service
+public class MenuCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(MenuCatalog.class);
+
+    private final MenuItemRepository menuItemRepository;
+    private final CategoryRepository categoryRepository;
+    private final CustomizationRepository customizationRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Duration maxAge;
+
+    private final AtomicReference<MenuCatalogSnapshot> current = new AtomicReference<>();
+    private final AtomicBoolean stale = new AtomicBoolean(false);
+    private final AtomicLong versions = new AtomicLong();
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer rebuildTimer;
+
+    public MenuCatalog(MenuItemRepository menuItemRepository,
+                       CategoryRepository categoryRepository,
+                       CustomizationRepository customizationRepository,
+                       ApplicationEventPublisher eventPublisher,
+                       PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry,
+                       @Value("${menu.catalog.max-age-seconds:300}") long maxAgeSeconds) {
+        this.menuItemRepository = menuItemRepository;
+        this.categoryRepository = categoryRepository;
+        this.customizationRepository = customizationRepository;
+        this.eventPublisher = eventPublisher;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.maxAge = Duration.ofSeconds(maxAgeSeconds);
+
+        this.hits = Counter.builder("menu.catalog.requests").tag("result", "hit")
+                .description("Menu reads answered from the in-memory snapshot").register(meterRegistry);
+        this.misses = Counter.builder("menu.catalog.requests").tag("result", "miss")
+                .description("Menu reads that needed a rebuild or a database lookup").register(meterRegistry);
+        this.rebuildTimer = Timer.builder("menu.catalog.rebuild")
+                .description("Time spent loading a new menu snapshot").register(meterRegistry);
+        Gauge.builder("menu.catalog.version", versions, AtomicLong::get).register(meterRegistry);
+    }
+
+    /**
+     * Returns the current snapshot, rebuilding it first if there is none yet or
+     * it has been invalidated or expired.
+     */
+    public MenuCatalogSnapshot snapshot() {
+        MenuCatalogSnapshot snapshot = current.get();
+        if (snapshot != null && !stale.get() && !isExpired(snapshot)) {
+            hits.increment();
+            return snapshot;
+        }
+
+        misses.increment();
+        if (snapshot == null) {
+            // Nothing to fall back on: wait for whoever is building the first snapshot
+            rebuildLock.lock();
+        } else if (!rebuildLock.tryLock()) {
+            // Someone else is already rebuilding; serve the previous version meanwhile
+            return snapshot;
+        }
+        try {
+            MenuCatalogSnapshot latest = current.get();
+            if (latest != null && latest != snapshot && !stale.get()) {
+                return latest;
+            }
+            return rebuild();
+        } catch (RuntimeException e) {
+            if (snapshot == null) {
+                throw e;
+            }
+            stale.set(true);
+            log.warn("Menu catalog rebuild failed, serving v{}: {}", snapshot.version(), e.getMessage());
+            return snapshot;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    public List<Category> categories() {
+        return snapshot().categories();
+    }
+
+    public List<MenuItem> menuItems() {
+        return snapshot().menuItems();
+    }
+
+    public List<MenuItem> featuredItems() {
+        return snapshot().featuredItems();
+    }
+
+    public List<MenuItem> menuItemsInCategory(Long categoryId) {
+        return snapshot().menuItemsInCategory(categoryId);
+    }
+
+    public List<Customization> customizationsFor(Long menuItemId) {
+        return snapshot().customizationsFor(menuItemId);
+    }
+
+    /**
+     * Looks up a menu item in the snapshot and falls back to the database for
+     * ids it does not know (e.g. items added on another instance).
+     */
+    public Optional<MenuItem> findMenuItem(Long menuItemId) {
+        MenuItem menuItem = snapshot().menuItemsById().get(menuItemId);
+        if (menuItem != null) {
+            return Optional.of(menuItem);
+        }
+        misses.increment();
+        return menuItemRepository.findById(menuItemId);
+    }
+
+    /**
+     * Batch variant of {@link #findMenuItem(Long)}: ids missing from the snapshot
+     * are loaded with a single query.
+     */
+    public Map<Long, MenuItem> findMenuItems(Collection<Long> menuItemIds) {
+        Map<Long, MenuItem> known = snapshot().menuItemsById();
+        Map<Long, MenuItem> found = new HashMap<>();
+        List<Long> unknown = new ArrayList<>();
+        for (Long id : menuItemIds) {
+            MenuItem menuItem = known.get(id);
+            if (menuItem != null) {
+                found.put(id, menuItem);
+            } else {
+                unknown.add(id);
+            }
+        }
+        if (!unknown.isEmpty()) {
+            misses.increment();
+            menuItemRepository.findAllById(unknown).forEach(item -> found.put(item.getId(), item));
+        }
+        return found;
+    }
+
+    /**
+     * Signals that the menu was written. Listeners run after the surrounding
+     * transaction commits, or immediately when there is none.
+     */
+    public void menuChanged(String reason) {
+        eventPublisher.publishEvent(new MenuChangedEvent(reason));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMenuChanged(MenuChangedEvent event) {
+        log.info("Menu changed ({}), rebuilding catalog", event.reason());
+        stale.set(true);
+        snapshot();
+    }
+
+    private boolean isExpired(MenuCatalogSnapshot snapshot) {
+        return snapshot.builtAt().plus(maxAge).isBefore(Instant.now());
+    }
+
+    private MenuCatalogSnapshot rebuild() {
+        // Cleared before loading so a change that lands during the load marks the result stale again
+        stale.set(false);
+        MenuCatalogSnapshot snapshot = rebuildTimer.record(() -> readOnlyTransaction.execute(status ->
+                MenuCatalogSnapshot.of(
+                        versions.get() + 1,
+                        categoryRepository.findAll(Sort.by("id")),
+                        menuItemRepository.findAll(Sort.by("id")),
+                        customizationRepository.findAllWithMenuItem())));
+        versions.set(snapshot.version());
+        current.set(snapshot);
+        log.info("Menu catalog v{} built: {} items, {} categories",
+                snapshot.version(), snapshot.menuItems().size(), snapshot.categories().size());
+        return snapshot;
+    }
+}
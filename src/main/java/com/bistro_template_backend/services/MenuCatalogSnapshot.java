@@ -0,0 +1,60 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.models.Category;
+import com.bistro_template_backend.models.Customization;
+import com.bistro_template_backend.models.MenuItem;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable, versioned view of the public menu. The collections cannot be
+ * modified; the entities inside are shared by every reader and must be treated
+ * as read-only.
+ */
+public record MenuCatalogSnapshot(long version,
+                                  Instant builtAt,
+                                  List<Category> categories,
+                                  List<MenuItem> menuItems,
+                                  List<MenuItem> featuredItems,
+                                  Map<Long, MenuItem> menuItemsById,
+                                  Map<Long, List<MenuItem>> menuItemsByCategoryId,
+                                  Map<Long, List<Customization>> customizationsByMenuItemId) {
+
+    static MenuCatalogSnapshot of(long version,
+                                  List<Category> categories,
+                                  List<MenuItem> menuItems,
+                                  List<Customization> customizations) {
+        List<MenuItem> featured = menuItems.stream()
+                .filter(item -> Boolean.TRUE.equals(item.getIsFeatured()))
+                .toList();
+        Map<Long, MenuItem> byId = menuItems.stream()
+                .collect(Collectors.toUnmodifiableMap(MenuItem::getId, Function.identity()));
+        Map<Long, List<MenuItem>> byCategory = menuItems.stream()
+                .filter(item -> item.getCategoryId() != null)
+                .collect(Collectors.groupingBy(MenuItem::getCategoryId, Collectors.toUnmodifiableList()));
+        Map<Long, List<Customization>> customizationsByItem = customizations.stream()
+                .collect(Collectors.groupingBy(c -> c.getMenuItem().getId(), Collectors.toUnmodifiableList()));
+
+        return new MenuCatalogSnapshot(
+                version,
+                Instant.now(),
+                List.copyOf(categories),
+                List.copyOf(menuItems),
+                featured,
+                byId,
+                Map.copyOf(byCategory),
+                Map.copyOf(customizationsByItem));
+    }
+
+    public List<MenuItem> menuItemsInCategory(Long categoryId) {
+        return menuItemsByCategoryId.getOrDefault(categoryId, List.of());
+    }
+
+    public List<Customization> customizationsFor(Long menuItemId) {
+        return customizationsByMenuItemId.getOrDefault(menuItemId, List.of());
+    }
+}
@@ -0,0 +1,8 @@
+package com.bistro_template_backend.services;
+
+/**
+ * Published after menu items, categories or customizations are written so the
+ * {@link MenuCatalog} can rebuild its snapshot.
+ */
+public record MenuChangedEvent(String reason) {
+}
@@ -10,23 +10,25 @@ import java.util.List;
 public class MenuItemService {
 
     private final MenuItemRepository menuItemRepository;
+    private final MenuCatalog menuCatalog;
 
     // Constructor injection (recommended)
-    public MenuItemService(MenuItemRepository menuItemRepository) {
+    public MenuItemService(MenuItemRepository menuItemRepository, MenuCatalog menuCatalog) {
         this.menuItemRepository = menuItemRepository;
+        this.menuCatalog = menuCatalog;
     }
 
     public List<MenuItem> getMenuItemsByCategory(Long categoryId) {
-        return menuItemRepository.findByCategoryId(categoryId);
+        return menuCatalog.menuItemsInCategory(categoryId);
     }
 
     /**
-     * Retrieves all MenuItem records from the database.
+     * Retrieves all MenuItem records from the in-memory menu catalog.
      *
      * @return a list of all MenuItem objects
      */
     public List<MenuItem> getAllMenuItems() {
-        return menuItemRepository.findAll();
+        return menuCatalog.menuItems();
     }
 
     /**
@@ -36,10 +38,12 @@ public class MenuItemService {
      * @return the saved MenuItem, including any generated ID
      */
     public MenuItem createMenuItem(MenuItem menuItem) {
-        return menuItemRepository.save(menuItem);
+        MenuItem saved = menuItemRepository.save(menuItem);
+        menuCatalog.menuChanged("menu item " + saved.getId() + " created");
+        return saved;
     }
 
     public List<MenuItem> getFeaturedItems() {
-        return menuItemRepository.findByIsFeaturedTrue();
+        return menuCatalog.featuredItems();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,161 @@
+package com.bistro_template_backend.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serializes each public menu view once per {@link MenuCatalogSnapshot} version
+ * and keeps both the identity and the gzip encoding in memory, together with a
+ * strong ETag derived from the JSON bytes. Since the ETag depends only on the
+ * content, every instance behind the load balancer hands out the same value.
+ */
+@Service
+public class MenuResponseCache {
+
+    public enum View {
+        MENU(MenuCatalogSnapshot::menuItems),
+        FEATURED(MenuCatalogSnapshot::featuredItems),
+        CATEGORIES(MenuCatalogSnapshot::categories);
+
+        private final Function<MenuCatalogSnapshot, List<?>> content;
+
+        View(Function<MenuCatalogSnapshot, List<?>> content) {
+            this.content = content;
+        }
+    }
+
+    record EncodedBody(byte[] identity, byte[] gzip, String etag, String gzipEtag) {
+
+        boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            // If-None-Match uses weak comparison, and both encodings carry the same content
+            return Arrays.stream(ifNoneMatch.split(","))
+                    .map(String::trim)
+                    .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                    .anyMatch(tag -> tag.equals("*") || tag.equals(etag) || tag.equals(gzipEtag));
+        }
+    }
+
+    private record VersionedBodies(long version, ConcurrentHashMap<View, EncodedBody> bodies) {
+    }
+
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache(); // always revalidate, 304 is cheap
+
+    private final MenuCatalog menuCatalog;
+    private final ObjectMapper objectMapper;
+    private final AtomicReference<VersionedBodies> cache = new AtomicReference<>();
+    private final Counter fullResponses;
+    private final Counter notModifiedResponses;
+
+    public MenuResponseCache(MenuCatalog menuCatalog, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.menuCatalog = menuCatalog;
+        this.objectMapper = objectMapper;
+        this.fullResponses = Counter.builder("menu.responses").tag("result", "full").register(meterRegistry);
+        this.notModifiedResponses = Counter.builder("menu.responses").tag("result", "not_modified").register(meterRegistry);
+    }
+
+    /**
+     * Builds the response for a menu view: {@code 304} when the client already
+     * has the current representation, otherwise the cached bytes, gzipped when
+     * the client accepts it.
+     */
+    public ResponseEntity<byte[]> respond(View view, String ifNoneMatch, String acceptEncoding) {
+        EncodedBody body = body(view);
+        boolean gzip = acceptsGzip(acceptEncoding);
+
+        if (body.matches(ifNoneMatch)) {
+            notModifiedResponses.increment();
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(gzip ? body.gzipEtag() : body.etag())
+                    .cacheControl(CACHE_CONTROL)
+                    .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                    .build();
+        }
+
+        fullResponses.increment();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CACHE_CONTROL)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return response.eTag(body.gzipEtag())
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .body(body.gzip());
+        }
+        return response.eTag(body.etag()).body(body.identity());
+    }
+
+    EncodedBody body(View view) {
+        MenuCatalogSnapshot snapshot = menuCatalog.snapshot();
+        VersionedBodies entry = cache.get();
+        if (entry == null || entry.version() != snapshot.version()) {
+            VersionedBodies fresh = new VersionedBodies(snapshot.version(), new ConcurrentHashMap<>());
+            cache.compareAndSet(entry, fresh);
+            entry = cache.get();
+        }
+        if (entry.version() != snapshot.version()) {
+            // Lost a race against a newer or older snapshot; serve without caching
+            return encode(view, snapshot);
+        }
+        return entry.bodies().computeIfAbsent(view, v -> encode(v, snapshot));
+    }
+
+    private EncodedBody encode(View view, MenuCatalogSnapshot snapshot) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(view.content.apply(snapshot));
+            String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(json), 0, 16);
+            return new EncodedBody(json, gzip(json), "\"" + hash + "\"", "\"" + hash + "-gz\"");
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize menu view " + view, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                return parts.length < 2 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+}
@@ -4,32 +4,37 @@ import com.bistro_template_backend.dto.PaymentRequest;
 import com.bistro_template_backend.models.*;
 import com.bistro_template_backend.repositories.OrderRepository;
 import com.bistro_template_backend.repositories.PaymentRepository;
-import com.stripe.Stripe;
 import com.stripe.model.PaymentIntent;
 import com.stripe.param.PaymentIntentCreateParams;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 @Service
 public class MobilePaymentService {
 
+    private static final Logger log = LoggerFactory.getLogger(MobilePaymentService.class);
+
     private final PaymentRepository paymentRepository;
     private final OrderRepository orderRepository;
-    private final String stripeSecretKey;
+    private final StripeGateway stripeGateway;
+    private final PaymentService paymentService;
 
     // Constructor injection to avoid circular dependencies
     public MobilePaymentService(PaymentRepository paymentRepository,
                                 OrderRepository orderRepository,
-                                @Value("${stripe.secretKey}") String stripeSecretKey) {
+                                StripeGateway stripeGateway,
+                                PaymentService paymentService) {
         this.paymentRepository = paymentRepository;
         this.orderRepository = orderRepository;
-        this.stripeSecretKey = stripeSecretKey;
+        this.stripeGateway = stripeGateway;
+        this.paymentService = paymentService;
     }
 
     /**
@@ -37,15 +42,12 @@ public class MobilePaymentService {
      */
     public Map<String, Object> createApplePayIntent(Order order, PaymentRequest request) {
         try {
-            Stripe.apiKey = stripeSecretKey;
-
-            long amountInCents = request.getAmount()
-                    .multiply(new BigDecimal("100")).longValue();
+            long amountInCents = PaymentService.amountInCents(order.getTotalAmount());
 
             // FIXED: Use only automatic_payment_methods, remove addPaymentMethodType
             PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
                     .setAmount(amountInCents)
-                    .setCurrency(request.getCurrency().toLowerCase())
+                    .setCurrency(PaymentService.CURRENCY)
                     .setDescription(request.getDescription())
                     .putMetadata("orderId", order.getId().toString())
                     .putMetadata("paymentMethod", "apple_pay")
@@ -58,16 +60,11 @@ public class MobilePaymentService {
                     )
                     .build();
 
-            PaymentIntent paymentIntent = PaymentIntent.create(params);
+            PaymentIntent paymentIntent = stripeGateway.createPaymentIntent(params,
+                    paymentService.idempotencyKey(order, params));
 
             // Create payment record
-            Payment payment = new Payment();
-            payment.setOrderId(order.getId());
-            payment.setAmount(request.getAmount());
-            payment.setPaymentMethod("APPLE_PAY");
-            payment.setTransactionId(paymentIntent.getId());
-            payment.setStatus(PaymentStatus.INITIATED);
-            paymentRepository.save(payment);
+            paymentService.recordInitiatedPayment(order.getId(), order.getTotalAmount(), "APPLE_PAY", paymentIntent);
 
             Map<String, Object> response = new HashMap<>();
             response.put("clientSecret", paymentIntent.getClientSecret());
@@ -75,7 +72,7 @@ public class MobilePaymentService {
 
             return response;
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Could not create an Apple Pay PaymentIntent for order {}", order.getId(), e);
             throw new RuntimeException("Error creating Apple Pay PaymentIntent: " + e.getMessage(), e);
         }
     }
@@ -85,15 +82,12 @@ public class MobilePaymentService {
      */
     public Map<String, Object> createGooglePayIntent(Order order, PaymentRequest request) {
         try {
-            Stripe.apiKey = stripeSecretKey;
-
-            long amountInCents = request.getAmount()
-                    .multiply(new BigDecimal("100")).longValue();
+            long amountInCents = PaymentService.amountInCents(order.getTotalAmount());
 
             // FIXED: Use only automatic_payment_methods, remove addPaymentMethodType
             PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
                     .setAmount(amountInCents)
-                    .setCurrency(request.getCurrency().toLowerCase())
+                    .setCurrency(PaymentService.CURRENCY)
                     .setDescription(request.getDescription())
                     .putMetadata("orderId", order.getId().toString())
                     .putMetadata("paymentMethod", "google_pay")
@@ -109,16 +103,11 @@ public class MobilePaymentService {
                     .setConfirmationMethod(PaymentIntentCreateParams.ConfirmationMethod.AUTOMATIC)
                     .build();
 
-            PaymentIntent paymentIntent = PaymentIntent.create(params);
+            PaymentIntent paymentIntent = stripeGateway.createPaymentIntent(params,
+                    paymentService.idempotencyKey(order, params));
 
             // Create payment record
-            Payment payment = new Payment();
-            payment.setOrderId(order.getId());
-            payment.setAmount(request.getAmount());
-            payment.setPaymentMethod("GOOGLE_PAY");
-            payment.setTransactionId(paymentIntent.getId());
-            payment.setStatus(PaymentStatus.INITIATED);
-            paymentRepository.save(payment);
+            paymentService.recordInitiatedPayment(order.getId(), order.getTotalAmount(), "GOOGLE_PAY", paymentIntent);
 
             Map<String, Object> response = new HashMap<>();
             response.put("clientSecret", paymentIntent.getClientSecret());
@@ -126,7 +115,7 @@ public class MobilePaymentService {
 
             return response;
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Could not create a Google Pay PaymentIntent for order {}", order.getId(), e);
             throw new RuntimeException("Error creating Google Pay PaymentIntent: " + e.getMessage(), e);
         }
     }
@@ -212,31 +201,29 @@ public class MobilePaymentService {
     /**
      * Process mobile payment confirmation
      */
+    @Transactional
     public void confirmMobilePayment(String transactionId, Long orderId, String paymentMethod,
                                      Map<String, String> billingDetails) {
         try {
-            // Find the payment record
-            Payment payment = paymentRepository.findByTransactionId(transactionId);
-            if (payment == null) {
-                throw new RuntimeException("Payment not found for transaction: " + transactionId);
+            // Find and lock the payment record
+            Payment payment = paymentRepository.lockByTransactionIdIn(List.of(transactionId)).stream()
+                    .findFirst()
+                    .orElseThrow(() -> new RuntimeException("Payment not found for transaction: " + transactionId));
+            if (!orderId.equals(payment.getOrderId())) {
+                throw new RuntimeException("Payment " + transactionId + " does not belong to order " + orderId);
             }
 
-            // Update payment status
-            payment.setStatus(PaymentStatus.PAID);
-            paymentRepository.save(payment);
-
-            // Update order status
             Order order = orderRepository.findById(orderId)
                     .orElseThrow(() -> new RuntimeException("Order not found: " + orderId));
-            order.setPaymentStatus(PaymentStatus.PAID);
-            orderRepository.save(order);
 
-            // Log successful payment
-            System.out.println("Mobile payment confirmed - Method: " + paymentMethod +
-                    ", Order: " + orderId + ", Transaction: " + transactionId);
+            // Payment and order status, admin notification and confirmation emails
+            paymentService.markPaid(payment, order);
+
+            log.info("Mobile payment confirmed: order {}, method {}, transaction {}", orderId, paymentMethod,
+                    transactionId);
 
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Could not confirm mobile payment {} of order {}", transactionId, orderId, e);
             throw new RuntimeException("Error confirming mobile payment: " + e.getMessage(), e);
         }
     }
@@ -0,0 +1,120 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.dto.OrderDetailsDTO;
+import com.bistro_template_backend.dto.OrderDetailsDTO.CustomizationDetailsDTO;
+import com.bistro_template_backend.dto.OrderDetailsDTO.ItemDetailsDTO;
+import com.bistro_template_backend.models.MenuItem;
+import com.bistro_template_backend.models.Order;
+import com.bistro_template_backend.models.OrderItem;
+import com.bistro_template_backend.models.OrderItemCustomization;
+import com.bistro_template_backend.repositories.OrderItemCustomizationRepository;
+import com.bistro_template_backend.repositories.OrderItemRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the admin order views for a page of orders with a fixed number of
+ * set-based queries: one for the items and one for the selected customizations
+ * (each split into IN batches of {@link #BATCH_SIZE}). Menu items come from the
+ * {@link MenuCatalog}.
+ */
+@Service
+public class OrderDetailsAssembler {
+
+    // Keeps IN lists far below PostgreSQL's bind parameter limit
+    static final int BATCH_SIZE = 500;
+
+    private final OrderItemRepository orderItemRepository;
+    private final MenuCatalog menuCatalog;
+    private final OrderItemCustomizationRepository orderItemCustomizationRepository;
+
+    public OrderDetailsAssembler(OrderItemRepository orderItemRepository,
+                                 MenuCatalog menuCatalog,
+                                 OrderItemCustomizationRepository orderItemCustomizationRepository) {
+        this.orderItemRepository = orderItemRepository;
+        this.menuCatalog = menuCatalog;
+        this.orderItemCustomizationRepository = orderItemCustomizationRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public List<OrderDetailsDTO> assemble(List<Order> orders) {
+        if (orders.isEmpty()) {
+            return List.of();
+        }
+
+        // 1. All items of all orders
+        List<Long> orderIds = orders.stream().map(Order::getId).toList();
+        List<OrderItem> orderItems = loadInBatches(orderIds, orderItemRepository::findByOrderIdIn);
+        Map<Long, List<OrderItem>> itemsByOrderId = orderItems.stream()
+                .collect(Collectors.groupingBy(OrderItem::getOrderId));
+
+        // 2. The menu items they reference, from the menu catalog (only unknown ids hit the database)
+        List<Long> menuItemIds = orderItems.stream().map(OrderItem::getMenuItemId).distinct().toList();
+        Map<Long, MenuItem> menuItemsById = menuCatalog.findMenuItems(menuItemIds);
+
+        // 3. The customizations selected for those items
+        List<Long> orderItemIds = orderItems.stream().map(OrderItem::getId).toList();
+        Map<Long, List<OrderItemCustomization>> customizationsByItemId =
+                loadInBatches(orderItemIds, orderItemCustomizationRepository::findByOrderItemIdIn).stream()
+                        .collect(Collectors.groupingBy(oic -> oic.getOrderItem().getId()));
+
+        return orders.stream()
+                .map(order -> toDetails(order,
+                        itemsByOrderId.getOrDefault(order.getId(), List.of()),
+                        menuItemsById,
+                        customizationsByItemId))
+                .toList();
+    }
+
+    private OrderDetailsDTO toDetails(Order order,
+                                      List<OrderItem> orderItems,
+                                      Map<Long, MenuItem> menuItemsById,
+                                      Map<Long, List<OrderItemCustomization>> customizationsByItemId) {
+        OrderDetailsDTO details = new OrderDetailsDTO();
+        details.setId(order.getId());
+        details.setOrderDate(order.getOrderDate());
+        details.setCustomerName(order.getCustomerName());
+        details.setCustomerEmail(order.getCustomerEmail());
+        details.setCustomerPhone(order.getCustomerPhone());
+        details.setStatus(order.getStatus());
+        details.setPaymentStatus(order.getPaymentStatus());
+        details.setSubTotal(order.getSubTotal());
+        details.setServiceFee(order.getServiceFee());
+        details.setTotalAmount(order.getTotalAmount());
+        details.setSpecialNotes(order.getSpecialNotes());
+        details.setTax(order.getTax());
+
+        details.setItems(orderItems.stream().map(item -> {
+            MenuItem menuItem = menuItemsById.get(item.getMenuItemId());
+            if (menuItem == null) {
+                throw new RuntimeException("Menu item not found");
+            }
+
+            List<CustomizationDetailsDTO> customizations = customizationsByItemId
+                    .getOrDefault(item.getId(), List.of()).stream()
+                    .map(selected -> new CustomizationDetailsDTO(
+                            selected.getCustomization().getName(),
+                            selected.getCustomization().getPrice()))
+                    .toList();
+
+            return new ItemDetailsDTO(menuItem.getName(), item.getQuantity(), menuItem.getPrice(), customizations);
+        }).toList());
+
+        return details;
+    }
+
+    private static <T> List<T> loadInBatches(List<Long> ids, Function<List<Long>, ? extends Collection<T>> loader) {
+        List<T> results = new ArrayList<>();
+        for (int start = 0; start < ids.size(); start += BATCH_SIZE) {
+            results.addAll(loader.apply(ids.subList(start, Math.min(start + BATCH_SIZE, ids.size()))));
+        }
+        return results;
+    }
+}
@@ -0,0 +1,164 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.config.RestaurantBranding;
+import com.bistro_template_backend.dto.OrderEmailView;
+import com.bistro_template_backend.models.Customization;
+import com.bistro_template_backend.models.MenuItem;
+import com.bistro_template_backend.models.Order;
+import com.bistro_template_backend.models.OrderItem;
+import com.bistro_template_backend.models.OrderItemCustomization;
+import com.bistro_template_backend.repositories.OrderItemCustomizationRepository;
+import com.bistro_template_backend.repositories.OrderItemRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * Renders and queues the emails sent for an order: the customer confirmation
+ * and kitchen alert once it is paid, and the ready / picked-up notices.
+ */
+@Service
+public class OrderEmailService {
+
+    static final DateTimeFormatter ORDER_DATE = DateTimeFormatter.ofPattern("MMMM d, yyyy 'at' hh:mm a");
+    private static final DateTimeFormatter PICKUP_TIME = DateTimeFormatter.ofPattern("hh:mm a");
+
+    private static final int BASE_PREPARATION_MINUTES = 15;
+
+    private final OrderItemRepository orderItemRepository;
+    private final OrderItemCustomizationRepository orderItemCustomizationRepository;
+    private final MenuCatalog menuCatalog;
+    private final EmailTemplates emailTemplates;
+    private final EmailService emailService;
+    private final RestaurantBranding branding;
+    private final String adminEmail;
+
+    public OrderEmailService(OrderItemRepository orderItemRepository,
+                             OrderItemCustomizationRepository orderItemCustomizationRepository,
+                             MenuCatalog menuCatalog,
+                             EmailTemplates emailTemplates,
+                             EmailService emailService,
+                             RestaurantBranding branding,
+                             @Value("${spring.mail.username}") String adminEmail) {
+        this.orderItemRepository = orderItemRepository;
+        this.orderItemCustomizationRepository = orderItemCustomizationRepository;
+        this.menuCatalog = menuCatalog;
+        this.emailTemplates = emailTemplates;
+        this.emailService = emailService;
+        this.branding = branding;
+        this.adminEmail = adminEmail;
+    }
+
+    public CompletableFuture<Void> sendConfirmationEmails(Order order) {
+        OrderEmailView view = buildView(order);
+        return CompletableFuture.allOf(
+                emailService.sendHtmlEmail(order.getCustomerEmail(),
+                        "Order Confirmation: Your " + branding.getName() + " Order #" + order.getId(),
+                        emailTemplates.render("order-confirmation-customer.html", view)),
+                emailService.sendHtmlEmail(adminEmail,
+                        "New Order #" + order.getId() + " - Ready for Preparation",
+                        emailTemplates.render("order-alert-admin.html", view)));
+    }
+
+    public CompletableFuture<Void> sendReadyEmail(Order order) {
+        return emailService.sendEmail(order.getCustomerEmail(), "Your Order is Ready for Pickup!",
+                emailTemplates.render("order-ready.txt", statusView(order)));
+    }
+
+    public CompletableFuture<Void> sendCompletedEmail(Order order) {
+        return emailService.sendEmail(order.getCustomerEmail(), "Your Order has been picked up!",
+                emailTemplates.render("order-completed.txt", statusView(order)));
+    }
+
+    /**
+     * Collects the order's items, their customizations and menu items with one
+     * query each and formats everything the templates display.
+     */
+    public OrderEmailView buildView(Order order) {
+        List<OrderItem> orderItems = orderItemRepository.findByOrderId(order.getId());
+        Map<Long, List<OrderItemCustomization>> selectionsByItemId = orderItems.isEmpty()
+                ? Map.of()
+                : orderItemCustomizationRepository.findByOrderItemIdIn(orderItems.stream().map(OrderItem::getId).toList())
+                        .stream()
+                        .collect(Collectors.groupingBy(selection -> selection.getOrderItem().getId()));
+        Map<Long, MenuItem> menuItemsById = menuCatalog.findMenuItems(
+                orderItems.stream().map(OrderItem::getMenuItemId).distinct().toList());
+
+        List<OrderEmailView.Item> items = orderItems.stream().map(item -> {
+            MenuItem menuItem = menuItemsById.get(item.getMenuItemId());
+            if (menuItem == null) {
+                throw new RuntimeException("Menu item not found");
+            }
+            List<OrderEmailView.Selection> selections = selectionsByItemId.getOrDefault(item.getId(), List.of()).stream()
+                    .map(OrderItemCustomization::getCustomization)
+                    .map(OrderEmailService::toSelection)
+                    .toList();
+            return new OrderEmailView.Item(menuItem.getName(), item.getQuantity(), money(menuItem.getPrice()), selections);
+        }).toList();
+
+        int totalItems = orderItems.stream().mapToInt(OrderItem::getQuantity).sum();
+        int totalCustomizations = selectionsByItemId.values().stream().mapToInt(List::size).sum();
+
+        return new OrderEmailView(
+                order.getId(),
+                order.getCustomerName(),
+                order.getCustomerEmail(),
+                order.getOrderDate().format(ORDER_DATE),
+                pickupRange(order.getOrderDate(), totalItems, totalCustomizations),
+                order.getSpecialNotes() != null && !order.getSpecialNotes().isEmpty() ? order.getSpecialNotes() : null,
+                items,
+                money(order.getSubTotal()),
+                money(order.getTax()),
+                money(order.getServiceFee()),
+                money(order.getTotalAmount()),
+                branding);
+    }
+
+    private OrderEmailView statusView(Order order) {
+        return new OrderEmailView(order.getId(), order.getCustomerName(), order.getCustomerEmail(),
+                null, null, null, List.of(), null, null, null, null, branding);
+    }
+
+    /**
+     * Pickup window: 15 minutes base, more for large orders, 2 minutes per
+     * customization and 20 minutes during the lunch and dinner peaks, plus a
+     * 10 minute range.
+     */
+    static String pickupRange(LocalDateTime orderTime, int totalItems, int totalCustomizations) {
+        int extraTime = 0;
+        if (totalItems > 5) {
+            extraTime += 10;
+        }
+        if (totalItems > 10) {
+            extraTime += 20;
+        }
+        extraTime += totalCustomizations * 2;
+        int orderHour = orderTime.getHour();
+        if ((orderHour >= 12 && orderHour < 14) || (orderHour >= 18 && orderHour < 20)) {
+            extraTime += 20;
+        }
+
+        LocalDateTime estimatedPickupMin = orderTime.plusMinutes(BASE_PREPARATION_MINUTES + extraTime);
+        LocalDateTime estimatedPickupMax = estimatedPickupMin.plusMinutes(10);
+        return estimatedPickupMin.format(PICKUP_TIME) + " - " + estimatedPickupMax.format(PICKUP_TIME);
+    }
+
+    private static OrderEmailView.Selection toSelection(Customization customization) {
+        BigDecimal price = customization.getPrice();
+        return new OrderEmailView.Selection(customization.getName(),
+                price != null && price.signum() > 0 ? money(price) : null);
+    }
+
+    // Same output as String.format("%.2f") without going through Formatter
+    static String money(BigDecimal amount) {
+        return amount == null ? "0.00" : amount.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+}
@@ -0,0 +1,91 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.dto.OrderEventReplay;
+import com.bistro_template_backend.dto.SequencedOrderEvent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * The last {@code websocket.replay.buffer-size} order notifications published
+ * over STOMP, numbered in publishing order.
+ * <p>
+ * Every frame carries the {@link #STREAM_ID_HEADER} of this log and the
+ * {@link #SEQ_HEADER} of its last notification. A client that lost its session
+ * asks for the notifications after the last sequence it saw; when some of them
+ * were already evicted, or the stream id changed because the instance
+ * restarted or the client reconnected to another instance, it has to reload
+ * the full state instead. Notifications carry an order's state, not a change,
+ * so a client may apply one twice.
+ * <p>
+ * The log only holds what this instance published. With any broker but the
+ * in-process {@code simple} one, clients also receive the notifications of
+ * other instances, which a replay from here would silently leave out, so every
+ * replay asks for a snapshot.
+ */
+@Component
+public class OrderEventLog {
+
+    public static final String STREAM_ID_HEADER = "stream-id";
+    public static final String SEQ_HEADER = "seq";
+
+    private record Entry(long seq, String destination, Object payload) {
+    }
+
+    private final String streamId = UUID.randomUUID().toString();
+    private final Entry[] ring;
+    private final boolean singleInstance;
+    private long lastSeq;
+
+    public OrderEventLog(@Value("${websocket.replay.buffer-size:2048}") int capacity,
+                         @Value("${websocket.broker.mode:simple}") String brokerMode,
+                         MeterRegistry meterRegistry) {
+        this.ring = new Entry[Math.max(1, capacity)];
+        this.singleInstance = brokerMode.toLowerCase(Locale.ROOT).equals("simple");
+        Gauge.builder("websocket.replay.last.seq", this, OrderEventLog::lastSeq)
+                .description("Sequence number of the last order notification published")
+                .register(meterRegistry);
+    }
+
+    public String streamId() {
+        return streamId;
+    }
+
+    public synchronized long lastSeq() {
+        return lastSeq;
+    }
+
+    /** Records a notification about to be published and returns its sequence number. */
+    public synchronized long append(String destination, Object payload) {
+        long seq = ++lastSeq;
+        ring[(int) (seq % ring.length)] = new Entry(seq, destination, payload);
+        return seq;
+    }
+
+    /**
+     * The notifications published to {@code destination} after {@code afterSeq}
+     * of {@code clientStreamId}, oldest first. The events are null when the log
+     * can no longer tell what was missed, or cannot know it because other
+     * instances publish too; the caller adds a snapshot then.
+     */
+    public synchronized OrderEventReplay replay(String destination, String clientStreamId, long afterSeq) {
+        long oldestSeq = Math.max(1, lastSeq - ring.length + 1);
+        if (!singleInstance || !streamId.equals(clientStreamId) || afterSeq > lastSeq || afterSeq < oldestSeq - 1) {
+            return new OrderEventReplay(streamId, lastSeq, null, null);
+        }
+        List<SequencedOrderEvent> missed = new ArrayList<>();
+        for (long seq = afterSeq + 1; seq <= lastSeq; seq++) {
+            Entry entry = ring[(int) (seq % ring.length)];
+            if (entry.destination().equals(destination)) {
+                missed.add(new SequencedOrderEvent(entry.seq(), entry.payload()));
+            }
+        }
+        return new OrderEventReplay(streamId, lastSeq, missed, null);
+    }
+}
@@ -0,0 +1,267 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.models.MenuItem;
+import com.bistro_template_backend.models.Order;
+import com.bistro_template_backend.models.OrderItem;
+import com.bistro_template_backend.models.OrderItemCustomization;
+import com.bistro_template_backend.models.OrderStatus;
+import com.bistro_template_backend.models.PaymentStatus;
+import com.bistro_template_backend.repositories.OrderItemCustomizationRepository;
+import com.bistro_template_backend.repositories.OrderItemRepository;
+import com.bistro_template_backend.repositories.OrderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Streams the orders of a date range, with their items and customizations, as
+ * CSV (one row per item) or NDJSON (one order per line).
+ * <p>
+ * Orders are read through a server-side cursor in a read-only transaction and
+ * handled in chunks of {@code orders.export.chunk-size}. Each chunk's items and
+ * customizations are loaded with one query each, written and flushed, and
+ * then the persistence context is cleared. Memory use depends on the chunk
+ * size, never on the size of the range. Item prices are the prices stored with
+ * the order, not the current menu prices.
+ */
+@Service
+public class OrderExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderExportService.class);
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    record ExportedItem(Long menuItemId, String name, int quantity, BigDecimal itemPrice, BigDecimal lineTotal,
+                        List<String> customizations) {
+    }
+
+    record ExportedOrder(Long id, LocalDateTime orderDate, OrderStatus status, PaymentStatus paymentStatus,
+                         String customerName, String customerEmail, String customerPhone,
+                         BigDecimal subTotal, BigDecimal tax, BigDecimal serviceFee, BigDecimal discount,
+                         BigDecimal totalAmount, String specialNotes, List<ExportedItem> items) {
+    }
+
+    private static final String CSV_HEADER = "order_id,order_date,status,payment_status,customer_name,"
+            + "customer_email,customer_phone,sub_total,tax,service_fee,discount,total_amount,special_notes,"
+            + "menu_item_id,item_name,quantity,item_price,line_total,customizations\n";
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final OrderItemCustomizationRepository orderItemCustomizationRepository;
+    private final MenuCatalog menuCatalog;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int chunkSize;
+
+    public OrderExportService(OrderRepository orderRepository,
+                              OrderItemRepository orderItemRepository,
+                              OrderItemCustomizationRepository orderItemCustomizationRepository,
+                              MenuCatalog menuCatalog,
+                              EntityManager entityManager,
+                              ObjectMapper objectMapper,
+                              PlatformTransactionManager transactionManager,
+                              @Value("${orders.export.chunk-size:500}") int chunkSize) {
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.orderItemCustomizationRepository = orderItemCustomizationRepository;
+        this.menuCatalog = menuCatalog;
+        this.entityManager = entityManager;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.readOnlyTransaction.setName(OrderExportService.class.getName() + ".export");
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Writes the orders placed in {@code [from, to)} with the given payment
+     * status to {@code out}. Runs its own transaction, so it can be called from
+     * a {@code StreamingResponseBody}.
+     *
+     * @return the number of orders written
+     */
+    public long export(LocalDateTime from, LocalDateTime to, PaymentStatus paymentStatus, Format format,
+                       OutputStream out) {
+        long start = System.nanoTime();
+        Long exported = readOnlyTransaction.execute(status -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+            long count = 0;
+            try (Stream<Order> orders = orderRepository.streamByOrderDateRange(from, to, paymentStatus)) {
+                if (format == Format.CSV) {
+                    writer.write(CSV_HEADER);
+                }
+                List<Order> chunk = new ArrayList<>(chunkSize);
+                Iterator<Order> iterator = orders.iterator();
+                while (iterator.hasNext()) {
+                    chunk.add(iterator.next());
+                    if (chunk.size() == chunkSize || !iterator.hasNext()) {
+                        writeChunk(chunk, format, writer);
+                        count += chunk.size();
+                        chunk.clear();
+                    }
+                }
+                writer.flush();
+            } catch (IOException e) {
+                // Usually the client went away
+                throw new UncheckedIOException(e);
+            }
+            return count;
+        });
+        log.info("Exported {} orders from {} to {} as {} in {} ms",
+                exported, from, to, format, (System.nanoTime() - start) / 1_000_000);
+        return exported != null ? exported : 0;
+    }
+
+    private void writeChunk(List<Order> chunk, Format format, Writer writer) throws IOException {
+        List<Long> orderIds = chunk.stream().map(Order::getId).toList();
+        List<OrderItem> items = orderItemRepository.findByOrderIdIn(orderIds);
+        Map<Long, List<OrderItem>> itemsByOrderId = items.stream()
+                .collect(Collectors.groupingBy(OrderItem::getOrderId));
+        Map<Long, MenuItem> menuItems = menuCatalog.findMenuItems(
+                items.stream().map(OrderItem::getMenuItemId).distinct().toList());
+        Map<Long, List<String>> customizationsByItemId = items.isEmpty() ? Map.of()
+                : orderItemCustomizationRepository.findByOrderItemIdIn(items.stream().map(OrderItem::getId).toList())
+                .stream()
+                .collect(Collectors.groupingBy(selected -> selected.getOrderItem().getId(),
+                        Collectors.mapping(OrderExportService::customizationLabel, Collectors.toList())));
+
+        for (Order order : chunk) {
+            ExportedOrder exported = toExported(order, itemsByOrderId.getOrDefault(order.getId(), List.of()),
+                    menuItems, customizationsByItemId);
+            if (format == Format.CSV) {
+                writeCsv(exported, writer);
+            } else {
+                writer.write(objectMapper.writeValueAsString(exported));
+                writer.write('\n');
+            }
+        }
+
+        // Hand the chunk to the client and let go of every entity loaded for it
+        writer.flush();
+        entityManager.clear();
+    }
+
+    private static ExportedOrder toExported(Order order, List<OrderItem> items, Map<Long, MenuItem> menuItems,
+                                            Map<Long, List<String>> customizationsByItemId) {
+        List<ExportedItem> exportedItems = new ArrayList<>(items.size());
+        for (OrderItem item : items) {
+            MenuItem menuItem = menuItems.get(item.getMenuItemId());
+            // Menu items can be deleted after the fact; the export must not fail on them
+            String name = menuItem != null ? menuItem.getName() : "#" + item.getMenuItemId();
+            BigDecimal lineTotal = item.getItemPrice() != null
+                    ? item.getItemPrice().multiply(BigDecimal.valueOf(item.getQuantity()))
+                    : null;
+            exportedItems.add(new ExportedItem(item.getMenuItemId(), name, item.getQuantity(), item.getItemPrice(),
+                    lineTotal, customizationsByItemId.getOrDefault(item.getId(), List.of())));
+        }
+        return new ExportedOrder(order.getId(), order.getOrderDate(), order.getStatus(), order.getPaymentStatus(),
+                order.getCustomerName(), order.getCustomerEmail(), order.getCustomerPhone(),
+                order.getSubTotal(), order.getTax(), order.getServiceFee(), order.getDiscount(),
+                order.getTotalAmount(), order.getSpecialNotes(), exportedItems);
+    }
+
+    private static String customizationLabel(OrderItemCustomization selected) {
+        BigDecimal price = selected.getCustomization().getPrice();
+        return price != null && price.signum() != 0
+                ? selected.getCustomization().getName() + " (+" + price + ")"
+                : selected.getCustomization().getName();
+    }
+
+    static void writeCsv(ExportedOrder order, Writer writer) throws IOException {
+        StringBuilder prefix = new StringBuilder(256);
+        prefix.append(order.id()).append(',')
+                .append(value(order.orderDate())).append(',')
+                .append(value(order.status())).append(',')
+                .append(value(order.paymentStatus())).append(',');
+        text(prefix, order.customerName()).append(',');
+        text(prefix, order.customerEmail()).append(',');
+        text(prefix, order.customerPhone()).append(',');
+        prefix.append(value(order.subTotal())).append(',')
+                .append(value(order.tax())).append(',')
+                .append(value(order.serviceFee())).append(',')
+                .append(value(order.discount())).append(',')
+                .append(value(order.totalAmount())).append(',');
+        text(prefix, order.specialNotes()).append(',');
+
+        if (order.items().isEmpty()) {
+            writer.append(prefix).append(",,,,,\n");
+            return;
+        }
+        StringBuilder row = new StringBuilder(prefix.length() + 128);
+        for (ExportedItem item : order.items()) {
+            row.setLength(0);
+            row.append(prefix)
+                    .append(value(item.menuItemId())).append(',');
+            text(row, item.name()).append(',')
+                    .append(item.quantity()).append(',')
+                    .append(value(item.itemPrice())).append(',')
+                    .append(value(item.lineTotal())).append(',');
+            text(row, String.join(" | ", item.customizations())).append('\n');
+            writer.append(row);
+        }
+    }
+
+    private static String value(Object value) {
+        return value == null ? "" : value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+    }
+
+    // Free text is quoted when needed and kept from being read as a spreadsheet formula
+    static StringBuilder text(StringBuilder out, String value) {
+        if (value == null || value.isEmpty()) {
+            return out;
+        }
+        boolean formula = "=+-@".indexOf(value.charAt(0)) >= 0;
+        boolean quote = formula || value.indexOf(',') >= 0 || value.indexOf('"') >= 0
+                || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0;
+        if (!quote) {
+            return out.append(value);
+        }
+        out.append('"');
+        if (formula) {
+            out.append('\'');
+        }
+        out.append(value.replace("\"", "\"\""));
+        return out.append('"');
+    }
+}
@@ -0,0 +1,219 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.dto.CreateOrderRequest;
+import com.bistro_template_backend.dto.CreateOrderRequest.CartItemDTO;
+import com.bistro_template_backend.models.*;
+import com.bistro_template_backend.repositories.CustomizationRepository;
+import com.bistro_template_backend.repositories.OrderItemCustomizationRepository;
+import com.bistro_template_backend.repositories.OrderItemRepository;
+import com.bistro_template_backend.repositories.OrderRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Turns a checkout cart into an order. The cart is validated, its menu items
+ * are checked against the menu and every customization is resolved before
+ * anything is written, then the order, its
+ * items and their customizations are inserted in one transaction so the item
+ * rows go out as JDBC batches.
+ * <p>
+ * Lines are priced from the menu: the menu item's price plus the prices of
+ * the chosen customizations. The price the client sends is ignored. A cart
+ * that cannot be turned into an order is rejected with an
+ * {@link IllegalArgumentException}.
+ */
+@Service
+public class OrderIngestService {
+
+    private static final BigDecimal TAX_RATE = new BigDecimal("0.0825");
+
+    private final OrderRepository orderRepository;
+    private final OrderItemRepository orderItemRepository;
+    private final CustomizationRepository customizationRepository;
+    private final OrderItemCustomizationRepository orderItemCustomizationRepository;
+    private final MenuCatalog menuCatalog;
+    private final List<String> locations;
+
+    public OrderIngestService(OrderRepository orderRepository,
+                              OrderItemRepository orderItemRepository,
+                              CustomizationRepository customizationRepository,
+                              OrderItemCustomizationRepository orderItemCustomizationRepository,
+                              MenuCatalog menuCatalog,
+                              @Value("${restaurant.locations:main}") List<String> locations) {
+        this.orderRepository = orderRepository;
+        this.orderItemRepository = orderItemRepository;
+        this.customizationRepository = customizationRepository;
+        this.orderItemCustomizationRepository = orderItemCustomizationRepository;
+        this.menuCatalog = menuCatalog;
+        this.locations = locations;
+    }
+
+    @Transactional
+    public Order createOrder(CreateOrderRequest request) {
+        List<CartItemDTO> cartItems = request.getItems() != null ? request.getItems() : List.of();
+
+        // 1. Validate the whole cart and resolve its customizations before writing anything
+        String location = resolveLocation(request.getLocation());
+        validateCart(cartItems);
+        Map<Long, MenuItem> menuItemsById = requireMenuItems(cartItems);
+        Map<Long, Customization> customizationsById = resolveCustomizations(cartItems);
+
+        // 2. Calculate the amounts up front so the order is inserted exactly once
+        List<BigDecimal> itemPrices = new ArrayList<>(cartItems.size());
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (CartItemDTO cartItem : cartItems) {
+            BigDecimal itemPrice = itemPrice(cartItem, menuItemsById, customizationsById);
+            itemPrices.add(itemPrice);
+            subtotal = subtotal.add(itemPrice.multiply(BigDecimal.valueOf(cartItem.getQuantity())));
+        }
+        BigDecimal taxAmount = subtotal.multiply(TAX_RATE);
+        BigDecimal serviceFee = subtotal.multiply(BigDecimal.valueOf(0.029)).add(BigDecimal.valueOf(0.30));
+        BigDecimal totalAmount = subtotal.add(taxAmount).add(serviceFee);
+
+        Order newOrder = new Order();
+        newOrder.setOrderDate(LocalDateTime.now());
+        newOrder.setStatus(OrderStatus.PENDING);
+        newOrder.setPaymentStatus(PaymentStatus.NOT_PAID);
+        newOrder.setCustomerId(request.getCustomerId());
+        newOrder.setCustomerName(request.getCustomerName());
+        newOrder.setCustomerEmail(request.getCustomerEmail());
+        newOrder.setCustomerPhone(request.getCustomerPhone());
+        newOrder.setSpecialNotes(request.getSpecialNotes());
+        newOrder.setLocation(location);
+        newOrder.setSubTotal(subtotal);
+        newOrder.setTax(taxAmount);
+        newOrder.setServiceFee(serviceFee);
+        newOrder.setTotalAmount(totalAmount);
+        newOrder = orderRepository.save(newOrder);
+
+        // 3. Items and customizations are flushed as batches when the transaction commits
+        List<OrderItem> orderItems = new ArrayList<>(cartItems.size());
+        List<OrderItemCustomization> selections = new ArrayList<>();
+        for (int i = 0; i < cartItems.size(); i++) {
+            CartItemDTO cartItem = cartItems.get(i);
+            OrderItem orderItem = new OrderItem();
+            orderItem.setOrderId(newOrder.getId());
+            orderItem.setMenuItemId(cartItem.getMenuItemId());
+            orderItem.setQuantity(cartItem.getQuantity());
+            orderItem.setItemPrice(itemPrices.get(i));
+            orderItems.add(orderItem);
+
+            if (cartItem.getCustomizations() != null) {
+                for (CartItemDTO.CustomizationDTO customization : cartItem.getCustomizations()) {
+                    OrderItemCustomization selection = new OrderItemCustomization();
+                    selection.setOrderItem(orderItem);
+                    selection.setCustomization(customizationsById.get(customization.getId()));
+                    selections.add(selection);
+                }
+            }
+        }
+        orderItemRepository.saveAll(orderItems);
+        orderItemCustomizationRepository.saveAll(selections);
+
+        return newOrder;
+    }
+
+    private String resolveLocation(String location) {
+        if (location == null || location.isBlank()) {
+            return locations.get(0);
+        }
+        if (!locations.contains(location)) {
+            throw new IllegalArgumentException("Unknown location: " + location);
+        }
+        return location;
+    }
+
+    private void validateCart(List<CartItemDTO> cartItems) {
+        for (int i = 0; i < cartItems.size(); i++) {
+            CartItemDTO cartItem = cartItems.get(i);
+            if (cartItem == null || cartItem.getMenuItemId() == null) {
+                throw new IllegalArgumentException("Cart item " + i + " has no menu item");
+            }
+            if (cartItem.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Cart item " + i + " has an invalid quantity: " + cartItem.getQuantity());
+            }
+            if (cartItem.getCustomizations() != null
+                    && cartItem.getCustomizations().stream().anyMatch(c -> c == null || c.getId() == null)) {
+                throw new IllegalArgumentException("Cart item " + i + " has a customization without an id");
+            }
+        }
+    }
+
+    // Answered from the menu snapshot; only ids it does not know cost a query
+    private Map<Long, MenuItem> requireMenuItems(List<CartItemDTO> cartItems) {
+        List<Long> menuItemIds = cartItems.stream().map(CartItemDTO::getMenuItemId).distinct().toList();
+        Map<Long, MenuItem> menuItems = menuCatalog.findMenuItems(menuItemIds);
+        for (Long menuItemId : menuItemIds) {
+            MenuItem menuItem = menuItems.get(menuItemId);
+            if (menuItem == null) {
+                throw new IllegalArgumentException("Unknown menu item: " + menuItemId);
+            }
+            if (menuItem.getPrice() == null) {
+                throw new IllegalArgumentException("Menu item " + menuItemId + " has no price");
+            }
+        }
+        return menuItems;
+    }
+
+    // Price of one unit of the line: the menu item and every customization chosen for it
+    private static BigDecimal itemPrice(CartItemDTO cartItem, Map<Long, MenuItem> menuItemsById,
+                                        Map<Long, Customization> customizationsById) {
+        BigDecimal price = menuItemsById.get(cartItem.getMenuItemId()).getPrice();
+        if (cartItem.getCustomizations() != null) {
+            for (CartItemDTO.CustomizationDTO customization : cartItem.getCustomizations()) {
+                BigDecimal extra = customizationsById.get(customization.getId()).getPrice();
+                if (extra != null) {
+                    price = price.add(extra);
+                }
+            }
+        }
+        return price;
+    }
+
+    /**
+     * Loads every customization referenced by the cart with a single query and
+     * checks that each one exists and belongs to the menu item it was chosen for.
+     */
+    private Map<Long, Customization> resolveCustomizations(List<CartItemDTO> cartItems) {
+        List<Long> customizationIds = cartItems.stream()
+                .filter(cartItem -> cartItem.getCustomizations() != null)
+                .flatMap(cartItem -> cartItem.getCustomizations().stream())
+                .map(CartItemDTO.CustomizationDTO::getId)
+                .distinct()
+                .toList();
+        if (customizationIds.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<Long, Customization> customizationsById = customizationRepository.findAllWithMenuItemById(customizationIds)
+                .stream()
+                .collect(Collectors.toMap(Customization::getId, Function.identity()));
+
+        for (CartItemDTO cartItem : cartItems) {
+            if (cartItem.getCustomizations() == null) {
+                continue;
+            }
+            for (CartItemDTO.CustomizationDTO customization : cartItem.getCustomizations()) {
+                Customization entity = customizationsById.get(customization.getId());
+                if (entity == null) {
+                    throw new IllegalArgumentException("Customization not found: " + customization.getId());
+                }
+                if (!Objects.equals(entity.getMenuItem().getId(), cartItem.getMenuItemId())) {
+                    throw new IllegalArgumentException("Customization " + customization.getId()
+                            + " does not belong to menu item " + cartItem.getMenuItemId());
+                }
+            }
+        }
+        return customizationsById;
+    }
+}
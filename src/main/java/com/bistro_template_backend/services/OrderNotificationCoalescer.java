@@ -0,0 +1,187 @@
+package com.bistro_template_backend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * Collects STOMP notifications for {@code websocket.coalesce.window-ms} and
+ * publishes each destination's notifications as one frame.
+ * <p>
+ * Within a window, a notification replaces an earlier one with the same merge
+ * key, so an order whose status changes three times is published once with its
+ * latest state. Each batch is serialized to JSON once and handed to the broker
+ * as bytes, so the broker fans out the same payload to every subscriber. A
+ * frame always carries a JSON array of notifications, in the order they were
+ * last updated.
+ * <p>
+ * {@link #publish} returns a future that completes once the frame has been
+ * handed to the broker, or fails if that send failed, so the outbox only marks
+ * a notification delivered after it was actually sent. A window of 0 turns
+ * coalescing off: every notification is sent at once, in an array of one, so
+ * clients read the same format either way.
+ * <p>
+ * Every notification is numbered by {@link OrderEventLog} as it is sent, and
+ * the frame carries the stream id and the number of its last notification, so
+ * a client that reconnects can ask for what it missed.
+ */
+@Component
+public class OrderNotificationCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderNotificationCoalescer.class);
+
+    private record Key(String destination, Object mergeKey) {
+    }
+
+    private static final class Pending {
+        private Object payload;
+        private final List<CompletableFuture<Void>> waiters = new ArrayList<>(1);
+    }
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final TaskScheduler taskScheduler;
+    private final OrderEventLog eventLog;
+    private final Duration window;
+
+    private final Counter merged;
+    private final Counter frames;
+    private final DistributionSummary batchSize;
+
+    private final Object lock = new Object();
+    private Map<Key, Pending> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> flushing;
+
+    public OrderNotificationCoalescer(SimpMessagingTemplate messagingTemplate,
+                                      ObjectMapper objectMapper,
+                                      @Qualifier("taskScheduler") TaskScheduler taskScheduler,
+                                      OrderEventLog eventLog,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${websocket.coalesce.window-ms:75}") long windowMillis) {
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.taskScheduler = taskScheduler;
+        this.eventLog = eventLog;
+        this.window = Duration.ofMillis(windowMillis);
+
+        this.merged = Counter.builder("websocket.coalesce.merged")
+                .description("Notifications replaced by a later one for the same order in the same window")
+                .register(meterRegistry);
+        this.frames = Counter.builder("websocket.coalesce.frames")
+                .description("Batched frames published")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("websocket.coalesce.batch.size")
+                .description("Notifications per published frame")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!window.isZero()) {
+            flushing = taskScheduler.scheduleWithFixedDelay(this::flush, window);
+            log.info("Coalescing order notifications over {} ms windows", window.toMillis());
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        if (flushing != null) {
+            flushing.cancel(false);
+        }
+        flush();
+    }
+
+    /**
+     * Queues {@code payload} for {@code destination}, replacing a queued
+     * notification with the same {@code mergeKey}.
+     */
+    public CompletableFuture<Void> publish(String destination, Object mergeKey, Object payload) {
+        CompletableFuture<Void> sent = new CompletableFuture<>();
+        if (window.isZero()) {
+            Pending entry = new Pending();
+            entry.payload = payload;
+            entry.waiters.add(sent);
+            send(destination, List.of(entry));
+            return sent;
+        }
+        Key key = new Key(destination, mergeKey);
+        synchronized (lock) {
+            // Re-inserted so the batch lists notifications in the order they were last updated
+            Pending entry = pending.remove(key);
+            if (entry == null) {
+                entry = new Pending();
+            } else {
+                merged.increment();
+            }
+            entry.payload = payload;
+            entry.waiters.add(sent);
+            pending.put(key, entry);
+        }
+        return sent;
+    }
+
+    void flush() {
+        Map<Key, Pending> batch;
+        synchronized (lock) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new LinkedHashMap<>();
+        }
+
+        Map<String, List<Pending>> byDestination = new LinkedHashMap<>();
+        batch.forEach((key, entry) -> byDestination.computeIfAbsent(key.destination(), d -> new ArrayList<>()).add(entry));
+        byDestination.forEach(this::send);
+    }
+
+    private void send(String destination, List<Pending> entries) {
+        try {
+            List<Object> payloads = entries.stream().map(entry -> entry.payload).toList();
+            byte[] body = objectMapper.writeValueAsBytes(payloads);
+            long seq = 0;
+            for (Object payload : payloads) {
+                seq = eventLog.append(destination, payload);
+            }
+            messagingTemplate.send(destination, jsonMessage(body, seq));
+            frames.increment();
+            batchSize.record(payloads.size());
+            entries.forEach(entry -> entry.waiters.forEach(waiter -> waiter.complete(null)));
+        } catch (Exception e) {
+            log.warn("Could not publish {} notifications to {}: {}", entries.size(), destination, e.getMessage());
+            entries.forEach(entry -> entry.waiters.forEach(waiter -> waiter.completeExceptionally(e)));
+        }
+    }
+
+    private Message<byte[]> jsonMessage(byte[] body, long seq) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        headers.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        headers.setNativeHeader(OrderEventLog.STREAM_ID_HEADER, eventLog.streamId());
+        headers.setNativeHeader(OrderEventLog.SEQ_HEADER, Long.toString(seq));
+        headers.setLeaveMutable(true);
+        return MessageBuilder.createMessage(body, headers.getMessageHeaders());
+    }
+}
@@ -1,13 +1,23 @@
 package com.bistro_template_backend.services;
 
+import com.bistro_template_backend.dto.KeysetPage;
+import com.bistro_template_backend.dto.OrderSearchCriteria;
 import com.bistro_template_backend.models.MenuItem;
 import com.bistro_template_backend.models.Order;
 import com.bistro_template_backend.models.OrderItem;
+import com.bistro_template_backend.models.OrderStatus;
+import com.bistro_template_backend.models.PaymentStatus;
 import com.bistro_template_backend.repositories.MenuItemRepository;
 import com.bistro_template_backend.repositories.OrderItemRepository;
 import com.bistro_template_backend.repositories.OrderRepository;
+import com.bistro_template_backend.repositories.OrderSpecifications;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -24,6 +34,12 @@ public class OrderService {
     @Autowired
     private MenuItemRepository menuItemRepository;
 
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private MenuCatalog menuCatalog;
+
 //    @Autowired
 //    private CouponRepository couponRepository; // optional, if you have coupons
 
@@ -79,6 +95,56 @@ public class OrderService {
         return orderRepository.save(order);
     }
 
+    /**
+     * Moves an order to a new status. The dashboard notification and the
+     * customer email are recorded in the outbox in the same transaction.
+     */
+    @Transactional
+    public Order updateStatus(Long orderId, OrderStatus status) {
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Order not found"));
+        order.setStatus(status);
+        order = orderRepository.save(order);
+        outboxService.orderStatusChanged(order, status);
+        return order;
+    }
+
+    /**
+     * Orders matching the criteria, newest first, one keyset page at a time:
+     * {@code cursor} is the {@code nextCursor} of the previous page (null for
+     * the first), so a deep page costs the same index range scan as the first.
+     */
+    @Transactional(readOnly = true)
+    public KeysetPage<Order> searchOrders(OrderSearchCriteria criteria, Long cursor, int size) {
+        Specification<Order> spec = OrderSpecifications.matching(criteria);
+        if (cursor != null) {
+            spec = spec.and(OrderSpecifications.idBefore(cursor));
+        }
+        // One extra row tells whether another page follows, without a count query
+        List<Order> rows = orderRepository.findBy(spec, query -> query
+                .sortBy(Sort.by(Sort.Direction.DESC, "id"))
+                .limit(size + 1)
+                .all());
+        boolean hasNext = rows.size() > size;
+        List<Order> content = hasNext ? rows.subList(0, size) : rows;
+        Long nextCursor = hasNext ? content.get(content.size() - 1).getId() : null;
+        return new KeysetPage<>(content, nextCursor, hasNext);
+    }
+
+    // Offset paging for clients that still ask for a page number
+    @Transactional(readOnly = true)
+    public Page<Order> findOrders(OrderSearchCriteria criteria, Pageable pageable) {
+        return orderRepository.findAll(OrderSpecifications.matching(criteria), pageable);
+    }
+
+    // Paid orders in the given status, or every paid order when status is null, newest first
+    @Transactional(readOnly = true)
+    public List<Order> findPaidOrders(OrderStatus status) {
+        return status == null
+                ? orderRepository.findByPaymentStatusOrderByIdDesc(PaymentStatus.PAID)
+                : orderRepository.findByStatusAndPaymentStatusOrderByIdDesc(status, PaymentStatus.PAID);
+    }
+
     /**
      * Example method to reduce stock after the order is fully paid,
      * or just to check if enough stock is available.
@@ -96,9 +162,10 @@ public class OrderService {
         }
     }
 
-    // 2.2. After payment success, reduce actual stock
+    // 2.2. After payment success, reduce actual stock; the menu snapshot is rebuilt once the caller commits
     public void reduceStockAfterPayment(Order order) {
         List<OrderItem> items = orderItemRepository.findByOrderId(order.getId());
+        boolean stockChanged = false;
         for (OrderItem oi : items) {
             MenuItem menuItem = menuItemRepository.findById(oi.getMenuItemId())
                     .orElseThrow(() -> new RuntimeException("Menu item not found"));
@@ -109,7 +176,11 @@ public class OrderService {
                 }
                 menuItem.setStockQuantity(newQty);
                 menuItemRepository.save(menuItem);
+                stockChanged = true;
             }
         }
+        if (stockChanged) {
+            menuCatalog.menuChanged("stock reduced for order " + order.getId());
+        }
     }
 }
\ No newline at end of file
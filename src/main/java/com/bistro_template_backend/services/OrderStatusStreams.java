@@ -0,0 +1,311 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.config.ExecutorRegistry;
+import com.bistro_template_backend.dto.CustomerOrderNotification;
+import com.bistro_template_backend.models.OrderStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-Sent Event streams of customers following their order.
+ * <p>
+ * An open stream is an async request parked by Tomcat: it holds a socket and a
+ * small emitter here, but no thread, so idle customers cost next to nothing.
+ * Streams get a {@code status} event with the order's status when they open and
+ * with every {@link CustomerOrderNotification} after that, and are completed
+ * once the order is completed or canceled. A comment line every
+ * {@code orders.sse.heartbeat-seconds} keeps proxies from closing idle
+ * streams and finds the ones whose client went away. Streams expire after
+ * {@code orders.sse.timeout-minutes}; the browser's EventSource then reconnects
+ * and gets the current status again.
+ * <p>
+ * Writing to a stream blocks until the client's socket takes the bytes, so
+ * writes run on the {@code sse} executor, at most one per stream at a time.
+ * A stream whose client reads slowly keeps only the latest status it has not
+ * received yet; older ones are dropped and counted in
+ * {@code orders.sse.dropped}, and a heartbeat is skipped while a write is
+ * pending. Publishing and heartbeats therefore never wait on a client.
+ * <p>
+ * With the in-process {@code simple} broker there is one instance, and
+ * notifications go straight to its streams. With a relayed broker, a customer's
+ * stream may sit on any instance, so notifications are published to
+ * {@link #STATUS_TOPIC} instead; every instance subscribes to it on the relay's
+ * system session and hands what arrives to its own streams. Clients cannot
+ * subscribe to that topic. While an instance's system session is reconnecting
+ * its streams miss updates, and catch up when they reconnect.
+ */
+@Component
+public class OrderStatusStreams {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderStatusStreams.class);
+
+    private static final String STATUS_EVENT = "status";
+
+    static final String STATUS_TOPIC = "/topic/order-status-streams";
+
+    private final Map<Long, Set<Stream>> streamsByOrder = new ConcurrentHashMap<>();
+    private final AtomicInteger open = new AtomicInteger();
+
+    private final TaskScheduler taskScheduler;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean relayed;
+    private final Executor writers;
+    private final Duration timeout;
+    private final Duration heartbeat;
+    private final int maxStreams;
+    private final Counter rejected;
+    private final Counter dropped;
+
+    private ScheduledFuture<?> heartbeats;
+
+    public OrderStatusStreams(@Qualifier("taskScheduler") TaskScheduler taskScheduler,
+                              ExecutorRegistry executorRegistry,
+                              MeterRegistry meterRegistry,
+                              SimpMessagingTemplate messagingTemplate,
+                              ObjectMapper objectMapper,
+                              @Qualifier("stompBrokerRelayMessageHandler")
+                              ObjectProvider<AbstractBrokerMessageHandler> brokerRelay,
+                              @Value("${orders.sse.timeout-minutes:30}") long timeoutMinutes,
+                              @Value("${orders.sse.heartbeat-seconds:20}") long heartbeatSeconds,
+                              @Value("${orders.sse.max-streams:20000}") int maxStreams) {
+        this.taskScheduler = taskScheduler;
+        this.messagingTemplate = messagingTemplate;
+        this.objectMapper = objectMapper;
+        this.writers = executorRegistry.get(ExecutorRegistry.SSE);
+        this.timeout = Duration.ofMinutes(timeoutMinutes);
+        this.heartbeat = Duration.ofSeconds(heartbeatSeconds);
+        this.maxStreams = maxStreams;
+
+        Gauge.builder("orders.sse.streams", open, AtomicInteger::get)
+                .description("Open order status streams")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("orders.sse.rejected")
+                .description("Order status streams refused because orders.sse.max-streams were open")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("orders.sse.dropped")
+                .description("Status events replaced by a newer one before a slow client received them")
+                .register(meterRegistry);
+
+        // Null in simple mode; the relay connects its system session only once the context has started
+        if (brokerRelay.getIfAvailable() instanceof StompBrokerRelayMessageHandler relay) {
+            Map<String, MessageHandler> subscriptions = new HashMap<>();
+            if (relay.getSystemSubscriptions() != null) {
+                subscriptions.putAll(relay.getSystemSubscriptions());
+            }
+            subscriptions.put(STATUS_TOPIC, this::receive);
+            relay.setSystemSubscriptions(subscriptions);
+            this.relayed = true;
+        } else {
+            this.relayed = false;
+        }
+    }
+
+    @PostConstruct
+    void start() {
+        heartbeats = taskScheduler.scheduleWithFixedDelay(this::sendHeartbeats, heartbeat);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (heartbeats != null) {
+            heartbeats.cancel(false);
+        }
+        streamsByOrder.values().forEach(streams -> streams.forEach(stream -> stream.emitter.complete()));
+    }
+
+    /**
+     * Opens a stream of {@code orderId}'s status, starting with {@code current}.
+     * Empty when {@code orders.sse.max-streams} streams are already open.
+     */
+    public Optional<SseEmitter> open(Long orderId, OrderStatus current) {
+        if (open.incrementAndGet() > maxStreams) {
+            open.decrementAndGet();
+            rejected.increment();
+            log.warn("Refused a status stream for order {}: {} streams are open", orderId, maxStreams);
+            return Optional.empty();
+        }
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        Stream stream = new Stream(orderId, emitter);
+        streamsByOrder.compute(orderId, (id, streams) -> {
+            Set<Stream> registered = streams != null ? streams : ConcurrentHashMap.newKeySet();
+            registered.add(stream);
+            return registered;
+        });
+        emitter.onCompletion(stream::remove);
+        emitter.onTimeout(() -> {
+            stream.remove();
+            emitter.complete();
+        });
+        emitter.onError(error -> stream.remove());
+
+        String status = current != null ? current.name() : null;
+        stream.push(new CustomerOrderNotification(orderId, "ORDER_STATUS", status, null));
+        return Optional.of(emitter);
+    }
+
+    /**
+     * Queues a notification for the streams of its order, on every instance.
+     * The future fails if the notification could not be handed to the broker.
+     */
+    public CompletableFuture<Void> publish(CustomerOrderNotification notification) {
+        if (!relayed) {
+            deliver(notification);
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            messagingTemplate.convertAndSend(STATUS_TOPIC, objectMapper.writeValueAsBytes(notification),
+                    Map.of(MessageHeaders.CONTENT_TYPE, MimeTypeUtils.APPLICATION_JSON));
+            return CompletableFuture.completedFuture(null);
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    // A notification from the broker, published by this or another instance
+    private void receive(Message<?> message) {
+        try {
+            deliver(objectMapper.readValue((byte[]) message.getPayload(), CustomerOrderNotification.class));
+        } catch (IOException | ClassCastException e) {
+            log.warn("Ignored an unreadable order status message: {}", e.getMessage());
+        }
+    }
+
+    private void deliver(CustomerOrderNotification notification) {
+        Set<Stream> streams = streamsByOrder.get(notification.orderId());
+        if (streams != null) {
+            streams.forEach(stream -> stream.push(notification));
+        }
+    }
+
+    private void sendHeartbeats() {
+        streamsByOrder.values().forEach(streams -> streams.forEach(Stream::heartbeat));
+    }
+
+    /**
+     * One client's stream. Holds what is still to be written and writes it on
+     * the {@code sse} executor; {@code scheduled} is set while a write task is
+     * queued or running, so there is never more than one.
+     */
+    private final class Stream implements Runnable {
+
+        private final Long orderId;
+        private final SseEmitter emitter;
+
+        private CustomerOrderNotification pending;
+        private boolean heartbeatDue;
+        private boolean scheduled;
+
+        private Stream(Long orderId, SseEmitter emitter) {
+            this.orderId = orderId;
+            this.emitter = emitter;
+        }
+
+        synchronized void push(CustomerOrderNotification notification) {
+            if (pending != null) {
+                dropped.increment();
+            }
+            pending = notification;
+            schedule();
+        }
+
+        // Also retries a write the executor refused earlier
+        synchronized void heartbeat() {
+            if (pending == null && !scheduled) {
+                heartbeatDue = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled || (pending == null && !heartbeatDue)) {
+                return;
+            }
+            scheduled = true;
+            try {
+                writers.execute(this);
+            } catch (RejectedExecutionException e) {
+                // Kept pending; the next heartbeat tries again
+                scheduled = false;
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                CustomerOrderNotification notification;
+                boolean heartbeatOnly;
+                synchronized (this) {
+                    notification = pending;
+                    heartbeatOnly = notification == null && heartbeatDue;
+                    pending = null;
+                    heartbeatDue = false;
+                    if (notification == null && !heartbeatOnly) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                try {
+                    if (heartbeatOnly) {
+                        emitter.send(SseEmitter.event().comment("heartbeat"));
+                    } else {
+                        emitter.send(SseEmitter.event().name(STATUS_EVENT).data(notification, MediaType.APPLICATION_JSON));
+                        if (isFinal(notification.status())) {
+                            emitter.complete();
+                        }
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // The client went away; the container completes the request
+                    remove();
+                }
+            }
+        }
+
+        // Runs for every way a stream ends, often more than once; only the first call counts
+        void remove() {
+            streamsByOrder.computeIfPresent(orderId, (id, streams) -> {
+                if (streams.remove(this)) {
+                    open.decrementAndGet();
+                }
+                return streams.isEmpty() ? null : streams;
+            });
+        }
+    }
+
+    private static boolean isFinal(String status) {
+        return OrderStatus.COMPLETED.name().equals(status) || OrderStatus.CANCELED.name().equals(status);
+    }
+}
@@ -0,0 +1,101 @@
+package com.bistro_template_backend.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Tokens that let an anonymous customer follow their own order's updates.
+ * <p>
+ * A token is {@code <orderId>.<expiresAtEpochSecond>.<signature>}, signed with
+ * HMAC-SHA256 under {@code orders.tracking-token.secret}. It is handed out when
+ * the order is created and is valid for {@code orders.tracking-token.ttl-hours}.
+ * Without a configured secret a random one is used, so tokens do not survive
+ * a restart and are only accepted by the instance that issued them.
+ */
+@Component
+public class OrderTrackingTokens {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderTrackingTokens.class);
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final SecretKeySpec key;
+    private final Duration ttl;
+    private final Clock clock;
+
+    @Autowired
+    public OrderTrackingTokens(@Value("${orders.tracking-token.secret:}") String secret,
+                               @Value("${orders.tracking-token.ttl-hours:24}") long ttlHours) {
+        this(secret, Duration.ofHours(ttlHours), Clock.systemUTC());
+    }
+
+    OrderTrackingTokens(String secret, Duration ttl, Clock clock) {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+            log.warn("orders.tracking-token.secret is not set; order tracking tokens are only valid on this "
+                    + "instance until it restarts");
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    public String issue(Long orderId) {
+        String payload = orderId + "." + clock.instant().plus(ttl).getEpochSecond();
+        return payload + "." + sign(payload);
+    }
+
+    /** The order a token was issued for; empty when it is malformed, forged or expired. */
+    public Optional<Long> verify(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        int signatureStart = token.lastIndexOf('.');
+        int expiryStart = token.indexOf('.');
+        if (expiryStart <= 0 || signatureStart <= expiryStart) {
+            return Optional.empty();
+        }
+        String payload = token.substring(0, signatureStart);
+        byte[] expected = sign(payload).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = token.substring(signatureStart + 1).getBytes(StandardCharsets.US_ASCII);
+        if (!MessageDigest.isEqual(expected, actual)) {
+            return Optional.empty();
+        }
+        try {
+            long orderId = Long.parseLong(token.substring(0, expiryStart));
+            long expiresAt = Long.parseLong(payload.substring(expiryStart + 1));
+            return clock.instant().getEpochSecond() < expiresAt ? Optional.of(orderId) : Optional.empty();
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    private String sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+}
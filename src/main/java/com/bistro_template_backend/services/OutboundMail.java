@@ -0,0 +1,32 @@
+package com.bistro_template_backend.services;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A queued email. {@code completion} finishes once the message was handed to
+ * the SMTP server, or exceptionally when every attempt failed.
+ */
+record OutboundMail(String to, String subject, String body, boolean html, CompletableFuture<Void> completion) {
+
+    static OutboundMail text(String to, String subject, String body) {
+        return new OutboundMail(to, subject, body, false, new CompletableFuture<>());
+    }
+
+    static OutboundMail html(String to, String subject, String body) {
+        return new OutboundMail(to, subject, body, true, new CompletableFuture<>());
+    }
+
+    /** The recipient as it may appear in logs: {@code j***@example.com}. */
+    String maskedTo() {
+        int at = to != null ? to.indexOf('@') : -1;
+        if (at < 1) {
+            return "***";
+        }
+        return to.charAt(0) + "***" + to.substring(at);
+    }
+
+    /** {@code message} with the recipient masked, for SMTP errors that quote it. */
+    String masked(String message) {
+        return message != null && to != null && !to.isEmpty() ? message.replace(to, maskedTo()) : message;
+    }
+}
@@ -0,0 +1,307 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.config.ExecutorRegistry;
+import com.bistro_template_backend.models.Order;
+import com.bistro_template_backend.models.OutboxEvent;
+import com.bistro_template_backend.models.OutboxEventType;
+import com.bistro_template_backend.models.OutboxStatus;
+import com.bistro_template_backend.repositories.OrderRepository;
+import com.bistro_template_backend.repositories.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers {@link OutboxEvent}s to STOMP subscribers and the mail dispatcher.
+ * STOMP notifications count as delivered once {@link OrderNotificationCoalescer}
+ * has sent the frame carrying them.
+ * <p>
+ * Each poll claims a batch of due events with {@code FOR UPDATE SKIP LOCKED},
+ * so several instances can relay in parallel, and leases them for
+ * {@code outbox.relay.lease-seconds}. Events are marked delivered once their
+ * side effect completed; failures are retried with exponential backoff until
+ * {@code outbox.relay.max-attempts} is reached. A crash between delivery and
+ * marking re-delivers the event after the lease expires (at-least-once).
+ * <p>
+ * Delivered and failed events are deleted once they are older than
+ * {@code outbox.relay.retention-days}.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    // Rows per delete, so pruning a large backlog does not hold one long transaction
+    static final int PRUNE_CHUNK = 5000;
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OrderRepository orderRepository;
+    private final WebSocketOrderService webSocketOrderService;
+    private final OrderEmailService orderEmailService;
+    private final CheckoutMetrics checkoutMetrics;
+    private final TransactionTemplate transaction;
+    private final Executor notifications;
+    private final int batchSize;
+    private final Duration lease;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration retention;
+
+    private final Counter delivered;
+    private final Counter retried;
+    private final Counter failed;
+    private final Timer deliveryLag;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository,
+                       OrderRepository orderRepository,
+                       WebSocketOrderService webSocketOrderService,
+                       OrderEmailService orderEmailService,
+                       CheckoutMetrics checkoutMetrics,
+                       PlatformTransactionManager transactionManager,
+                       ExecutorRegistry executorRegistry,
+                       MeterRegistry meterRegistry,
+                       @Value("${outbox.relay.batch-size:100}") int batchSize,
+                       @Value("${outbox.relay.lease-seconds:120}") long leaseSeconds,
+                       @Value("${outbox.relay.max-attempts:8}") int maxAttempts,
+                       @Value("${outbox.relay.initial-backoff-seconds:5}") long initialBackoffSeconds,
+                       @Value("${outbox.relay.retention-days:14}") long retentionDays) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.orderRepository = orderRepository;
+        this.webSocketOrderService = webSocketOrderService;
+        this.orderEmailService = orderEmailService;
+        this.checkoutMetrics = checkoutMetrics;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.notifications = executorRegistry.get(ExecutorRegistry.NOTIFICATIONS);
+        this.batchSize = batchSize;
+        this.lease = Duration.ofSeconds(leaseSeconds);
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = Duration.ofSeconds(initialBackoffSeconds);
+        this.retention = Duration.ofDays(retentionDays);
+
+        this.delivered = Counter.builder("outbox.events").tag("result", "delivered").register(meterRegistry);
+        this.retried = Counter.builder("outbox.events").tag("result", "retried").register(meterRegistry);
+        this.failed = Counter.builder("outbox.events").tag("result", "failed").register(meterRegistry);
+        this.deliveryLag = Timer.builder("outbox.delivery.lag")
+                .description("Time from recording an outbox event to its delivery").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.poll-interval-ms:500}")
+    public void relay() {
+        List<OutboxEvent> batch;
+        do {
+            batch = claimBatch();
+            if (!batch.isEmpty()) {
+                dispatch(batch);
+            }
+        } while (batch.size() == batchSize);
+    }
+
+    @Scheduled(cron = "${outbox.relay.prune-cron:0 30 4 * * *}")
+    public void pruneSettled() {
+        LocalDateTime before = LocalDateTime.now().minus(retention);
+        int pruned = 0;
+        Integer deleted;
+        do {
+            deleted = transaction.execute(status -> outboxEventRepository.deleteSettledBefore(before, PRUNE_CHUNK));
+            pruned += deleted != null ? deleted : 0;
+        } while (deleted != null && deleted == PRUNE_CHUNK);
+        log.info("Pruned {} settled outbox events older than {}", pruned, before);
+    }
+
+    List<OutboxEvent> claimBatch() {
+        return transaction.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<OutboxEvent> batch = outboxEventRepository.lockNextBatch(now, batchSize);
+            for (OutboxEvent event : batch) {
+                event.setAttempts(event.getAttempts() + 1);
+                event.setAvailableAt(now.plus(lease));
+            }
+            return batch;
+        });
+    }
+
+    void dispatch(List<OutboxEvent> batch) {
+        Map<Long, Order> ordersById = orderRepository.findAllById(
+                        batch.stream().map(OutboxEvent::getOrderId).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+
+        Map<OutboxEvent, CompletableFuture<Void>> deliveries = new HashMap<>();
+        // STOMP sends go to the notifications executor, one task per order so its events keep their order
+        Map<Long, List<OutboxEvent>> notificationsByOrder = new LinkedHashMap<>();
+        for (OutboxEvent event : batch) {
+            if (isNotification(event)) {
+                notificationsByOrder.computeIfAbsent(event.getOrderId(), id -> new ArrayList<>()).add(event);
+                deliveries.put(event, new CompletableFuture<>());
+                continue;
+            }
+            CompletableFuture<Void> delivery;
+            try {
+                delivery = deliver(event, ordersById.get(event.getOrderId()));
+            } catch (RuntimeException e) {
+                delivery = CompletableFuture.failedFuture(e);
+            }
+            deliveries.put(event, delivery);
+        }
+        notificationsByOrder.forEach((orderId, events) -> {
+            Order order = ordersById.get(orderId);
+            try {
+                notifications.execute(() -> events.forEach(event -> {
+                    CompletableFuture<Void> delivery = deliveries.get(event);
+                    try {
+                        deliver(event, order).whenComplete((ignored, error) -> {
+                            if (error == null) {
+                                delivery.complete(null);
+                            } else {
+                                delivery.completeExceptionally(error);
+                            }
+                        });
+                    } catch (RuntimeException e) {
+                        delivery.completeExceptionally(e);
+                    }
+                }));
+            } catch (RejectedExecutionException e) {
+                events.forEach(event -> deliveries.get(event).completeExceptionally(e));
+            }
+        });
+
+        // Emails finish on the email executor; the batch is settled once every side effect is done,
+        // on the notifications executor so mail threads never wait on the database
+        CompletableFuture.allOf(deliveries.values().toArray(CompletableFuture[]::new))
+                .whenCompleteAsync((ignored, error) -> settle(deliveries), notifications);
+    }
+
+    private static boolean isNotification(OutboxEvent event) {
+        return event.getEventType() == OutboxEventType.NEW_ORDER_NOTIFICATION
+                || event.getEventType() == OutboxEventType.ORDER_STATUS_NOTIFICATION;
+    }
+
+    private CompletableFuture<Void> deliver(OutboxEvent event, Order order) {
+        if (order == null) {
+            throw new RuntimeException("Order not found: " + event.getOrderId());
+        }
+        String paymentMethod = paymentMethodOf(event);
+        return switch (event.getEventType()) {
+            case NEW_ORDER_NOTIFICATION -> timedNotification(paymentMethod,
+                    () -> webSocketOrderService.notifyNewOrder(order));
+            case ORDER_STATUS_NOTIFICATION -> timedNotification(paymentMethod,
+                    () -> webSocketOrderService.notifyOrderStatusUpdate(order, event.getPayload()));
+            case ORDER_CONFIRMATION_EMAIL -> timedEmail(paymentMethod,
+                    () -> orderEmailService.sendConfirmationEmails(order));
+            case ORDER_READY_EMAIL -> timedEmail(paymentMethod, () -> orderEmailService.sendReadyEmail(order));
+            case ORDER_COMPLETED_EMAIL -> timedEmail(paymentMethod, () -> orderEmailService.sendCompletedEmail(order));
+        };
+    }
+
+    // Paid-order events carry the payment method; status events carry the new status
+    private static String paymentMethodOf(OutboxEvent event) {
+        return event.getEventType() == OutboxEventType.NEW_ORDER_NOTIFICATION
+                || event.getEventType() == OutboxEventType.ORDER_CONFIRMATION_EMAIL
+                ? event.getPayload()
+                : null;
+    }
+
+    // Notifications wait for the next coalescing window; publishing is timed until their frame was sent
+    private CompletableFuture<Void> timedNotification(String paymentMethod,
+                                                      CheckoutMetrics.Stage<CompletableFuture<Void>, RuntimeException> publish) {
+        long start = System.nanoTime();
+        CompletableFuture<Void> sent;
+        try {
+            sent = publish.run();
+        } catch (RuntimeException e) {
+            checkoutMetrics.record(CheckoutMetrics.WEBSOCKET_PUBLISH, paymentMethod, "error", System.nanoTime() - start);
+            throw e;
+        }
+        return sent.whenComplete((ignored, error) -> checkoutMetrics.record(CheckoutMetrics.WEBSOCKET_PUBLISH,
+                paymentMethod, error == null ? "success" : "error", System.nanoTime() - start));
+    }
+
+    // Enqueueing renders the templates; sending is timed from there until the mail dispatcher is done
+    private CompletableFuture<Void> timedEmail(String paymentMethod,
+                                               CheckoutMetrics.Stage<CompletableFuture<Void>, RuntimeException> enqueue) {
+        long start = System.nanoTime();
+        CompletableFuture<Void> sent = checkoutMetrics.time(CheckoutMetrics.EMAIL_ENQUEUE, paymentMethod, enqueue);
+        return sent.whenComplete((ignored, error) -> checkoutMetrics.record(CheckoutMetrics.EMAIL_SEND,
+                paymentMethod, error == null ? "success" : "error", System.nanoTime() - start));
+    }
+
+    private void settle(Map<OutboxEvent, CompletableFuture<Void>> deliveries) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> deliveredIds = new ArrayList<>();
+        Map<Long, Throwable> failures = new HashMap<>();
+        deliveries.forEach((event, delivery) -> {
+            if (delivery.isCompletedExceptionally()) {
+                failures.put(event.getId(), cause(delivery));
+            } else {
+                deliveredIds.add(event.getId());
+                deliveryLag.record(Duration.between(event.getCreatedAt(), now));
+            }
+        });
+
+        try {
+            transaction.executeWithoutResult(status -> {
+                if (!deliveredIds.isEmpty()) {
+                    outboxEventRepository.markDelivered(deliveredIds, now);
+                }
+                failures.forEach((id, error) -> outboxEventRepository.findById(id)
+                        .ifPresent(event -> recordFailure(event, error, now)));
+            });
+            delivered.increment(deliveredIds.size());
+        } catch (RuntimeException e) {
+            // The leases expire and the events are picked up again
+            log.error("Could not record outbox delivery results: {}", e.getMessage());
+        }
+    }
+
+    private void recordFailure(OutboxEvent event, Throwable error, LocalDateTime now) {
+        event.setLastError(truncate(String.valueOf(error.getMessage())));
+        if (event.getAttempts() >= maxAttempts) {
+            event.setStatus(OutboxStatus.FAILED);
+            failed.increment();
+            log.error("Outbox event {} ({} for order {}) failed permanently after {} attempts: {}",
+                    event.getId(), event.getEventType(), event.getOrderId(), event.getAttempts(), error.getMessage());
+        } else {
+            event.setAvailableAt(now.plus(initialBackoff.multipliedBy(1L << (event.getAttempts() - 1))));
+            retried.increment();
+            log.warn("Outbox event {} ({} for order {}) failed, attempt {}/{}: {}",
+                    event.getId(), event.getEventType(), event.getOrderId(), event.getAttempts(), maxAttempts,
+                    error.getMessage());
+        }
+    }
+
+    private static Throwable cause(CompletableFuture<Void> delivery) {
+        try {
+            delivery.join();
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause() != null ? e.getCause() : e;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    private static String truncate(String message) {
+        return message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+}
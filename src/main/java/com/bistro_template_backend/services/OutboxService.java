@@ -0,0 +1,54 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.models.*;
+import com.bistro_template_backend.repositories.OutboxEventRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records the side effects of an order change in {@code outbox_events}. The
+ * rows are written in the caller's transaction, so they exist exactly when the
+ * change itself committed; the {@link OutboxRelay} delivers them afterwards.
+ */
+@Service
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    public OutboxService(OutboxEventRepository outboxEventRepository) {
+        this.outboxEventRepository = outboxEventRepository;
+    }
+
+    // The payment method travels as the payload so delivery can be timed per method
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderPaid(Order order, Payment payment) {
+        outboxEventRepository.saveAll(List.of(
+                event(order, OutboxEventType.NEW_ORDER_NOTIFICATION, payment.getPaymentMethod()),
+                event(order, OutboxEventType.ORDER_CONFIRMATION_EMAIL, payment.getPaymentMethod())));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void orderStatusChanged(Order order, OrderStatus status) {
+        List<OutboxEvent> events = new ArrayList<>();
+        events.add(event(order, OutboxEventType.ORDER_STATUS_NOTIFICATION, status.name()));
+        if (status == OrderStatus.READY_FOR_PICKUP) {
+            events.add(event(order, OutboxEventType.ORDER_READY_EMAIL, null));
+        } else if (status == OrderStatus.COMPLETED) {
+            events.add(event(order, OutboxEventType.ORDER_COMPLETED_EMAIL, null));
+        }
+        outboxEventRepository.saveAll(events);
+    }
+
+    private static OutboxEvent event(Order order, OutboxEventType type, String payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setEventType(type);
+        event.setOrderId(order.getId());
+        event.setPayload(payload);
+        event.setStatus(OutboxStatus.PENDING);
+        return event;
+    }
+}
@@ -0,0 +1,89 @@
+package com.bistro_template_backend.services;
+
+import com.stripe.exception.StripeException;
+import com.stripe.model.PaymentIntent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Client secrets and statuses of recently created or retrieved PaymentIntents,
+ * so a customer re-opening checkout does not cost a Stripe round trip.
+ * <p>
+ * Entries live for {@code stripe.intent-cache.ttl-seconds} and are dropped as
+ * soon as the payment is confirmed or Stripe reports a change through a
+ * webhook. The cache is per instance; a miss falls back to Stripe.
+ */
+@Component
+public class PaymentIntentCache {
+
+    public record CachedIntent(String id, String clientSecret, String status, Instant expiresAt) {
+
+        // Intents in these states can still be paid with the same client secret
+        public boolean isReusable() {
+            return !"succeeded".equals(status) && !"canceled".equals(status);
+        }
+    }
+
+    private final StripeGateway stripeGateway;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final Map<String, CachedIntent> intents = new ConcurrentHashMap<>();
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public PaymentIntentCache(StripeGateway stripeGateway,
+                              MeterRegistry meterRegistry,
+                              @Value("${stripe.intent-cache.ttl-seconds:900}") long ttlSeconds,
+                              @Value("${stripe.intent-cache.max-entries:10000}") int maxEntries) {
+        this.stripeGateway = stripeGateway;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.maxEntries = maxEntries;
+        this.hits = Counter.builder("stripe.intent.cache").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("stripe.intent.cache").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("stripe.intent.cache.size", intents, Map::size).register(meterRegistry);
+    }
+
+    /**
+     * Returns the cached intent, retrieving it from Stripe if it is unknown or expired.
+     */
+    public CachedIntent get(String paymentIntentId) throws StripeException {
+        CachedIntent cached = intents.get(paymentIntentId);
+        if (cached != null && cached.expiresAt().isAfter(Instant.now())) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        return put(stripeGateway.retrievePaymentIntent(paymentIntentId));
+    }
+
+    public CachedIntent put(PaymentIntent paymentIntent) {
+        CachedIntent cached = new CachedIntent(paymentIntent.getId(), paymentIntent.getClientSecret(),
+                paymentIntent.getStatus(), Instant.now().plus(ttl));
+        if (intents.size() < maxEntries || intents.containsKey(cached.id())) {
+            intents.put(cached.id(), cached);
+        }
+        return cached;
+    }
+
+    public void invalidate(String paymentIntentId) {
+        if (paymentIntentId != null) {
+            intents.remove(paymentIntentId);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stripe.intent-cache.cleanup-interval-ms:60000}")
+    public void evictExpired() {
+        Instant now = Instant.now();
+        intents.values().removeIf(cached -> !cached.expiresAt().isAfter(now));
+    }
+}
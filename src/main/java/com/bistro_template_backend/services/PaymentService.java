@@ -3,19 +3,20 @@ package com.bistro_template_backend.services;
 import com.bistro_template_backend.dto.PaymentRequest;
 import com.bistro_template_backend.models.*;
 import com.bistro_template_backend.repositories.*;
-import jakarta.mail.MessagingException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
-import com.stripe.Stripe;
+import com.stripe.exception.StripeException;
 import com.stripe.model.PaymentIntent;
 import com.stripe.param.PaymentIntentCreateParams;
-import org.springframework.beans.factory.annotation.Value;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,91 +25,210 @@ import java.util.Optional;
 @Service
 public class PaymentService {
 
-    @Autowired
-    private EmailService emailService;
+    private static final Logger log = LoggerFactory.getLogger(PaymentService.class);
+
+    // Orders are priced and charged in US dollars
+    public static final String CURRENCY = "usd";
 
     @Autowired
     PaymentRepository paymentRepository;
 
     @Autowired
-    OrderItemRepository orderItemRepository;
+    CustomerRepository customerRepository;
 
     @Autowired
-    OrderItemCustomizationRepository orderItemCustomizationRepository;
+    private OrderRepository orderRepository;
 
     @Autowired
-    MenuItemRepository menuItemRepository;
+    OutboxService outboxService;
 
     @Autowired
-    CustomerRepository customerRepository;
+    StripeGateway stripeGateway;
 
     @Autowired
-    CustomizationRepository customizationRepository;
+    PaymentIntentCache paymentIntentCache;
 
     @Autowired
-    private OrderRepository orderRepository;
+    DashboardRollupService dashboardRollupService;
 
     @Autowired
-    WebSocketOrderService webSocketOrderService;
-
-    // Read your Stripe secret key from application.yml or env var
-    @Value("${stripe.secretKey}")
-    private String stripeSecretKey;
+    CheckoutMetrics checkoutMetrics;
 
-    @Value("${spring.mail.username}")
-    private String adminEmail;
 
     /**
      * Create a PaymentIntent in Stripe
      */
     public Map<String, Object> createStripePaymentIntent(Order order, PaymentRequest request) {
         try {
-            // 1. Configure Stripe
-            Stripe.apiKey = stripeSecretKey;
-
-            // 2. Convert BigDecimal to long for Stripe (in cents)
-            long amountInCents = request.getAmount()
-                    .multiply(new BigDecimal("100")).longValue();
+            // 1. Charge the order total (in cents); the amount in the request is not trusted
+            long amountInCents = amountInCents(order.getTotalAmount());
 
-            // 3. Create PaymentIntent
+            // 2. Create PaymentIntent
             PaymentIntentCreateParams params =
                     PaymentIntentCreateParams.builder()
                             .setAmount(amountInCents)
-                            .setCurrency(request.getCurrency())
+                            .setCurrency(CURRENCY)
                             .setDescription(request.getDescription())
                             // Example: pass orderId in metadata
                             .putMetadata("orderId", order.getId().toString())
+                            .putMetadata("paymentMethod", "stripe")
                             .build();
 
-            PaymentIntent paymentIntent = PaymentIntent.create(params);
+            PaymentIntent paymentIntent = stripeGateway.createPaymentIntent(params, idempotencyKey(order, params));
 
-            // 4. Create a Payment record (status = INITIATED)
-            Payment payment = new Payment();
-            payment.setOrderId(order.getId());
-            payment.setAmount(request.getAmount());
-            payment.setPaymentMethod("STRIPE");
-            payment.setTransactionId(paymentIntent.getId()); // store PaymentIntent ID
-            payment.setStatus(PaymentStatus.INITIATED);
-            paymentRepository.save(payment);
+            // 3. Create a Payment record (status = INITIATED)
+            recordInitiatedPayment(order.getId(), order.getTotalAmount(), "STRIPE", paymentIntent);
 
-            // 5. Return clientSecret to frontend
+            // 4. Return clientSecret to frontend
             Map<String, Object> response = new HashMap<>();
             response.put("clientSecret", paymentIntent.getClientSecret());
             response.put("paymentIntentId", paymentIntent.getId());
             return response;
         } catch (Exception e) {
-            e.printStackTrace();
+            log.error("Could not create a Stripe PaymentIntent for order {}", order.getId(), e);
             throw new RuntimeException("Error creating Stripe PaymentIntent", e);
         }
     }
 
-    // Quick status update - returns immediately
+    /**
+     * An amount in dollars as Stripe expects it, in cents.
+     */
+    public static long amountInCents(BigDecimal amount) {
+        return amount.setScale(2, RoundingMode.HALF_UP).movePointRight(2).longValueExact();
+    }
+
+    /**
+     * Why a succeeded intent that received {@code amountReceived} cents in
+     * {@code currency} does not pay for the order, or null if it does.
+     */
+    public static String amountMismatch(Order order, Long amountReceived, String currency) {
+        long total = amountInCents(order.getTotalAmount());
+        if (amountReceived == null || amountReceived != total || !CURRENCY.equalsIgnoreCase(currency)) {
+            return "Stripe received " + amountReceived + " " + currency + " for order " + order.getId()
+                    + ", which totals " + total + " " + CURRENCY;
+        }
+        return null;
+    }
+
+    /**
+     * Idempotency key for creating an intent with {@code params} for this order,
+     * see {@link StripeGateway#idempotencyKey}. Each failed payment on the order
+     * starts a new attempt.
+     */
+    public String idempotencyKey(Order order, PaymentIntentCreateParams params) {
+        long attempt = paymentRepository.countByOrderIdAndStatus(order.getId(), PaymentStatus.FAILED);
+        return StripeGateway.idempotencyKey(order.getId(), params, attempt);
+    }
+
+    /**
+     * Stores the INITIATED payment for a new PaymentIntent and caches its client
+     * secret. A retried checkout gets the same intent back from Stripe, so an
+     * existing row is reused.
+     */
+    public Payment recordInitiatedPayment(Long orderId, BigDecimal amount, String paymentMethod, PaymentIntent paymentIntent) {
+        return checkoutMetrics.time(CheckoutMetrics.RECORD_PAYMENT, paymentMethod,
+                () -> saveInitiatedPayment(orderId, amount, paymentMethod, paymentIntent));
+    }
+
+    private Payment saveInitiatedPayment(Long orderId, BigDecimal amount, String paymentMethod, PaymentIntent paymentIntent) {
+        String paymentIntentId = paymentIntent.getId();
+        paymentIntentCache.put(paymentIntent);
+        Payment existing = paymentRepository.findByTransactionId(paymentIntentId);
+        if (existing != null) {
+            return existing;
+        }
+        Payment payment = new Payment();
+        payment.setOrderId(orderId);
+        payment.setAmount(amount);
+        payment.setPaymentMethod(paymentMethod);
+        payment.setTransactionId(paymentIntentId); // store PaymentIntent ID
+        payment.setStatus(PaymentStatus.INITIATED);
+        return paymentRepository.save(payment);
+    }
+
+    /**
+     * The client secret of the order's latest INITIATED payment, for a customer
+     * re-opening checkout. Served from {@link PaymentIntentCache}, so Stripe is
+     * only asked once the entry expired. Empty when there is no such payment,
+     * its intent can no longer be paid, or Stripe cannot be reached.
+     */
+    public Optional<Map<String, Object>> findReusablePaymentIntent(Long orderId) {
+        List<Payment> payments = paymentRepository.findByOrderIdOrderByCreatedAtDesc(orderId);
+        if (payments.isEmpty() || payments.get(0).getStatus() != PaymentStatus.INITIATED) {
+            return Optional.empty();
+        }
+        String paymentIntentId = payments.get(0).getTransactionId();
+        try {
+            PaymentIntentCache.CachedIntent intent = paymentIntentCache.get(paymentIntentId);
+            if (!intent.isReusable()) {
+                return Optional.empty();
+            }
+            Map<String, Object> result = new HashMap<>();
+            result.put("clientSecret", intent.clientSecret());
+            result.put("paymentIntentId", paymentIntentId);
+            result.put("message", "Using existing payment intent");
+            return Optional.of(result);
+        } catch (Exception e) {
+            log.warn("Could not reuse PaymentIntent {} of order {}: {}", paymentIntentId, orderId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Asks Stripe for the current status of the intent before the browser is
+     * allowed to confirm it, so an order cannot be marked paid by the client alone.
+     * A succeeded intent must have received the order total.
+     * Returns the intent status, e.g. {@code succeeded} or {@code processing}.
+     */
+    public String verifyPaymentIntent(String paymentIntentId, Long orderId) {
+        try {
+            PaymentIntent paymentIntent = stripeGateway.retrievePaymentIntent(paymentIntentId);
+            if (!orderId.toString().equals(paymentIntent.getMetadata().get("orderId"))) {
+                throw new RuntimeException("Payment " + paymentIntentId + " does not belong to order " + orderId);
+            }
+            if ("succeeded".equals(paymentIntent.getStatus())) {
+                Order order = orderRepository.findById(orderId)
+                        .orElseThrow(() -> new RuntimeException("Order not found"));
+                String mismatch = amountMismatch(order, paymentIntent.getAmountReceived(), paymentIntent.getCurrency());
+                if (mismatch != null) {
+                    throw new RuntimeException(mismatch);
+                }
+            }
+            return paymentIntent.getStatus();
+        } catch (StripeException e) {
+            throw new RuntimeException("Could not verify payment with Stripe: " + e.getMessage(), e);
+        }
+    }
+
+    // Quick status update - notifications and emails go through the outbox once this commits
+    @Transactional
     public void updatePaymentStatus(String transactionId, Long orderId) {
-        // Fetch the payment and order
-        Payment payment = paymentRepository.findByTransactionId(transactionId);
+        // Locked, so a webhook for the same intent waits and then sees it PAID
+        Payment payment = paymentRepository.lockByTransactionIdIn(List.of(transactionId)).stream()
+                .findFirst()
+                .orElseThrow(() -> new RuntimeException("Payment not found for transaction: " + transactionId));
+        if (!orderId.equals(payment.getOrderId())) {
+            throw new RuntimeException("Payment " + transactionId + " does not belong to order " + orderId);
+        }
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
 
+        markPaid(payment, order);
+    }
+
+    /**
+     * Marks a locked payment and its order PAID and records the notifications in
+     * the outbox. Does nothing if the payment already is PAID, so the client
+     * confirmation and the webhook can both arrive. Runs in the caller's transaction.
+     *
+     * @return whether the payment changed
+     */
+    public boolean markPaid(Payment payment, Order order) {
+        paymentIntentCache.invalidate(payment.getTransactionId());
+        if (payment.getStatus() == PaymentStatus.PAID) {
+            return false;
+        }
+
         // Update payment status
         payment.setStatus(PaymentStatus.PAID);
         paymentRepository.save(payment);
@@ -117,8 +237,11 @@ public class PaymentService {
         order.setPaymentStatus(PaymentStatus.PAID);
         orderRepository.save(order);
 
-        // **NEW: Send WebSocket notification for new paid order**
-        webSocketOrderService.notifyNewOrder(order);
+        // Admin notification and confirmation emails, delivered by the OutboxRelay
+        outboxService.orderPaid(order, payment);
+
+        // Dashboard revenue, order and item rollups
+        dashboardRollupService.recordPaidOrder(order);
 
         // Update customer stats if order has customer email
         if (StringUtils.hasText(order.getCustomerEmail())) {
@@ -140,378 +263,29 @@ public class PaymentService {
                 customerRepository.save(customer);
             }
         }
+        return true;
     }
 
-    // Email sending - runs asynchronously
-    public void sendConfirmationEmails(String transactionId, Long orderId) throws MessagingException {
-        // Fetch the payment and order again (to ensure we have fresh data)
-        Payment payment = paymentRepository.findByTransactionId(transactionId);
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Order not found"));
-
-        // All the existing email creation and sending code
-        // [the rest of your existing email code]
-        // Fetch all OrderItems for this Order (unchanged)
-        List<OrderItem> orderItems = orderItemRepository.findByOrderId(order.getId());
-
-        // Base time and calculations (unchanged)
-        LocalDateTime orderTime = order.getOrderDate();
-        int baseTime = 15; // 15 minutes base preparation time
-        int extraTime = 0;
-
-        // Count total items and customizations (unchanged)
-        int totalItems = orderItems.stream().mapToInt(OrderItem::getQuantity).sum();
-        int totalCustomizations = orderItems.stream()
-                .mapToInt(item -> orderItemCustomizationRepository.findByOrderItemId(item.getId()).size())
-                .sum();
-
-        // Add extra time based on order size (unchanged)
-        if (totalItems > 5) {
-            extraTime += 10;
-        }
-        if (totalItems > 10) {
-            extraTime += 20;
-        }
-
-        // Add extra time for each customization (2 min per customization) (unchanged)
-        extraTime += totalCustomizations * 2;
-
-        // Add extra time for peak hours (12 PM - 2 PM, 6 PM - 8 PM) (unchanged)
-        int orderHour = orderTime.getHour();
-        if ((orderHour >= 12 && orderHour < 14) || (orderHour >= 18 && orderHour < 20)) {
-            extraTime += 20;
-        }
-
-        // Calculate pickup time range (add breathing room of 10 minutes) (unchanged)
-        LocalDateTime estimatedPickupMin = orderTime.plusMinutes(baseTime + extraTime);
-        LocalDateTime estimatedPickupMax = estimatedPickupMin.plusMinutes(10);
-
-        // Format pickup time range (unchanged)
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("hh:mm a");
-        String formattedPickupRange = estimatedPickupMin.format(formatter) + " - " + estimatedPickupMax.format(formatter);
-
-        // Build HTML email content for order details - IMPROVED VERSION
-        String customerEmail = order.getCustomerEmail();
-        String customerSubject = "Order Confirmation: Your Your Restaurant Name Order #" + order.getId();
-        String adminSubject = "New Order #" + order.getId() + " - Ready for Preparation";
-
-        // Customer HTML email - IMPROVED VERSION
-        String customerHtmlBody = "<!DOCTYPE html>\n" +
-                "<html>\n" +
-                "<head>\n" +
-                "    <meta charset='UTF-8'>\n" +
-                "    <meta name='viewport' content='width=device-width, initial-scale=1.0'>\n" +
-                "    <title>Order Confirmation</title>\n" +
-                "</head>\n" +
-                "<body style='font-family: Arial, sans-serif; margin: 0; padding: 0; background-color: #f8f8f8; color: #333333;'>\n" +
-                "    <table role='presentation' cellspacing='0' cellpadding='0' border='0' align='center' width='100%' style='max-width: 600px; margin: 0 auto; background-color: #ffffff; border-radius: 8px; box-shadow: 0 2px 5px rgba(0,0,0,0.1); overflow: hidden;'>\n" +
-                "        <!-- HEADER -->\n" +
-                "        <tr>\n" +
-                "            <td style='background-color: #c6632c; padding: 30px 40px; text-align: center;'>\n" +
-                "                <h1 style='color: #ffffff; margin: 0; font-size: 28px;'>Order Confirmation</h1>\n" +
-                "            </td>\n" +
-                "        </tr>\n" +
-                "        <!-- MAIN CONTENT -->\n" +
-                "        <tr>\n" +
-                "            <td style='padding: 40px 40px 20px 40px;'>\n" +
-                "                <p style='margin-top: 0; font-size: 16px;'>Dear " + order.getCustomerName() + ",</p>\n" +
-                "                <p style='font-size: 16px;'>Thank you for ordering from Your Restaurant Name! Your order has been received and will be ready for pickup soon.</p>\n" +
-                "                \n" +
-                "                <!-- ORDER DETAILS HEADER -->\n" +
-                "                <table role='presentation' width='100%' cellspacing='0' cellpadding='0' border='0' style='margin: 30px 0 10px 0;'>\n" +
-                "                    <tr>\n" +
-                "                        <td style='background-color: #f5f5f5; padding: 12px 15px; border-top-left-radius: 6px; border-top-right-radius: 6px; border-bottom: 2px solid #c6632c;'>\n" +
-                "                            <h2 style='margin: 0; color: #c6632c; font-size: 18px;'>Order Summary</h2>\n" +
-                "                        </td>\n" +
-                "                    </tr>\n" +
-                "                </table>\n" +
-                "                \n" +
-                "                <!-- ORDER INFO -->\n" +
-                "                <table role='presentation' width='100%' cellspacing='0' cellpadding='0' border='0' style='margin-bottom: 25px; border-collapse: separate; border-spacing: 0;'>\n" +
-                "                    <tr>\n" +
-                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold; width: 40%;'>Order Number:</td>\n" +
-                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee;'>#" + order.getId() + "</td>\n" +
-                "                    </tr>\n" +
-                "                    <tr>\n" +
-                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold;'>Order Date:</td>\n" +
-                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee;'>" +
-                order.getOrderDate().format(DateTimeFormatter.ofPattern("MMMM d, yyyy 'at' hh:mm a")) + "</td>\n" +
-                "                    </tr>\n" +
-                "                    <tr>\n" +
-                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold;'>Estimated Pickup:</td>\n" +
-                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold; color: #c6632c;'>" +
-                formattedPickupRange + "</td>\n" +
-                "                    </tr>\n";
-
-        // Add special notes if present
-        if (order.getSpecialNotes() != null && !order.getSpecialNotes().isEmpty()) {
-            customerHtmlBody += "                    <tr>\n" +
-                    "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold;'>Special Notes:</td>\n" +
-                    "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-style: italic;'>" +
-                    order.getSpecialNotes() + "</td>\n" +
-                    "                    </tr>\n";
-        }
-
-        customerHtmlBody += "                </table>\n" +
-                "                \n" +
-                "                <!-- ORDER ITEMS -->\n" +
-                "                <table role='presentation' width='100%' cellspacing='0' cellpadding='0' border='0' style='margin-bottom: 25px; border-collapse: separate; border-spacing: 0;'>\n" +
-                "                    <tr>\n" +
-                "                        <td colspan='3' style='background-color: #f5f5f5; padding: 12px 15px; border-top-left-radius: 6px; border-top-right-radius: 6px; border-bottom: 2px solid #c6632c;'>\n" +
-                "                            <h3 style='margin: 0; color: #333333; font-size: 16px;'>Items</h3>\n" +
-                "                        </td>\n" +
-                "                    </tr>\n";
-
-        // Add item details
-        for (OrderItem item : orderItems) {
-            MenuItem menuItem = menuItemRepository.findById(item.getMenuItemId())
-                    .orElseThrow(() -> new RuntimeException("Menu item not found"));
-
-            customerHtmlBody += "                    <tr>\n" +
-                    "                        <td style='padding: 15px; border-bottom: 1px solid #eeeeee; width: 60%;'>\n" +
-                    "                            <span style='font-weight: bold; font-size: 16px;'>" + menuItem.getName() + "</span>\n" +
-                    "                        </td>\n" +
-                    "                        <td style='padding: 15px; border-bottom: 1px solid #eeeeee; text-align: center;'>\n" +
-                    "                            x" + item.getQuantity() + "\n" +
-                    "                        </td>\n" +
-                    "                        <td style='padding: 15px; border-bottom: 1px solid #eeeeee; text-align: right;'>\n" +
-                    "                            $" + String.format("%.2f", menuItem.getPrice()) + " each\n" +
-                    "                        </td>\n" +
-                    "                    </tr>\n";
-
-            // Fetch and append customizations for this OrderItem
-            List<OrderItemCustomization> selectedCustomizations = orderItemCustomizationRepository.findByOrderItemId(item.getId());
-            if (!selectedCustomizations.isEmpty()) {
-                customerHtmlBody += "                    <tr>\n" +
-                        "                        <td colspan='3' style='padding: 0 15px 15px 30px; border-bottom: 1px solid #eeeeee;'>\n";
-
-                for (OrderItemCustomization customization : selectedCustomizations) {
-                    Customization customizationDetails = customization.getCustomization();
-                    customerHtmlBody += "                            <div style='color: #666666; font-size: 14px; margin-bottom: 5px;'>\n" +
-                            "                                • " + customizationDetails.getName();
-
-                    if (customizationDetails.getPrice().compareTo(BigDecimal.ZERO) > 0) {
-                        customerHtmlBody += " <span style='color: #c6632c;'>(+ $" +
-                                String.format("%.2f", customizationDetails.getPrice()) + ")</span>";
-                    }
-
-                    customerHtmlBody += "\n                            </div>\n";
-                }
-
-                customerHtmlBody += "                        </td>\n" +
-                        "                    </tr>\n";
-            }
-        }
-
-        // Add order totals
-        customerHtmlBody += "                </table>\n" +
-                "                \n" +
-                "                <!-- ORDER TOTALS -->\n" +
-                "                <table role='presentation' width='100%' cellspacing='0' cellpadding='0' border='0' style='margin-bottom: 30px; border-collapse: separate; border-spacing: 0;'>\n" +
-                "                    <tr>\n" +
-                "                        <td style='padding: 12px 15px; text-align: right; font-weight: bold;'>Subtotal:</td>\n" +
-                "                        <td style='padding: 12px 15px; text-align: right; width: 100px;'>$" +
-                String.format("%.2f", order.getSubTotal()) + "</td>\n" +
-                "                    </tr>\n" +
-                "                    <tr>\n" +
-                "                        <td style='padding: 12px 15px; text-align: right; font-weight: bold;'>Tax:</td>\n" +
-                "                        <td style='padding: 12px 15px; text-align: right;'>$" +
-                String.format("%.2f", order.getTax()) + "</td>\n" +
-                "                    </tr>\n" +
-                "                    <tr>\n" +
-                "                        <td style='padding: 12px 15px; text-align: right; font-weight: bold;'>Service Fee:</td>\n" +
-                "                        <td style='padding: 12px 15px; text-align: right;'>$" +
-                String.format("%.2f", order.getServiceFee()) + "</td>\n" +
-                "                    </tr>\n" +
-                "                    <tr>\n" +
-                "                        <td style='padding: 15px; text-align: right; font-weight: bold; font-size: 18px; border-top: 2px solid #eeeeee;'>Total:</td>\n" +
-                "                        <td style='padding: 15px; text-align: right; font-weight: bold; font-size: 18px; border-top: 2px solid #eeeeee; color: #c6632c;'>$" +
-                String.format("%.2f", order.getTotalAmount()) + "</td>\n" +
-                "                    </tr>\n" +
-                "                </table>\n" +
-                "                \n" +
-                "                <p style='font-size: 16px;'>We're preparing your order with care and it will be ready for pickup at our restaurant soon.</p>\n" +
-                "                <p style='font-size: 16px;'>If you have any questions, please contact us at <a href='tel:2812420190' style='color: #c6632c; text-decoration: none;'>(281) 242-0190</a>.</p>\n" +
-                "                <p style='font-size: 16px;'>Thank you for choosing Your Restaurant Name!</p>\n" +
-                "            </td>\n" +
-                "        </tr>\n" +
-                "        <!-- FOOTER -->\n" +
-                "        <tr>\n" +
-                "            <td style='padding: 20px; background-color: #f5f5f5; text-align: center; font-size: 14px; color: #666666;'>\n" +
-                "                <p style='margin: 0 0 10px 0;'><strong>Your Restaurant Name</strong><br>14019 Southwest Fwy, Ste 204, Sugar Land, TX 77478</p>\n" +
-                "                <p style='margin: 0; font-size: 12px;'>© 2025 Your Restaurant Name. All rights reserved.</p>\n" +
-                "            </td>\n" +
-                "        </tr>\n" +
-                "    </table>\n" +
-                "</body>\n" +
-                "</html>";
-
-        // Admin HTML email - IMPROVED VERSION
-        String adminHtmlBody = "<!DOCTYPE html>\n" +
-                "<html>\n" +
-                "<head>\n" +
-                "    <meta charset='UTF-8'>\n" +
-                "    <meta name='viewport' content='width=device-width, initial-scale=1.0'>\n" +
-                "    <title>New Order Alert</title>\n" +
-                "</head>\n" +
-                "<body style='font-family: Arial, sans-serif; margin: 0; padding: 0; background-color: #f8f8f8; color: #333333;'>\n" +
-                "    <table role='presentation' cellspacing='0' cellpadding='0' border='0' align='center' width='100%' style='max-width: 600px; margin: 0 auto; background-color: #ffffff; border-radius: 8px; box-shadow: 0 2px 5px rgba(0,0,0,0.1); overflow: hidden;'>\n" +
-                "        <!-- HEADER -->\n" +
-                "        <tr>\n" +
-                "            <td style='background-color: #d9534f; padding: 30px 40px; text-align: center;'>\n" +
-                "                <h1 style='color: #ffffff; margin: 0; font-size: 28px;'>New Order Alert</h1>\n" +
-                "            </td>\n" +
-                "        </tr>\n" +
-                "        <!-- MAIN CONTENT -->\n" +
-                "        <tr>\n" +
-                "            <td style='padding: 40px 40px 20px 40px;'>\n" +
-                "                <div style='background-color: #fff3cd; border-left: 4px solid #ffc107; padding: 15px; margin-bottom: 25px;'>\n" +
-                "                    <h2 style='margin-top: 0; margin-bottom: 10px; color: #856404; font-size: 18px;'>Action Required</h2>\n" +
-                "                    <p style='margin-bottom: 0; font-size: 16px;'>A new order has been received and needs to be prepared.</p>\n" +
-                "                </div>\n" +
-                "                \n" +
-                "                <!-- ORDER DETAILS HEADER -->\n" +
-                "                <table role='presentation' width='100%' cellspacing='0' cellpadding='0' border='0' style='margin: 20px 0 10px 0;'>\n" +
-                "                    <tr>\n" +
-                "                        <td style='background-color: #f5f5f5; padding: 12px 15px; border-top-left-radius: 6px; border-top-right-radius: 6px; border-bottom: 2px solid #d9534f;'>\n" +
-                "                            <h2 style='margin: 0; color: #d9534f; font-size: 18px;'>Order Information</h2>\n" +
-                "                        </td>\n" +
-                "                    </tr>\n" +
-                "                </table>\n" +
-                "                \n" +
-                "                <!-- ORDER INFO -->\n" +
-                "                <table role='presentation' width='100%' cellspacing='0' cellpadding='0' border='0' style='margin-bottom: 25px; border-collapse: separate; border-spacing: 0;'>\n" +
-                "                    <tr>\n" +
-                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold; width: 40%;'>Order Number:</td>\n" +
-                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold;'>#" + order.getId() + "</td>\n" +
-                "                    </tr>\n" +
-                "                    <tr>\n" +
-                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold;'>Customer:</td>\n" +
-                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee;'>" +
-                order.getCustomerName() + " (" + order.getCustomerEmail() + ")</td>\n" +
-                "                    </tr>\n" +
-                "                    <tr>\n" +
-                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold;'>Order Date:</td>\n" +
-                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee;'>" +
-                order.getOrderDate().format(DateTimeFormatter.ofPattern("MMMM d, yyyy 'at' hh:mm a")) + "</td>\n" +
-                "                    </tr>\n" +
-                "                    <tr>\n" +
-                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold;'>Target Pickup Time:</td>\n" +
-                "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold; color: #d9534f;'>" +
-                formattedPickupRange + "</td>\n" +
-                "                    </tr>\n";
-
-        // Add special notes if present
-        if (order.getSpecialNotes() != null && !order.getSpecialNotes().isEmpty()) {
-            adminHtmlBody += "                    <tr>\n" +
-                    "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; font-weight: bold;'>Special Notes:</td>\n" +
-                    "                        <td style='padding: 12px 15px; border-bottom: 1px solid #eeeeee; background-color: #f8f9fa; font-weight: bold;'>" +
-                    order.getSpecialNotes() + "</td>\n" +
-                    "                    </tr>\n";
-        }
-
-        adminHtmlBody += "                </table>\n" +
-                "                \n" +
-                "                <!-- ORDER ITEMS -->\n" +
-                "                <table role='presentation' width='100%' cellspacing='0' cellpadding='0' border='0' style='margin-bottom: 25px; border-collapse: separate; border-spacing: 0;'>\n" +
-                "                    <tr>\n" +
-                "                        <td colspan='3' style='background-color: #f5f5f5; padding: 12px 15px; border-top-left-radius: 6px; border-top-right-radius: 6px; border-bottom: 2px solid #d9534f;'>\n" +
-                "                            <h3 style='margin: 0; color: #333333; font-size: 16px;'>Order Items</h3>\n" +
-                "                        </td>\n" +
-                "                    </tr>\n";
-
-        // Add item details
-        for (OrderItem item : orderItems) {
-            MenuItem menuItem = menuItemRepository.findById(item.getMenuItemId())
-                    .orElseThrow(() -> new RuntimeException("Menu item not found"));
-
-            adminHtmlBody += "                    <tr>\n" +
-                    "                        <td style='padding: 15px; border-bottom: 1px solid #eeeeee; width: 60%; font-weight: bold;'>\n" +
-                    "                            <span style='font-size: 16px;'>" + menuItem.getName() + "</span>\n" +
-                    "                        </td>\n" +
-                    "                        <td style='padding: 15px; border-bottom: 1px solid #eeeeee; text-align: center; font-weight: bold;'>\n" +
-                    "                            x" + item.getQuantity() + "\n" +
-                    "                        </td>\n" +
-                    "                        <td style='padding: 15px; border-bottom: 1px solid #eeeeee; text-align: right;'>\n" +
-                    "                            $" + String.format("%.2f", menuItem.getPrice()) + " each\n" +
-                    "                        </td>\n" +
-                    "                    </tr>\n";
-
-            // Fetch and append customizations for this OrderItem
-            List<OrderItemCustomization> selectedCustomizations = orderItemCustomizationRepository.findByOrderItemId(item.getId());
-            if (!selectedCustomizations.isEmpty()) {
-                adminHtmlBody += "                    <tr>\n" +
-                        "                        <td colspan='3' style='padding: 0 15px 15px 30px; border-bottom: 1px solid #eeeeee;'>\n";
-
-                for (OrderItemCustomization customization : selectedCustomizations) {
-                    Customization customizationDetails = customization.getCustomization();
-                    adminHtmlBody += "                            <div style='color: #666666; font-size: 14px; margin-bottom: 5px;'>\n" +
-                            "                                • " + customizationDetails.getName();
-
-                    if (customizationDetails.getPrice().compareTo(BigDecimal.ZERO) > 0) {
-                        adminHtmlBody += " <span style='color: #d9534f;'>(+ $" +
-                                String.format("%.2f", customizationDetails.getPrice()) + ")</span>";
-                    }
-
-                    adminHtmlBody += "\n                            </div>\n";
-                }
-
-                adminHtmlBody += "                        </td>\n" +
-                        "                    </tr>\n";
-            }
+    /**
+     * Marks a locked INITIATED payment FAILED after Stripe declined it. The next
+     * checkout then starts a new attempt; a later success on the same intent
+     * still marks it PAID.
+     *
+     * @return whether the payment changed
+     */
+    public boolean markFailed(Payment payment, Order order) {
+        paymentIntentCache.invalidate(payment.getTransactionId());
+        if (payment.getStatus() != PaymentStatus.INITIATED) {
+            return false;
         }
+        payment.setStatus(PaymentStatus.FAILED);
+        paymentRepository.save(payment);
 
-        // Add order totals
-        adminHtmlBody += "                </table>\n" +
-                "                \n" +
-                "                <!-- ORDER TOTALS -->\n" +
-                "                <table role='presentation' width='100%' cellspacing='0' cellpadding='0' border='0' style='margin-bottom: 30px; border-collapse: separate; border-spacing: 0;'>\n" +
-                "                    <tr>\n" +
-                "                        <td style='padding: 12px 15px; text-align: right; font-weight: bold;'>Subtotal:</td>\n" +
-                "                        <td style='padding: 12px 15px; text-align: right; width: 100px;'>$" +
-                String.format("%.2f", order.getSubTotal()) + "</td>\n" +
-                "                    </tr>\n" +
-                "                    <tr>\n" +
-                "                        <td style='padding: 12px 15px; text-align: right; font-weight: bold;'>Tax:</td>\n" +
-                "                        <td style='padding: 12px 15px; text-align: right;'>$" +
-                String.format("%.2f", order.getTax()) + "</td>\n" +
-                "                    </tr>\n" +
-                "                    <tr>\n" +
-                "                        <td style='padding: 12px 15px; text-align: right; font-weight: bold;'>Service Fee:</td>\n" +
-                "                        <td style='padding: 12px 15px; text-align: right;'>$" +
-                String.format("%.2f", order.getServiceFee()) + "</td>\n" +
-                "                    </tr>\n" +
-                "                    <tr>\n" +
-                "                        <td style='padding: 15px; text-align: right; font-weight: bold; font-size: 18px; border-top: 2px solid #eeeeee;'>Total:</td>\n" +
-                "                        <td style='padding: 15px; text-align: right; font-weight: bold; font-size: 18px; border-top: 2px solid #eeeeee; color: #d9534f;'>$" +
-                String.format("%.2f", order.getTotalAmount()) + "</td>\n" +
-                "                    </tr>\n" +
-                "                </table>\n" +
-                "                \n" +
-                "                <div style='background-color: #f8d7da; border-left: 4px solid #d9534f; padding: 15px; margin-bottom: 25px;'>\n" +
-                "                    <p style='margin: 0; font-weight: bold; font-size: 16px;'>Please prepare this order promptly to meet the target pickup time.</p>\n" +
-                "                </div>\n" +
-                "            </td>\n" +
-                "        </tr>\n" +
-                "        <!-- FOOTER -->\n" +
-                "        <tr>\n" +
-                "            <td style='padding: 20px; background-color: #f5f5f5; text-align: center; font-size: 14px; color: #666666;'>\n" +
-                "                <p style='margin: 0 0 10px 0;'>This is an automated system notification.</p>\n" +
-                "                <p style='margin: 0; font-size: 12px;'>© 2025 Your Restaurant Name. All rights reserved.</p>\n" +
-                "            </td>\n" +
-                "        </tr>\n" +
-                "    </table>\n" +
-                "</body>\n" +
-                "</html>";
-
-        // Send HTML emails
-        try {
-            emailService.sendHtmlEmail(customerEmail, customerSubject, customerHtmlBody);
-            emailService.sendHtmlEmail(adminEmail, adminSubject, adminHtmlBody);
-        } catch (MessagingException e) {
-            // Log the error (e.g., using SLF4J or similar)
-            System.err.println("Failed to send email: " + e.getMessage());
+        if (order != null && order.getPaymentStatus() != PaymentStatus.PAID) {
+            order.setPaymentStatus(PaymentStatus.FAILED);
+            orderRepository.save(order);
         }
+        return true;
     }
 
     // src/main/java/com/bistro_template_backend/services/PaymentService.java
@@ -0,0 +1,105 @@
+package com.bistro_template_backend.services;
+
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.net.HttpClient;
+import com.stripe.net.HttpContent;
+import com.stripe.net.HttpHeaders;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+import org.apache.hc.core5.util.Timeout;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stripe transport with its own pool of at most {@code maxConnections}
+ * keep-alive connections to api.stripe.com, instead of the JVM-wide
+ * {@code HttpURLConnection} keep-alive cache. Network retries stay with
+ * Stripe's {@link HttpClient}, which honors {@code Stripe-Should-Retry} and
+ * resends the idempotency key.
+ */
+final class PooledStripeHttpClient extends HttpClient implements AutoCloseable {
+
+    private final CloseableHttpClient http;
+
+    PooledStripeHttpClient(int maxConnections, int connectTimeoutMillis) {
+        this.http = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(maxConnections)
+                        .setMaxConnPerRoute(maxConnections)
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMillis))
+                                .build())
+                        .build())
+                .disableAutomaticRetries()
+                .disableCookieManagement()
+                .disableRedirectHandling()
+                .build();
+    }
+
+    @Override
+    public StripeResponse request(StripeRequest request) throws ApiConnectionException {
+        HttpClientContext context = HttpClientContext.create();
+        Integer readTimeout = request.options().getReadTimeout();
+        if (readTimeout != null) {
+            context.setRequestConfig(RequestConfig.custom()
+                    .setResponseTimeout(Timeout.ofMilliseconds(readTimeout))
+                    .build());
+        }
+        try {
+            return http.execute(toHttpRequest(request), context, response -> new StripeResponse(
+                    response.getCode(),
+                    HttpHeaders.of(headers(response.getHeaders())),
+                    response.getEntity() != null
+                            ? EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8)
+                            : ""));
+        } catch (IOException | URISyntaxException e) {
+            throw new ApiConnectionException("IOException during API request to Stripe ("
+                    + request.url().getHost() + "): " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        http.close();
+    }
+
+    private static ClassicHttpRequest toHttpRequest(StripeRequest request) throws URISyntaxException {
+        ClassicRequestBuilder builder = ClassicRequestBuilder.create(request.method().name())
+                .setUri(request.url().toURI())
+                .addHeader("User-Agent", buildUserAgentString(request))
+                .addHeader("X-Stripe-Client-User-Agent", buildXStripeClientUserAgentString());
+        request.headers().map().forEach((name, values) -> builder.addHeader(name, String.join(",", values)));
+
+        HttpContent content = request.content();
+        if (content != null) {
+            builder.setEntity(new ByteArrayEntity(content.byteArrayContent(), ContentType.parse(content.contentType())));
+        }
+        return builder.build();
+    }
+
+    private static Map<String, List<String>> headers(Header[] headers) {
+        Map<String, List<String>> byName = new LinkedHashMap<>();
+        for (Header header : headers) {
+            byName.computeIfAbsent(header.getName(), name -> new ArrayList<>()).add(header.getValue());
+        }
+        return byName;
+    }
+}
@@ -0,0 +1,75 @@
+package com.bistro_template_backend.services;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+
+/**
+ * Keeps authenticated SMTP connections open between sends so each message
+ * skips the TCP, STARTTLS and AUTH handshakes. {@link JavaMailSenderImpl}
+ * opens and closes a connection for every {@code send} call.
+ */
+class SmtpTransportPool {
+
+    private static final Logger log = LoggerFactory.getLogger(SmtpTransportPool.class);
+
+    private final JavaMailSenderImpl mailSender;
+    private final BlockingDeque<Transport> idle;
+
+    SmtpTransportPool(JavaMailSenderImpl mailSender, int maxIdle) {
+        this.mailSender = mailSender;
+        this.idle = new LinkedBlockingDeque<>(maxIdle);
+    }
+
+    /**
+     * Returns a connected transport, reusing an idle one when the server still
+     * answers on it.
+     */
+    Transport borrow() throws MessagingException {
+        Transport transport;
+        while ((transport = idle.pollFirst()) != null) {
+            if (transport.isConnected()) { // sends a NOOP, so servers that dropped us are detected
+                return transport;
+            }
+            close(transport);
+        }
+        return connect();
+    }
+
+    void release(Transport transport) {
+        if (!idle.offerFirst(transport)) {
+            close(transport);
+        }
+    }
+
+    /** Drops a transport that failed mid-send instead of handing it out again. */
+    void invalidate(Transport transport) {
+        close(transport);
+    }
+
+    void closeAll() {
+        Transport transport;
+        while ((transport = idle.pollFirst()) != null) {
+            close(transport);
+        }
+    }
+
+    private Transport connect() throws MessagingException {
+        Transport transport = mailSender.getSession().getTransport(mailSender.getProtocol());
+        transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+        return transport;
+    }
+
+    private static void close(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug("Ignoring error while closing SMTP transport: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.bistro_template_backend.services;
+
+import com.stripe.Stripe;
+import com.stripe.StripeClient;
+import com.stripe.exception.StripeException;
+import com.stripe.model.PaymentIntent;
+import com.stripe.net.Authenticator;
+import com.stripe.net.BearerTokenAuthenticator;
+import com.stripe.net.LiveStripeResponseGetter;
+import com.stripe.net.RequestOptions;
+import com.stripe.net.StripeResponseGetterOptions;
+import com.stripe.param.PaymentIntentCreateParams;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.PasswordAuthentication;
+import java.net.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The single entry point for Stripe API calls.
+ * <p>
+ * Uses one shared {@link StripeClient} configured with explicit timeouts and
+ * network retries instead of the global {@code Stripe.apiKey}. Requests go
+ * through a {@link PooledStripeHttpClient} that keeps up to
+ * {@code stripe.http.max-connections} connections to api.stripe.com open for
+ * reuse, without touching the JVM-wide {@code HttpURLConnection} settings
+ * other libraries depend on. Every call is
+ * timed in {@code stripe.requests}, with a percentile histogram, tagged with
+ * the {@code paymentMethod} recorded in the intent's metadata.
+ */
+@Component
+public class StripeGateway {
+
+    private static final Logger log = LoggerFactory.getLogger(StripeGateway.class);
+
+    private static final String CANCELED = "canceled";
+    private static final int MAX_REPLACEMENTS = 3;
+
+    private final PooledStripeHttpClient httpClient;
+    private final StripeClient client;
+    private final MeterRegistry meterRegistry;
+
+    public StripeGateway(MeterRegistry meterRegistry,
+                         @Value("${stripe.secretKey}") String secretKey,
+                         @Value("${stripe.http.connect-timeout-ms:5000}") int connectTimeoutMillis,
+                         @Value("${stripe.http.read-timeout-ms:20000}") int readTimeoutMillis,
+                         @Value("${stripe.http.max-network-retries:2}") int maxNetworkRetries,
+                         @Value("${stripe.http.max-connections:20}") int maxConnections) {
+        this.meterRegistry = meterRegistry;
+        this.httpClient = new PooledStripeHttpClient(maxConnections, connectTimeoutMillis);
+        this.client = new StripeClient(new LiveStripeResponseGetter(
+                new ClientOptions(secretKey, connectTimeoutMillis, readTimeoutMillis, maxNetworkRetries),
+                httpClient));
+        log.info("Stripe client ready (connect timeout {} ms, read timeout {} ms, {} retries, {} connections)",
+                connectTimeoutMillis, readTimeoutMillis, maxNetworkRetries, maxConnections);
+    }
+
+    @PreDestroy
+    void close() throws IOException {
+        httpClient.close();
+    }
+
+    /**
+     * Creates a PaymentIntent. Stripe answers a repeated request with the same
+     * {@code idempotencyKey} with the intent it created the first time. When
+     * that intent was canceled in the meantime it can no longer be paid, so
+     * the request is repeated with a key derived from the canceled intent:
+     * retries of the same checkout still agree on the replacement.
+     */
+    public PaymentIntent createPaymentIntent(PaymentIntentCreateParams params, String idempotencyKey)
+            throws StripeException {
+        String paymentMethod = params.getMetadata() != null ? params.getMetadata().get("paymentMethod") : null;
+        String key = idempotencyKey;
+        for (int replaced = 0; ; replaced++) {
+            RequestOptions options = RequestOptions.builder().setIdempotencyKey(key).build();
+            PaymentIntent intent = timed("create_payment_intent", paymentMethod,
+                    () -> client.paymentIntents().create(params, options));
+            if (!CANCELED.equals(intent.getStatus()) || replaced >= MAX_REPLACEMENTS) {
+                return intent;
+            }
+            log.info("PaymentIntent {} for key {} was canceled, creating a new one", intent.getId(), key);
+            key = idempotencyKey + "-after-" + intent.getId();
+        }
+    }
+
+    public PaymentIntent retrievePaymentIntent(String paymentIntentId) throws StripeException {
+        return timed("retrieve_payment_intent", null, () -> client.paymentIntents().retrieve(paymentIntentId));
+    }
+
+    /**
+     * Idempotency key for a checkout attempt. The same order and the same
+     * intent parameters (amount, currency, description, payment method and the
+     * rest) map to the same intent, so changing any of them creates a new one
+     * instead of Stripe rejecting the reused key; {@code attempt} moves on
+     * after a failed payment so the customer can try again with a fresh intent.
+     */
+    public static String idempotencyKey(Long orderId, PaymentIntentCreateParams params, long attempt) {
+        return "order-" + orderId + "-" + attempt + "-" + fingerprint(params.toMap());
+    }
+
+    // Hash of the parameters in key order, so equal parameters always give the same key
+    private static String fingerprint(Map<String, Object> params) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(canonical(params).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static String canonical(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            StringBuilder out = new StringBuilder("{");
+            new TreeMap<>(map).forEach((key, nested) -> out.append(key).append('=').append(canonical(nested)).append(';'));
+            return out.append('}').toString();
+        }
+        if (value instanceof List<?> list) {
+            return list.stream().map(StripeGateway::canonical).collect(Collectors.joining(",", "[", "]"));
+        }
+        return String.valueOf(value);
+    }
+
+    @FunctionalInterface
+    private interface StripeCall<T> {
+        T call() throws StripeException;
+    }
+
+    // Without a known payment method the tag is taken from the returned intent's metadata
+    private PaymentIntent timed(String operation, String paymentMethod, StripeCall<PaymentIntent> call)
+            throws StripeException {
+        long start = System.nanoTime();
+        String outcome = "success";
+        try {
+            PaymentIntent intent = call.call();
+            if (paymentMethod == null && intent.getMetadata() != null) {
+                paymentMethod = intent.getMetadata().get("paymentMethod");
+            }
+            return intent;
+        } catch (StripeException e) {
+            outcome = "error";
+            throw e;
+        } finally {
+            Timer.builder("stripe.requests")
+                    .description("Latency of Stripe API calls")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .tag("payment_method", CheckoutMetrics.paymentMethodTag(paymentMethod))
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // What StripeClient.builder() would build, which has no way to plug in an HTTP client
+    private static final class ClientOptions extends StripeResponseGetterOptions {
+
+        private final Authenticator authenticator;
+        private final int connectTimeout;
+        private final int readTimeout;
+        private final int maxNetworkRetries;
+
+        private ClientOptions(String apiKey, int connectTimeout, int readTimeout, int maxNetworkRetries) {
+            this.authenticator = new BearerTokenAuthenticator(apiKey);
+            this.connectTimeout = connectTimeout;
+            this.readTimeout = readTimeout;
+            this.maxNetworkRetries = maxNetworkRetries;
+        }
+
+        @Override
+        public Authenticator getAuthenticator() {
+            return authenticator;
+        }
+
+        @Override
+        public String getClientId() {
+            return null;
+        }
+
+        @Override
+        public int getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        @Override
+        public int getReadTimeout() {
+            return readTimeout;
+        }
+
+        @Override
+        public int getMaxNetworkRetries() {
+            return maxNetworkRetries;
+        }
+
+        @Override
+        public Proxy getConnectionProxy() {
+            return null;
+        }
+
+        @Override
+        public PasswordAuthentication getProxyCredential() {
+            return null;
+        }
+
+        @Override
+        public String getApiBase() {
+            return Stripe.LIVE_API_BASE;
+        }
+
+        @Override
+        public String getFilesBase() {
+            return Stripe.UPLOAD_API_BASE;
+        }
+
+        @Override
+        public String getConnectBase() {
+            return Stripe.CONNECT_API_BASE;
+        }
+
+        @Override
+        public String getMeterEventsBase() {
+            return Stripe.METER_EVENTS_API_BASE;
+        }
+
+        @Override
+        public String getStripeContext() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.models.Order;
+import com.bistro_template_backend.models.Payment;
+import com.bistro_template_backend.models.StripeWebhookEvent;
+import com.bistro_template_backend.models.WebhookEventStatus;
+import com.bistro_template_backend.repositories.OrderRepository;
+import com.bistro_template_backend.repositories.PaymentRepository;
+import com.bistro_template_backend.repositories.StripeWebhookEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Applies stored Stripe webhook events to payments and orders.
+ * <p>
+ * Each poll claims a batch of pending events with {@code FOR UPDATE SKIP LOCKED}
+ * and handles it in one transaction: the affected payments are locked and the
+ * orders loaded with one query each, then every event is applied in the order
+ * it was received. Outbox rows for paid orders are written in the same
+ * transaction. An event whose payment is not known yet (the webhook can beat
+ * the commit of the checkout request) is retried with backoff. A success whose
+ * amount received is not the order total is marked FAILED without touching
+ * the payment.
+ * <p>
+ * If applying the batch throws, its transaction is rolled back and the claimed
+ * events are applied again one transaction each, so only the event that fails
+ * is retried with backoff, with its error recorded, until it is marked FAILED.
+ * <p>
+ * Processed events are deleted once they are older than
+ * {@code stripe.webhook.retention-days}; failed ones are kept.
+ */
+@Component
+public class StripeWebhookProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(StripeWebhookProcessor.class);
+
+    // Rows per delete, so pruning a large backlog does not hold one long transaction
+    static final int PRUNE_CHUNK = 5000;
+
+    private final StripeWebhookEventRepository stripeWebhookEventRepository;
+    private final PaymentRepository paymentRepository;
+    private final OrderRepository orderRepository;
+    private final PaymentService paymentService;
+    private final TransactionTemplate transaction;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final Duration initialBackoff;
+    private final Duration retention;
+
+    private final Counter applied;
+    private final Counter unchanged;
+    private final Counter retried;
+    private final Counter failed;
+    private final Counter rejected;
+
+    public StripeWebhookProcessor(StripeWebhookEventRepository stripeWebhookEventRepository,
+                                  PaymentRepository paymentRepository,
+                                  OrderRepository orderRepository,
+                                  PaymentService paymentService,
+                                  PlatformTransactionManager transactionManager,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${stripe.webhook.batch-size:100}") int batchSize,
+                                  @Value("${stripe.webhook.max-attempts:6}") int maxAttempts,
+                                  @Value("${stripe.webhook.initial-backoff-seconds:2}") long initialBackoffSeconds,
+                                  @Value("${stripe.webhook.retention-days:30}") long retentionDays) {
+        this.stripeWebhookEventRepository = stripeWebhookEventRepository;
+        this.paymentRepository = paymentRepository;
+        this.orderRepository = orderRepository;
+        this.paymentService = paymentService;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoff = Duration.ofSeconds(initialBackoffSeconds);
+        this.retention = Duration.ofDays(retentionDays);
+
+        this.applied = Counter.builder("stripe.webhook.events").tag("result", "applied").register(meterRegistry);
+        this.unchanged = Counter.builder("stripe.webhook.events").tag("result", "unchanged").register(meterRegistry);
+        this.retried = Counter.builder("stripe.webhook.events").tag("result", "retried").register(meterRegistry);
+        this.failed = Counter.builder("stripe.webhook.events").tag("result", "failed").register(meterRegistry);
+        this.rejected = Counter.builder("stripe.webhook.events").tag("result", "rejected").register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${stripe.webhook.poll-interval-ms:1000}")
+    public void processPending() {
+        int processed;
+        do {
+            List<String> claimed = new ArrayList<>();
+            try {
+                Integer count = transaction.execute(status -> processBatch(claimed));
+                processed = count != null ? count : 0;
+            } catch (RuntimeException e) {
+                log.warn("Stripe event batch of {} rolled back ({}); applying its events one by one",
+                        claimed.size(), e.getMessage());
+                claimed.forEach(this::processIsolated);
+                processed = claimed.size();
+            }
+        } while (processed == batchSize);
+    }
+
+    @Scheduled(cron = "${stripe.webhook.prune-cron:0 45 4 * * *}")
+    public void pruneProcessed() {
+        LocalDateTime before = LocalDateTime.now().minus(retention);
+        int pruned = 0;
+        Integer deleted;
+        do {
+            deleted = transaction.execute(status ->
+                    stripeWebhookEventRepository.deleteProcessedBefore(before, PRUNE_CHUNK));
+            pruned += deleted != null ? deleted : 0;
+        } while (deleted != null && deleted == PRUNE_CHUNK);
+        log.info("Pruned {} processed Stripe events older than {}", pruned, before);
+    }
+
+    int processBatch() {
+        return processBatch(new ArrayList<>());
+    }
+
+    // Runs inside the batch transaction; adds the ids of the claimed events to claimed and returns their number
+    int processBatch(List<String> claimed) {
+        LocalDateTime now = LocalDateTime.now();
+        List<StripeWebhookEvent> events = stripeWebhookEventRepository.lockNextBatch(now, batchSize);
+        events.forEach(event -> claimed.add(event.getId()));
+        if (!events.isEmpty()) {
+            apply(events, now);
+        }
+        return events.size();
+    }
+
+    // One event in its own transaction; if applying it throws, the error is recorded in another one
+    private void processIsolated(String eventId) {
+        try {
+            transaction.executeWithoutResult(status -> stripeWebhookEventRepository.lockPendingById(eventId)
+                    .ifPresent(event -> apply(List.of(event), LocalDateTime.now())));
+        } catch (RuntimeException e) {
+            log.error("Stripe event {} could not be applied: {}", eventId, e.getMessage());
+            transaction.executeWithoutResult(status -> stripeWebhookEventRepository.lockPendingById(eventId)
+                    .ifPresent(event -> {
+                        event.setAttempts(event.getAttempts() + 1);
+                        retryLater(event, LocalDateTime.now(), errorMessage(e));
+                    }));
+        }
+    }
+
+    private void apply(List<StripeWebhookEvent> events, LocalDateTime now) {
+
+        Map<String, Payment> paymentsByIntent = paymentRepository.lockByTransactionIdIn(
+                        events.stream().map(StripeWebhookEvent::getPaymentIntentId).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(Payment::getTransactionId, Function.identity(), (first, second) -> first));
+        Map<Long, Order> ordersById = orderRepository.findAllById(
+                        paymentsByIntent.values().stream().map(Payment::getOrderId).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+
+        for (StripeWebhookEvent event : events) {
+            event.setAttempts(event.getAttempts() + 1);
+            Payment payment = paymentsByIntent.get(event.getPaymentIntentId());
+            Order order = payment != null ? ordersById.get(payment.getOrderId()) : null;
+            if (payment == null || order == null) {
+                retryLater(event, now, "No payment for intent " + event.getPaymentIntentId());
+                continue;
+            }
+
+            boolean succeeded = StripeWebhookService.PAYMENT_SUCCEEDED.equals(event.getEventType());
+            String mismatch = succeeded
+                    ? PaymentService.amountMismatch(order, event.getAmountReceived(), event.getCurrency())
+                    : null;
+            if (mismatch != null) {
+                event.setStatus(WebhookEventStatus.FAILED);
+                event.setLastError(mismatch);
+                rejected.increment();
+                log.error("Stripe event {} not applied: {}", event.getId(), mismatch);
+                continue;
+            }
+
+            boolean changed = succeeded
+                    ? paymentService.markPaid(payment, order)
+                    : paymentService.markFailed(payment, order);
+            (changed ? applied : unchanged).increment();
+            event.setStatus(WebhookEventStatus.PROCESSED);
+            event.setProcessedAt(now);
+        }
+    }
+
+    private void retryLater(StripeWebhookEvent event, LocalDateTime now, String error) {
+        event.setLastError(error);
+        if (event.getAttempts() >= maxAttempts) {
+            event.setStatus(WebhookEventStatus.FAILED);
+            failed.increment();
+            log.error("Stripe event {} ({}) failed after {} attempts: {}",
+                    event.getId(), event.getEventType(), event.getAttempts(), error);
+        } else {
+            event.setAvailableAt(now.plus(initialBackoff.multipliedBy(1L << (event.getAttempts() - 1))));
+            retried.increment();
+        }
+    }
+
+    // last_error holds 1000 characters
+    private static String errorMessage(RuntimeException e) {
+        String message = e.getClass().getSimpleName() + ": " + e.getMessage();
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+}
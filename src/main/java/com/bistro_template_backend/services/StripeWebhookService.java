@@ -0,0 +1,119 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.repositories.StripeWebhookEventRepository;
+import com.stripe.exception.EventDataObjectDeserializationException;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.model.Event;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeObject;
+import com.stripe.net.Webhook;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * Receives Stripe webhook deliveries. The signature is verified against
+ * {@code stripe.webhookSecret} and payment intent events are stored in
+ * {@code stripe_webhook_events}, keyed by the Stripe event id so redeliveries
+ * are dropped. Storing is all that happens on the request path; the
+ * {@link StripeWebhookProcessor} applies the events in batches.
+ */
+@Service
+public class StripeWebhookService {
+
+    public static final String PAYMENT_SUCCEEDED = "payment_intent.succeeded";
+    public static final String PAYMENT_FAILED = "payment_intent.payment_failed";
+
+    private static final Set<String> HANDLED_TYPES = Set.of(PAYMENT_SUCCEEDED, PAYMENT_FAILED);
+
+    public enum Outcome {
+        ACCEPTED,
+        DUPLICATE,
+        IGNORED
+    }
+
+    private final StripeWebhookEventRepository stripeWebhookEventRepository;
+    private final String webhookSecret;
+    private final long toleranceSeconds;
+
+    private final Counter accepted;
+    private final Counter duplicate;
+    private final Counter ignored;
+    private final Counter rejected;
+
+    public StripeWebhookService(StripeWebhookEventRepository stripeWebhookEventRepository,
+                                MeterRegistry meterRegistry,
+                                @Value("${stripe.webhookSecret:}") String webhookSecret,
+                                @Value("${stripe.webhook.tolerance-seconds:300}") long toleranceSeconds) {
+        this.stripeWebhookEventRepository = stripeWebhookEventRepository;
+        this.webhookSecret = webhookSecret;
+        this.toleranceSeconds = toleranceSeconds;
+
+        this.accepted = Counter.builder("stripe.webhooks").tag("result", "accepted").register(meterRegistry);
+        this.duplicate = Counter.builder("stripe.webhooks").tag("result", "duplicate").register(meterRegistry);
+        this.ignored = Counter.builder("stripe.webhooks").tag("result", "ignored").register(meterRegistry);
+        this.rejected = Counter.builder("stripe.webhooks").tag("result", "rejected").register(meterRegistry);
+    }
+
+    /**
+     * Verifies and stores one delivery.
+     *
+     * @throws SignatureVerificationException if the signature or timestamp does not check out
+     * @throws IllegalStateException if no webhook secret is configured
+     */
+    @Transactional
+    public Outcome receive(String payload, String signatureHeader) throws SignatureVerificationException {
+        if (!StringUtils.hasText(webhookSecret)) {
+            throw new IllegalStateException("Stripe webhook secret is not configured");
+        }
+
+        Event event;
+        try {
+            if (!StringUtils.hasText(signatureHeader)) {
+                throw new SignatureVerificationException("Missing Stripe-Signature header", signatureHeader);
+            }
+            event = Webhook.constructEvent(payload, signatureHeader, webhookSecret, toleranceSeconds);
+        } catch (SignatureVerificationException e) {
+            rejected.increment();
+            throw e;
+        }
+
+        if (!HANDLED_TYPES.contains(event.getType())) {
+            ignored.increment();
+            return Outcome.IGNORED;
+        }
+
+        PaymentIntent paymentIntent = paymentIntent(event);
+        int inserted = stripeWebhookEventRepository.insertIfAbsent(event.getId(), event.getType(),
+                paymentIntent.getId(), paymentIntent.getAmountReceived(), paymentIntent.getCurrency(),
+                LocalDateTime.now());
+        if (inserted == 0) {
+            duplicate.increment();
+            return Outcome.DUPLICATE;
+        }
+        accepted.increment();
+        return Outcome.ACCEPTED;
+    }
+
+    private static PaymentIntent paymentIntent(Event event) {
+        StripeObject object = event.getDataObjectDeserializer().getObject().orElse(null);
+        if (object == null) {
+            // Sent with an API version other than the library's; only the id and amounts are needed
+            try {
+                object = event.getDataObjectDeserializer().deserializeUnsafe();
+            } catch (EventDataObjectDeserializationException e) {
+                throw new IllegalArgumentException("Unreadable payment intent in event " + event.getId(), e);
+            }
+        }
+        if (!(object instanceof PaymentIntent paymentIntent)) {
+            throw new IllegalArgumentException("Event " + event.getId() + " does not carry a payment intent");
+        }
+        return paymentIntent;
+    }
+}
@@ -1,66 +1,146 @@
 package com.bistro_template_backend.services;
 
+import com.bistro_template_backend.dto.CustomerOrderNotification;
+import com.bistro_template_backend.dto.FrontOfHouseOrderNotification;
+import com.bistro_template_backend.dto.KitchenOrderNotification;
 import com.bistro_template_backend.dto.OrderNotificationDTO;
 import com.bistro_template_backend.models.Order;
+import com.bistro_template_backend.utils.OrderTrackingPrincipal;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Publishes order events to the STOMP destinations of each audience, each with
+ * only the fields that audience needs:
+ * <ul>
+ *   <li>{@link #ADMIN_TOPIC}: the admin dashboard, every order of every location</li>
+ *   <li>{@link #kitchenTopic}: the kitchen of the order's location</li>
+ *   <li>{@link #frontOfHouseTopic}: the counter of the order's location</li>
+ *   <li>{@link #CUSTOMER_QUEUE}: the customer tracking the order, as a user destination,
+ *   and the customer's Server-Sent Event streams in {@link OrderStatusStreams}</li>
+ * </ul>
+ * Who may subscribe where is checked by {@code StompAuthorizationInterceptor}.
+ * <p>
+ * Notifications go through {@link OrderNotificationCoalescer}: each frame is a
+ * JSON array holding the latest notification of each order and event type from
+ * the last window. The returned futures complete once every frame carrying the
+ * notification was sent.
+ */
 @Service
 public class WebSocketOrderService {
 
+    public static final String ADMIN_TOPIC = "/topic/orders";
+    public static final String CUSTOMER_QUEUE = "/queue/orders";
+
     @Autowired
-    private SimpMessagingTemplate messagingTemplate;
+    private OrderNotificationCoalescer coalescer;
+
+    @Autowired
+    private OrderStatusStreams orderStatusStreams;
+
+    public static String kitchenTopic(String location) {
+        return "/topic/locations/" + location + "/kitchen";
+    }
+
+    public static String frontOfHouseTopic(String location) {
+        return "/topic/locations/" + location + "/front-of-house";
+    }
 
     /**
      * Send new order notification to all connected admin clients
      */
-    public void notifyNewOrder(Order order) {
-        OrderNotificationDTO notification = new OrderNotificationDTO(
-                order.getId(),
-                order.getCustomerName(),
-                order.getCustomerEmail(),
-                order.getTotalAmount(),
-                order.getOrderDate(),
-                "NEW_ORDER",
-                "New order #" + order.getId() + " from " + order.getCustomerName()
-        );
-
-        // Send to all subscribers of /topic/orders
-        messagingTemplate.convertAndSend("/topic/orders", notification);
+    public CompletableFuture<Void> notifyNewOrder(Order order) {
+        String status = order.getStatus() != null ? order.getStatus().name() : null;
+        return publish(order, "NEW_ORDER", status,
+                "New order #" + order.getId() + " from " + order.getCustomerName(),
+                "Payment received. Order #" + order.getId() + " is being prepared");
     }
 
     /**
      * Send order status update notification
      */
-    public void notifyOrderStatusUpdate(Order order, String status) {
-        OrderNotificationDTO notification = new OrderNotificationDTO(
+    public CompletableFuture<Void> notifyOrderStatusUpdate(Order order, String status) {
+        return publish(order, "ORDER_STATUS_UPDATE", status,
+                "Order #" + order.getId() + " status updated to: " + status,
+                "Order #" + order.getId() + " is now " + status);
+    }
+
+    /**
+     * Send general order update notification
+     */
+    public CompletableFuture<Void> notifyOrderUpdate(Order order, String message) {
+        return coalescer.publish(ADMIN_TOPIC, mergeKey(order, "ORDER_UPDATE"),
+                adminNotification(order, "ORDER_UPDATE", message));
+    }
+
+    private CompletableFuture<Void> publish(Order order, String type, String status,
+                                            String adminMessage, String customerMessage) {
+        // A NEW_ORDER is never replaced by a status update of the same order, only by a later NEW_ORDER
+        String mergeKey = mergeKey(order, type);
+        List<CompletableFuture<Void>> sends = new ArrayList<>(5);
+        sends.add(coalescer.publish(ADMIN_TOPIC, mergeKey, adminNotification(order, type, adminMessage)));
+
+        if (order.getLocation() != null) {
+            sends.add(coalescer.publish(kitchenTopic(order.getLocation()), mergeKey,
+                    kitchenNotification(order, type, status)));
+            sends.add(coalescer.publish(frontOfHouseTopic(order.getLocation()), mergeKey,
+                    frontOfHouseNotification(order, type, status)));
+        }
+
+        CustomerOrderNotification customerNotification =
+                new CustomerOrderNotification(order.getId(), type, status, customerMessage);
+        sends.add(coalescer.publish(customerQueue(order.getId()), mergeKey, customerNotification));
+        sends.add(orderStatusStreams.publish(customerNotification));
+        return CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new));
+    }
+
+    /** What the kitchen of the order's location gets for an event of the order. */
+    public static KitchenOrderNotification kitchenNotification(Order order, String type, String status) {
+        return new KitchenOrderNotification(
                 order.getId(),
+                order.getLocation(),
+                type,
+                status,
                 order.getCustomerName(),
-                order.getCustomerEmail(),
+                order.getSpecialNotes(),
+                order.getOrderDate());
+    }
+
+    /** What the counter of the order's location gets for an event of the order. */
+    public static FrontOfHouseOrderNotification frontOfHouseNotification(Order order, String type, String status) {
+        return new FrontOfHouseOrderNotification(
+                order.getId(),
+                order.getLocation(),
+                type,
+                status,
+                order.getCustomerName(),
+                order.getCustomerPhone(),
                 order.getTotalAmount(),
-                order.getOrderDate(),
-                "ORDER_STATUS_UPDATE",
-                "Order #" + order.getId() + " status updated to: " + status
-        );
+                order.getOrderDate());
+    }
 
-        messagingTemplate.convertAndSend("/topic/orders", notification);
+    // What convertAndSendToUser would send to; resolved to the customer's sessions by the user destination handler
+    private static String customerQueue(Long orderId) {
+        return "/user/" + OrderTrackingPrincipal.nameFor(orderId) + CUSTOMER_QUEUE;
     }
 
-    /**
-     * Send general order update notification
-     */
-    public void notifyOrderUpdate(Order order, String message) {
-        OrderNotificationDTO notification = new OrderNotificationDTO(
+    private static String mergeKey(Order order, String type) {
+        return order.getId() + ":" + type;
+    }
+
+    private static OrderNotificationDTO adminNotification(Order order, String type, String message) {
+        return new OrderNotificationDTO(
                 order.getId(),
                 order.getCustomerName(),
                 order.getCustomerEmail(),
                 order.getTotalAmount(),
                 order.getOrderDate(),
-                "ORDER_UPDATE",
+                type,
                 message
         );
-
-        messagingTemplate.convertAndSend("/topic/orders", notification);
     }
-}
\ No newline at end of file
+}
@@ -9,14 +9,27 @@ public class JwtAuthenticationToken extends AbstractAuthenticationToken {
     private final String email;
     @Getter
     private final String role;
+    @Getter
+    private final String location; // null: not limited to one location
 
     public JwtAuthenticationToken(String email, String role, Collection<? extends GrantedAuthority> authorities) {
+        this(email, role, null, authorities);
+    }
+
+    public JwtAuthenticationToken(String email, String role, String location,
+                                  Collection<? extends GrantedAuthority> authorities) {
         super(authorities);
         this.email = email;
         this.role = role;
+        this.location = location;
         setAuthenticated(true);
     }
 
+    @Override
+    public String getName() {
+        return email;
+    }
+
     @Override
     public Object getCredentials() {
         return null;
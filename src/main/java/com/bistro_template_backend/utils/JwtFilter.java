@@ -1,23 +1,24 @@
 package com.bistro_template_backend.utils;
 
-import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpHeaders;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Collections;
 
 @Component
 public class JwtFilter extends OncePerRequestFilter {
 
+    private static final Logger log = LoggerFactory.getLogger(JwtFilter.class);
+
     @Autowired
     private JwtUtil jwtUtil;
 
@@ -30,21 +31,14 @@ public class JwtFilter extends OncePerRequestFilter {
             String token = authorizationHeader.substring(7);
 
             try {
-                Claims claims = jwtUtil.extractClaims(token);
-
-                if (claims != null && !jwtUtil.isTokenExpired(token)) {
-                    String email = claims.getSubject();
-                    String role = claims.get("role", String.class);
-
-                    JwtAuthenticationToken authentication = new JwtAuthenticationToken(
-                            email,
-                            role,
-                            Collections.singletonList(new SimpleGrantedAuthority(role))
-                    );
+                JwtAuthenticationToken authentication = jwtUtil.authenticate(token);
+                if (authentication != null) {
                     SecurityContextHolder.getContext().setAuthentication(authentication);
                 }
             } catch (Exception e) {
-                System.out.println("JWT authentication failed: " + e.getMessage());
+                // Expired or forged tokens arrive on every request of a stale client; the request just stays anonymous
+                log.debug("JWT authentication failed for {} {}: {}", request.getMethod(), request.getRequestURI(),
+                        e.getMessage());
             }
         }
 
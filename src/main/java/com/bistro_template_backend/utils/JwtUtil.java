@@ -4,9 +4,11 @@ import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
+import java.util.Collections;
 import java.util.Date;
 
 @Component
@@ -16,9 +18,15 @@ public class JwtUtil {
 
     // Generate token
     public String generateToken(String email, String role) {
+        return generateToken(email, role, null);
+    }
+
+    // location limits kitchen and front-of-house users to one restaurant location
+    public String generateToken(String email, String role, String location) {
         return Jwts.builder()
                 .setSubject(email)
                 .claim("role", role.toUpperCase())  // Ensure uppercase ROLE_ADMIN
+                .claim("location", location)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + 1000 * 60 * 60 * 10))  // 10 hours expiration
                 .signWith(secretKey, SignatureAlgorithm.HS256)
@@ -34,6 +42,25 @@ public class JwtUtil {
                 .getBody();
     }
 
+    /**
+     * The authentication a valid, unexpired token stands for, as used by
+     * {@link JwtFilter} for HTTP requests and by the STOMP CONNECT check.
+     * Null when the token is expired; throws when it is invalid.
+     */
+    public JwtAuthenticationToken authenticate(String token) {
+        Claims claims = extractClaims(token);
+        if (claims == null || claims.getExpiration().before(new Date())) {
+            return null;
+        }
+        String role = claims.get("role", String.class);
+        return new JwtAuthenticationToken(
+                claims.getSubject(),
+                role,
+                claims.get("location", String.class),
+                Collections.singletonList(new SimpleGrantedAuthority(role))
+        );
+    }
+
     public String extractEmail(String token) {
         return extractClaims(token).getSubject();
     }
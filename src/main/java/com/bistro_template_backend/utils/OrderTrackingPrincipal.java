@@ -0,0 +1,19 @@
+package com.bistro_template_backend.utils;
+
+import java.security.Principal;
+
+/**
+ * The STOMP user of a customer who connected with an order tracking token. Its
+ * name is the user destination their order's updates are sent to.
+ */
+public record OrderTrackingPrincipal(Long orderId) implements Principal {
+
+    public static String nameFor(Long orderId) {
+        return "order-" + orderId;
+    }
+
+    @Override
+    public String getName() {
+        return nameFor(orderId);
+    }
+}
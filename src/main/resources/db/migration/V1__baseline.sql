@@ -0,0 +1,115 @@
+-- Baseline: the schema Hibernate generated for the entities before migrations took over.
+-- Existing databases already have these tables; they are baselined at version 1 and skip this script.
+
+create table categories (
+    id bigint generated by default as identity,
+    description varchar(255),
+    name varchar(255) not null unique,
+    primary key (id)
+);
+
+create table customers (
+    total_orders integer,
+    created_at timestamp(6),
+    id bigint generated by default as identity,
+    last_order_date timestamp(6),
+    email varchar(255) unique,
+    full_name varchar(255),
+    phone varchar(255),
+    primary key (id)
+);
+
+create table customizations (
+    is_default boolean,
+    price numeric(38,2),
+    id bigint generated by default as identity,
+    menu_item_id bigint not null,
+    choice_type varchar(255),
+    group_name varchar(255),
+    name varchar(255),
+    type varchar(255),
+    primary key (id)
+);
+
+create table menu_items (
+    complex_item boolean,
+    is_available boolean,
+    is_featured boolean,
+    price numeric(38,2),
+    stock_quantity integer,
+    category_id bigint,
+    id bigint generated by default as identity,
+    category varchar(255),
+    description TEXT,
+    image_url varchar(255),
+    name varchar(255),
+    primary key (id)
+);
+
+create table order_item_customizations (
+    customization_id bigint not null,
+    id bigint generated by default as identity,
+    order_item_id bigint not null,
+    primary key (id)
+);
+
+create table order_items (
+    item_price numeric(38,2),
+    quantity integer not null,
+    id bigint generated by default as identity,
+    menu_item_id bigint,
+    order_id bigint,
+    primary key (id)
+);
+
+create table orders (
+    discount numeric(38,2),
+    service_fee numeric(38,2),
+    sub_total numeric(38,2),
+    tax numeric(38,2),
+    total_amount numeric(38,2),
+    customer_id bigint,
+    id bigint generated by default as identity,
+    order_date timestamp(6),
+    customer_email varchar(255),
+    customer_name varchar(255),
+    customer_phone varchar(255),
+    payment_status varchar(255) check (payment_status in ('INITIATED','NOT_PAID','PAID','REFUNDED','FAILED')),
+    special_notes varchar(255),
+    status varchar(255) check (status in ('PENDING','READY_FOR_PICKUP','COMPLETED','CANCELED')),
+    primary key (id)
+);
+
+create table payments (
+    amount numeric(38,2),
+    created_at timestamp(6),
+    id bigint generated by default as identity,
+    order_id bigint,
+    payment_method varchar(255),
+    status varchar(255) check (status in ('INITIATED','NOT_PAID','PAID','REFUNDED','FAILED')),
+    transaction_id varchar(255),
+    primary key (id)
+);
+
+create table users (
+    id bigint generated by default as identity,
+    email varchar(255),
+    password varchar(255),
+    role varchar(255),
+    primary key (id)
+);
+
+alter table if exists customizations
+    add constraint FKgmfslt8corsv1n1uxmakpe7h0
+    foreign key (menu_item_id)
+    references menu_items;
+
+alter table if exists order_item_customizations
+    add constraint FKss8tvhcurkqnq7bl4yvvi22f9
+    foreign key (customization_id)
+    references customizations;
+
+alter table if exists order_item_customizations
+    add constraint FK9icomx5dcq92o8u99l1te7bql
+    foreign key (order_item_id)
+    references order_items;
@@ -0,0 +1,112 @@
+-- Tables and sequences the outbox, Stripe webhooks and dashboard rollups added while Hibernate
+-- still updated the schema itself. IF NOT EXISTS, since a database that ran those versions has them.
+
+create sequence if not exists order_item_customizations_seq start with 1 increment by 50;
+
+create sequence if not exists order_items_seq start with 1 increment by 50;
+
+create sequence if not exists outbox_events_seq start with 1 increment by 50;
+
+create table if not exists aggregate_refresh_log (
+    row_count integer,
+    duration_ms bigint,
+    last_attempt_at timestamp(6),
+    refreshed_at timestamp(6),
+    last_error varchar(1000),
+    aggregate_name varchar(255) not null,
+    primary key (aggregate_name)
+);
+
+create table if not exists category_performance_summary (
+    percentage numeric(7,2),
+    revenue numeric(14,2) not null,
+    category_id bigint not null,
+    quantity bigint not null,
+    refreshed_at timestamp(6),
+    name varchar(255),
+    primary key (category_id)
+);
+
+create table if not exists item_stats_daily (
+    day date not null,
+    revenue numeric(14,2) not null,
+    menu_item_id bigint not null,
+    quantity bigint not null,
+    primary key (day, menu_item_id)
+);
+
+create table if not exists item_stats_total (
+    revenue numeric(14,2) not null,
+    menu_item_id bigint not null,
+    quantity bigint not null,
+    primary key (menu_item_id)
+);
+
+create table if not exists monthly_revenue_summary (
+    revenue numeric(14,2) not null,
+    month varchar(7) not null,
+    order_count bigint not null,
+    refreshed_at timestamp(6),
+    primary key (month)
+);
+
+create table if not exists order_stats_daily (
+    day date not null,
+    revenue numeric(14,2) not null,
+    distinct_customers bigint not null,
+    item_count bigint not null,
+    new_customers bigint not null,
+    order_count bigint not null,
+    updated_at timestamp(6),
+    primary key (day)
+);
+
+create table if not exists order_stats_hourly (
+    revenue numeric(14,2) not null,
+    distinct_customers bigint not null,
+    hour timestamp(6) not null,
+    item_count bigint not null,
+    order_count bigint not null,
+    updated_at timestamp(6),
+    primary key (hour)
+);
+
+create table if not exists outbox_events (
+    attempts integer not null,
+    available_at timestamp(6) not null,
+    created_at timestamp(6),
+    delivered_at timestamp(6),
+    id bigint not null,
+    order_id bigint not null,
+    last_error varchar(1000),
+    event_type varchar(255) not null check (event_type in ('NEW_ORDER_NOTIFICATION','ORDER_STATUS_NOTIFICATION','ORDER_CONFIRMATION_EMAIL','ORDER_READY_EMAIL','ORDER_COMPLETED_EMAIL')),
+    payload varchar(255),
+    status varchar(255) not null check (status in ('PENDING','DELIVERED','FAILED')),
+    primary key (id)
+);
+
+create table if not exists stats_customer_buckets (
+    bucket timestamp(6) not null,
+    scope varchar(8) not null,
+    customer_email varchar(255) not null,
+    primary key (bucket, scope, customer_email)
+);
+
+create table if not exists stripe_webhook_events (
+    attempts integer not null,
+    available_at timestamp(6) not null,
+    processed_at timestamp(6),
+    received_at timestamp(6),
+    last_error varchar(1000),
+    event_type varchar(255) not null,
+    id varchar(255) not null,
+    payment_intent_id varchar(255) not null,
+    status varchar(255) not null check (status in ('PENDING','PROCESSED','FAILED')),
+    primary key (id)
+);
+
+-- Order items and their customizations moved from IDENTITY to pooled sequences; V5 moves the
+-- sequences past the ids handed out so far
+alter table order_items alter column id drop identity if exists;
+
+alter table order_item_customizations alter column id drop identity if exists;
@@ -0,0 +1,2 @@
+-- Trigram operator classes for the customer name search index in V4
+create extension if not exists pg_trgm;
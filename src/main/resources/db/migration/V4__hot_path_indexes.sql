@@ -0,0 +1,51 @@
+-- Indexes for the repository queries on the order, payment and notification paths.
+-- Built CONCURRENTLY so checkout keeps writing while they are created. Every statement here
+-- is non-transactional, so Flyway runs the script outside a transaction. Each build waits for
+-- every open transaction, including one holding Flyway's lock: spring.flyway.postgresql.transactional-lock
+-- must stay false.
+
+-- OrderItemRepository.findByOrderId / findByOrderIdIn; INCLUDE lets the details assembler read items from the index
+create index concurrently if not exists idx_order_items_order_id
+    on order_items (order_id) include (menu_item_id, quantity, item_price);
+
+-- OrderItemCustomizationRepository.findByOrderItemId / findByOrderItemIdIn
+create index concurrently if not exists idx_order_item_customizations_order_item_id
+    on order_item_customizations (order_item_id) include (customization_id);
+
+-- PaymentRepository.findByOrderIdOrderByCreatedAtDesc / countByOrderIdAndStatus
+create index concurrently if not exists idx_payments_order_id_created_at
+    on payments (order_id, created_at desc) include (status);
+
+-- PaymentRepository.findByTransactionId / lockByTransactionIdIn, hit by every confirmation and webhook
+create index concurrently if not exists idx_payments_transaction_id
+    on payments (transaction_id);
+
+-- CustomizationRepository.findByMenuItemId
+create index concurrently if not exists idx_customizations_menu_item_id
+    on customizations (menu_item_id);
+
+-- Past orders: status = ? AND payment_status = ? ORDER BY id DESC, keyset on id
+create index concurrently if not exists idx_orders_status_payment_id
+    on orders (status, payment_status, id);
+
+-- Date-range reports and the rollup rebuild
+create index concurrently if not exists idx_orders_order_date
+    on orders (order_date);
+
+-- OrderRepository.streamByOrderDateRange: payment_status = ? AND order_date range ORDER BY order_date, id
+create index concurrently if not exists idx_orders_payment_status_order_date
+    on orders (payment_status, order_date, id);
+
+-- Past orders name search: lower(customer_name) LIKE '%term%' (pg_trgm from V3)
+create index concurrently if not exists idx_orders_customer_name_trgm
+    on orders using gin (lower(customer_name) gin_trgm_ops);
+
+-- Fallback the application created when pg_trgm was missing
+drop index concurrently if exists idx_orders_customer_name_lower;
+
+-- Outbox relay and Stripe webhook processor claim pending rows by availability
+create index concurrently if not exists idx_outbox_events_pending
+    on outbox_events (status, available_at);
+
+create index concurrently if not exists idx_stripe_webhook_events_pending
+    on stripe_webhook_events (status, available_at);
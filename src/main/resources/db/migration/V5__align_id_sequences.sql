@@ -0,0 +1,14 @@
+-- Entities that moved from IDENTITY to sequence ids got their sequence after the table
+-- already held identity-generated rows; move each sequence past the current maximum id.
+
+select setval('order_items_seq', greatest(
+        (select coalesce(max(id), 0) from order_items),
+        (select last_value from order_items_seq)));
+
+select setval('order_item_customizations_seq', greatest(
+        (select coalesce(max(id), 0) from order_item_customizations),
+        (select last_value from order_item_customizations_seq)));
+
+select setval('outbox_events_seq', greatest(
+        (select coalesce(max(id), 0) from outbox_events),
+        (select last_value from outbox_events_seq)));
@@ -0,0 +1,19 @@
+-- Orders and payments move from IDENTITY to pooled sequences (allocationSize = 50) so their
+-- inserts can be batched. Ids stay unique but are no longer gap-free or strictly in insert order.
+
+create sequence if not exists orders_seq start with 1 increment by 50;
+
+create sequence if not exists payments_seq start with 1 increment by 50;
+
+select setval('orders_seq', greatest(
+        (select coalesce(max(id), 0) from orders),
+        (select last_value from orders_seq)));
+
+select setval('payments_seq', greatest(
+        (select coalesce(max(id), 0) from payments),
+        (select last_value from payments_seq)));
+
+-- Hibernate now supplies every id; a leftover identity would only hand out colliding values
+alter table orders alter column id drop identity if exists;
+
+alter table payments alter column id drop identity if exists;
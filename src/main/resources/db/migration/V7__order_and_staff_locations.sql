@@ -0,0 +1,6 @@
+-- Orders belong to a restaurant location; notifications are routed per location and audience.
+-- Existing orders move to the default location.
+alter table orders add column if not exists location varchar(64) not null default 'main';
+
+-- Staff accounts may be limited to one location; null means every location
+alter table users add column if not exists location varchar(64);
@@ -0,0 +1,5 @@
+-- What Stripe reported as received for the intent, compared with the order total before the
+-- order is marked paid. Events stored before this migration have no amount and are failed
+-- instead of applied; the client confirmation still checks the intent with Stripe.
+alter table stripe_webhook_events add column if not exists amount_received bigint;
+alter table stripe_webhook_events add column if not exists currency varchar(3);
@@ -0,0 +1,102 @@
+package com.bistro_template_backend.config;
+
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.stomp.ReactorNettyTcpStompClient;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Two STOMP connections stand in for two app instances relaying to the same
+ * broker: a message one of them sends to {@code /topic/orders} reaches the
+ * subscribers of both.
+ */
+class EmbeddedStompBrokerTest {
+
+    private EmbeddedActiveMQ broker;
+    private ThreadPoolTaskScheduler receiptScheduler;
+    private ReactorNettyTcpStompClient nodeA;
+    private ReactorNettyTcpStompClient nodeB;
+
+    @BeforeEach
+    void startBroker() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        broker = EmbeddedStompBroker.start(port);
+        receiptScheduler = new ThreadPoolTaskScheduler();
+        receiptScheduler.initialize();
+        nodeA = client(port, receiptScheduler);
+        nodeB = client(port, receiptScheduler);
+    }
+
+    @AfterEach
+    void stopBroker() throws Exception {
+        nodeA.shutdown();
+        nodeB.shutdown();
+        receiptScheduler.shutdown();
+        broker.stop();
+    }
+
+    @Test
+    void topicMessagesReachSubscribersOfEveryConnection() throws Exception {
+        StompSession sessionA = nodeA.connectAsync(new StompSessionHandlerAdapter() {
+        }).get(10, TimeUnit.SECONDS);
+        StompSession sessionB = nodeB.connectAsync(new StompSessionHandlerAdapter() {
+        }).get(10, TimeUnit.SECONDS);
+
+        BlockingQueue<String> receivedByA = subscribe(sessionA);
+        BlockingQueue<String> receivedByB = subscribe(sessionB);
+
+        sessionB.send("/topic/orders", "NEW_ORDER 42");
+
+        assertEquals("NEW_ORDER 42", receivedByA.poll(10, TimeUnit.SECONDS));
+        assertEquals("NEW_ORDER 42", receivedByB.poll(10, TimeUnit.SECONDS));
+    }
+
+    private static ReactorNettyTcpStompClient client(int port, ThreadPoolTaskScheduler receiptScheduler) {
+        ReactorNettyTcpStompClient client = new ReactorNettyTcpStompClient("127.0.0.1", port);
+        client.setMessageConverter(new StringMessageConverter());
+        client.setTaskScheduler(receiptScheduler);
+        return client;
+    }
+
+    // Waits for the broker's receipt so the subscription exists before anything is sent
+    private static BlockingQueue<String> subscribe(StompSession session) throws Exception {
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination("/topic/orders");
+        headers.setReceipt("subscribed");
+        StompSession.Receiptable subscription = session.subscribe(headers, new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return String.class;
+            }
+
+            @Override
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.add((String) payload);
+            }
+        });
+        BlockingQueue<Boolean> receipt = new LinkedBlockingQueue<>();
+        subscription.addReceiptTask(() -> receipt.add(true));
+        subscription.addReceiptLostTask(() -> receipt.add(false));
+        assertEquals(Boolean.TRUE, receipt.poll(10, TimeUnit.SECONDS));
+        return received;
+    }
+}
@@ -0,0 +1,105 @@
+package com.bistro_template_backend.config;
+
+import com.bistro_template_backend.config.ReplicaRoutingDataSource.Target;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRoutingDataSourceTest {
+
+    private static final String SERVICE_METHOD = "com.bistro_template_backend.services.DashboardStatsService.dashboard";
+    private static final String REPOSITORY_METHOD = "org.springframework.data.jpa.repository.support.SimpleJpaRepository.findById";
+
+    private DataSource replica;
+    private ReplicaLagGuard lagGuard;
+    private ReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() {
+        replica = mock(DataSource.class);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        lagGuard = new ReplicaLagGuard(replica, meterRegistry, 5000, 1000);
+        routing = new ReplicaRoutingDataSource(mock(DataSource.class), replica, lagGuard,
+                List.of("com.bistro_template_backend.services"), meterRegistry);
+        SecurityContextHolder.getContext().setAuthentication(
+                new TestingAuthenticationToken("admin@example.com", null, "ADMIN"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        endTransaction();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyServiceTransactionsGoToTheReplica() {
+        beginTransaction(SERVICE_METHOD, true);
+        assertEquals(Target.REPLICA, routing.route());
+    }
+
+    @Test
+    void writesRepositoryDefaultsAndNonTransactionalWorkStayOnThePrimary() {
+        assertEquals(Target.PRIMARY, routing.route());
+
+        beginTransaction(REPOSITORY_METHOD, true);
+        assertEquals(Target.PRIMARY, routing.route());
+        endTransaction();
+
+        beginTransaction(SERVICE_METHOD, false);
+        assertEquals(Target.PRIMARY, routing.route());
+    }
+
+    @Test
+    void sessionIsPinnedToThePrimaryAfterItsWriteCommits() {
+        beginTransaction("com.bistro_template_backend.services.OrderService.updateStatus", false);
+        routing.route();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        endTransaction();
+
+        beginTransaction(SERVICE_METHOD, true);
+        assertEquals(Target.PRIMARY, routing.route());
+        endTransaction();
+
+        // Other sessions still read from the replica
+        SecurityContextHolder.getContext().setAuthentication(
+                new TestingAuthenticationToken("kitchen@example.com", null, "ADMIN"));
+        beginTransaction(SERVICE_METHOD, true);
+        assertEquals(Target.REPLICA, routing.route());
+    }
+
+    @Test
+    void unreachableReplicaSendsReadsToThePrimary() throws SQLException {
+        when(replica.getConnection()).thenThrow(new SQLException("connection refused"));
+        lagGuard.checkLag();
+
+        beginTransaction(SERVICE_METHOD, true);
+        assertEquals(Target.PRIMARY, routing.route());
+    }
+
+    private static void beginTransaction(String name, boolean readOnly) {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionName(name);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    }
+
+    private static void endTransaction() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.clear();
+    }
+}
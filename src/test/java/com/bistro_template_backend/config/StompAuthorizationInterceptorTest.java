@@ -0,0 +1,91 @@
+package com.bistro_template_backend.config;
+
+import com.bistro_template_backend.services.OrderTrackingTokens;
+import com.bistro_template_backend.utils.JwtAuthenticationToken;
+import com.bistro_template_backend.utils.JwtUtil;
+import com.bistro_template_backend.utils.OrderTrackingPrincipal;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StompAuthorizationInterceptorTest {
+
+    private final JwtUtil jwtUtil = new JwtUtil();
+    private final OrderTrackingTokens orderTrackingTokens = new OrderTrackingTokens("test-secret", 24);
+    private final StompAuthorizationInterceptor interceptor =
+            new StompAuthorizationInterceptor(jwtUtil, orderTrackingTokens);
+
+    @Test
+    void connectAuthenticatesStaffByJwtAndCustomersByOrderToken() {
+        StompHeaderAccessor staff = connect("Authorization", "Bearer "
+                + jwtUtil.generateToken("cook@example.com", "ROLE_KITCHEN", "downtown"));
+        StompHeaderAccessor customer = connect(StompAuthorizationInterceptor.ORDER_TOKEN_HEADER,
+                orderTrackingTokens.issue(42L));
+
+        JwtAuthenticationToken staffUser = assertInstanceOf(JwtAuthenticationToken.class, staff.getUser());
+        assertEquals("downtown", staffUser.getLocation());
+        assertEquals(new OrderTrackingPrincipal(42L), customer.getUser());
+        assertThrows(AccessDeniedException.class, () -> connect("Authorization", "Bearer forged"));
+        assertThrows(AccessDeniedException.class,
+                () -> connect(StompAuthorizationInterceptor.ORDER_TOKEN_HEADER, "42.0.forged"));
+    }
+
+    @Test
+    void subscriptionsFollowRoleAndLocation() {
+        Principal admin = staff("ROLE_ADMIN", null);
+        Principal kitchen = staff("ROLE_KITCHEN", "downtown");
+        Principal frontOfHouse = staff("ROLE_FRONT_OF_HOUSE", null);
+        Principal customer = new OrderTrackingPrincipal(42L);
+
+        allowed(admin, "/topic/orders");
+        allowed(admin, "/topic/locations/uptown/kitchen");
+        allowed(kitchen, "/topic/locations/downtown/kitchen");
+        allowed(frontOfHouse, "/topic/locations/uptown/front-of-house");
+        allowed(customer, "/user/queue/orders");
+
+        denied(kitchen, "/topic/orders");
+        denied(kitchen, "/topic/locations/uptown/kitchen");
+        denied(kitchen, "/topic/locations/downtown/front-of-house");
+        denied(frontOfHouse, "/topic/locations/downtown/kitchen");
+        denied(customer, "/topic/orders");
+        denied(customer, "/queue/orders-user1234");
+        denied(null, "/topic/orders");
+        denied(null, "/user/queue/orders");
+    }
+
+    private StompHeaderAccessor connect(String header, String value) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.CONNECT);
+        accessor.addNativeHeader(header, value);
+        accessor.setLeaveMutable(true);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        interceptor.preSend(message, null);
+        return accessor;
+    }
+
+    private void allowed(Principal user, String destination) {
+        assertDoesNotThrow(() -> interceptor.authorizeSubscription(user, destination), destination);
+    }
+
+    private void denied(Principal user, String destination) {
+        assertThrows(AccessDeniedException.class, () -> interceptor.authorizeSubscription(user, destination),
+                destination);
+    }
+
+    private static Principal staff(String role, String location) {
+        return new JwtAuthenticationToken("staff@example.com", role, location,
+                List.of(new SimpleGrantedAuthority(role)));
+    }
+}
@@ -0,0 +1,85 @@
+package com.bistro_template_backend.repositories;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Migrates a local PostgreSQL database and checks that the hot repository
+ * queries are planned on an index. Sequential scans are disabled (not
+ * forbidden) for the session, so a plan that still contains one means no
+ * usable index exists.
+ * <p>
+ * Runs only when {@code EXPLAIN_DB_URL} is set, e.g.
+ * {@code EXPLAIN_DB_URL=jdbc:postgresql://localhost:5432/bistro_test EXPLAIN_DB_USERNAME=postgres ./gradlew test}.
+ */
+@EnabledIfEnvironmentVariable(named = "EXPLAIN_DB_URL", matches = ".+")
+class HotQueryPlanTest {
+
+    private static final String URL = System.getenv("EXPLAIN_DB_URL");
+    private static final String USERNAME = System.getenv().getOrDefault("EXPLAIN_DB_USERNAME", "postgres");
+    private static final String PASSWORD = System.getenv().getOrDefault("EXPLAIN_DB_PASSWORD", "");
+
+    @BeforeAll
+    static void migrate() throws SQLException {
+        Flyway.configure()
+                .dataSource(URL, USERNAME, PASSWORD)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .configuration(Map.of("flyway.postgresql.transactional.lock", "false"))
+                .load()
+                .migrate();
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE");
+        }
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = '|', value = {
+            "order_items | SELECT * FROM order_items WHERE order_id = 1",
+            "order_items | SELECT * FROM order_items WHERE order_id IN (1, 2, 3)",
+            "order_item_customizations | SELECT * FROM order_item_customizations WHERE order_item_id IN (1, 2, 3)",
+            "payments | SELECT * FROM payments WHERE order_id = 1 ORDER BY created_at DESC",
+            "payments | SELECT count(*) FROM payments WHERE order_id = 1 AND status = 'PAID'",
+            "payments | SELECT * FROM payments WHERE transaction_id = 'pi_test'",
+            "customizations | SELECT * FROM customizations WHERE menu_item_id = 1",
+            "orders | SELECT * FROM orders WHERE status = 'COMPLETED' AND payment_status = 'PAID' AND id < 1000 ORDER BY id DESC LIMIT 21",
+            "orders | SELECT * FROM orders WHERE payment_status = 'PAID' AND order_date >= now() - interval '7 days' AND order_date < now() ORDER BY order_date, id",
+            "orders | SELECT * FROM orders WHERE lower(customer_name) LIKE '%smith%'"
+    })
+    void hotQueryDoesNotScanTable(String table, String sql) throws SQLException {
+        List<String> plan = explain(sql);
+        assertFalse(plan.stream().anyMatch(line -> line.contains("Seq Scan on " + table)),
+                () -> "Sequential scan on " + table + " for: " + sql + "\n" + String.join("\n", plan));
+    }
+
+    private static List<String> explain(String sql) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            statement.execute("SET enable_seqscan = off");
+            try (ResultSet rs = statement.executeQuery("EXPLAIN " + sql)) {
+                while (rs.next()) {
+                    plan.add(rs.getString(1));
+                }
+            }
+        }
+        return plan;
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(URL, USERNAME, PASSWORD);
+    }
+}
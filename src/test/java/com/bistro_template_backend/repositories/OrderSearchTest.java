@@ -0,0 +1,179 @@
+package com.bistro_template_backend.repositories;
+
+import com.bistro_template_backend.config.ExecutorRegistry;
+import com.bistro_template_backend.dto.KeysetPage;
+import com.bistro_template_backend.dto.OrderSearchCriteria;
+import com.bistro_template_backend.models.Order;
+import com.bistro_template_backend.models.OrderStatus;
+import com.bistro_template_backend.models.PaymentStatus;
+import com.bistro_template_backend.services.MenuCatalog;
+import com.bistro_template_backend.services.OrderService;
+import com.bistro_template_backend.services.OutboxService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the admin order search ({@link OrderSpecifications} and the keyset
+ * paging in {@link OrderService#searchOrders}) against a local PostgreSQL
+ * database, in a rolled-back transaction, only when {@code EXPLAIN_DB_URL} is
+ * set (see {@code HotQueryPlanTest}).
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(OrderService.class)
+@EnabledIfEnvironmentVariable(named = "EXPLAIN_DB_URL", matches = ".+")
+class OrderSearchTest {
+
+    private static final LocalDate DAY = LocalDate.of(2026, 3, 14);
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("EXPLAIN_DB_URL"));
+        registry.add("spring.datasource.username", () -> System.getenv().getOrDefault("EXPLAIN_DB_USERNAME", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getenv().getOrDefault("EXPLAIN_DB_PASSWORD", ""));
+    }
+
+    @MockitoBean
+    private OutboxService outboxService;
+
+    @MockitoBean
+    private MenuCatalog menuCatalog;
+
+    @MockitoBean
+    private ExecutorRegistry executorRegistry;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeEach
+    void emptyOrders() {
+        entityManager.createNativeQuery("DELETE FROM order_items").executeUpdate();
+        entityManager.createNativeQuery("DELETE FROM orders").executeUpdate();
+    }
+
+    @Test
+    void combinesTheFiltersIntoOneQuery() {
+        Order match = order("Jamie Smith", DAY.atTime(12, 0), OrderStatus.COMPLETED, PaymentStatus.PAID);
+        order("Jamie Smith", DAY.atTime(12, 5), OrderStatus.PENDING, PaymentStatus.PAID);
+        order("Jamie Smith", DAY.atTime(12, 10), OrderStatus.COMPLETED, PaymentStatus.NOT_PAID);
+        order("Alex Jones", DAY.atTime(12, 15), OrderStatus.COMPLETED, PaymentStatus.PAID);
+
+        List<Order> found = orderRepository.findAll(OrderSpecifications.matching(
+                new OrderSearchCriteria(OrderStatus.COMPLETED, PaymentStatus.PAID, "  SMITH ", null, null, null)));
+
+        assertEquals(List.of(match.getId()), ids(found));
+        assertEquals(List.of(match.getId()), ids(orderRepository.findAll(OrderSpecifications.matching(
+                new OrderSearchCriteria(null, null, null, match.getId(), null, null)))));
+        assertEquals(4, orderRepository.findAll(OrderSpecifications.matching(
+                new OrderSearchCriteria(null, null, " ", null, null, null))).size());
+    }
+
+    @Test
+    void customerNameMatchesWildcardsLiterally() {
+        Order percent = order("100% Jamie", DAY.atTime(12, 0), OrderStatus.PENDING, PaymentStatus.PAID);
+        order("1000 Jamie", DAY.atTime(12, 5), OrderStatus.PENDING, PaymentStatus.PAID);
+        Order underscore = order("jamie_s", DAY.atTime(12, 10), OrderStatus.PENDING, PaymentStatus.PAID);
+        order("jamies", DAY.atTime(12, 15), OrderStatus.PENDING, PaymentStatus.PAID);
+        Order backslash = order("back\\slash", DAY.atTime(12, 20), OrderStatus.PENDING, PaymentStatus.PAID);
+
+        assertEquals(List.of(percent.getId()), ids(orderRepository.findAll(OrderSpecifications.customerNameContains("0%"))));
+        assertEquals(List.of(underscore.getId()), ids(orderRepository.findAll(OrderSpecifications.customerNameContains("e_s"))));
+        assertEquals(List.of(backslash.getId()), ids(orderRepository.findAll(OrderSpecifications.customerNameContains("k\\s"))));
+    }
+
+    @Test
+    void dateRangeIncludesBothWholeDays() {
+        order("Before", DAY.minusDays(1).atTime(23, 59, 59), OrderStatus.PENDING, PaymentStatus.PAID);
+        Order first = order("First", DAY.atStartOfDay(), OrderStatus.PENDING, PaymentStatus.PAID);
+        Order last = order("Last", DAY.plusDays(1).atTime(23, 59, 59), OrderStatus.PENDING, PaymentStatus.PAID);
+        order("After", DAY.plusDays(2).atStartOfDay(), OrderStatus.PENDING, PaymentStatus.PAID);
+
+        List<Order> found = orderRepository.findAll(OrderSpecifications.matching(
+                new OrderSearchCriteria(null, null, null, null, DAY, DAY.plusDays(1))));
+
+        assertEquals(List.of(first.getId(), last.getId()), ids(found).stream().sorted().toList());
+    }
+
+    @Test
+    void keysetPagesWalkEveryMatchNewestFirst() {
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            expected.add(0, order("Jamie " + i, DAY.atTime(12, i), OrderStatus.COMPLETED, PaymentStatus.PAID).getId());
+            order("Other " + i, DAY.atTime(13, i), OrderStatus.CANCELED, PaymentStatus.PAID);
+        }
+        OrderSearchCriteria completed = new OrderSearchCriteria(OrderStatus.COMPLETED, null, null, null, null, null);
+
+        List<Long> walked = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        Long cursor = null;
+        KeysetPage<Order> page;
+        do {
+            page = orderService.searchOrders(completed, cursor, 3);
+            walked.addAll(ids(page.content()));
+            pageSizes.add(page.content().size());
+            cursor = page.nextCursor();
+            assertEquals(cursor != null, page.hasNext());
+        } while (page.hasNext());
+
+        assertEquals(expected, walked);
+        assertEquals(List.of(3, 3, 1), pageSizes);
+    }
+
+    @Test
+    void aPageThatEndsExactlyOnTheLastMatchHasNoNextCursor() {
+        Order older = order("Jamie", DAY.atTime(12, 0), OrderStatus.PENDING, PaymentStatus.PAID);
+        Order newer = order("Jamie", DAY.atTime(12, 5), OrderStatus.PENDING, PaymentStatus.PAID);
+        OrderSearchCriteria all = new OrderSearchCriteria(null, null, null, null, null, null);
+
+        KeysetPage<Order> page = orderService.searchOrders(all, null, 2);
+
+        assertEquals(List.of(newer.getId(), older.getId()), ids(page.content()));
+        assertFalse(page.hasNext());
+        assertNull(page.nextCursor());
+
+        KeysetPage<Order> rest = orderService.searchOrders(all, older.getId(), 2);
+        assertTrue(rest.content().isEmpty());
+        assertFalse(rest.hasNext());
+    }
+
+    private Order order(String customerName, LocalDateTime placed, OrderStatus status, PaymentStatus paymentStatus) {
+        Order order = new Order();
+        order.setCustomerName(customerName);
+        order.setOrderDate(placed);
+        order.setStatus(status);
+        order.setPaymentStatus(paymentStatus);
+        order.setTotalAmount(new BigDecimal("10.00"));
+        order.setLocation("main");
+        return orderRepository.saveAndFlush(order);
+    }
+
+    private static List<Long> ids(List<Order> orders) {
+        return orders.stream().map(Order::getId).toList();
+    }
+}
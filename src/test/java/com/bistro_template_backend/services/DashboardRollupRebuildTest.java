@@ -0,0 +1,145 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.config.ExecutorRegistry;
+import com.bistro_template_backend.models.Order;
+import com.bistro_template_backend.models.OrderItem;
+import com.bistro_template_backend.models.PaymentStatus;
+import com.bistro_template_backend.repositories.OrderItemRepository;
+import com.bistro_template_backend.repositories.OrderRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Pays a handful of orders through {@link DashboardRollupService#recordPaidOrder}
+ * and checks that {@link DashboardRollupService#rebuild()} recomputes exactly
+ * the same rollups from {@code orders}. Runs in a rolled-back transaction
+ * against a local PostgreSQL database, only when {@code EXPLAIN_DB_URL} is set
+ * (see {@code HotQueryPlanTest}).
+ */
+@DataJpaTest(properties = "stats.rollups.backfill-on-startup=false")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(DashboardRollupService.class)
+@EnabledIfEnvironmentVariable(named = "EXPLAIN_DB_URL", matches = ".+")
+class DashboardRollupRebuildTest {
+
+    // Without updated_at, which is the only column allowed to differ
+    private static final Map<String, String> ROLLUPS = Map.of(
+            "order_stats_daily", "SELECT day, revenue, order_count, item_count, distinct_customers, new_customers " +
+                    "FROM order_stats_daily ORDER BY day",
+            "order_stats_hourly", "SELECT hour, revenue, order_count, item_count, distinct_customers " +
+                    "FROM order_stats_hourly ORDER BY hour",
+            "item_stats_daily", "SELECT day, menu_item_id, quantity, revenue FROM item_stats_daily " +
+                    "ORDER BY day, menu_item_id",
+            "item_stats_total", "SELECT menu_item_id, quantity, revenue FROM item_stats_total ORDER BY menu_item_id",
+            "stats_customer_buckets", "SELECT scope, bucket, customer_email FROM stats_customer_buckets " +
+                    "ORDER BY scope, bucket, customer_email");
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("EXPLAIN_DB_URL"));
+        registry.add("spring.datasource.username", () -> System.getenv().getOrDefault("EXPLAIN_DB_USERNAME", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getenv().getOrDefault("EXPLAIN_DB_PASSWORD", ""));
+    }
+
+    @MockitoBean
+    private ExecutorRegistry executorRegistry;
+
+    @Autowired
+    private DashboardRollupService rollups;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void rebuildAgreesWithTheIncrementalRollups() {
+        for (String table : List.of("orders", "order_items", "order_stats_daily", "order_stats_hourly",
+                "item_stats_daily", "item_stats_total", "stats_customer_buckets")) {
+            entityManager.createNativeQuery("DELETE FROM " + table).executeUpdate();
+        }
+        LocalDate today = LocalDate.now();
+
+        // In the order they were paid, as the incremental path sees them
+        pay(today.minusDays(2).atTime(11, 20), "jamie@example.com", "18.00", item(1L, 2, "4.50"), item(2L, 1, "9.00"));
+        pay(today.minusDays(2).atTime(11, 50), "Jamie@Example.com ", "4.50", item(1L, 1, "4.50"));
+        pay(today.minusDays(2).atTime(19, 5), null, "12.00", item(3L, 1, "12.00"), item(null, 1, "0.00"));
+        pay(today.minusDays(1).atTime(12, 10), "jamie@example.com", "9.00", item(2L, 1, "9.00"));
+        pay(today.minusDays(1).atTime(12, 30), "alex@example.com", "13.50", item(1L, 3, "4.50"));
+        Order unpaid = order(today.minusDays(1).atTime(13, 0), "sam@example.com", "9.00", PaymentStatus.NOT_PAID);
+        orderItemRepository.save(item(unpaid.getId(), 2L, 1, "9.00"));
+
+        Map<String, List<String>> incremental = snapshot();
+        rollups.rebuild();
+        Map<String, List<String>> rebuilt = snapshot();
+
+        assertFalse(incremental.get("order_stats_daily").isEmpty());
+        assertEquals(incremental, rebuilt);
+    }
+
+    private void pay(LocalDateTime placed, String email, String total, OrderItem... items) {
+        Order order = order(placed, email, total, PaymentStatus.PAID);
+        for (OrderItem item : items) {
+            item.setOrderId(order.getId());
+            orderItemRepository.save(item);
+        }
+        entityManager.flush();
+        rollups.recordPaidOrder(order);
+    }
+
+    private Order order(LocalDateTime placed, String email, String total, PaymentStatus paymentStatus) {
+        Order order = new Order();
+        order.setOrderDate(placed);
+        order.setCustomerEmail(email);
+        order.setTotalAmount(new BigDecimal(total));
+        order.setPaymentStatus(paymentStatus);
+        order.setLocation("main");
+        return orderRepository.saveAndFlush(order);
+    }
+
+    private Map<String, List<String>> snapshot() {
+        entityManager.flush();
+        Map<String, List<String>> rows = new TreeMap<>();
+        ROLLUPS.forEach((table, sql) -> {
+            List<?> result = entityManager.createNativeQuery(sql).getResultList();
+            rows.put(table, result.stream().map(row -> Arrays.toString((Object[]) row)).toList());
+        });
+        return rows;
+    }
+
+    private static OrderItem item(Long menuItemId, int quantity, String price) {
+        return item(null, menuItemId, quantity, price);
+    }
+
+    private static OrderItem item(Long orderId, Long menuItemId, int quantity, String price) {
+        OrderItem item = new OrderItem();
+        item.setOrderId(orderId);
+        item.setMenuItemId(menuItemId);
+        item.setQuantity(quantity);
+        item.setItemPrice(new BigDecimal(price));
+        return item;
+    }
+}
@@ -0,0 +1,116 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.config.ExecutorRegistry;
+import com.bistro_template_backend.models.Order;
+import com.bistro_template_backend.models.OrderItem;
+import com.bistro_template_backend.repositories.DailyOrderStatsRepository;
+import com.bistro_template_backend.repositories.HourlyOrderStatsRepository;
+import com.bistro_template_backend.repositories.ItemStatsRepository;
+import com.bistro_template_backend.repositories.OrderItemRepository;
+import com.bistro_template_backend.repositories.StatsCustomerBucketRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class DashboardRollupServiceTest {
+
+    private static final LocalDateTime PLACED = LocalDateTime.of(2026, 3, 14, 12, 41);
+    private static final LocalDate DAY = PLACED.toLocalDate();
+    private static final LocalDateTime HOUR = LocalDateTime.of(2026, 3, 14, 12, 0);
+
+    private final DailyOrderStatsRepository dailyOrderStatsRepository = mock(DailyOrderStatsRepository.class);
+    private final HourlyOrderStatsRepository hourlyOrderStatsRepository = mock(HourlyOrderStatsRepository.class);
+    private final ItemStatsRepository itemStatsRepository = mock(ItemStatsRepository.class);
+    private final StatsCustomerBucketRepository statsCustomerBucketRepository = mock(StatsCustomerBucketRepository.class);
+    private final OrderItemRepository orderItemRepository = mock(OrderItemRepository.class);
+    private final DashboardRollupService service = new DashboardRollupService(dailyOrderStatsRepository,
+            hourlyOrderStatsRepository, itemStatsRepository, statsCustomerBucketRepository, orderItemRepository,
+            mock(EntityManager.class), mock(PlatformTransactionManager.class), mock(ExecutorRegistry.class), 7, false);
+
+    @Test
+    void itemsAreSummedPerMenuItemAndAddedInMenuItemOrder() {
+        when(orderItemRepository.findByOrderId(7L)).thenReturn(List.of(
+                item(5L, 2, "3.50"),
+                item(2L, 1, "10.00"),
+                item(5L, 1, "3.50"),
+                item(null, 1, "1.00")));
+
+        service.recordPaidOrder(order(7L, null));
+
+        // The line without a menu item still counts towards the order's items
+        verify(dailyOrderStatsRepository).add(eq(DAY), eq(new BigDecimal("24.50")), eq(1L), eq(5L), eq(0L), eq(0L), any());
+        verify(hourlyOrderStatsRepository).add(eq(HOUR), eq(new BigDecimal("24.50")), eq(1L), eq(5L), eq(0L), any());
+        InOrder items = inOrder(itemStatsRepository);
+        items.verify(itemStatsRepository).addDaily(DAY, 2L, 1, new BigDecimal("10.00"));
+        items.verify(itemStatsRepository).addTotal(2L, 1, new BigDecimal("10.00"));
+        items.verify(itemStatsRepository).addDaily(DAY, 5L, 3, new BigDecimal("10.50"));
+        items.verify(itemStatsRepository).addTotal(5L, 3, new BigDecimal("10.50"));
+        items.verifyNoMoreInteractions();
+    }
+
+    @Test
+    void aCustomerCountsOnlyInTheBucketsTheyAreNewTo() {
+        when(orderItemRepository.findByOrderId(7L)).thenReturn(List.of());
+        when(statsCustomerBucketRepository.insertIfAbsent(eq(DashboardRollupService.ALL), any(), anyString())).thenReturn(0);
+        when(statsCustomerBucketRepository.insertIfAbsent(eq(DashboardRollupService.DAY), any(), anyString())).thenReturn(1);
+        when(statsCustomerBucketRepository.insertIfAbsent(eq(DashboardRollupService.HOUR), any(), anyString())).thenReturn(0);
+
+        service.recordPaidOrder(order(7L, "  Jamie@Example.COM "));
+
+        verify(statsCustomerBucketRepository).insertIfAbsent(DashboardRollupService.ALL,
+                LocalDateTime.of(1970, 1, 1, 0, 0), "jamie@example.com");
+        verify(statsCustomerBucketRepository).insertIfAbsent(DashboardRollupService.DAY,
+                DAY.atStartOfDay(), "jamie@example.com");
+        verify(statsCustomerBucketRepository).insertIfAbsent(DashboardRollupService.HOUR, HOUR, "jamie@example.com");
+        // Returning customer, but their first order of the day
+        verify(dailyOrderStatsRepository).add(eq(DAY), any(), eq(1L), eq(0L), eq(1L), eq(0L), any());
+        verify(hourlyOrderStatsRepository).add(eq(HOUR), any(), eq(1L), eq(0L), eq(0L), any());
+        verify(itemStatsRepository, never()).addTotal(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void anOrderWithoutAnEmailCountsNoCustomer() {
+        when(orderItemRepository.findByOrderId(7L)).thenReturn(List.of(item(2L, 1, "10.00")));
+
+        service.recordPaidOrder(order(7L, " "));
+
+        verifyNoInteractions(statsCustomerBucketRepository);
+        verify(dailyOrderStatsRepository).add(eq(DAY), any(), eq(1L), eq(1L), eq(0L), eq(0L), any());
+        verify(hourlyOrderStatsRepository).add(eq(HOUR), any(), eq(1L), eq(1L), eq(0L), any());
+    }
+
+    private static Order order(Long id, String email) {
+        Order order = new Order();
+        order.setId(id);
+        order.setOrderDate(PLACED);
+        order.setTotalAmount(new BigDecimal("24.50"));
+        order.setCustomerEmail(email);
+        return order;
+    }
+
+    private static OrderItem item(Long menuItemId, int quantity, String price) {
+        OrderItem item = new OrderItem();
+        item.setOrderId(7L);
+        item.setMenuItemId(menuItemId);
+        item.setQuantity(quantity);
+        item.setItemPrice(new BigDecimal(price));
+        return item;
+    }
+}
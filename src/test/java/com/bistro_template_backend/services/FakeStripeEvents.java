@@ -0,0 +1,73 @@
+package com.bistro_template_backend.services;
+
+import com.stripe.Stripe;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Builds payment intent webhook payloads and {@code Stripe-Signature} headers
+ * the way Stripe does, so the webhook path can be exercised without Stripe.
+ */
+final class FakeStripeEvents {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final String secret;
+
+    FakeStripeEvents(String secret) {
+        this.secret = secret;
+    }
+
+    static String newEventId() {
+        return "evt_test_" + SEQUENCE.incrementAndGet();
+    }
+
+    String paymentIntentEvent(String eventId, String type, String paymentIntentId, long orderId) {
+        String status = type.equals(StripeWebhookService.PAYMENT_SUCCEEDED) ? "succeeded" : "requires_payment_method";
+        long amountReceived = type.equals(StripeWebhookService.PAYMENT_SUCCEEDED) ? 2599 : 0;
+        return """
+                {
+                  "id": "%s",
+                  "object": "event",
+                  "api_version": "%s",
+                  "created": %d,
+                  "livemode": false,
+                  "pending_webhooks": 1,
+                  "type": "%s",
+                  "data": {
+                    "object": {
+                      "id": "%s",
+                      "object": "payment_intent",
+                      "amount": 2599,
+                      "amount_received": %d,
+                      "currency": "usd",
+                      "status": "%s",
+                      "metadata": {"orderId": "%d"}
+                    }
+                  }
+                }
+                """.formatted(eventId, Stripe.API_VERSION, Instant.now().getEpochSecond(), type,
+                paymentIntentId, amountReceived, status, orderId);
+    }
+
+    String signature(String payload) {
+        return signature(payload, Instant.now().getEpochSecond());
+    }
+
+    // Header format: t=<unix seconds>,v1=<hex HMAC-SHA256 of "t.payload">
+    String signature(String payload, long timestamp) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] digest = mac.doFinal((timestamp + "." + payload).getBytes(StandardCharsets.UTF_8));
+            return "t=" + timestamp + ",v1=" + HexFormat.of().formatHex(digest);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
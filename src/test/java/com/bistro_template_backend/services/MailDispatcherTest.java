@@ -0,0 +1,99 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.config.ExecutorRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.MessagingException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.TaskScheduler;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Sends to an SMTP port nobody listens on, so every attempt fails, and checks
+ * that retries are handed to the scheduler instead of holding a worker.
+ */
+class MailDispatcherTest {
+
+    private static final long BACKOFF_MILLIS = 60_000;
+
+    private final ThreadPoolExecutor emailPool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(10));
+    private final TaskScheduler taskScheduler = mock(TaskScheduler.class);
+
+    private MailDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(1);
+        ExecutorRegistry executorRegistry = mock(ExecutorRegistry.class);
+        when(executorRegistry.get(ExecutorRegistry.EMAIL)).thenReturn(emailPool);
+
+        dispatcher = new MailDispatcher(mailSender, new SimpleMeterRegistry(), executorRegistry, taskScheduler,
+                "orders@example.com", 2, BACKOFF_MILLIS);
+        dispatcher.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        dispatcher.stop();
+    }
+
+    @Test
+    void schedulesTheRetryInsteadOfSleepingOnTheWorker() throws Exception {
+        Instant before = Instant.now();
+        CompletableFuture<Void> first = dispatcher.enqueue(OutboundMail.text("jamie@example.com", "Ready", "Come by"));
+
+        ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+        ArgumentCaptor<Instant> due = ArgumentCaptor.forClass(Instant.class);
+        verify(taskScheduler, timeout(5_000)).schedule(retry.capture(), due.capture());
+        assertFalse(first.isDone());
+        assertFalse(due.getValue().isBefore(before.plusMillis(BACKOFF_MILLIS)));
+
+        // The worker is free for the next message while the first one waits out its backoff
+        CompletableFuture<Void> second = dispatcher.enqueue(OutboundMail.text("sam@example.com", "Ready", "Come by"));
+        verify(taskScheduler, timeout(5_000).times(2)).schedule(any(Runnable.class), any(Instant.class));
+        assertFalse(second.isDone());
+
+        retry.getAllValues().get(0).run();
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> first.get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof MessagingException, error.getCause().toString());
+        verify(taskScheduler, times(2)).schedule(any(Runnable.class), any(Instant.class));
+    }
+
+    @Test
+    void aRetryThatComesDueDuringShutdownFailsTheMessage() throws Exception {
+        CompletableFuture<Void> mail = dispatcher.enqueue(OutboundMail.text("jamie@example.com", "Ready", "Come by"));
+        ArgumentCaptor<Runnable> retry = ArgumentCaptor.forClass(Runnable.class);
+        verify(taskScheduler, timeout(5_000)).schedule(retry.capture(), any(Instant.class));
+
+        dispatcher.stop();
+        retry.getValue().run();
+
+        assertTrue(mail.isCompletedExceptionally());
+        assertEquals(0, emailPool.getQueue().size());
+    }
+}
@@ -0,0 +1,143 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.models.MenuItem;
+import com.bistro_template_backend.models.Order;
+import com.bistro_template_backend.models.OrderItem;
+import com.bistro_template_backend.repositories.CategoryRepository;
+import com.bistro_template_backend.repositories.CustomizationRepository;
+import com.bistro_template_backend.repositories.MenuItemRepository;
+import com.bistro_template_backend.repositories.OrderItemRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Serves menu reads from the snapshot, rebuilds it when the menu changes and
+ * keeps serving the previous one when a rebuild fails.
+ */
+class MenuCatalogTest {
+
+    private final MenuItemRepository menuItemRepository = mock(MenuItemRepository.class);
+    private final CategoryRepository categoryRepository = mock(CategoryRepository.class);
+    private final CustomizationRepository customizationRepository = mock(CustomizationRepository.class);
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private final List<MenuItem> menuItems = new ArrayList<>();
+
+    private MenuCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        menuItems.add(menuItem(1L, 12));
+        menuItems.add(menuItem(2L, null));
+        when(menuItemRepository.findAll(any(Sort.class)))
+                .thenAnswer(inv -> menuItems.stream().map(MenuCatalogTest::copy).toList());
+        when(categoryRepository.findAll(any(Sort.class))).thenReturn(List.of());
+        when(customizationRepository.findAllWithMenuItem()).thenReturn(List.of());
+
+        catalog = new MenuCatalog(menuItemRepository, categoryRepository, customizationRepository, eventPublisher,
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 300);
+        // Stands in for the listener, which Spring runs once the writing transaction commits
+        doAnswer(inv -> {
+            catalog.onMenuChanged(inv.getArgument(0));
+            return null;
+        }).when(eventPublisher).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void answersReadsFromOneSnapshot() {
+        MenuCatalogSnapshot first = catalog.snapshot();
+
+        assertEquals(2, catalog.menuItems().size());
+        assertEquals(12, catalog.findMenuItem(1L).orElseThrow().getStockQuantity());
+        assertSame(first, catalog.snapshot());
+        verify(menuItemRepository, times(1)).findAll(any(Sort.class));
+        verify(menuItemRepository, never()).findById(any());
+    }
+
+    @Test
+    void looksUpOnlyTheIdsTheSnapshotDoesNotKnow() {
+        MenuItem added = menuItem(3L, 5);
+        when(menuItemRepository.findAllById(List.of(3L))).thenReturn(List.of(added));
+
+        assertEquals(List.of(1L, 3L), catalog.findMenuItems(List.of(1L, 3L)).keySet().stream().sorted().toList());
+        verify(menuItemRepository).findAllById(List.of(3L));
+    }
+
+    @Test
+    void rebuildsWhenTheMenuChanges() {
+        MenuCatalogSnapshot before = catalog.snapshot();
+        menuItems.get(0).setStockQuantity(4);
+
+        catalog.menuChanged("menu item 1 updated");
+
+        MenuCatalogSnapshot after = catalog.snapshot();
+        assertNotSame(before, after);
+        assertEquals(before.version() + 1, after.version());
+        assertEquals(4, catalog.findMenuItem(1L).orElseThrow().getStockQuantity());
+    }
+
+    @Test
+    void keepsServingThePreviousSnapshotWhenARebuildFails() {
+        MenuCatalogSnapshot before = catalog.snapshot();
+        when(menuItemRepository.findAll(any(Sort.class))).thenThrow(new IllegalStateException("database down"));
+
+        catalog.menuChanged("menu item 1 updated");
+
+        assertSame(before, catalog.snapshot());
+    }
+
+    @Test
+    void reducingStockAfterPaymentRebuildsTheSnapshot() {
+        OrderItemRepository orderItemRepository = mock(OrderItemRepository.class);
+        OrderService orderService = new OrderService();
+        ReflectionTestUtils.setField(orderService, "orderItemRepository", orderItemRepository);
+        ReflectionTestUtils.setField(orderService, "menuItemRepository", menuItemRepository);
+        ReflectionTestUtils.setField(orderService, "menuCatalog", catalog);
+        Order order = new Order();
+        order.setId(42L);
+        OrderItem line = new OrderItem();
+        line.setMenuItemId(1L);
+        line.setQuantity(3);
+        when(orderItemRepository.findByOrderId(42L)).thenReturn(List.of(line));
+        when(menuItemRepository.findById(1L)).thenAnswer(inv -> Optional.of(menuItems.get(0)));
+        assertEquals(12, catalog.findMenuItem(1L).orElseThrow().getStockQuantity());
+
+        orderService.reduceStockAfterPayment(order);
+
+        assertEquals(9, catalog.findMenuItem(1L).orElseThrow().getStockQuantity());
+        verify(menuItemRepository, never()).findAllById(anyCollection());
+    }
+
+    private static MenuItem menuItem(Long id, Integer stockQuantity) {
+        MenuItem menuItem = new MenuItem();
+        menuItem.setId(id);
+        menuItem.setName("Menu item " + id);
+        menuItem.setStockQuantity(stockQuantity);
+        return menuItem;
+    }
+
+    // The snapshot holds what the database returned at build time, not the rows the test keeps changing
+    private static MenuItem copy(MenuItem menuItem) {
+        return menuItem(menuItem.getId(), menuItem.getStockQuantity());
+    }
+}
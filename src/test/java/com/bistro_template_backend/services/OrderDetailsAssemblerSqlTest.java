@@ -0,0 +1,175 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.config.ExecutorRegistry;
+import com.bistro_template_backend.dto.OrderDetailsDTO;
+import com.bistro_template_backend.models.Customization;
+import com.bistro_template_backend.models.MenuItem;
+import com.bistro_template_backend.models.Order;
+import com.bistro_template_backend.models.OrderItem;
+import com.bistro_template_backend.models.OrderItemCustomization;
+import com.bistro_template_backend.repositories.CustomizationRepository;
+import com.bistro_template_backend.repositories.MenuItemRepository;
+import com.bistro_template_backend.repositories.OrderItemCustomizationRepository;
+import com.bistro_template_backend.repositories.OrderItemRepository;
+import com.bistro_template_backend.repositories.OrderRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.when;
+
+/**
+ * Counts the SQL statements Hibernate prepares while {@link OrderDetailsAssembler}
+ * builds a listing from real rows, so a lazy association or a per-row lookup
+ * shows up even when no repository method is called for it. Menu items come
+ * from the catalog snapshot, which answers without SQL once built. Runs in a
+ * rolled-back transaction against a local PostgreSQL database, only when
+ * {@code EXPLAIN_DB_URL} is set (see {@code HotQueryPlanTest}).
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(OrderDetailsAssembler.class)
+@EnabledIfEnvironmentVariable(named = "EXPLAIN_DB_URL", matches = ".+")
+class OrderDetailsAssemblerSqlTest {
+
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final int CUSTOMIZATIONS_PER_ITEM = 2;
+
+    @DynamicPropertySource
+    static void database(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", () -> System.getenv("EXPLAIN_DB_URL"));
+        registry.add("spring.datasource.username", () -> System.getenv().getOrDefault("EXPLAIN_DB_USERNAME", "postgres"));
+        registry.add("spring.datasource.password", () -> System.getenv().getOrDefault("EXPLAIN_DB_PASSWORD", ""));
+    }
+
+    @MockitoBean
+    private MenuCatalog menuCatalog;
+
+    @MockitoBean
+    private ExecutorRegistry executorRegistry;
+
+    @Autowired
+    private OrderDetailsAssembler assembler;
+
+    @Autowired
+    private MenuItemRepository menuItemRepository;
+
+    @Autowired
+    private CustomizationRepository customizationRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderItemCustomizationRepository orderItemCustomizationRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private final List<MenuItem> menuItems = new ArrayList<>();
+    private final List<Customization> customizations = new ArrayList<>();
+
+    @BeforeEach
+    void createMenu() {
+        for (int m = 0; m < ITEMS_PER_ORDER; m++) {
+            MenuItem menuItem = new MenuItem();
+            menuItem.setName("Dish " + m);
+            menuItem.setPrice(new BigDecimal("9.50"));
+            menuItems.add(menuItemRepository.save(menuItem));
+            for (int c = 0; c < CUSTOMIZATIONS_PER_ITEM; c++) {
+                Customization customization = new Customization();
+                customization.setMenuItem(menuItem);
+                customization.setName("Extra " + c);
+                customization.setPrice(BigDecimal.ONE);
+                customizations.add(customizationRepository.save(customization));
+            }
+        }
+        Map<Long, MenuItem> byId = menuItems.stream().collect(Collectors.toMap(MenuItem::getId, Function.identity()));
+        when(menuCatalog.findMenuItems(anyCollection())).thenReturn(byId);
+    }
+
+    @Test
+    void aPageOfOrdersTakesTwoStatements() {
+        List<Order> orders = createOrders(20);
+
+        long statements = countStatements(() -> {
+            List<OrderDetailsDTO> details = assembler.assemble(orders);
+            assertEquals(20, details.size());
+            assertEquals(ITEMS_PER_ORDER, details.get(0).getItems().size());
+            assertEquals(CUSTOMIZATIONS_PER_ITEM, details.get(0).getItems().get(0).getCustomizations().size());
+        });
+
+        // order_items, then order_item_customizations with their customization and menu item joined in
+        assertEquals(2, statements);
+    }
+
+    @Test
+    void largeListingsOnlyGrowByInBatches() {
+        List<Order> orders = createOrders(OrderDetailsAssembler.BATCH_SIZE + 1);
+
+        long statements = countStatements(() -> assembler.assemble(orders));
+
+        // 501 orders -> 2 item batches; 1503 items -> 4 customization batches
+        assertEquals(6, statements);
+    }
+
+    private long countStatements(Runnable work) {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        work.run();
+        return statistics.getPrepareStatementCount();
+    }
+
+    private List<Order> createOrders(int count) {
+        List<Order> orders = new ArrayList<>();
+        for (int o = 0; o < count; o++) {
+            Order order = new Order();
+            order.setCustomerName("Customer " + o);
+            order.setLocation("main");
+            orders.add(orderRepository.save(order));
+            for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+                OrderItem item = new OrderItem();
+                item.setOrderId(order.getId());
+                item.setMenuItemId(menuItems.get(i).getId());
+                item.setQuantity(1);
+                item.setItemPrice(new BigDecimal("9.50"));
+                orderItemRepository.save(item);
+                for (int c = 0; c < CUSTOMIZATIONS_PER_ITEM; c++) {
+                    OrderItemCustomization selected = new OrderItemCustomization();
+                    selected.setOrderItem(item);
+                    selected.setCustomization(customizations.get(i * CUSTOMIZATIONS_PER_ITEM + c));
+                    orderItemCustomizationRepository.save(selected);
+                }
+            }
+        }
+        return orders;
+    }
+}
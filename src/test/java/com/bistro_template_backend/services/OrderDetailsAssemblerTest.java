@@ -0,0 +1,160 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.dto.OrderDetailsDTO;
+import com.bistro_template_backend.models.Customization;
+import com.bistro_template_backend.models.MenuItem;
+import com.bistro_template_backend.models.Order;
+import com.bistro_template_backend.models.OrderItem;
+import com.bistro_template_backend.models.OrderItemCustomization;
+import com.bistro_template_backend.repositories.OrderItemCustomizationRepository;
+import com.bistro_template_backend.repositories.OrderItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Query-count regression test: the number of repository round trips must depend
+ * only on the number of IN batches, never on the number of orders or items.
+ */
+class OrderDetailsAssemblerTest {
+
+    private static final int ITEMS_PER_ORDER = 3;
+    private static final int CUSTOMIZATIONS_PER_ITEM = 2;
+
+    private OrderItemRepository orderItemRepository;
+    private MenuCatalog menuCatalog;
+    private OrderItemCustomizationRepository orderItemCustomizationRepository;
+    private OrderDetailsAssembler assembler;
+
+    private final Map<Long, MenuItem> menuItems = new HashMap<>();
+    private final List<OrderItem> orderItems = new ArrayList<>();
+    private final List<OrderItemCustomization> selections = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        orderItemRepository = mock(OrderItemRepository.class);
+        menuCatalog = mock(MenuCatalog.class);
+        orderItemCustomizationRepository = mock(OrderItemCustomizationRepository.class);
+        assembler = new OrderDetailsAssembler(orderItemRepository, menuCatalog, orderItemCustomizationRepository);
+
+        when(orderItemRepository.findByOrderIdIn(anyCollection())).thenAnswer(inv ->
+                filter(orderItems, inv.getArgument(0), OrderItem::getOrderId));
+        when(menuCatalog.findMenuItems(anyCollection())).thenAnswer(inv -> {
+            Collection<Long> ids = inv.getArgument(0);
+            Map<Long, MenuItem> found = new HashMap<>();
+            ids.forEach(id -> found.put(id, menuItems.get(id)));
+            return found;
+        });
+        when(orderItemCustomizationRepository.findByOrderItemIdIn(anyCollection())).thenAnswer(inv ->
+                filter(selections, inv.getArgument(0), oic -> oic.getOrderItem().getId()));
+    }
+
+    @Test
+    void assemblesAPageWithOneQueryPerAssociation() {
+        List<Order> orders = createOrders(50);
+
+        List<OrderDetailsDTO> details = assembler.assemble(orders);
+
+        assertEquals(50, details.size());
+        assertEquals(ITEMS_PER_ORDER, details.get(0).getItems().size());
+        assertEquals(CUSTOMIZATIONS_PER_ITEM, details.get(0).getItems().get(0).getCustomizations().size());
+        assertEquals("Dish 1", details.get(0).getItems().get(1).getName());
+
+        verify(orderItemRepository, times(1)).findByOrderIdIn(anyCollection());
+        verify(menuCatalog, times(1)).findMenuItems(anyCollection());
+        verify(orderItemCustomizationRepository, times(1)).findByOrderItemIdIn(anyCollection());
+        verifyNoPerRowLookups();
+    }
+
+    @Test
+    void largeListingsOnlyGrowByInBatches() {
+        List<Order> orders = createOrders(OrderDetailsAssembler.BATCH_SIZE * 2 + 1);
+
+        assembler.assemble(orders);
+
+        // 1001 orders -> 3 order batches; 3003 items -> 7 customization batches; one catalog lookup
+        verify(orderItemRepository, times(3)).findByOrderIdIn(anyCollection());
+        verify(menuCatalog, times(1)).findMenuItems(anyCollection());
+        verify(orderItemCustomizationRepository, times(7)).findByOrderItemIdIn(anyCollection());
+        verifyNoPerRowLookups();
+    }
+
+    @Test
+    void emptyListingRunsNoQueries() {
+        assertEquals(List.of(), assembler.assemble(List.of()));
+
+        verify(orderItemRepository, never()).findByOrderIdIn(anyCollection());
+        verify(menuCatalog, never()).findMenuItems(anyCollection());
+        verify(orderItemCustomizationRepository, never()).findByOrderItemIdIn(anyCollection());
+    }
+
+    private void verifyNoPerRowLookups() {
+        verify(orderItemRepository, never()).findByOrderId(anyLong());
+        verify(menuCatalog, never()).findMenuItem(anyLong());
+        verify(orderItemCustomizationRepository, never()).findByOrderItemId(anyLong());
+    }
+
+    private List<Order> createOrders(int count) {
+        for (long m = 0; m < 10; m++) {
+            MenuItem menuItem = new MenuItem();
+            menuItem.setId(m);
+            menuItem.setName("Dish " + m);
+            menuItem.setPrice(new BigDecimal("9.50"));
+            menuItems.put(m, menuItem);
+        }
+
+        List<Order> orders = new ArrayList<>();
+        long itemId = 0;
+        long selectionId = 0;
+        for (long o = 0; o < count; o++) {
+            Order order = new Order();
+            order.setId(o);
+            orders.add(order);
+
+            for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+                OrderItem item = new OrderItem();
+                item.setId(itemId++);
+                item.setOrderId(o);
+                item.setMenuItemId((long) i);
+                item.setQuantity(1);
+                orderItems.add(item);
+
+                for (int c = 0; c < CUSTOMIZATIONS_PER_ITEM; c++) {
+                    Customization customization = new Customization();
+                    customization.setName("Extra " + c);
+                    customization.setPrice(BigDecimal.ONE);
+
+                    OrderItemCustomization selection = new OrderItemCustomization();
+                    selection.setId(selectionId++);
+                    selection.setOrderItem(item);
+                    selection.setCustomization(customization);
+                    selections.add(selection);
+                }
+            }
+        }
+        return orders;
+    }
+
+    private static <T> List<T> filter(List<T> rows, Collection<Long> ids, Function<T, Long> key) {
+        Set<Long> wanted = new HashSet<>(ids);
+        return rows.stream().filter(row -> wanted.contains(key.apply(row))).toList();
+    }
+}
@@ -0,0 +1,57 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.dto.OrderEventReplay;
+import com.bistro_template_backend.dto.SequencedOrderEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OrderEventLogTest {
+
+    private static final String KITCHEN = "/topic/locations/main/kitchen";
+
+    private final OrderEventLog log = new OrderEventLog(4, "simple", new SimpleMeterRegistry());
+
+    @Test
+    void replaysWhatADestinationMissedAfterTheLastSeenSequence() {
+        log.append(KITCHEN, "a");
+        log.append("/topic/orders", "b");
+        log.append(KITCHEN, "c");
+        log.append(KITCHEN, "d");
+
+        OrderEventReplay replay = log.replay(KITCHEN, log.streamId(), 1);
+
+        assertEquals(4, replay.lastSeq());
+        assertEquals(List.of(new SequencedOrderEvent(3, "c"), new SequencedOrderEvent(4, "d")), replay.events());
+        assertEquals(List.of(), log.replay(KITCHEN, log.streamId(), 4).events());
+    }
+
+    @Test
+    void asksForASnapshotWhenTheGapWasEvictedOrTheStreamChanged() {
+        for (int i = 1; i <= 6; i++) {
+            log.append(KITCHEN, i);
+        }
+
+        assertEquals(4, log.replay(KITCHEN, log.streamId(), 2).events().size());
+        assertNull(log.replay(KITCHEN, log.streamId(), 1).events());
+        assertNull(log.replay(KITCHEN, "another-instance", 5).events());
+        assertNull(log.replay(KITCHEN, log.streamId(), 7).events());
+        assertEquals(6, log.replay(KITCHEN, null, 0).lastSeq());
+    }
+
+    @Test
+    void alwaysAsksForASnapshotWhenOtherInstancesPublishThroughTheBroker() {
+        OrderEventLog relayed = new OrderEventLog(4, "relay", new SimpleMeterRegistry());
+        relayed.append(KITCHEN, "a");
+        relayed.append(KITCHEN, "b");
+
+        OrderEventReplay replay = relayed.replay(KITCHEN, relayed.streamId(), 1);
+
+        assertNull(replay.events());
+        assertEquals(2, replay.lastSeq());
+    }
+}
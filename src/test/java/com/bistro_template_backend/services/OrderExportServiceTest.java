@@ -0,0 +1,181 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.models.Customization;
+import com.bistro_template_backend.models.MenuItem;
+import com.bistro_template_backend.models.Order;
+import com.bistro_template_backend.models.OrderItem;
+import com.bistro_template_backend.models.OrderItemCustomization;
+import com.bistro_template_backend.models.OrderStatus;
+import com.bistro_template_backend.models.PaymentStatus;
+import com.bistro_template_backend.repositories.OrderItemCustomizationRepository;
+import com.bistro_template_backend.repositories.OrderItemRepository;
+import com.bistro_template_backend.repositories.OrderRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks the CSV the order export writes: quoting, free text that a
+ * spreadsheet would read as a formula, orders without items, and that every
+ * chunk of orders is written once with its own item and customization lookups.
+ */
+class OrderExportServiceTest {
+
+    private static final LocalDateTime PLACED = LocalDateTime.of(2026, 3, 14, 12, 30);
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final OrderItemRepository orderItemRepository = mock(OrderItemRepository.class);
+    private final OrderItemCustomizationRepository orderItemCustomizationRepository =
+            mock(OrderItemCustomizationRepository.class);
+    private final MenuCatalog menuCatalog = mock(MenuCatalog.class);
+    private final EntityManager entityManager = mock(EntityManager.class);
+
+    private final OrderExportService exportService = new OrderExportService(orderRepository, orderItemRepository,
+            orderItemCustomizationRepository, menuCatalog, entityManager, new ObjectMapper(),
+            mock(PlatformTransactionManager.class), 2);
+
+    @ParameterizedTest(name = "{0}")
+    @CsvSource(delimiter = '|', quoteCharacter = '`', value = {
+            "Jamie Smith | Jamie Smith",
+            "Smith, Jamie | `\"Smith, Jamie\"`",
+            "Jamie \"JJ\" Smith | `\"Jamie \"\"JJ\"\" Smith\"`",
+            "=HYPERLINK(\"http://x\") | `\"'=HYPERLINK(\"\"http://x\"\")\"`",
+            "+1 555 0100 | \"'+1 555 0100\"",
+            "-2 | \"'-2\"",
+            "@SUM(A1) | \"'@SUM(A1)\"",
+            "a=b | a=b"
+    })
+    void quotesAndDefusesFreeText(String value, String expected) {
+        assertEquals(expected, OrderExportService.text(new StringBuilder(), value).toString());
+    }
+
+    @Test
+    void quotesLineBreaksAndLeavesMissingTextEmpty() {
+        assertEquals("\"first\nsecond\"", OrderExportService.text(new StringBuilder(), "first\nsecond").toString());
+        assertEquals("\"first\r\nsecond\"", OrderExportService.text(new StringBuilder(), "first\r\nsecond").toString());
+        assertEquals("", OrderExportService.text(new StringBuilder(), null).toString());
+        assertEquals("", OrderExportService.text(new StringBuilder(), "").toString());
+    }
+
+    @Test
+    void writesOneRowPerItem() throws Exception {
+        OrderExportService.ExportedOrder order = exported("=cmd|' /C calc'!A0", List.of(
+                new OrderExportService.ExportedItem(1L, "Soup, of the day", 2, new BigDecimal("4.50"),
+                        new BigDecimal("9.00"), List.of("Extra bread (+1.00)", "No salt")),
+                new OrderExportService.ExportedItem(2L, "Tea", 1, new BigDecimal("2.00"),
+                        new BigDecimal("2.00"), List.of())));
+        StringWriter out = new StringWriter();
+
+        OrderExportService.writeCsv(order, out);
+
+        String prefix = "7,2026-03-14T12:30,COMPLETED,PAID,\"Smith, Jamie\",jamie@example.com,\"'+1 555 0100\","
+                + "11.00,0.88,0.50,,12.38,\"'=cmd|' /C calc'!A0\",";
+        assertEquals(prefix + "1,\"Soup, of the day\",2,4.50,9.00,Extra bread (+1.00) | No salt\n"
+                + prefix + "2,Tea,1,2.00,2.00,\n", out.toString());
+    }
+
+    @Test
+    void orderWithoutItemsIsOneRowWithEmptyItemColumns() throws Exception {
+        StringWriter out = new StringWriter();
+
+        OrderExportService.writeCsv(exported(null, List.of()), out);
+
+        // Thirteen order columns, then six empty item columns
+        assertEquals("7,2026-03-14T12:30,COMPLETED,PAID,\"Smith, Jamie\",jamie@example.com,\"'+1 555 0100\","
+                + "11.00,0.88,0.50,,12.38,,,,,,,\n", out.toString());
+    }
+
+    @Test
+    void exportsEveryChunkWithTheHeaderOnce() {
+        List<Order> orders = List.of(order(1L), order(2L), order(3L));
+        when(orderRepository.streamByOrderDateRange(any(), any(), any())).thenReturn(orders.stream());
+        OrderItem soup = item(10L, 1L, 5L, 2, "4.50");
+        OrderItem lostItem = item(11L, 3L, 99L, 1, "3.00");
+        when(orderItemRepository.findByOrderIdIn(List.of(1L, 2L))).thenReturn(List.of(soup));
+        when(orderItemRepository.findByOrderIdIn(List.of(3L))).thenReturn(List.of(lostItem));
+        when(menuCatalog.findMenuItems(anyCollection())).thenReturn(Map.of(5L, menuItem(5L, "Soup")));
+        when(orderItemCustomizationRepository.findByOrderItemIdIn(List.of(10L)))
+                .thenReturn(List.of(selected(soup, "Extra bread", "1.00")));
+        when(orderItemCustomizationRepository.findByOrderItemIdIn(List.of(11L))).thenReturn(List.of());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long exported = exportService.export(PLACED.minusDays(1), PLACED.plusDays(1), PaymentStatus.PAID,
+                OrderExportService.Format.CSV, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(3, exported);
+        assertEquals(List.of(
+                "order_id,order_date,status,payment_status,customer_name,customer_email,customer_phone,sub_total,"
+                        + "tax,service_fee,discount,total_amount,special_notes,menu_item_id,item_name,quantity,"
+                        + "item_price,line_total,customizations",
+                "1,2026-03-14T12:30,COMPLETED,PAID,Customer 1,,,,,,,9.00,,5,Soup,2,4.50,9.00,Extra bread (+1.00)",
+                "2,2026-03-14T12:30,COMPLETED,PAID,Customer 2,,,,,,,9.00,,,,,,,",
+                // A menu item deleted since the order was placed is named by its id
+                "3,2026-03-14T12:30,COMPLETED,PAID,Customer 3,,,,,,,9.00,,99,#99,1,3.00,3.00,"), lines);
+        verify(entityManager, times(2)).clear();
+    }
+
+    private static OrderExportService.ExportedOrder exported(String specialNotes,
+                                                            List<OrderExportService.ExportedItem> items) {
+        return new OrderExportService.ExportedOrder(7L, PLACED, OrderStatus.COMPLETED, PaymentStatus.PAID,
+                "Smith, Jamie", "jamie@example.com", "+1 555 0100", new BigDecimal("11.00"), new BigDecimal("0.88"),
+                new BigDecimal("0.50"), null, new BigDecimal("12.38"), specialNotes, items);
+    }
+
+    private static Order order(Long id) {
+        Order order = new Order();
+        order.setId(id);
+        order.setOrderDate(PLACED);
+        order.setStatus(OrderStatus.COMPLETED);
+        order.setPaymentStatus(PaymentStatus.PAID);
+        order.setCustomerName("Customer " + id);
+        order.setTotalAmount(new BigDecimal("9.00"));
+        return order;
+    }
+
+    private static OrderItem item(Long id, Long orderId, Long menuItemId, int quantity, String price) {
+        OrderItem item = new OrderItem();
+        item.setId(id);
+        item.setOrderId(orderId);
+        item.setMenuItemId(menuItemId);
+        item.setQuantity(quantity);
+        item.setItemPrice(new BigDecimal(price));
+        return item;
+    }
+
+    private static MenuItem menuItem(Long id, String name) {
+        MenuItem menuItem = new MenuItem();
+        menuItem.setId(id);
+        menuItem.setName(name);
+        return menuItem;
+    }
+
+    private static OrderItemCustomization selected(OrderItem item, String name, String price) {
+        Customization customization = new Customization();
+        customization.setName(name);
+        customization.setPrice(new BigDecimal(price));
+        OrderItemCustomization selected = new OrderItemCustomization();
+        selected.setOrderItem(item);
+        selected.setCustomization(customization);
+        return selected;
+    }
+}
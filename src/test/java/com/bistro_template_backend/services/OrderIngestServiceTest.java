@@ -0,0 +1,125 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.dto.CreateOrderRequest;
+import com.bistro_template_backend.models.Customization;
+import com.bistro_template_backend.models.MenuItem;
+import com.bistro_template_backend.models.Order;
+import com.bistro_template_backend.models.OrderItem;
+import com.bistro_template_backend.repositories.CustomizationRepository;
+import com.bistro_template_backend.repositories.OrderItemCustomizationRepository;
+import com.bistro_template_backend.repositories.OrderItemRepository;
+import com.bistro_template_backend.repositories.OrderRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderIngestServiceTest {
+
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final OrderItemRepository orderItemRepository = mock(OrderItemRepository.class);
+    private final CustomizationRepository customizationRepository = mock(CustomizationRepository.class);
+    private final MenuCatalog menuCatalog = mock(MenuCatalog.class);
+    private final OrderIngestService service = new OrderIngestService(orderRepository, orderItemRepository,
+            customizationRepository, mock(OrderItemCustomizationRepository.class), menuCatalog,
+            List.of("main"));
+
+    @BeforeEach
+    void setUp() {
+        MenuItem burger = new MenuItem();
+        burger.setId(1L);
+        burger.setPrice(new BigDecimal("9.95"));
+        Customization extraCheese = new Customization();
+        extraCheese.setId(7L);
+        extraCheese.setMenuItem(burger);
+        extraCheese.setPrice(new BigDecimal("1.50"));
+        when(customizationRepository.findAllWithMenuItemById(anyCollection())).thenAnswer(inv ->
+                inv.<Collection<Long>>getArgument(0).contains(7L) ? List.of(extraCheese) : List.of());
+        when(menuCatalog.findMenuItems(anyCollection())).thenAnswer(inv -> inv.<Collection<Long>>getArgument(0)
+                .stream()
+                .filter(id -> id == 1L)
+                .collect(Collectors.toMap(id -> id, id -> burger)));
+        when(orderRepository.save(any(Order.class))).thenAnswer(inv -> {
+            Order order = inv.getArgument(0);
+            order.setId(42L);
+            return order;
+        });
+    }
+
+    @Test
+    void rejectsACartWithAnUnknownMenuItemBeforeWritingAnything() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> service.createOrder(request(cartItem(1L), cartItem(99L))));
+
+        assertEquals("Unknown menu item: 99", error.getMessage());
+        verify(orderRepository, never()).save(any());
+        verify(orderItemRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void createsAnOrderForKnownMenuItems() {
+        Order order = service.createOrder(request(cartItem(1L)));
+
+        assertEquals(42L, order.getId());
+        assertEquals("main", order.getLocation());
+        assertEquals(0, new BigDecimal("19.90").compareTo(order.getSubTotal()));
+    }
+
+    @Test
+    void pricesLinesFromTheMenuAndTheirCustomizationsNotFromTheClient() {
+        CreateOrderRequest.CartItemDTO item = cartItem(1L, 7L);
+        item.setPriceAtOrderTime(new BigDecimal("0.01"));
+
+        Order order = service.createOrder(request(item));
+
+        assertEquals(0, new BigDecimal("22.90").compareTo(order.getSubTotal()));
+        ArgumentCaptor<List<OrderItem>> saved = ArgumentCaptor.captor();
+        verify(orderItemRepository).saveAll(saved.capture());
+        assertEquals(0, new BigDecimal("11.45").compareTo(saved.getValue().get(0).getItemPrice()));
+    }
+
+    @Test
+    void rejectsAnUnknownCustomizationWithTheSameExceptionAsOtherCartErrors() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> service.createOrder(request(cartItem(1L, 8L))));
+
+        assertEquals("Customization not found: 8", error.getMessage());
+        verify(orderRepository, never()).save(any());
+    }
+
+    private static CreateOrderRequest request(CreateOrderRequest.CartItemDTO... items) {
+        CreateOrderRequest request = new CreateOrderRequest();
+        request.setCustomerName("Jamie");
+        request.setItems(List.of(items));
+        return request;
+    }
+
+    private static CreateOrderRequest.CartItemDTO cartItem(Long menuItemId, Long... customizationIds) {
+        CreateOrderRequest.CartItemDTO item = new CreateOrderRequest.CartItemDTO();
+        item.setMenuItemId(menuItemId);
+        item.setQuantity(2);
+        item.setPriceAtOrderTime(new BigDecimal("9.95"));
+        List<CreateOrderRequest.CartItemDTO.CustomizationDTO> customizations = new ArrayList<>();
+        for (Long customizationId : customizationIds) {
+            CreateOrderRequest.CartItemDTO.CustomizationDTO customization = new CreateOrderRequest.CartItemDTO.CustomizationDTO();
+            customization.setId(customizationId);
+            customizations.add(customization);
+        }
+        item.setCustomizations(customizations);
+        return item;
+    }
+}
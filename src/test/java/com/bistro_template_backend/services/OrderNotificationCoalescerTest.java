@@ -0,0 +1,98 @@
+package com.bistro_template_backend.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageDeliveryException;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderNotificationCoalescerTest {
+
+    private record Note(int id, String status) {
+    }
+
+    private final List<Message<?>> sent = new ArrayList<>();
+    private boolean brokerDown;
+
+    private final OrderEventLog eventLog = new OrderEventLog(16, "simple", new SimpleMeterRegistry());
+
+    private final SimpMessagingTemplate template = new SimpMessagingTemplate((message, timeout) -> {
+        if (brokerDown) {
+            throw new MessageDeliveryException("broker unavailable");
+        }
+        sent.add(message);
+        return true;
+    });
+
+    @Test
+    void publishesTheLatestNotificationPerKeyAsOneFramePerDestination() {
+        OrderNotificationCoalescer coalescer = coalescer(75);
+
+        CompletableFuture<Void> first = coalescer.publish("/topic/orders", "1:STATUS", new Note(1, "PAID"));
+        coalescer.publish("/topic/orders", "2:STATUS", new Note(2, "PAID"));
+        CompletableFuture<Void> latest = coalescer.publish("/topic/orders", "1:STATUS", new Note(1, "READY"));
+        coalescer.publish("/topic/locations/main/kitchen", "1:STATUS", new Note(1, "READY"));
+        assertTrue(sent.isEmpty());
+        assertFalse(first.isDone());
+
+        coalescer.flush();
+
+        assertEquals(2, sent.size());
+        assertEquals("/topic/orders", SimpMessageHeaderAccessor.getDestination(sent.get(0).getHeaders()));
+        assertEquals("[{\"id\":2,\"status\":\"PAID\"},{\"id\":1,\"status\":\"READY\"}]", body(sent.get(0)));
+        assertEquals("2", nativeHeader(sent.get(0), OrderEventLog.SEQ_HEADER));
+        assertEquals(eventLog.streamId(), nativeHeader(sent.get(0), OrderEventLog.STREAM_ID_HEADER));
+        assertEquals("3", nativeHeader(sent.get(1), OrderEventLog.SEQ_HEADER));
+        assertEquals("/topic/locations/main/kitchen", SimpMessageHeaderAccessor.getDestination(sent.get(1).getHeaders()));
+        assertTrue(first.isDone() && !first.isCompletedExceptionally());
+        assertTrue(latest.isDone() && !latest.isCompletedExceptionally());
+
+        coalescer.flush();
+        assertEquals(2, sent.size());
+    }
+
+    @Test
+    void failsTheNotificationsOfAFrameThatCouldNotBeSent() {
+        OrderNotificationCoalescer coalescer = coalescer(75);
+        CompletableFuture<Void> notification = coalescer.publish("/topic/orders", "1:STATUS", new Note(1, "PAID"));
+
+        brokerDown = true;
+        coalescer.flush();
+
+        assertTrue(notification.isCompletedExceptionally());
+    }
+
+    @Test
+    void sendsImmediatelyWithoutAWindow() {
+        CompletableFuture<Void> notification = coalescer(0).publish("/topic/orders", "1:STATUS", new Note(1, "PAID"));
+
+        assertTrue(notification.isDone() && !notification.isCompletedExceptionally());
+        assertEquals(1, sent.size());
+        assertEquals("[{\"id\":1,\"status\":\"PAID\"}]", body(sent.get(0)));
+        assertEquals("1", nativeHeader(sent.get(0), OrderEventLog.SEQ_HEADER));
+    }
+
+    private OrderNotificationCoalescer coalescer(long windowMillis) {
+        return new OrderNotificationCoalescer(template, new ObjectMapper(), null, eventLog, new SimpleMeterRegistry(),
+                windowMillis);
+    }
+
+    private static String nativeHeader(Message<?> message, String name) {
+        return SimpMessageHeaderAccessor.wrap(message).getFirstNativeHeader(name);
+    }
+
+    private static String body(Message<?> message) {
+        return new String((byte[]) message.getPayload(), StandardCharsets.UTF_8);
+    }
+}
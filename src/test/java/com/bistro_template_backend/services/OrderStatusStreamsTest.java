@@ -0,0 +1,127 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.config.ExecutorRegistry;
+import com.bistro_template_backend.dto.CustomerOrderNotification;
+import com.bistro_template_backend.models.OrderStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.AbstractBrokerMessageHandler;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OrderStatusStreamsTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpMessagingTemplate messagingTemplate = mock(SimpMessagingTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ThreadPoolExecutor writers =
+            new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+    private final OrderStatusStreams streams = newStreams(new StaticListableBeanFactory());
+
+    @AfterEach
+    void stopWriters() {
+        writers.shutdownNow();
+    }
+
+    @Test
+    void refusesStreamsBeyondTheLimit() {
+        Optional<SseEmitter> first = streams.open(1L, OrderStatus.PENDING);
+        Optional<SseEmitter> second = streams.open(2L, OrderStatus.PENDING);
+        Optional<SseEmitter> third = streams.open(3L, OrderStatus.PENDING);
+
+        assertTrue(first.isPresent() && second.isPresent());
+        assertTrue(third.isEmpty());
+        assertEquals(2.0, meterRegistry.get("orders.sse.streams").gauge().value());
+        assertEquals(1.0, meterRegistry.get("orders.sse.rejected").counter().count());
+    }
+
+    @Test
+    void aStreamThatCannotBeWrittenKeepsOnlyTheLatestStatus() throws InterruptedException {
+        CountDownLatch busy = new CountDownLatch(1);
+        writers.execute(() -> {
+            try {
+                busy.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        streams.open(1L, OrderStatus.PENDING);
+        streams.publish(new CustomerOrderNotification(1L, "ORDER_STATUS_UPDATE", "PREPARING", "Preparing"));
+        streams.publish(new CustomerOrderNotification(1L, "ORDER_STATUS_UPDATE", "READY_FOR_PICKUP", "Ready"));
+
+        // The publisher returned while the only writer was busy; one write is queued for the stream
+        assertEquals(1, writers.getQueue().size());
+        assertEquals(2.0, meterRegistry.get("orders.sse.dropped").counter().count());
+        busy.countDown();
+    }
+
+    @Test
+    void withARelayedBrokerStreamsAreFedFromTheSharedTopic() throws Exception {
+        StompBrokerRelayMessageHandler relay = mock(StompBrokerRelayMessageHandler.class);
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("stompBrokerRelayMessageHandler", relay);
+        OrderStatusStreams relayed = newStreams(beans);
+        ArgumentCaptor<Map<String, MessageHandler>> subscriptions = ArgumentCaptor.captor();
+        verify(relay).setSystemSubscriptions(subscriptions.capture());
+        MessageHandler fromBroker = subscriptions.getValue().get(OrderStatusStreams.STATUS_TOPIC);
+
+        CountDownLatch busy = new CountDownLatch(1);
+        writers.execute(() -> {
+            try {
+                busy.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        relayed.open(1L, OrderStatus.PENDING);
+        CustomerOrderNotification ready = new CustomerOrderNotification(1L, "ORDER_STATUS_UPDATE", "READY_FOR_PICKUP", "Ready");
+
+        // Published to the broker only; the stream gets it once the broker delivers it back
+        assertTrue(relayed.publish(ready).isDone());
+        verify(messagingTemplate).convertAndSend(eq(OrderStatusStreams.STATUS_TOPIC), any(Object.class), anyMap());
+        assertEquals(0.0, meterRegistry.get("orders.sse.dropped").counter().count());
+
+        fromBroker.handleMessage(MessageBuilder.withPayload(objectMapper.writeValueAsBytes(ready)).build());
+
+        // The opening status, still waiting for the busy writer, was replaced by the delivered one
+        assertEquals(1.0, meterRegistry.get("orders.sse.dropped").counter().count());
+        busy.countDown();
+    }
+
+    private OrderStatusStreams newStreams(StaticListableBeanFactory beans) {
+        ObjectProvider<AbstractBrokerMessageHandler> brokerRelay = beans.getBeanProvider(AbstractBrokerMessageHandler.class);
+        return new OrderStatusStreams(null, registry(writers), meterRegistry, messagingTemplate, objectMapper,
+                brokerRelay, 30, 20, 2);
+    }
+
+    private static ExecutorRegistry registry(ThreadPoolExecutor writers) {
+        ExecutorRegistry registry = mock(ExecutorRegistry.class);
+        when(registry.get(ExecutorRegistry.SSE)).thenReturn(writers);
+        return registry;
+    }
+}
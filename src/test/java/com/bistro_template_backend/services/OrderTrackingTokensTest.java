@@ -0,0 +1,46 @@
+package com.bistro_template_backend.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OrderTrackingTokensTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-15T12:00:00Z");
+
+    private final OrderTrackingTokens tokens = at(NOW);
+
+    @Test
+    void acceptsItsOwnTokenUntilItExpires() {
+        String token = tokens.issue(42L);
+
+        assertEquals(Optional.of(42L), tokens.verify(token));
+        assertEquals(Optional.of(42L), at(NOW.plus(Duration.ofHours(23))).verify(token));
+        assertTrue(at(NOW.plus(Duration.ofHours(24))).verify(token).isEmpty());
+    }
+
+    @Test
+    void rejectsTokensForAnotherOrderOrSecret() {
+        String token = tokens.issue(42L);
+        String otherOrder = "43" + token.substring(token.indexOf('.'));
+        String otherSecret = new OrderTrackingTokens("another-secret", Duration.ofHours(24),
+                Clock.fixed(NOW, ZoneOffset.UTC)).issue(42L);
+
+        assertTrue(tokens.verify(otherOrder).isEmpty());
+        assertTrue(tokens.verify(otherSecret).isEmpty());
+        assertTrue(tokens.verify("42").isEmpty());
+        assertTrue(tokens.verify("not.a.token").isEmpty());
+        assertTrue(tokens.verify(null).isEmpty());
+    }
+
+    private static OrderTrackingTokens at(Instant now) {
+        return new OrderTrackingTokens("test-secret", Duration.ofHours(24), Clock.fixed(now, ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,220 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.config.ExecutorRegistry;
+import com.bistro_template_backend.models.Order;
+import com.bistro_template_backend.models.OutboxEvent;
+import com.bistro_template_backend.models.OutboxEventType;
+import com.bistro_template_backend.models.OutboxStatus;
+import com.bistro_template_backend.repositories.OrderRepository;
+import com.bistro_template_backend.repositories.OutboxEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Claims, leases and settles outbox events against an in-memory table. The
+ * notifications executor runs tasks on the calling thread, so a relay pass has
+ * settled every delivery that completed by the time it returns.
+ */
+class OutboxRelayTest {
+
+    private static final int LEASE_SECONDS = 120;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final int BACKOFF_SECONDS = 5;
+
+    private final List<OutboxEvent> table = new ArrayList<>();
+    private final AtomicInteger ids = new AtomicInteger();
+
+    private final OutboxEventRepository outboxEventRepository = mock(OutboxEventRepository.class);
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final WebSocketOrderService webSocketOrderService = mock(WebSocketOrderService.class);
+    private final OrderEmailService orderEmailService = mock(OrderEmailService.class);
+    private final ExecutorRegistry executorRegistry = mock(ExecutorRegistry.class);
+
+    private final ThreadPoolExecutor callerRuns = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+            new SynchronousQueue<>()) {
+        @Override
+        public void execute(Runnable task) {
+            task.run();
+        }
+    };
+
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        when(executorRegistry.get(ExecutorRegistry.NOTIFICATIONS)).thenReturn(callerRuns);
+        when(outboxEventRepository.lockNextBatch(any(), anyInt())).thenAnswer(inv -> {
+            LocalDateTime now = inv.getArgument(0);
+            int limit = inv.getArgument(1);
+            return table.stream()
+                    .filter(e -> e.getStatus() == OutboxStatus.PENDING && !e.getAvailableAt().isAfter(now))
+                    .limit(limit)
+                    .toList();
+        });
+        when(outboxEventRepository.markDelivered(anyCollection(), any())).thenAnswer(inv -> {
+            Collection<?> delivered = inv.getArgument(0);
+            table.stream().filter(e -> delivered.contains(e.getId())).forEach(e -> {
+                e.setStatus(OutboxStatus.DELIVERED);
+                e.setDeliveredAt(inv.getArgument(1));
+            });
+            return delivered.size();
+        });
+        when(outboxEventRepository.findById(any())).thenAnswer(inv ->
+                table.stream().filter(e -> e.getId().equals(inv.getArgument(0))).findFirst());
+        when(orderRepository.findAllById(any())).thenAnswer(inv -> {
+            List<Order> orders = new ArrayList<>();
+            inv.<Iterable<Long>>getArgument(0).forEach(id -> {
+                if (id != 404L) {
+                    Order order = new Order();
+                    order.setId(id);
+                    orders.add(order);
+                }
+            });
+            return orders;
+        });
+        when(webSocketOrderService.notifyNewOrder(any())).thenReturn(CompletableFuture.completedFuture(null));
+        when(orderEmailService.sendConfirmationEmails(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        relay = new OutboxRelay(outboxEventRepository, orderRepository, webSocketOrderService, orderEmailService,
+                new CheckoutMetrics(new SimpleMeterRegistry()), mock(PlatformTransactionManager.class),
+                executorRegistry, new SimpleMeterRegistry(), 100, LEASE_SECONDS, MAX_ATTEMPTS, BACKOFF_SECONDS, 14);
+    }
+
+    @Test
+    void claimsOnlyDueEventsAndLeasesThem() {
+        OutboxEvent due = event(1L, OutboxEventType.ORDER_CONFIRMATION_EMAIL);
+        OutboxEvent later = event(2L, OutboxEventType.ORDER_CONFIRMATION_EMAIL);
+        later.setAvailableAt(LocalDateTime.now().plusMinutes(1));
+        LocalDateTime before = LocalDateTime.now();
+
+        List<OutboxEvent> claimed = relay.claimBatch();
+
+        assertEquals(List.of(due), claimed);
+        assertEquals(1, due.getAttempts());
+        assertFalse(due.getAvailableAt().isBefore(before.plusSeconds(LEASE_SECONDS)), due.getAvailableAt().toString());
+        assertEquals(0, later.getAttempts());
+        // Leased, so a second poll (or another instance) does not pick it up again
+        assertEquals(List.of(), relay.claimBatch());
+    }
+
+    @Test
+    void settlesEveryDeliveredEventWithOneUpdate() {
+        for (long orderId = 1; orderId <= 3; orderId++) {
+            event(orderId, OutboxEventType.NEW_ORDER_NOTIFICATION);
+            event(orderId, OutboxEventType.ORDER_CONFIRMATION_EMAIL);
+        }
+
+        relay.relay();
+
+        assertTrue(table.stream().allMatch(e -> e.getStatus() == OutboxStatus.DELIVERED));
+        verify(outboxEventRepository, times(1)).markDelivered(anyCollection(), any());
+        verify(outboxEventRepository, never()).findById(any());
+    }
+
+    @Test
+    void leavesTheLeaseInPlaceWhileADeliveryIsStillRunning() {
+        CompletableFuture<Void> sending = new CompletableFuture<>();
+        when(orderEmailService.sendConfirmationEmails(any())).thenReturn(sending);
+        OutboxEvent email = event(1L, OutboxEventType.ORDER_CONFIRMATION_EMAIL);
+
+        relay.relay();
+
+        assertEquals(OutboxStatus.PENDING, email.getStatus());
+        verify(outboxEventRepository, never()).markDelivered(anyCollection(), any());
+
+        sending.complete(null);
+
+        assertEquals(OutboxStatus.DELIVERED, email.getStatus());
+    }
+
+    @Test
+    void failedDeliveryBacksOffExponentiallyThenFails() {
+        when(orderEmailService.sendConfirmationEmails(any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("SMTP unavailable")));
+        OutboxEvent email = event(1L, OutboxEventType.ORDER_CONFIRMATION_EMAIL);
+        OutboxEvent notification = event(1L, OutboxEventType.NEW_ORDER_NOTIFICATION);
+
+        for (int attempt = 1; attempt <= MAX_ATTEMPTS; attempt++) {
+            LocalDateTime before = LocalDateTime.now();
+            relay.relay();
+            if (attempt < MAX_ATTEMPTS) {
+                Duration backoff = Duration.ofSeconds(BACKOFF_SECONDS).multipliedBy(1L << (attempt - 1));
+                assertEquals(OutboxStatus.PENDING, email.getStatus());
+                assertFalse(email.getAvailableAt().isBefore(before.plus(backoff)), "attempt " + attempt);
+                assertTrue(email.getAvailableAt().isBefore(before.plus(backoff).plusSeconds(LEASE_SECONDS)));
+                email.setAvailableAt(LocalDateTime.now().minusSeconds(1));
+            }
+        }
+
+        assertEquals(OutboxStatus.FAILED, email.getStatus());
+        assertEquals(MAX_ATTEMPTS, email.getAttempts());
+        assertEquals("SMTP unavailable", email.getLastError());
+        assertEquals(OutboxStatus.DELIVERED, notification.getStatus());
+        assertEquals(1, notification.getAttempts());
+    }
+
+    @Test
+    void eventForAMissingOrderIsRetried() {
+        OutboxEvent email = event(404L, OutboxEventType.ORDER_CONFIRMATION_EMAIL);
+
+        relay.relay();
+
+        assertEquals(OutboxStatus.PENDING, email.getStatus());
+        assertEquals("Order not found: 404", email.getLastError());
+        assertNull(email.getDeliveredAt());
+    }
+
+    @Test
+    void prunesInChunksUntilNothingIsLeft() {
+        when(outboxEventRepository.deleteSettledBefore(any(), eq(OutboxRelay.PRUNE_CHUNK)))
+                .thenReturn(OutboxRelay.PRUNE_CHUNK, OutboxRelay.PRUNE_CHUNK, 17);
+        LocalDateTime before = LocalDateTime.now().minusDays(14);
+
+        relay.pruneSettled();
+
+        verify(outboxEventRepository, times(3)).deleteSettledBefore(
+                argThat(cutoff -> !cutoff.isBefore(before) && cutoff.isBefore(before.plusMinutes(1))),
+                eq(OutboxRelay.PRUNE_CHUNK));
+    }
+
+    private OutboxEvent event(Long orderId, OutboxEventType type) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId((long) ids.incrementAndGet());
+        event.setOrderId(orderId);
+        event.setEventType(type);
+        event.setPayload(type == OutboxEventType.NEW_ORDER_NOTIFICATION ? "card" : null);
+        event.setStatus(OutboxStatus.PENDING);
+        event.onCreate();
+        event.setAvailableAt(event.getCreatedAt().minusSeconds(1));
+        table.add(event);
+        return event;
+    }
+}
@@ -0,0 +1,80 @@
+package com.bistro_template_backend.services;
+
+import com.stripe.net.ApiMode;
+import com.stripe.net.ApiResource;
+import com.stripe.net.RequestOptions;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class StripeGatewayTest {
+
+    @Test
+    void idempotencyKeyChangesWithAnyIntentParameter() {
+        PaymentIntentCreateParams params = params(2599, "usd", "Order #7");
+
+        String key = StripeGateway.idempotencyKey(7L, params, 0);
+
+        assertEquals(key, StripeGateway.idempotencyKey(7L, params(2599, "usd", "Order #7"), 0));
+        assertNotEquals(key, StripeGateway.idempotencyKey(7L, params(2599, "eur", "Order #7"), 0));
+        assertNotEquals(key, StripeGateway.idempotencyKey(7L, params(2599, "usd", "Order #7, no onions"), 0));
+        assertNotEquals(key, StripeGateway.idempotencyKey(7L, params(2600, "usd", "Order #7"), 0));
+        assertNotEquals(key, StripeGateway.idempotencyKey(7L, params, 1));
+    }
+
+    @Test
+    void pooledClientSendsTheStripeRequestAndReturnsTheResponse() throws Exception {
+        AtomicReference<String> body = new AtomicReference<>();
+        AtomicReference<String> idempotencyKey = new AtomicReference<>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v1/payment_intents", exchange -> {
+            body.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            idempotencyKey.set(exchange.getRequestHeaders().getFirst("Idempotency-Key"));
+            byte[] response = "{\"id\":\"pi_1\"}".getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Request-Id", "req_1");
+            exchange.sendResponseHeaders(200, response.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(response);
+            }
+        });
+        server.start();
+        try (PooledStripeHttpClient client = new PooledStripeHttpClient(2, 1000)) {
+            StripeRequest request = StripeRequest.create(ApiResource.RequestMethod.POST,
+                    "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/payment_intents",
+                    Map.of("amount", 2599),
+                    RequestOptions.builder().setApiKey("sk_test_x").setIdempotencyKey("order-7").build(),
+                    ApiMode.V1);
+
+            StripeResponse response = client.request(request);
+
+            assertEquals(200, response.code());
+            assertEquals("{\"id\":\"pi_1\"}", response.body());
+            assertEquals("req_1", response.requestId());
+            assertEquals("amount=2599", body.get());
+            assertEquals("order-7", idempotencyKey.get());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static PaymentIntentCreateParams params(long amount, String currency, String description) {
+        return PaymentIntentCreateParams.builder()
+                .setAmount(amount)
+                .setCurrency(currency)
+                .setDescription(description)
+                .putMetadata("orderId", "7")
+                .putMetadata("paymentMethod", "stripe")
+                .build();
+    }
+}
@@ -0,0 +1,217 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.models.Order;
+import com.bistro_template_backend.models.Payment;
+import com.bistro_template_backend.models.PaymentStatus;
+import com.bistro_template_backend.models.StripeWebhookEvent;
+import com.bistro_template_backend.models.WebhookEventStatus;
+import com.bistro_template_backend.repositories.OrderRepository;
+import com.bistro_template_backend.repositories.PaymentRepository;
+import com.bistro_template_backend.repositories.StripeWebhookEventRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Applies a burst of fake Stripe events and checks the resulting payment and
+ * order states, and that a batch costs one lookup per table.
+ */
+class StripeWebhookProcessorTest {
+
+    private static final int ORDERS = 40;
+
+    private final List<StripeWebhookEvent> pending = new ArrayList<>();
+    private final List<Payment> payments = new ArrayList<>();
+    private final List<Order> orders = new ArrayList<>();
+
+    private StripeWebhookEventRepository eventRepository;
+    private PaymentRepository paymentRepository;
+    private OrderRepository orderRepository;
+    private PaymentService paymentService;
+    private StripeWebhookProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        eventRepository = mock(StripeWebhookEventRepository.class);
+        paymentRepository = mock(PaymentRepository.class);
+        orderRepository = mock(OrderRepository.class);
+        paymentService = mock(PaymentService.class);
+
+        when(eventRepository.lockNextBatch(any(), anyInt())).thenAnswer(inv -> {
+            LocalDateTime now = inv.getArgument(0);
+            int limit = inv.getArgument(1);
+            return pending.stream()
+                    .filter(e -> e.getStatus() == WebhookEventStatus.PENDING && !e.getAvailableAt().isAfter(now))
+                    .limit(limit)
+                    .toList();
+        });
+        when(eventRepository.lockPendingById(any())).thenAnswer(inv -> pending.stream()
+                .filter(e -> e.getId().equals(inv.getArgument(0)) && e.getStatus() == WebhookEventStatus.PENDING)
+                .findFirst());
+        when(paymentRepository.lockByTransactionIdIn(anyCollection())).thenAnswer(inv -> {
+            Collection<?> ids = inv.getArgument(0);
+            return payments.stream().filter(p -> ids.contains(p.getTransactionId())).toList();
+        });
+        when(orderRepository.findAllById(any())).thenAnswer(inv -> {
+            List<Long> ids = new ArrayList<>();
+            inv.<Iterable<Long>>getArgument(0).forEach(ids::add);
+            return orders.stream().filter(o -> ids.contains(o.getId())).toList();
+        });
+        when(paymentService.markPaid(any(), any())).thenAnswer(inv -> {
+            Payment payment = inv.getArgument(0);
+            boolean changed = payment.getStatus() != PaymentStatus.PAID;
+            payment.setStatus(PaymentStatus.PAID);
+            inv.<Order>getArgument(1).setPaymentStatus(PaymentStatus.PAID);
+            return changed;
+        });
+        when(paymentService.markFailed(any(), any())).thenAnswer(inv -> {
+            Payment payment = inv.getArgument(0);
+            if (payment.getStatus() != PaymentStatus.INITIATED) {
+                return false;
+            }
+            payment.setStatus(PaymentStatus.FAILED);
+            return true;
+        });
+
+        processor = new StripeWebhookProcessor(eventRepository, paymentRepository, orderRepository, paymentService,
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 100, 3, 2, 30);
+
+        for (long orderId = 1; orderId <= ORDERS; orderId++) {
+            Order order = new Order();
+            order.setId(orderId);
+            order.setPaymentStatus(PaymentStatus.NOT_PAID);
+            order.setTotalAmount(new BigDecimal("25.99"));
+            orders.add(order);
+
+            Payment payment = new Payment();
+            payment.setOrderId(orderId);
+            payment.setTransactionId("pi_" + orderId);
+            payment.setStatus(PaymentStatus.INITIATED);
+            payments.add(payment);
+        }
+    }
+
+    @Test
+    void appliesBurstInOneBatch() {
+        for (long orderId = 1; orderId <= ORDERS; orderId++) {
+            String type = orderId % 4 == 0 ? StripeWebhookService.PAYMENT_FAILED : StripeWebhookService.PAYMENT_SUCCEEDED;
+            pending.add(event(type, "pi_" + orderId));
+        }
+        // Stripe may deliver the same outcome under a new event id
+        pending.add(event(StripeWebhookService.PAYMENT_SUCCEEDED, "pi_1"));
+
+        assertEquals(ORDERS + 1, processor.processBatch());
+
+        for (Payment payment : payments) {
+            PaymentStatus expected = payment.getOrderId() % 4 == 0 ? PaymentStatus.FAILED : PaymentStatus.PAID;
+            assertEquals(expected, payment.getStatus(), payment.getTransactionId());
+        }
+        assertTrue(pending.stream().allMatch(e -> e.getStatus() == WebhookEventStatus.PROCESSED));
+        verify(paymentRepository, times(1)).lockByTransactionIdIn(anyCollection());
+        verify(orderRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void successAfterFailureOnSameIntentMarksPaid() {
+        pending.add(event(StripeWebhookService.PAYMENT_FAILED, "pi_7"));
+        pending.add(event(StripeWebhookService.PAYMENT_SUCCEEDED, "pi_7"));
+
+        processor.processBatch();
+
+        assertEquals(PaymentStatus.PAID, payments.get(6).getStatus());
+        assertEquals(PaymentStatus.PAID, orders.get(6).getPaymentStatus());
+    }
+
+    @Test
+    void successForLessThanTheOrderTotalDoesNotMarkPaid() {
+        StripeWebhookEvent shortPaid = event(StripeWebhookService.PAYMENT_SUCCEEDED, "pi_3");
+        shortPaid.setAmountReceived(50L);
+        StripeWebhookEvent otherCurrency = event(StripeWebhookService.PAYMENT_SUCCEEDED, "pi_4");
+        otherCurrency.setCurrency("eur");
+        StripeWebhookEvent storedWithoutAmount = event(StripeWebhookService.PAYMENT_SUCCEEDED, "pi_5");
+        storedWithoutAmount.setAmountReceived(null);
+        pending.addAll(List.of(shortPaid, otherCurrency, storedWithoutAmount));
+
+        processor.processBatch();
+
+        for (StripeWebhookEvent event : pending) {
+            assertEquals(WebhookEventStatus.FAILED, event.getStatus(), event.getPaymentIntentId());
+            assertTrue(event.getLastError().contains("which totals 2599 usd"), event.getLastError());
+        }
+        assertEquals(PaymentStatus.NOT_PAID, orders.get(2).getPaymentStatus());
+        verify(paymentService, never()).markPaid(any(), any());
+    }
+
+    @Test
+    void eventForUnknownPaymentIsRetriedThenFailed() {
+        StripeWebhookEvent event = event(StripeWebhookService.PAYMENT_SUCCEEDED, "pi_unknown");
+        pending.add(event);
+
+        for (int attempt = 1; attempt <= 3; attempt++) {
+            event.setAvailableAt(LocalDateTime.now().minusSeconds(1));
+            processor.processBatch();
+        }
+
+        assertEquals(WebhookEventStatus.FAILED, event.getStatus());
+        assertEquals(3, event.getAttempts());
+    }
+
+    @Test
+    void eventThatThrowsIsRetriedAloneWhileTheRestOfItsBatchIsApplied() {
+        for (long orderId = 1; orderId <= 5; orderId++) {
+            pending.add(event(StripeWebhookService.PAYMENT_SUCCEEDED, "pi_" + orderId));
+        }
+        StripeWebhookEvent poison = pending.get(2);
+        Payment poisonPayment = payments.get(2);
+        doThrow(new IllegalStateException("rollup upsert failed")).when(paymentService).markPaid(eq(poisonPayment), any());
+        // The in-memory events keep the attempts of rolled-back transactions, so allow more of them
+        processor = new StripeWebhookProcessor(eventRepository, paymentRepository, orderRepository, paymentService,
+                mock(PlatformTransactionManager.class), new SimpleMeterRegistry(), 100, 10, 2, 30);
+
+        processor.processPending();
+
+        assertEquals(WebhookEventStatus.PENDING, poison.getStatus());
+        assertEquals("IllegalStateException: rollup upsert failed", poison.getLastError());
+        assertTrue(poison.getAvailableAt().isAfter(LocalDateTime.now()));
+        assertTrue(pending.stream().filter(e -> e != poison).allMatch(e -> e.getStatus() == WebhookEventStatus.PROCESSED));
+
+        while (poison.getStatus() == WebhookEventStatus.PENDING) {
+            poison.setAvailableAt(LocalDateTime.now().minusSeconds(1));
+            processor.processPending();
+        }
+        assertEquals(WebhookEventStatus.FAILED, poison.getStatus());
+    }
+
+    private static StripeWebhookEvent event(String type, String paymentIntentId) {
+        StripeWebhookEvent event = new StripeWebhookEvent();
+        event.setId(FakeStripeEvents.newEventId());
+        event.setEventType(type);
+        event.setPaymentIntentId(paymentIntentId);
+        event.setAmountReceived(StripeWebhookService.PAYMENT_SUCCEEDED.equals(type) ? 2599L : 0L);
+        event.setCurrency("usd");
+        event.setStatus(WebhookEventStatus.PENDING);
+        event.setReceivedAt(LocalDateTime.now());
+        event.setAvailableAt(LocalDateTime.now().minusSeconds(1));
+        return event;
+    }
+}
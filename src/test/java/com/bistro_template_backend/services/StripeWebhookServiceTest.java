@@ -0,0 +1,81 @@
+package com.bistro_template_backend.services;
+
+import com.bistro_template_backend.repositories.StripeWebhookEventRepository;
+import com.stripe.exception.SignatureVerificationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StripeWebhookServiceTest {
+
+    private static final String SECRET = "whsec_test_secret";
+
+    private final FakeStripeEvents stripe = new FakeStripeEvents(SECRET);
+    private StripeWebhookEventRepository repository;
+    private StripeWebhookService service;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(StripeWebhookEventRepository.class);
+        // Behaves like the ON CONFLICT DO NOTHING insert
+        Set<String> stored = new HashSet<>();
+        when(repository.insertIfAbsent(anyString(), anyString(), anyString(), any(), any(), any()))
+                .thenAnswer(inv -> stored.add(inv.getArgument(0)) ? 1 : 0);
+        service = new StripeWebhookService(repository, new SimpleMeterRegistry(), SECRET, 300);
+    }
+
+    @Test
+    void storesSignedPaymentIntentEvent() throws Exception {
+        String eventId = FakeStripeEvents.newEventId();
+        String payload = stripe.paymentIntentEvent(eventId, StripeWebhookService.PAYMENT_SUCCEEDED, "pi_123", 42);
+
+        assertEquals(StripeWebhookService.Outcome.ACCEPTED, service.receive(payload, stripe.signature(payload)));
+        verify(repository).insertIfAbsent(eq(eventId), eq(StripeWebhookService.PAYMENT_SUCCEEDED), eq("pi_123"),
+                eq(2599L), eq("usd"), any());
+    }
+
+    @Test
+    void redeliveredEventIsStoredOnce() throws Exception {
+        String payload = stripe.paymentIntentEvent(FakeStripeEvents.newEventId(),
+                StripeWebhookService.PAYMENT_FAILED, "pi_456", 42);
+
+        assertEquals(StripeWebhookService.Outcome.ACCEPTED, service.receive(payload, stripe.signature(payload)));
+        assertEquals(StripeWebhookService.Outcome.DUPLICATE, service.receive(payload, stripe.signature(payload)));
+    }
+
+    @Test
+    void rejectsForgedAndStaleSignatures() {
+        String payload = stripe.paymentIntentEvent(FakeStripeEvents.newEventId(),
+                StripeWebhookService.PAYMENT_SUCCEEDED, "pi_789", 42);
+        String forged = new FakeStripeEvents("whsec_other").signature(payload);
+        String stale = stripe.signature(payload, Instant.now().getEpochSecond() - 3600);
+
+        assertThrows(SignatureVerificationException.class, () -> service.receive(payload, forged));
+        assertThrows(SignatureVerificationException.class, () -> service.receive(payload, stale));
+        assertThrows(SignatureVerificationException.class, () -> service.receive(payload, null));
+        verify(repository, never()).insertIfAbsent(anyString(), anyString(), anyString(), any(), any(), any());
+    }
+
+    @Test
+    void ignoresOtherEventTypes() throws Exception {
+        String payload = stripe.paymentIntentEvent(FakeStripeEvents.newEventId(),
+                "payment_intent.created", "pi_321", 42);
+
+        assertEquals(StripeWebhookService.Outcome.IGNORED, service.receive(payload, stripe.signature(payload)));
+        verify(repository, never()).insertIfAbsent(anyString(), anyString(), anyString(), any(), any(), any());
+    }
+}